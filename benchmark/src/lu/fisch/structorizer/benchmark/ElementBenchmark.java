@@ -0,0 +1,94 @@
+/*
+    Structorizer
+    A little tool which you can use to create Nassi-Shneiderman Diagrams (NSD)
+
+    Copyright (C) 2009  Bob Fisch
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lu.fisch.structorizer.benchmark;
+
+/******************************************************************************************************
+ *
+ *      Author:         Kay Gürtzig
+ *
+ *      Description:    JMH benchmark of the lexical splitting of element texts
+ *
+ ******************************************************************************************************
+ *
+ *      Revision List
+ *
+ *      Author          Date            Description
+ *      ------          ----            -----------
+ *      Kay Gürtzig     2026-10-19      First Issue (KGU#1224)
+ *
+ ******************************************************************************************************
+ *
+ *      Comment:
+ *      Splits every text line of the fixture diagrams as the Analyser, the Executor, and the
+ *      generators do it over and over again.
+ *
+ ******************************************************************************************************///
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import lu.fisch.structorizer.elements.Element;
+
+/**
+ * Benchmarks {@link Element#splitLexically(String, boolean)}
+ * @author Kay Gürtzig
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ElementBenchmark {
+
+	@Param({Fixtures.SAMPLES, "synthetic-1000", "synthetic-10000", "synthetic-100000"})
+	public String fixture;
+
+	private String[] lines;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		lines = Fixtures.getTextLines(Fixtures.getDiagrams(fixture));
+	}
+
+	/** Tokenizes all text lines (with string literals restored) */
+	@Benchmark
+	public void splitLexically(Blackhole bh)
+	{
+		for (String line: lines) {
+			bh.consume(Element.splitLexically(line, true));
+		}
+	}
+
+}
@@ -0,0 +1,166 @@
+/*
+    Structorizer
+    A little tool which you can use to create Nassi-Shneiderman Diagrams (NSD)
+
+    Copyright (C) 2009  Bob Fisch
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lu.fisch.structorizer.benchmark;
+
+/******************************************************************************************************
+ *
+ *      Author:         Kay Gürtzig
+ *
+ *      Description:    JMH benchmark of expression conversion and evaluation
+ *
+ ******************************************************************************************************
+ *
+ *      Revision List
+ *
+ *      Author          Date            Description
+ *      ------          ----            -----------
+ *      Kay Gürtzig     2026-10-19      First Issue (KGU#1224)
+ *
+ ******************************************************************************************************
+ *
+ *      Comment:
+ *      The Executor is a singleton owning its control window, so this benchmark requires a
+ *      graphical environment (unlike the other benchmarks). Its conversion and evaluation methods
+ *      are internal and therefore accessed via method handles, with an execution context
+ *      prepared as Executor.execute() would do it.
+ *      Only those expressions of the fixture are evaluated that succeed with the variables
+ *      preset by the setup (the ones of the synthetic diagrams), since the evaluation of the
+ *      others would just measure the error handling.
+ *
+ ******************************************************************************************************///
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import lu.fisch.structorizer.elements.Root;
+import lu.fisch.structorizer.executor.ExecutionContext;
+import lu.fisch.structorizer.executor.Executor;
+
+/**
+ * Benchmarks {@code Executor.convert(String, boolean)} and
+ * {@code Executor.evaluateExpression(String, boolean, boolean)}
+ * @author Kay Gürtzig
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutorBenchmark {
+
+	/** Only synthetic fixtures, since the sample diagrams hardly contain plain assignments */
+	@Param({"synthetic-1000", "synthetic-10000"})
+	public String fixture;
+
+	private String[] expressions;
+	private String[] converted;
+	private MethodHandle convert;
+	private MethodHandle evaluateExpression;
+
+	@Setup
+	public void setup() throws Throwable
+	{
+		List<Root> roots = Fixtures.getDiagrams(fixture);
+		expressions = Fixtures.getExpressions(Fixtures.getTextLines(roots));
+		if (expressions.length == 0) {
+			throw new IOException("No expressions in fixture " + fixture);
+		}
+
+		Executor executor = Executor.getInstance(null, null);
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		Method convertMethod = Executor.class.getDeclaredMethod("convert", String.class, boolean.class);
+		convertMethod.setAccessible(true);
+		convert = lookup.unreflect(convertMethod).bindTo(executor);
+		Method evalMethod = Executor.class.getDeclaredMethod("evaluateExpression", String.class, boolean.class, boolean.class);
+		evalMethod.setAccessible(true);
+		evaluateExpression = lookup.unreflect(evalMethod).bindTo(executor);
+
+		// Establish an execution context with the variables of the synthetic diagrams
+		ExecutionContext context = new ExecutionContext(roots.get(0));
+		Field contextField = Executor.class.getDeclaredField("context");
+		contextField.setAccessible(true);
+		contextField.set(executor, context);
+		Method initMethod = Executor.class.getDeclaredMethod("initInterpreter");
+		initMethod.setAccessible(true);
+		initMethod.invoke(executor);
+		context.interpreter.set("a", 17);
+		context.interpreter.set("b", 4);
+		context.interpreter.set("c", 2.5);
+		context.interpreter.set("s", "");
+		ArrayList<Object> arr = new ArrayList<Object>();
+		for (int i = 1; i <= 8; i++) {
+			arr.add(i);
+		}
+		context.interpreter.set("arr", arr);
+
+		// Retain the convertible and evaluable expressions
+		ArrayList<String> evaluable = new ArrayList<String>();
+		for (String expr: expressions) {
+			try {
+				String conv = (String)convert.invoke(expr, true);
+				evaluateExpression.invoke(conv, false, false);
+				evaluable.add(conv);
+			}
+			catch (Throwable ex) {
+				// Depends on unknown variables or isn't an expression
+			}
+		}
+		converted = evaluable.toArray(new String[evaluable.size()]);
+	}
+
+	/** Converts all expressions into the interpreter syntax */
+	@Benchmark
+	public void convert(Blackhole bh) throws Throwable
+	{
+		for (String expr: expressions) {
+			bh.consume((String)convert.invoke(expr, true));
+		}
+	}
+
+	/** Evaluates all evaluable (converted) expressions */
+	@Benchmark
+	public void evaluateExpression(Blackhole bh) throws Throwable
+	{
+		for (String expr: converted) {
+			bh.consume(evaluateExpression.invoke(expr, false, false));
+		}
+	}
+
+}
@@ -0,0 +1,465 @@
+/*
+    Structorizer
+    A little tool which you can use to create Nassi-Shneiderman Diagrams (NSD)
+
+    Copyright (C) 2009  Bob Fisch
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lu.fisch.structorizer.benchmark;
+
+/******************************************************************************************************
+ *
+ *      Author:         Kay Gürtzig
+ *
+ *      Description:    Diagram and source fixtures for the JMH benchmarks
+ *
+ ******************************************************************************************************
+ *
+ *      Revision List
+ *
+ *      Author          Date            Description
+ *      ------          ----            -----------
+ *      Kay Gürtzig     2026-10-19      First Issue (KGU#1224)
+ *
+ ******************************************************************************************************
+ *
+ *      Comment:
+ *      A fixture is specified by a string, which allows to use it as JMH @Param value:
+ *      - "samples": all diagrams found in the nsd files of the samples directory (realistic mix),
+ *      - "synthetic-N": a single program diagram with about N elements (generated with a fixed
+ *        seed, so every fork and every run works on identical diagrams).
+ *      The samples directory is taken from system property "structorizer.samples" (as set by the
+ *      bench target of benchmark.xml), defaulting to "samples" in the working directory.
+ *      The synthetic diagrams consist of nested assignments, alternatives, selections, loops,
+ *      and calls in proportions resembling the samples, with expressions of the usual complexity.
+ *      The benchmarks with expensive operations (analysis, import, export) default to fixtures up
+ *      to 10^4 elements; larger ones (e.g. "synthetic-100000") may be requested via the JMH option
+ *      -p fixture=..., see property bench.args in benchmark.xml.
+ *
+ ******************************************************************************************************///
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import lu.fisch.structorizer.elements.Alternative;
+import lu.fisch.structorizer.elements.Call;
+import lu.fisch.structorizer.elements.Case;
+import lu.fisch.structorizer.elements.Element;
+import lu.fisch.structorizer.elements.For;
+import lu.fisch.structorizer.elements.IElementVisitor;
+import lu.fisch.structorizer.elements.Instruction;
+import lu.fisch.structorizer.elements.Repeat;
+import lu.fisch.structorizer.elements.Root;
+import lu.fisch.structorizer.elements.Subqueue;
+import lu.fisch.structorizer.elements.While;
+import lu.fisch.structorizer.generators.XmlGenerator;
+import lu.fisch.structorizer.parsers.CodeParser;
+import lu.fisch.structorizer.parsers.NSDParser;
+
+/**
+ * Provides the diagrams, texts, and source files the benchmarks work on
+ * @author Kay Gürtzig
+ */
+public final class Fixtures {
+
+	/** Fixture specification for the sample diagrams */
+	public static final String SAMPLES = "samples";
+	/** Prefix of the fixture specifications for synthetic diagrams */
+	public static final String SYNTHETIC = "synthetic-";
+
+	private static final long SEED = 0x5712C7L;
+	private static boolean initialized = false;
+	private static final HashMap<String, List<Root>> CACHE = new HashMap<String, List<Root>>();
+
+	private Fixtures() {}
+
+	/**
+	 * Loads the parser and element preferences (needed before any diagram is built)
+	 */
+	public static synchronized void init()
+	{
+		if (!initialized) {
+			Element.loadFromINI();
+			CodeParser.loadFromINI();
+			initialized = true;
+		}
+	}
+
+	/**
+	 * @return the samples directory of the Structorizer distribution
+	 */
+	public static File getSamplesDir()
+	{
+		return new File(System.getProperty("structorizer.samples", "samples"));
+	}
+
+	/**
+	 * Provides the diagrams for the given fixture specification. The result is cached,
+	 * so benchmarks modifying the diagrams should use {@link #copy(List)}.
+	 * @param fixture - {@link #SAMPLES} or {@link #SYNTHETIC} followed by the element count
+	 * @return the list of diagrams
+	 * @throws IOException if the samples can't be read
+	 */
+	public static synchronized List<Root> getDiagrams(String fixture) throws IOException
+	{
+		init();
+		List<Root> roots = CACHE.get(fixture);
+		if (roots == null) {
+			if (fixture.equals(SAMPLES)) {
+				roots = loadSamples();
+			}
+			else if (fixture.startsWith(SYNTHETIC)) {
+				int nElements = Integer.parseInt(fixture.substring(SYNTHETIC.length()));
+				roots = new ArrayList<Root>();
+				roots.add(makeSynthetic(nElements, SEED));
+			}
+			else {
+				throw new IllegalArgumentException("Unknown fixture: " + fixture);
+			}
+			CACHE.put(fixture, roots);
+		}
+		return roots;
+	}
+
+	/**
+	 * @param roots - list of diagrams
+	 * @return a list of deep copies of the diagrams
+	 */
+	public static List<Root> copy(List<Root> roots)
+	{
+		List<Root> copies = new ArrayList<Root>(roots.size());
+		for (Root root: roots) {
+			copies.add((Root)root.copy());
+		}
+		return copies;
+	}
+
+	/**
+	 * Collects the text lines of all elements of the given diagrams
+	 * @param roots - list of diagrams
+	 * @return array of the element text lines
+	 */
+	public static String[] getTextLines(List<Root> roots)
+	{
+		final ArrayList<String> lines = new ArrayList<String>();
+		IElementVisitor collector = new IElementVisitor() {
+			@Override
+			public boolean visitPreOrder(Element _ele) {
+				for (int i = 0; i < _ele.getText().count(); i++) {
+					lines.add(_ele.getText().get(i));
+				}
+				return true;
+			}
+			@Override
+			public boolean visitPostOrder(Element _ele) {
+				return true;
+			}
+		};
+		for (Root root: roots) {
+			root.traverse(collector);
+		}
+		return lines.toArray(new String[lines.size()]);
+	}
+
+	/**
+	 * Derives a list of expressions from the assignments among the given text lines
+	 * (the right-hand sides), ignoring lines containing calls or keywords.
+	 * @param lines - element text lines
+	 * @return array of the expressions
+	 */
+	public static String[] getExpressions(String[] lines)
+	{
+		ArrayList<String> exprs = new ArrayList<String>();
+		for (String line: lines) {
+			int pos = line.indexOf("<-");
+			if (pos > 0 && line.indexOf('(') < 0 && line.indexOf('{') < 0) {
+				String lhs = line.substring(0, pos).trim();
+				if (lhs.matches("\\w+")) {
+					exprs.add(line.substring(pos + 2).trim());
+				}
+			}
+		}
+		return exprs.toArray(new String[exprs.size()]);
+	}
+
+	/**
+	 * Serializes the given diagrams as NSD files into a temporary directory
+	 * @param roots - list of diagrams
+	 * @return array of the written NSD files (to be deleted on exit)
+	 * @throws IOException
+	 */
+	public static File[] writeNSDFiles(List<Root> roots) throws IOException
+	{
+		File dir = Files.createTempDirectory("structorizer-bench").toFile();
+		dir.deleteOnExit();
+		File[] files = new File[roots.size()];
+		for (int i = 0; i < files.length; i++) {
+			files[i] = new File(dir, "diagram" + i + ".nsd");
+			files[i].deleteOnExit();
+			String xml = new XmlGenerator().generateCode(roots.get(i), "\t", true);
+			try (Writer out = new OutputStreamWriter(Files.newOutputStream(files[i].toPath()), StandardCharsets.UTF_8)) {
+				out.write(xml);
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Provides the source files for a parser benchmark: the Java import samples for
+	 * {@link #SAMPLES}, a synthetic Java class with about N statements for {@link #SYNTHETIC}N.
+	 * @param fixture - the fixture specification
+	 * @return array of Java source files
+	 * @throws IOException
+	 */
+	public static File[] getJavaSources(String fixture) throws IOException
+	{
+		if (fixture.equals(SAMPLES)) {
+			File[] files = new File(getSamplesDir(), "import/Java").listFiles((dir, name) -> name.endsWith(".java"));
+			if (files == null || files.length == 0) {
+				throw new IOException("No Java sources in " + new File(getSamplesDir(), "import/Java"));
+			}
+			Arrays.sort(files);
+			return files;
+		}
+		int nStatements = Integer.parseInt(fixture.substring(SYNTHETIC.length()));
+		File file = File.createTempFile("Synthetic", ".java");
+		file.deleteOnExit();
+		Files.write(file.toPath(), makeSyntheticJava(nStatements, SEED).getBytes(StandardCharsets.UTF_8));
+		return new File[] {file};
+	}
+
+	private static List<Root> loadSamples() throws IOException
+	{
+		ArrayList<File> files = new ArrayList<File>();
+		collectFiles(getSamplesDir(), ".nsd", files);
+		if (files.isEmpty()) {
+			throw new IOException("No diagrams found in " + getSamplesDir().getAbsolutePath());
+		}
+		List<Root> roots = new ArrayList<Root>();
+		for (File file: files) {
+			try {
+				roots.add(new NSDParser().parse(file));
+			}
+			catch (Exception ex) {
+				throw new IOException("Failed to load " + file, ex);
+			}
+		}
+		return roots;
+	}
+
+	private static void collectFiles(File dir, String ext, List<File> files)
+	{
+		File[] entries = dir.listFiles();
+		if (entries != null) {
+			Arrays.sort(entries);
+			for (File entry: entries) {
+				if (entry.isDirectory()) {
+					collectFiles(entry, ext, files);
+				}
+				else if (entry.getName().endsWith(ext)) {
+					files.add(entry);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Generates a program diagram with about {@code nElements} elements
+	 * @param nElements - the intended number of elements
+	 * @param seed - the random seed
+	 * @return the diagram
+	 */
+	public static Root makeSynthetic(int nElements, long seed)
+	{
+		init();
+		Root root = new Root();
+		root.setText("Synthetic" + nElements);
+		root.setProgram(true);
+		Random random = new Random(seed);
+		int[] budget = {nElements - 1};
+		// Declare some variables the expressions may refer to
+		String[] decls = {"var a: int", "var b: int", "var c: double", "var s: string", "var arr: array of int"};
+		for (String decl: decls) {
+			root.children.addElement(new Instruction(decl));
+			budget[0]--;
+		}
+		root.children.addElement(new Instruction("arr <- {1, 2, 3, 4, 5, 6, 7, 8}"));
+		budget[0]--;
+		while (budget[0] > 0) {
+			fill(root.children, random, budget, 0);
+		}
+		return root;
+	}
+
+	private static void fill(Subqueue sq, Random random, int[] budget, int depth)
+	{
+		int nElements = 1 + random.nextInt(depth == 0 ? 12 : 5);
+		for (int i = 0; i < nElements && budget[0] > 0; i++) {
+			budget[0]--;
+			// Compound elements only up to a limited nesting depth
+			int kind = depth < 6 ? random.nextInt(10) : 0;
+			switch (kind) {
+			case 1: {
+				Alternative alt = new Alternative(makeCondition(random));
+				sq.addElement(alt);
+				fill(alt.qTrue, random, budget, depth + 1);
+				if (random.nextBoolean()) {
+					fill(alt.qFalse, random, budget, depth + 1);
+				}
+				break;
+			}
+			case 2: {
+				Case sel = new Case("a % 4\n0\n1, 2\n3\ndefault");
+				sq.addElement(sel);
+				for (Subqueue branch: sel.qs) {
+					fill(branch, random, budget, depth + 1);
+				}
+				break;
+			}
+			case 3: {
+				String var = "i" + depth;
+				For loop = new For(var, "0", Integer.toString(2 + random.nextInt(20)), 1);
+				sq.addElement(loop);
+				fill(loop.getBody(), random, budget, depth + 1);
+				break;
+			}
+			case 4: {
+				While loop = new While(makeCondition(random));
+				sq.addElement(loop);
+				fill(loop.getBody(), random, budget, depth + 1);
+				break;
+			}
+			case 5: {
+				Repeat loop = new Repeat(makeCondition(random));
+				sq.addElement(loop);
+				fill(loop.getBody(), random, budget, depth + 1);
+				break;
+			}
+			case 6:
+				sq.addElement(new Call("c <- sqrt(abs(c) + " + random.nextInt(100) + ")"));
+				break;
+			default:
+				sq.addElement(new Instruction(makeAssignment(random)));
+			}
+		}
+	}
+
+	private static final String[] VARS = {"a", "b", "c"};
+	private static final String[] OPS = {" + ", " - ", " * ", " div ", " mod "};
+
+	private static String makeOperand(Random random)
+	{
+		switch (random.nextInt(4)) {
+		case 0:
+			return Integer.toString(random.nextInt(1000));
+		case 1:
+			return "arr[" + random.nextInt(8) + "]";
+		default:
+			return VARS[random.nextInt(2)];
+		}
+	}
+
+	private static String makeExpression(Random random)
+	{
+		StringBuilder sb = new StringBuilder(makeOperand(random));
+		int nOps = random.nextInt(4);
+		for (int i = 0; i < nOps; i++) {
+			sb.append(OPS[random.nextInt(OPS.length)]);
+			if (random.nextInt(4) == 0) {
+				sb.append("(").append(makeOperand(random)).append(" + 1)");
+			}
+			else {
+				sb.append(makeOperand(random));
+			}
+		}
+		return sb.toString();
+	}
+
+	private static String makeAssignment(Random random)
+	{
+		switch (random.nextInt(6)) {
+		case 0:
+			return "c <- c * 0.5 + " + makeExpression(random);
+		case 1:
+			return "s <- \"Value: \" + " + VARS[random.nextInt(2)];
+		case 2:
+			return "arr[" + random.nextInt(8) + "] <- " + makeExpression(random);
+		default:
+			return VARS[random.nextInt(2)] + " <- " + makeExpression(random);
+		}
+	}
+
+	private static String makeCondition(Random random)
+	{
+		String[] rels = {" < ", " > ", " = ", " <> ", " <= ", " >= "};
+		String cond = makeExpression(random) + rels[random.nextInt(rels.length)] + makeOperand(random);
+		if (random.nextInt(3) == 0) {
+			cond += " and " + VARS[random.nextInt(2)] + " <> 0";
+		}
+		return cond;
+	}
+
+	/**
+	 * Generates the source of a Java class with about {@code nStatements} statements
+	 * @param nStatements - the intended number of statements
+	 * @param seed - the random seed
+	 * @return the source code
+	 */
+	public static String makeSyntheticJava(int nStatements, long seed)
+	{
+		Random random = new Random(seed);
+		StringBuilder sb = new StringBuilder();
+		sb.append("public class Synthetic {\n\n");
+		int nMethods = 0;
+		int budget = nStatements;
+		while (budget > 0) {
+			sb.append("\tpublic static int method").append(nMethods++).append("(int a, int b) {\n");
+			sb.append("\t\tint[] arr = new int[8];\n");
+			int nStmts = Math.min(budget, 50);
+			for (int i = 0; i < nStmts; i++) {
+				switch (random.nextInt(5)) {
+				case 0:
+					sb.append("\t\tif (a > ").append(random.nextInt(100)).append(") {\n\t\t\tb = b + a;\n\t\t}\n")
+					.append("\t\telse {\n\t\t\ta = a - 1;\n\t\t}\n");
+					break;
+				case 1:
+					sb.append("\t\tfor (int i = 0; i < ").append(random.nextInt(10) + 1).append("; i++) {\n")
+					.append("\t\t\tarr[i % 8] = arr[i % 8] + i * b;\n\t\t}\n");
+					break;
+				case 2:
+					sb.append("\t\twhile (b > ").append(random.nextInt(100)).append(") {\n\t\t\tb = b / 2;\n\t\t}\n");
+					break;
+				default:
+					sb.append("\t\ta = (a * ").append(random.nextInt(10) + 1).append(" + b) % ")
+					.append(random.nextInt(1000) + 1).append(";\n");
+				}
+			}
+			sb.append("\t\treturn a + b + arr[0];\n\t}\n\n");
+			budget -= nStmts;
+		}
+		sb.append("}\n");
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,103 @@
+/*
+    Structorizer
+    A little tool which you can use to create Nassi-Shneiderman Diagrams (NSD)
+
+    Copyright (C) 2009  Bob Fisch
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lu.fisch.structorizer.benchmark;
+
+/******************************************************************************************************
+ *
+ *      Author:         Kay Gürtzig
+ *
+ *      Description:    JMH benchmark of the code export
+ *
+ ******************************************************************************************************
+ *
+ *      Revision List
+ *
+ *      Author          Date            Description
+ *      ------          ----            -----------
+ *      Kay Gürtzig     2026-10-19      First Issue (KGU#1224)
+ *
+ ******************************************************************************************************
+ *
+ *      Comment:
+ *      Exports the fixture diagrams via the batch entry point of the generators (without target
+ *      file, so the code is only composed in memory). This involves Generator.generateCode() and
+ *      the respective overriding methods, e.g. XmlGenerator.generateCode(). A new generator
+ *      instance is used per export, as the batch export does.
+ *
+ ******************************************************************************************************///
+
+import java.io.IOException;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import lu.fisch.structorizer.elements.Root;
+import lu.fisch.structorizer.generators.Generator;
+
+/**
+ * Benchmarks the code generation of several {@link Generator}s
+ * @author Kay Gürtzig
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeneratorBenchmark {
+
+	@Param({Fixtures.SAMPLES, "synthetic-1000", "synthetic-10000"})
+	public String fixture;
+
+	/** Simple class name of the generator (in package lu.fisch.structorizer.generators) */
+	@Param({"XmlGenerator", "PasGenerator", "CGenerator", "JavaGenerator", "PythonGenerator", "BASHGenerator"})
+	public String generator;
+
+	private Vector<Root> roots;
+	private Class<? extends Generator> genClass;
+
+	@Setup
+	public void setup() throws IOException, ClassNotFoundException
+	{
+		roots = new Vector<Root>(Fixtures.getDiagrams(fixture));
+		genClass = Class.forName("lu.fisch.structorizer.generators." + generator).asSubclass(Generator.class);
+	}
+
+	/** Generates the code for all diagrams */
+	@Benchmark
+	public Generator generateCode() throws Exception
+	{
+		Generator gen = genClass.getDeclaredConstructor().newInstance();
+		gen.exportCode(roots, null, "", "UTF-8", false, null);
+		return gen;
+	}
+
+}
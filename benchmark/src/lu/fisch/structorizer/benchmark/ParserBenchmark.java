@@ -0,0 +1,114 @@
+/*
+    Structorizer
+    A little tool which you can use to create Nassi-Shneiderman Diagrams (NSD)
+
+    Copyright (C) 2009  Bob Fisch
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lu.fisch.structorizer.benchmark;
+
+/******************************************************************************************************
+ *
+ *      Author:         Kay Gürtzig
+ *
+ *      Description:    JMH benchmark of diagram loading and code import
+ *
+ ******************************************************************************************************
+ *
+ *      Revision List
+ *
+ *      Author          Date            Description
+ *      ------          ----            -----------
+ *      Kay Gürtzig     2026-10-19      First Issue (KGU#1224)
+ *
+ ******************************************************************************************************
+ *
+ *      Comment:
+ *      The NSD files are written from the fixture diagrams in advance (by XmlGenerator), so the
+ *      synthetic diagrams can be loaded as well. The code import parses Java sources: the import
+ *      samples or a synthetic class of the respective size. As in batch import, a new parser
+ *      instance is used per file, since CodeParsers aren't reusable.
+ *
+ ******************************************************************************************************///
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import lu.fisch.structorizer.parsers.CodeParser;
+import lu.fisch.structorizer.parsers.JavaParser;
+import lu.fisch.structorizer.parsers.NSDParser;
+
+/**
+ * Benchmarks {@link NSDParser#parse(File)} and {@link CodeParser#parse(String, String, String)}
+ * @author Kay Gürtzig
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+	@Param({Fixtures.SAMPLES, "synthetic-1000", "synthetic-10000"})
+	public String fixture;
+
+	private File[] nsdFiles;
+	private File[] javaFiles;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		nsdFiles = Fixtures.writeNSDFiles(Fixtures.getDiagrams(fixture));
+		javaFiles = Fixtures.getJavaSources(fixture);
+	}
+
+	/** Loads all NSD files */
+	@Benchmark
+	public void parseNSD(Blackhole bh) throws Exception
+	{
+		for (File file: nsdFiles) {
+			bh.consume(new NSDParser().parse(file));
+		}
+	}
+
+	/** Imports all Java sources */
+	@Benchmark
+	public void parseJava(Blackhole bh)
+	{
+		for (File file: javaFiles) {
+			CodeParser parser = new JavaParser();
+			bh.consume(parser.parse(file.getAbsolutePath(), "UTF-8", null));
+			if (!parser.error.isEmpty()) {
+				throw new IllegalStateException("Import of " + file + " failed: " + parser.error);
+			}
+		}
+	}
+
+}
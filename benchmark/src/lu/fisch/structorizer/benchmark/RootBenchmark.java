@@ -0,0 +1,119 @@
+/*
+    Structorizer
+    A little tool which you can use to create Nassi-Shneiderman Diagrams (NSD)
+
+    Copyright (C) 2009  Bob Fisch
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lu.fisch.structorizer.benchmark;
+
+/******************************************************************************************************
+ *
+ *      Author:         Kay Gürtzig
+ *
+ *      Description:    JMH benchmark of diagram analysis and layout
+ *
+ ******************************************************************************************************
+ *
+ *      Revision List
+ *
+ *      Author          Date            Description
+ *      ------          ----            -----------
+ *      Kay Gürtzig     2026-10-19      First Issue (KGU#1224)
+ *
+ ******************************************************************************************************
+ *
+ *      Comment:
+ *      Analyses and lays out the fixture diagrams. For prepareDraw, the cached drawing info is
+ *      reset first (as any modification would do), so the entire layout is recomputed each time.
+ *      The graphics context stems from an image, so no display is needed.
+ *
+ ******************************************************************************************************///
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import lu.fisch.structorizer.elements.Root;
+
+/**
+ * Benchmarks {@link Root#analyse()} and {@link Root#prepareDraw(java.awt.Graphics)}
+ * @author Kay Gürtzig
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RootBenchmark {
+
+	@Param({Fixtures.SAMPLES, "synthetic-1000", "synthetic-10000"})
+	public String fixture;
+
+	private List<Root> roots;
+	private BufferedImage image;
+	private Graphics2D graphics;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		roots = Fixtures.copy(Fixtures.getDiagrams(fixture));
+		image = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
+		graphics = image.createGraphics();
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		graphics.dispose();
+	}
+
+	/** Runs the Analyser on all diagrams */
+	@Benchmark
+	public void analyse(Blackhole bh)
+	{
+		for (Root root: roots) {
+			bh.consume(root.analyse());
+		}
+	}
+
+	/** Recomputes the layout of all diagrams */
+	@Benchmark
+	public void prepareDraw(Blackhole bh)
+	{
+		for (Root root: roots) {
+			root.resetDrawingInfoDown();
+			bh.consume(root.prepareDraw(graphics));
+		}
+	}
+
+}
@@ -89,6 +89,13 @@
  *      Kay Gürtzig     2024-05-15      Bugfix #1166: Self-test workaround for Java version strings like "23-ea".
  *      Kay Gürtzig     2024-06-04      Enh. #1171: Additional syntax variants for main option
  *      Kay Gürtzig     2024-10-08      Enh. #1171: Tests for batch-driven export as picture
+ *      Kay Gürtzig     2026-10-19      KGU#1210: C header definition cache shared among the files of a batch import
+ *      Kay Gürtzig     2026-10-19      KGU#1211: COBOL copybook cache statistics reported after batch import
+ *      Kay Gürtzig     2026-10-19      KGU#1213: NSD files now written via XmlGenerator.writeCode() (streaming)
+ *      Kay Gürtzig     2026-10-19      KGU#1220: Option --jobs N for concurrent batch code export
+ *      Kay Gürtzig     2026-10-19      KGU#1221: Strip-wise streamed PNG export, option --jobs N for image export
+ *      Kay Gürtzig     2026-10-19      KGU#1211: Copybook statistics only printed in verbose mode
+ *      Kay Gürtzig     2026-10-19      KGU#1221: Files reserved for failed or skipped image tasks deleted again
  *
  ******************************************************************************************************
  *
@@ -116,6 +123,9 @@ import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
@@ -128,11 +138,14 @@ import java.util.List;
 import java.util.Map.Entry;
 import java.util.Scanner;
 import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
 
-import javax.imageio.ImageIO;
 import javax.swing.JOptionPane;
 import javax.swing.UIManager;
 
@@ -143,6 +156,7 @@ import org.freehep.graphicsio.svg.SVGGraphics2D;
 
 import lu.fisch.graphics.Canvas;
 import lu.fisch.graphics.Rect;
+import lu.fisch.graphics.TiledPNGWriter;
 //import lu.fisch.structorizer.application.ApplicationFactory;
 import lu.fisch.structorizer.archivar.Archivar;
 import lu.fisch.structorizer.archivar.Archivar.ArchiveIndex;
@@ -160,7 +174,9 @@ import lu.fisch.structorizer.io.ArrFilter;
 import lu.fisch.structorizer.io.ArrZipFilter;
 import lu.fisch.structorizer.io.Ini;
 import lu.fisch.structorizer.io.StructogramFilter;
+import lu.fisch.structorizer.parsers.CPreParser;
 import lu.fisch.structorizer.parsers.CodeParser;
+import lu.fisch.structorizer.parsers.CopybookCache;
 import lu.fisch.structorizer.parsers.GENParser;
 import lu.fisch.structorizer.parsers.NSDParser;
 import lu.fisch.utils.StringList;
@@ -356,6 +372,14 @@ public class Structorizer
 				catch (NumberFormatException ex) {}
 			}
 			// END KGU#602 2018-10-25
+			// START KGU#1220 2026-10-19: Concurrent code export
+			// START KGU#1221 2026-10-19: Also for image export
+			//else if (args[i].equals("--jobs") && generator != null && i+1 < args.length) {
+			else if (args[i].equals("--jobs") && (generator != null || imageType >= 0) && i+1 < args.length) {
+			// END KGU#1221 2026-10-19
+				options.put("jobs", args[++i]);
+			}
+			// END KGU#1220 2026-10-19
 			// Target standard output? (Doesn't make sense for image export.)
 			// START KGU#1157 2024-10-08: Enh. #1171 batch image export
 			//else if (args[i].equals("-")) {
@@ -657,10 +681,16 @@ public class Structorizer
 	// START KGU#187 2016-05-02: Enh. #179
 	private static final String[] synopsis = {
 		"Structorizer [-s SETTINGSFILE] [-open] [NSDFILE|ARRFILE|ARRZFILE]...",
-		"Structorizer (-x|--export) GENERATOR [-a] [-b] [-c] [-f] [-k] [-l] [-t] [-e CHARSET] [-s SETTINGSFILE] [-] [-o OUTFILE] (NSDFILE|ARRSPEC|ARRZSPEC)...",
+		// START KGU#1220 2026-10-19: Option --jobs added
+		//"Structorizer (-x|--export) GENERATOR [-a] [-b] [-c] [-f] [-k] [-l] [-t] [-e CHARSET] [-s SETTINGSFILE] [-] [-o OUTFILE] (NSDFILE|ARRSPEC|ARRZSPEC)...",
+		"Structorizer (-x|--export) GENERATOR [-a] [-b] [-c] [-f] [-k] [-l] [-t] [-e CHARSET] [-s SETTINGSFILE] [--jobs N] [-] [-o OUTFILE] (NSDFILE|ARRSPEC|ARRZSPEC)...",
+		// END KGU#1220 2026-10-19
 		"Structorizer (-p|--parse) [PARSER] [-f] [-z] [-v [LOGPATH]] [-l MAXLINELEN] [-e CHARSET] [-s SETTINGSFILE] [-o OUTFILE] SOURCEFILE...",
 		// START KGU#1157 2024-10-08: Enh. #1171 batch image export
-		"Structorizer (-i|--image) (" + Structorizer.IMAGE_FILE_TYPES.concatenate("|").toLowerCase() + ") [-s SETTINGSFILE] [-o OUTDIR] (NSDFILE|ARRSPEC|ARRZSPEC)...",
+		// START KGU#1221 2026-10-19: Option --jobs added
+		//"Structorizer (-i|--image) (" + Structorizer.IMAGE_FILE_TYPES.concatenate("|").toLowerCase() + ") [-s SETTINGSFILE] [-o OUTDIR] (NSDFILE|ARRSPEC|ARRZSPEC)...",
+		"Structorizer (-i|--image) (" + Structorizer.IMAGE_FILE_TYPES.concatenate("|").toLowerCase() + ") [-s SETTINGSFILE] [--jobs N] [-o OUTDIR] (NSDFILE|ARRSPEC|ARRZSPEC)...",
+		// END KGU#1221 2026-10-19
 		// END KGU#1157 2024-10-08
 		"Structorizer -h",
 		// START KGU#1157 2024-10-08: Enh. #1171 batch image export
@@ -805,6 +835,19 @@ public class Structorizer
 					System.out.println();
 				}
 				// END KGU#977 2021-06-08
+				// START KGU#1220 2026-10-19: File export with a generator instance per file, possibly concurrent
+				int nJobs = getJobCount(_options.get("jobs"));
+				if (!toStdOut) {
+					if (!exportFileTasks(genClass, pluginOptions, gen, roots, pools, poolFileNames,
+							codeFileName, outFolder, _switches, charSet, settingsGiven, nJobs)) {
+						System.exit(4);
+					}
+					return;
+				}
+				else if (nJobs > 0) {
+					System.err.println("*** Option --jobs is ignored on export to standard output.");
+				}
+				// END KGU#1220 2026-10-19
 				// START KGU#679 2019-03-13: Enh. #696 - allow to export archives
 				//if (!roots.isEmpty())
 				//gen.exportCode(roots, codeFileName, _switches, charSet);
@@ -890,6 +933,194 @@ public class Structorizer
 	}
 	// END KGU#187 2016-04-28
 
+	// START KGU#1220 2026-10-19: Concurrent batch code export
+	/**
+	 * A single task of a batch code export: a group of diagrams to be exported into
+	 * one code file.
+	 */
+	private static final class ExportTask {
+		final Vector<Root> roots;
+		final String targetFile;
+		final ArchivePool pool;
+		ExportTask(Vector<Root> roots, String targetFile, ArchivePool pool)
+		{
+			this.roots = roots;
+			this.targetFile = targetFile;
+			this.pool = pool;
+		}
+	}
+
+	/**
+	 * Interprets the value of the {@code --jobs} option.
+	 * 
+	 * @param _jobSpec - the option value or {@code null}
+	 * @return the number of threads to be used for the export, 0 if the option was not
+	 *     given or invalid (i.e. the traditional sequential export is to be done)
+	 */
+	private static int getJobCount(String _jobSpec)
+	{
+		int nJobs = 0;
+		if (_jobSpec != null) {
+			try {
+				nJobs = Integer.parseInt(_jobSpec.trim());
+				if (nJobs <= 0) {
+					// As many threads as there are processors
+					nJobs = Runtime.getRuntime().availableProcessors();
+				}
+			}
+			catch (NumberFormatException ex) {
+				System.err.println("*** Illegal job count \"" + _jobSpec + "\" ignored.");
+			}
+		}
+		return nJobs;
+	}
+
+	/**
+	 * Performs the batch code export of the given {@code _roots} and {@code _pools} into
+	 * files as independent tasks, where every task works with a generator instance of its
+	 * own (such that no generator state may leak from one file into another).<br/>
+	 * If {@code _nJobs} is positive then the tasks are run on up to {@code _nJobs} threads
+	 * and the time spent on every file is reported. Tasks targeting the same code file
+	 * (which will then be given distinguishing numbers unless overwriting is specified)
+	 * are run in their original order on the same thread, such that the resulting file
+	 * names don't depend on timing.
+	 * 
+	 * @param _genClass - the generator class
+	 * @param _pluginOptions - the plugin-specific generator options
+	 * @param _protoGen - a generator instance for the derivation of the target file names
+	 * @param _roots - diagrams from nsd files
+	 * @param _pools - diagram pools from arrangement files, mapped to the diagrams to export
+	 * @param _poolFileNames - target file names for the {@code _pools}
+	 * @param _codeFileName - target file name for the {@code _roots} (unless isolated)
+	 * @param _outFolder - the output folder if specified, or {@code null}
+	 * @param _switches - set of switches (on / off)
+	 * @param _charSet - the encoding to be used
+	 * @param _settingsGiven - whether a specific settings file had been given
+	 * @param _nJobs - maximum number of concurrent threads, 0 for sequential export on the
+	 *     current thread (without timing report)
+	 * @return {@code true} if all tasks succeeded, {@code false} otherwise
+	 */
+	private static boolean exportFileTasks(Class<?> _genClass, Vector<HashMap<String, String>> _pluginOptions,
+			Generator _protoGen, Vector<Root> _roots, HashMap<ArchivePool, Vector<Root>> _pools,
+			StringList _poolFileNames, String _codeFileName, File _outFolder,
+			String _switches, String _charSet, boolean _settingsGiven, int _nJobs)
+	{
+		// Gather the tasks in the order of the sequential export
+		List<ExportTask> tasks = new LinkedList<ExportTask>();
+		if (!_roots.isEmpty()) {
+			if (_switches.indexOf('k') >= 0) {
+				// Export into separate (isolated) code files
+				for (Root root: _roots) {
+					File f = new File(root.filename);
+					Vector<Root> oneRoot = new Vector<Root>();
+					oneRoot.add(root);
+					if (_outFolder != null) {
+						f = new File(Path.of(_outFolder.getAbsolutePath(), f.getName()).toString());
+					}
+					tasks.add(new ExportTask(oneRoot, f.getAbsolutePath(), null));
+				}
+			}
+			else {
+				tasks.add(new ExportTask(_roots, _codeFileName, null));
+			}
+		}
+		int i = 0;
+		for (Entry<ArchivePool, Vector<Root>> poolEntry: _pools.entrySet()) {
+			tasks.add(new ExportTask(poolEntry.getValue(), _poolFileNames.get(i++), poolEntry.getKey()));
+		}
+		
+		if (_nJobs <= 0) {
+			// Traditional sequential export in the original order
+			return exportTaskChain(tasks, _genClass, _pluginOptions, _protoGen,
+					_switches, _charSet, _settingsGiven, false);
+		}
+		
+		// Tasks with the same target file must not run concurrently
+		LinkedHashMap<String, List<ExportTask>> chains = new LinkedHashMap<String, List<ExportTask>>();
+		for (ExportTask task: tasks) {
+			String key = "";
+			if (task.targetFile != null) {
+				key = new File(_protoGen.deriveCodeFileName(task.targetFile, true)).getAbsolutePath();
+				if (File.separatorChar == '\\') {
+					key = key.toLowerCase();
+				}
+			}
+			chains.computeIfAbsent(key, k -> new LinkedList<ExportTask>()).add(task);
+		}
+		
+		// Make sure the shared configuration is loaded before the threads start
+		CodeParser.loadFromINI();
+		
+		int nThreads = Math.min(_nJobs, chains.size());
+		System.out.println("Exporting " + tasks.size() + " code file(s) with " + nThreads + " thread(s)...");
+		long startTime = System.currentTimeMillis();
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+		List<Future<Boolean>> futures = new LinkedList<Future<Boolean>>();
+		for (List<ExportTask> chain: chains.values()) {
+			futures.add(executor.submit(() -> exportTaskChain(chain, _genClass, _pluginOptions, _protoGen,
+					_switches, _charSet, _settingsGiven, true)));
+		}
+		executor.shutdown();
+		
+		boolean allDone = true;
+		for (Future<Boolean> future: futures) {
+			try {
+				allDone = future.get() && allDone;
+			}
+			catch (ExecutionException ex) {
+				System.err.println("*** Error on export: " + ex.getCause());
+				ex.getCause().printStackTrace();
+				allDone = false;
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				executor.shutdownNow();
+				allDone = false;
+				break;
+			}
+		}
+		System.out.println("Export " + (allDone ? "finished" : "FAILED") + " after "
+				+ (System.currentTimeMillis() - startTime) + " ms.");
+		return allDone;
+	}
+
+	/**
+	 * Performs the given export tasks one after the other, each with a new generator instance.
+	 * 
+	 * @param _chain - the tasks to be performed
+	 * @param _reportTime - whether the time spent on every task is to be reported
+	 * @return {@code true} if all tasks succeeded, {@code false} if one failed (the remaining
+	 *     tasks are skipped then)
+	 * @see #exportFileTasks(Class, Vector, Generator, Vector, HashMap, StringList, String, File, String, String, boolean, int)
+	 */
+	private static boolean exportTaskChain(List<ExportTask> _chain, Class<?> _genClass,
+			Vector<HashMap<String, String>> _pluginOptions, Generator _protoGen,
+			String _switches, String _charSet, boolean _settingsGiven, boolean _reportTime)
+	{
+		for (ExportTask task: _chain) {
+			long taskStart = System.currentTimeMillis();
+			try {
+				Generator gen = (Generator) _genClass.getDeclaredConstructor().newInstance();
+				if (_settingsGiven && _pluginOptions != null) {
+					// Possible problems have already been reported for the first instance
+					gen.setPluginOptionsFromIni(_pluginOptions);
+				}
+				gen.exportCode(task.roots, task.targetFile, _switches, _charSet, _settingsGiven, task.pool);
+			}
+			catch (Exception ex) {
+				System.err.println("*** Error on exporting " + task.targetFile + "\n" + ex.getMessage());
+				ex.printStackTrace();
+				return false;
+			}
+			if (_reportTime) {
+				System.out.println(" + " + (task.targetFile != null ? _protoGen.deriveCodeFileName(task.targetFile, true) : "")
+						+ ": " + (System.currentTimeMillis() - taskStart) + " ms");
+			}
+		}
+		return true;
+	}
+	// END KGU#1220 2026-10-19
+
 	/**
 	 * Extracts {@link Root}s and diagram pools from the NSD and arrangement file name list
 	 * {@code _nsdOrArrNames}
@@ -1318,6 +1549,22 @@ public class Structorizer
 			}
 			// END KGU#678 2019-03 26
 		}
+		// START KGU#1210 2026-10-19: Release the header definitions shared among the files
+		CPreParser.clearDefinitionCache();
+		// END KGU#1210 2026-10-19
+		// START KGU#1211 2026-10-19: Report and release the copybooks
+		CopybookCache copybooks = CopybookCache.getInstance();
+		if (!copybooks.isUnused()) {
+			// Only of interest in verbose mode (-v)
+			if (_logDir != null) {
+				System.out.println(copybooks.getStatistics());
+			}
+			else {
+				Logger.getLogger(Structorizer.class.getName()).log(Level.CONFIG, copybooks.getStatistics());
+			}
+		}
+		copybooks.clear();
+		// END KGU#1211 2026-10-19
 		// START KGU#696 2019-03-26: Bugfix #715 - Now the input scanner may be closed
 		scnr.close();
 		// END KGU#696 2019-03-26
@@ -1368,7 +1615,10 @@ public class Structorizer
 				out = new OutputStreamWriter(fos, "UTF8");
 				try {
 					XmlGenerator xmlgen = new XmlGenerator();
-					out.write(xmlgen.generateCode(rootNew,"\t", false));
+					// START KGU#1213 2026-10-19: Stream the content rather than building it in memory
+					//out.write(xmlgen.generateCode(rootNew,"\t", false));
+					xmlgen.writeCode(rootNew, "\t", false, out);
+					// END KGU#1213 2026-10-19
 				}
 				finally {
 					out.close();
@@ -1692,47 +1942,255 @@ public class Structorizer
 		Element.fetchViewSettings(Ini.getInstance());
 		CodeParser.loadFromINI();
 
-		// First operate the roots from nsd files
+		// START KGU#1221 2026-10-19: Image tasks, possibly rendered concurrently
+		//// First operate the roots from nsd files
+		//for (Root root: roots) {
+		//	switch (_imageTypeCode) {
+		//	case 0: // PNG
+		//		exportAsPNG(root, outFolder);
+		//		break;
+		//	case 1: // EMF
+		//	case 2: // PDF
+		//	case 3: // SVG
+		//		exportAsImageType(root, outFolder, _imageTypeCode);
+		//		break;
+		//	}
+		//}
+		//// Now we care for arrangements
+		//int i = 0;
+		//for (Entry<ArchivePool, Vector<Root>> entry: pools.entrySet()) {
+		//	Rect bounds = getArrangementBounds(entry);
+		//	String filename = poolFileNames.get(i++);
+		//	exportArrangementPicture(entry, bounds, outFolder, filename, _imageTypeCode);
+		//}
+		// First the roots from nsd files, then the arrangements
+		List<ImageTask> tasks = new LinkedList<ImageTask>();
 		for (Root root: roots) {
-			switch (_imageTypeCode) {
+			tasks.add(new ImageTask(root, null, root.filename));
+		}
+		int i = 0;
+		for (Entry<ArchivePool, Vector<Root>> entry: pools.entrySet()) {
+			tasks.add(new ImageTask(null, entry, poolFileNames.get(i++)));
+		}
+		String ext = IMAGE_FILE_TYPES.get(_imageTypeCode).toLowerCase();
+		int nJobs = getJobCount(_options.get("jobs"));
+		if (nJobs <= 0) {
+			// Traditional sequential export
+			for (ImageTask task: tasks) {
+				task.file = deriveImageFileObject(task.sourceName, outFolder, ext);
+				runImageTask(task, _imageTypeCode, false);
+			}
+			return;
+		}
+		
+		// Derive the file names in the original order and reserve them
+		LinkedHashMap<String, List<ImageTask>> chains = new LinkedHashMap<String, List<ImageTask>>();
+		for (ImageTask task: tasks) {
+			task.file = deriveImageFileObject(task.sourceName, outFolder, ext);
+			try {
+				task.reserved = task.file.createNewFile();
+			}
+			catch (IOException ex) {
+				System.err.println("*** Failed to reserve image file " + task.file.getPath() + ": " + ex.getMessage());
+				Logger.getLogger(Structorizer.class.getName()).log(Level.WARNING, task.file.getPath(), ex);
+			}
+			String key = task.file.getAbsolutePath();
+			if (File.separatorChar == '\\') {
+				key = key.toLowerCase();
+			}
+			// Tasks with the same target file must not run concurrently
+			chains.computeIfAbsent(key, k -> new LinkedList<ImageTask>()).add(task);
+		}
+		int nThreads = Math.min(nJobs, chains.size());
+		System.out.println("Exporting " + tasks.size() + " image file(s) with " + nThreads + " thread(s)...");
+		long startTime = System.currentTimeMillis();
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+		List<Future<Boolean>> futures = new LinkedList<Future<Boolean>>();
+		for (List<ImageTask> chain: chains.values()) {
+			futures.add(executor.submit(() -> {
+				boolean done = true;
+				for (ImageTask task: chain) {
+					synchronized (task) {
+						if (task.started) {
+							// Skipped after an interruption
+							done = false;
+							continue;
+						}
+						task.started = true;
+					}
+					try {
+						task.written = runImageTask(task, _imageTypeCode, true);
+					}
+					finally {
+						releaseImageFile(task);
+					}
+					done = task.written && done;
+				}
+				return done;
+			}));
+		}
+		executor.shutdown();
+
+		boolean allDone = true;
+		for (Future<Boolean> future: futures) {
+			try {
+				allDone = future.get() && allDone;
+			}
+			catch (ExecutionException ex) {
+				System.err.println("*** Error on image export: " + ex.getCause());
+				ex.getCause().printStackTrace();
+				allDone = false;
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				executor.shutdownNow();
+				allDone = false;
+				break;
+			}
+		}
+		if (!allDone) {
+			// Tasks not started anymore must not leave their empty files behind
+			for (ImageTask task: tasks) {
+				synchronized (task) {
+					if (!task.started) {
+						task.started = true;
+						releaseImageFile(task);
+					}
+				}
+			}
+		}
+		long peakHeap = 0;
+		for (MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peakHeap += pool.getPeakUsage().getUsed();
+			}
+		}
+		System.out.println("Image export " + (allDone ? "finished" : "FAILED") + " after "
+				+ (System.currentTimeMillis() - startTime) + " ms (peak heap usage "
+				+ (peakHeap >> 20) + " MiB).");
+		if (!allDone) {
+			System.exit(4);
+		}
+		// END KGU#1221 2026-10-19
+	}
+
+	// START KGU#1221 2026-10-19: Concurrent batch image export
+	/**
+	 * Represents a single image file to be created in batch image export:
+	 * either a diagram or an arrangement subset.
+	 */
+	private static final class ImageTask {
+		/** The diagram to be exported or {@code null} */
+		final Root root;
+		/** The arrangement subset to be exported or {@code null} */
+		final Entry<ArchivePool, Vector<Root>> arrangement;
+		/** The path of the source file (determining the target file name) */
+		final String sourceName;
+		/** The target file */
+		File file = null;
+		/** Whether the (empty) target file was created in advance to reserve the name */
+		volatile boolean reserved = false;
+		/** Whether a worker has taken up (or the cleanup has skipped) this task */
+		boolean started = false;
+		/** Whether the image file has been written */
+		volatile boolean written = false;
+
+		ImageTask(Root root, Entry<ArchivePool, Vector<Root>> arrangement, String sourceName)
+		{
+			this.root = root;
+			this.arrangement = arrangement;
+			this.sourceName = sourceName;
+		}
+	}
+
+	/**
+	 * Deletes the file reserved for the given {@code task} unless the image has been
+	 * written, such that a failed or skipped task doesn't leave an empty file behind.
+	 * 
+	 * @param task - the image task
+	 */
+	private static void releaseImageFile(ImageTask task)
+	{
+		synchronized (task) {
+			if (task.reserved && !task.written) {
+				if (task.file.exists() && !task.file.delete()) {
+					Logger.getLogger(Structorizer.class.getName()).log(Level.WARNING,
+							"Reserved image file {0} could not be deleted.", task.file.getPath());
+				}
+				task.reserved = false;
+			}
+		}
+	}
+
+	/**
+	 * Creates the image file for the given {@code task}.
+	 * 
+	 * @param task - the diagram or arrangement and its target file
+	 * @param imageTypeCode - a supported image type code (0 through 3)
+	 * @param report - whether the time and the raster memory consumption are to be
+	 *    reported on the standard output stream
+	 * @return {@code true} if the image file was written
+	 */
+	private static boolean runImageTask(ImageTask task, int imageTypeCode, boolean report)
+	{
+		long startTime = System.currentTimeMillis();
+		long rasterBytes = -1;
+		if (task.root != null) {
+			switch (imageTypeCode) {
 			case 0: // PNG
-				exportAsPNG(root, outFolder);
+				rasterBytes = exportAsPNG(task.root, task.file);
 				break;
 			case 1: // EMF
 			case 2: // PDF
 			case 3: // SVG
-				exportAsImageType(root, outFolder, _imageTypeCode);
+				rasterBytes = exportAsImageType(task.root, task.file, imageTypeCode);
 				break;
 			}
 		}
-		// Now we care for arrangements
-		int i = 0;
-		for (Entry<ArchivePool, Vector<Root>> entry: pools.entrySet()) {
-			Rect bounds = getArrangementBounds(entry);
-			String filename = poolFileNames.get(i++);
-			exportArrangementPicture(entry, bounds, outFolder, filename, _imageTypeCode);
+		else {
+			Rect bounds = getArrangementBounds(task.arrangement);
+			rasterBytes = exportArrangementPicture(task.arrangement, bounds, task.file, imageTypeCode);
+		}
+		if (report && rasterBytes >= 0) {
+			System.out.println(" + " + task.file.getPath() + ": " + (System.currentTimeMillis() - startTime) + " ms"
+					+ (rasterBytes > 0 ? ", peak raster memory " + ((rasterBytes + 1023) >> 10) + " KiB" : ""));
 		}
+		return rasterBytes >= 0;
 	}
+	// END KGU#1221 2026-10-19
 
 	/**
 	 * Exports the given diagram as PNG image file
 	 * 
 	 * @param root - The Nassi-Shneiderman diagram to be drawn into a file.
-	 * @param outFolder - File object specifying the target folder or {@code null}
+	 * @param file - the target file
+	 * @return the size of the raster buffer in bytes or -1 if the export failed
 	 */
-	private static void exportAsPNG(Root root, File outFolder) {
-		File file = deriveImageFileObject(root.filename, outFolder, "png");
+	// START KGU#1221 2026-10-19: Target file now passed in, streamed strip-wise rendering
+	//private static void exportAsPNG(Root root, File outFolder) {
+	//	File file = deriveImageFileObject(root.filename, outFolder, "png");
+	private static long exportAsPNG(Root root, File file) {
+	// END KGU#1221 2026-10-19
 		// Create a dummy buffered image to find out the size of the diagram
 		BufferedImage bi = new BufferedImage(1, 1, BufferedImage.TYPE_4BYTE_ABGR);
 		Graphics2D gr = bi.createGraphics();
 		root.prepareDraw(gr);
-		// Now establish a buffered image with the actually required size
-		bi = new BufferedImage(root.width + 1, root.height + 1, BufferedImage.TYPE_4BYTE_ABGR);
-		gr = bi.createGraphics();
-		Rectangle clipRect = gr.getClipBounds();
-		root.draw(gr, clipRect, DrawingContext.DC_IMAGE_EXPORT);
+		// START KGU#1221 2026-10-19: Avoid the full-size raster
+		//// Now establish a buffered image with the actually required size
+		//bi = new BufferedImage(root.width + 1, root.height + 1, BufferedImage.TYPE_4BYTE_ABGR);
+		//gr = bi.createGraphics();
+		//Rectangle clipRect = gr.getClipBounds();
+		//root.draw(gr, clipRect, DrawingContext.DC_IMAGE_EXPORT);
+		gr.dispose();
+		// Now render the diagram strip by strip directly into the file
+		TiledPNGWriter writer = new TiledPNGWriter(new Rectangle(0, 0, root.width + 1, root.height + 1));
+		// END KGU#1221 2026-10-19
 		try {
-			ImageIO.write(bi, "png", file);
+			// START KGU#1221 2026-10-19
+			//ImageIO.write(bi, "png", file);
+			writer.write(file, (g, tile) -> root.draw(g, tile, DrawingContext.DC_IMAGE_EXPORT));
+			return writer.getRasterBytes();
+			// END KGU#1221 2026-10-19
 		} catch (Exception e) {
 			String msg = e.getMessage();
 			if (msg == null || msg.isBlank()) {
@@ -1740,6 +2198,9 @@ public class Structorizer
 			}
 			System.err.println("*** Error on saving the image file \"" + file.getAbsolutePath() + "\": " + msg);
 		}
+		// START KGU#1221 2026-10-19
+		return -1;
+		// END KGU#1221 2026-10-19
 	}
 
 	/**
@@ -1748,11 +2209,15 @@ public class Structorizer
 	 * message will be written to stderr.
 	 * 
 	 * @param root - The Nassi-Shneiderman diagram to be drawn into a file.
-	 * @param outFolder - File object specifying the target folder or {@code null}
+	 * @param file - the target file
 	 * @param imageTypeCode - a supported image type code (should be 1, 2, or 3)
+	 * @return 0 (no raster buffer needed) or -1 if the export failed
 	 */
-	private static void exportAsImageType(Root root, File outFolder, int imageTypeCode) {
-		File file = deriveImageFileObject(root.filename, outFolder, IMAGE_FILE_TYPES.get(imageTypeCode).toLowerCase());
+	// START KGU#1221 2026-10-19: Target file now passed in
+	//private static void exportAsImageType(Root root, File outFolder, int imageTypeCode) {
+	//	File file = deriveImageFileObject(root.filename, outFolder, IMAGE_FILE_TYPES.get(imageTypeCode).toLowerCase());
+	private static long exportAsImageType(Root root, File file, int imageTypeCode) {
+	// END KGU#1221 2026-10-19
 		// Create a dummy buffered image to find out the size of the diagram
 		BufferedImage bi = new BufferedImage(1, 1, BufferedImage.TYPE_4BYTE_ABGR);
 		Graphics2D gr = bi.createGraphics();
@@ -1775,7 +2240,10 @@ public class Structorizer
 				break;
 			default:
 				System.err.println("*** Illegal image type on graphics export!");
-				return;
+				// START KGU#1221 2026-10-19
+				//return;
+				return -1;
+				// END KGU#1221 2026-10-19
 			}
 			g2D.startExport();
 			lu.fisch.graphics.Canvas c = new lu.fisch.graphics.Canvas(g2D);
@@ -1805,6 +2273,9 @@ public class Structorizer
 				out.write(buffer.toString());
 				out.close();
 			}
+			// START KGU#1221 2026-10-19
+			return 0;
+			// END KGU#1221 2026-10-19
 
 		} catch (Exception e) {
 			String msg = e.getMessage();
@@ -1813,6 +2284,9 @@ public class Structorizer
 			}
 			System.err.println("*** Error on saving the image file \"" + file.getAbsolutePath() + "\": " + msg);
 		}
+		// START KGU#1221 2026-10-19
+		return -1;
+		// END KGU#1221 2026-10-19
 	}
 
 	/**
@@ -1884,28 +2358,39 @@ public class Structorizer
 	 * @param arrSubset - an arrangement subset, represented by a key-value pair of
 	 *    an ArchivePool and its Roots of interest
 	 * @param bounds - the bounding box of the diagram subset within the arrangement
-	 * @param outFolder - optionally a {@link File} object representing a specified
-	 *     output folder (with {@code null}, the results will be created either in the
-	 *     folder of the respective input file - if an absolute path is given -, or in
-	 *     the current directory)
-	 * @param filename - the file path of the object to be exported
+	 * @param file - the target file
 	 * @param imageTypeCode - a supported image type code (should be 0 through 3)
+	 * @return the size of the raster buffer in bytes (0 for vector formats) or -1
+	 *     if the export failed
 	 */
-	private static void exportArrangementPicture(Entry<ArchivePool, Vector<Root>> arrSubset, Rect bounds, File outFolder,
-			String filename, int imageTypeCode) {
-		File file = deriveImageFileObject(filename, outFolder,
-				IMAGE_FILE_TYPES.get(imageTypeCode).toLowerCase());
+	// START KGU#1221 2026-10-19: Target file now passed in, streamed strip-wise PNG rendering
+	//private static void exportArrangementPicture(Entry<ArchivePool, Vector<Root>> arrSubset, Rect bounds, File outFolder,
+	//		String filename, int imageTypeCode) {
+	//	File file = deriveImageFileObject(filename, outFolder,
+	//			IMAGE_FILE_TYPES.get(imageTypeCode).toLowerCase());
+	private static long exportArrangementPicture(Entry<ArchivePool, Vector<Root>> arrSubset, Rect bounds, File file,
+			int imageTypeCode) {
+	// END KGU#1221 2026-10-19
 		ArchivePool pool = arrSubset.getKey();
 		int width = bounds.right - bounds.left;
 		int height = bounds.bottom - bounds.top;
 		if (imageTypeCode == 0) {
 			// PNG export
-			// Now establish a buffered image with the actually required size
-			BufferedImage bi = new BufferedImage(width + 1, height + 1,
-					BufferedImage.TYPE_4BYTE_ABGR);
+			// START KGU#1221 2026-10-19: Render strip by strip directly into the file
+			//// Now establish a buffered image with the actually required size
+			//BufferedImage bi = new BufferedImage(width + 1, height + 1,
+			//		BufferedImage.TYPE_4BYTE_ABGR);
+			//Graphics2D gr = bi.createGraphics();
+			//Canvas canvas = new Canvas(gr);
+			//Rectangle clipRect = gr.getClipBounds();
+			//for (Root root: arrSubset.getValue()) {
+			//	...
+			//	root.draw(canvas, new Rect(topLeft), clipRect, false, DrawingContext.DC_IMAGE_EXPORT);
+			//}
+			// Determine the diagram positions in advance
+			BufferedImage bi = new BufferedImage(1, 1, BufferedImage.TYPE_4BYTE_ABGR);
 			Graphics2D gr = bi.createGraphics();
-			Canvas canvas = new Canvas(gr);
-			Rectangle clipRect = gr.getClipBounds();
+			Vector<Rect> topLefts = new Vector<Rect>();
 			for (Root root: arrSubset.getValue()) {
 				Point pos = pool.getPositionOf(root);
 				Rect myrect = root.prepareDraw(gr);
@@ -1919,10 +2404,22 @@ public class Structorizer
 					topLeft.x += pos.x;
 					topLeft.y += pos.y;
 				}
-				root.draw(canvas, new Rect(topLeft), clipRect, false, DrawingContext.DC_IMAGE_EXPORT);
+				topLefts.add(new Rect(topLeft));
 			}
+			gr.dispose();
+			TiledPNGWriter writer = new TiledPNGWriter(new Rectangle(0, 0, width + 1, height + 1));
+			// END KGU#1221 2026-10-19
 			try {
-				ImageIO.write(bi, "png", file);
+				// START KGU#1221 2026-10-19
+				//ImageIO.write(bi, "png", file);
+				writer.write(file, (g, tile) -> {
+					Canvas canvas = new Canvas(g);
+					for (int i = 0; i < topLefts.size(); i++) {
+						arrSubset.getValue().get(i).draw(canvas, topLefts.get(i).copy(), tile, false, DrawingContext.DC_IMAGE_EXPORT);
+					}
+				});
+				return writer.getRasterBytes();
+				// END KGU#1221 2026-10-19
 			} catch (Exception e) {
 				String msg = e.getMessage();
 				if (msg == null || msg.isBlank()) {
@@ -1950,7 +2447,10 @@ public class Structorizer
 					break;
 				default:
 					System.err.println("*** Illegal image type on graphics export!");
-					return;
+					// START KGU#1221 2026-10-19
+					//return;
+					return -1;
+					// END KGU#1221 2026-10-19
 				}
 				lu.fisch.graphics.Canvas c = new lu.fisch.graphics.Canvas(g2D);
 				g2D.startExport();
@@ -1991,6 +2491,9 @@ public class Structorizer
 					out.write(buffer.toString());
 					out.close();
 				}
+				// START KGU#1221 2026-10-19
+				return 0;
+				// END KGU#1221 2026-10-19
 
 			} catch (Exception e) {
 				String msg = e.getMessage();
@@ -2000,6 +2503,9 @@ public class Structorizer
 				System.err.println("*** Error on saving the image file \"" + file.getAbsolutePath() + "\": " + msg);
 			}
 		}
+		// START KGU#1221 2026-10-19
+		return -1;
+		// END KGU#1221 2026-10-19
 	}
 	// END KGU#1157 2024-10-09
 
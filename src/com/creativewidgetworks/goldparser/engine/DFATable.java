@@ -0,0 +1,196 @@
+package com.creativewidgetworks.goldparser.engine;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * DFATable
+ *
+ * Compiled transition tables of the Deterministic Finite Automata used by the tokenizer.
+ * Instead of walking through the edges of a {@link FAState} and the ranges of their
+ * {@link CharacterSet}s for every input character, the target state is looked up in a
+ * dense array for the codes 0 .. 255 (ASCII / Latin-1) and by binary search in a sorted
+ * table of disjoint ranges for all other character codes.
+ *
+ * The tables preserve the semantics of the edge lists: if several edges of a state match
+ * a character then the first of them wins.
+ *
+ * <br>Dependencies:
+ * <ul>
+ * <li>{@link FAStateList}</li>
+ * <li>{@link Symbol}</li>
+ * </ul>
+ *
+ * @author Kay Gürtzig
+ */
+public class DFATable {
+    /** Number of character codes covered by the dense per-state tables */
+    public static final int DENSE_SIZE = 256;
+    /** Target value for "no edge" */
+    public static final int NO_TARGET = -1;
+
+    private static final int MAX_CODE_POINT = Character.MAX_CODE_POINT;
+
+    private final int initialState;
+    // Dense transitions for codes below DENSE_SIZE (identical rows are shared)
+    private final int[][] dense;
+    // Sorted disjoint ranges [start, end] -> target for codes >= DENSE_SIZE (null if none)
+    private final int[][] rangeStarts;
+    private final int[][] rangeEnds;
+    private final int[][] rangeTargets;
+    // Accepted symbol per state (null if the state does not accept)
+    private final Symbol[] accept;
+
+    /**
+     * Compiles the given DFA into transition tables.
+     * @param dfa the loaded DFA states
+     */
+    public DFATable(FAStateList dfa) {
+        int nStates = dfa.size();
+        initialState = dfa.getInitialState();
+        dense = new int[nStates][];
+        rangeStarts = new int[nStates][];
+        rangeEnds = new int[nStates][];
+        rangeTargets = new int[nStates][];
+        accept = new Symbol[nStates];
+
+        // Most states (e.g. those within keywords) have equal Latin-1 rows, so share them
+        Map<IntBuffer, int[]> rows = new HashMap<IntBuffer, int[]>();
+
+        for (int state = 0; state < nStates; state++) {
+            FAState faState = dfa.get(state);
+            // Collect the intervals of all edges in edge order: {start, end, target}
+            List<int[]> intervals = new ArrayList<int[]>();
+            if (faState != null) {
+                accept[state] = faState.getAccept();
+                for (FAEdge edge : faState.getEdges()) {
+                    for (CharacterRange range : edge.getChars()) {
+                        if (range.characterSet != null) {
+                            // Version 1 CGT
+                            for (int i = 0; i < range.characterSet.length(); i++) {
+                                char c = range.characterSet.charAt(i);
+                                intervals.add(new int[] {c, c, edge.getTarget()});
+                            }
+                        } else if (range.start <= range.end) {
+                            // Version 5 EGT
+                            intervals.add(new int[] {range.start, Math.min(range.end, MAX_CODE_POINT), edge.getTarget()});
+                        }
+                    }
+                }
+            }
+
+            int[] row = new int[DENSE_SIZE];
+            Arrays.fill(row, NO_TARGET);
+            for (int[] interval : intervals) {
+                for (int c = Math.max(interval[0], 0); c <= interval[1] && c < DENSE_SIZE; c++) {
+                    if (row[c] == NO_TARGET) {
+                        row[c] = interval[2];
+                    }
+                }
+            }
+            int[] sharedRow = rows.get(IntBuffer.wrap(row));
+            if (sharedRow == null) {
+                rows.put(IntBuffer.wrap(row), row);
+                sharedRow = row;
+            }
+            dense[state] = sharedRow;
+
+            compileRanges(state, intervals);
+        }
+    }
+
+    /**
+     * Builds the sorted range table for the character codes beyond the dense
+     * table from the given edge intervals (in edge order) of state {@code state}.
+     */
+    private void compileRanges(int state, List<int[]> intervals) {
+        // Cut the code space at all interval boundaries
+        TreeSet<Integer> bounds = new TreeSet<Integer>();
+        for (int[] interval : intervals) {
+            if (interval[1] >= DENSE_SIZE) {
+                bounds.add(Math.max(interval[0], DENSE_SIZE));
+                bounds.add(interval[1] + 1);
+            }
+        }
+        if (bounds.isEmpty()) {
+            return;
+        }
+        List<int[]> ranges = new ArrayList<int[]>();
+        Integer start = bounds.first();
+        for (Integer next = bounds.higher(start); next != null; start = next, next = bounds.higher(start)) {
+            // The first edge matching the segment start matches the entire segment
+            int target = NO_TARGET;
+            for (int i = 0; target == NO_TARGET && i < intervals.size(); i++) {
+                int[] interval = intervals.get(i);
+                if (start >= interval[0] && start <= interval[1]) {
+                    target = interval[2];
+                }
+            }
+            if (target != NO_TARGET) {
+                int[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+                if (last != null && last[1] + 1 == start && last[2] == target) {
+                    last[1] = next - 1;
+                } else {
+                    ranges.add(new int[] {start, next - 1, target});
+                }
+            }
+        }
+        if (!ranges.isEmpty()) {
+            int nRanges = ranges.size();
+            rangeStarts[state] = new int[nRanges];
+            rangeEnds[state] = new int[nRanges];
+            rangeTargets[state] = new int[nRanges];
+            for (int i = 0; i < nRanges; i++) {
+                int[] range = ranges.get(i);
+                rangeStarts[state][i] = range[0];
+                rangeEnds[state][i] = range[1];
+                rangeTargets[state][i] = range[2];
+            }
+        }
+    }
+
+    /*----------------------------------------------------------------------------*/
+
+    public int getInitialState() {
+        return initialState;
+    }
+
+    /**
+     * Return the symbol accepted by the given state.
+     * @param state index of the DFA state
+     * @return the accepted symbol or null if the state does not accept
+     */
+    public Symbol getAccept(int state) {
+        return accept[state];
+    }
+
+    /**
+     * Return the target state of the edge of the given state matching the character.
+     * @param state index of the DFA state
+     * @param charCode the next input character
+     * @return the target state index or {@link #NO_TARGET}
+     */
+    public int getTarget(int state, int charCode) {
+        if (charCode < DENSE_SIZE) {
+            return charCode >= 0 ? dense[state][charCode] : NO_TARGET;
+        }
+        int[] starts = rangeStarts[state];
+        if (starts != null) {
+            int i = Arrays.binarySearch(starts, charCode);
+            if (i < 0) {
+                // Index of the last range starting below charCode
+                i = -i - 2;
+            }
+            if (i >= 0 && charCode <= rangeEnds[state][i]) {
+                return rangeTargets[state][i];
+            }
+        }
+        return NO_TARGET;
+    }
+
+}
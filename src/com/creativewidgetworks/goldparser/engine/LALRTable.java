@@ -0,0 +1,136 @@
+package com.creativewidgetworks.goldparser.engine;
+
+import java.util.Arrays;
+
+/**
+ * LALRTable
+ *
+ * Compiled action/goto table of the LALR state machine. The action of a state for a
+ * symbol is located via the key (state * number of symbols + symbol table index) in
+ * constant time instead of a linear search through the {@link LRState}.
+ *
+ * The entries are the positions of the {@link LRAction}s within their {@link LRState}
+ * (plus 1, 0 meaning "undefined"), such that exactly the same LRAction objects are
+ * returned as by {@link LRState#find(Symbol)}.
+ * As long as the (state x symbol) matrix does not exceed {@link #DENSE_LIMIT} entries,
+ * it is held as dense int array. Larger matrices (e.g. about 5 million entries for
+ * GnuCOBOL, with only 4% of them defined) are held in an open-addressing hash table
+ * of the defined keys instead.
+ *
+ * <br>Dependencies:
+ * <ul>
+ * <li>{@link LRStateList}</li>
+ * <li>{@link LRState}</li>
+ * <li>{@link LRAction}</li>
+ * </ul>
+ *
+ * @author Kay Gürtzig
+ */
+public class LALRTable {
+    /** Maximum number of entries for a dense table (4 MiB) */
+    public static final int DENSE_LIMIT = 1 << 20;
+
+    private final LRStateList lrStates;
+    private final int nSymbols;
+    // Dense table: action position + 1 for every key (null if hashed)
+    private int[] dense = null;
+    // Hashed table: keys (-1 if unused) and action positions + 1 (null if dense)
+    private int[] keys = null;
+    private int[] values = null;
+    private int mask;
+
+    /**
+     * Compiles the action/goto table of the given states.
+     * @param lrStates the loaded LALR states
+     * @param nSymbols the number of symbols (upper bound of the symbol table indices)
+     */
+    public LALRTable(LRStateList lrStates, int nSymbols) {
+        this.lrStates = lrStates;
+        this.nSymbols = nSymbols;
+        int nStates = lrStates.size();
+
+        int nActions = 0;
+        for (LRState lrState : lrStates) {
+            if (lrState != null) {
+                nActions += lrState.size();
+            }
+        }
+
+        if ((long)nStates * nSymbols <= DENSE_LIMIT) {
+            dense = new int[nStates * nSymbols];
+        } else {
+            // Keep the load factor at most 0.5
+            int capacity = Integer.highestOneBit(Math.max(nActions, 1)) << 2;
+            keys = new int[capacity];
+            values = new int[capacity];
+            Arrays.fill(keys, -1);
+            mask = capacity - 1;
+        }
+
+        for (int state = 0; state < nStates; state++) {
+            LRState lrState = lrStates.get(state);
+            if (lrState == null) {
+                continue;
+            }
+            // If there are several actions for a symbol then the first one wins
+            for (int i = lrState.size() - 1; i >= 0; i--) {
+                Symbol symbol = lrState.get(i).getSymbol();
+                if (symbol != null && symbol.tableIndex >= 0 && symbol.tableIndex < nSymbols) {
+                    put(state * nSymbols + symbol.tableIndex, i + 1);
+                }
+            }
+        }
+    }
+
+    private void put(int key, int value) {
+        if (dense != null) {
+            dense[key] = value;
+        } else {
+            int h = hash(key);
+            while (keys[h] != -1 && keys[h] != key) {
+                h = (h + 1) & mask;
+            }
+            keys[h] = key;
+            values[h] = value;
+        }
+    }
+
+    private int get(int key) {
+        if (dense != null) {
+            return dense[key];
+        }
+        int h = hash(key);
+        int k;
+        while ((k = keys[h]) != -1) {
+            if (k == key) {
+                return values[h];
+            }
+            h = (h + 1) & mask;
+        }
+        return 0;
+    }
+
+    private int hash(int key) {
+        return (key * 0x9E3779B9 >>> 16 ^ key) & mask;
+    }
+
+    /*----------------------------------------------------------------------------*/
+
+    /**
+     * Returns the LRAction of the given state for symbol (equivalent to
+     * {@link LRState#find(Symbol)}).
+     * @param state index of the LALR state
+     * @param symbol to look up
+     * @return LRAction for symbol or {@link LRState#LRACTION_UNDEFINED} if not found
+     */
+    public LRAction find(int state, Symbol symbol) {
+        if (symbol != null && symbol.tableIndex >= 0 && symbol.tableIndex < nSymbols) {
+            int position = get(state * nSymbols + symbol.tableIndex);
+            if (position > 0) {
+                return lrStates.get(state).get(position - 1);
+            }
+        }
+        return LRState.LRACTION_UNDEFINED;
+    }
+
+}
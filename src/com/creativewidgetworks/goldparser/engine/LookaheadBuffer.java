@@ -0,0 +1,141 @@
+package com.creativewidgetworks.goldparser.engine;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * LookaheadBuffer
+ *
+ * Circular character buffer holding the not yet consumed lookahead of the lexer.
+ * The characters are read from the source in blocks, consumed characters are
+ * released by just advancing the head index, so neither reading nor consuming
+ * shifts the buffered content. The capacity grows (by doubling) only if a
+ * lookahead beyond the current capacity is requested.
+ *
+ * Read errors are treated like the end of the source.
+ *
+ * <br>Dependencies: None
+ *
+ * @author Kay Gürtzig
+ */
+public class LookaheadBuffer {
+    private static final int INITIAL_CAPACITY = 1 << 13;
+
+    private char[] buffer;
+    private int mask;           // capacity - 1 (capacity is a power of 2)
+    private int head = 0;       // Index of the first buffered character
+    private int length = 0;     // Number of buffered characters
+    private boolean eof = false;
+    private long consumed = 0;  // Number of characters consumed so far
+
+    public LookaheadBuffer() {
+        buffer = new char[INITIAL_CAPACITY];
+        mask = INITIAL_CAPACITY - 1;
+    }
+
+    /*----------------------------------------------------------------------------*/
+
+    /**
+     * Tries to make at least count characters available, reading from the source
+     * as needed.
+     * @param source the reader to fetch the characters from
+     * @param count the requested number of buffered characters
+     * @return the number of buffered characters (less than count only at the end
+     * of the source)
+     */
+    public int fill(Reader source, int count) {
+        if (count > buffer.length) {
+            grow(count);
+        }
+        while (length < count && !eof) {
+            // Read into the contiguous free space behind the tail
+            int tail = (head + length) & mask;
+            int free = tail >= head ? buffer.length - tail : head - tail;
+            if (length == 0) {
+                // Restart at the beginning to get the longest possible block
+                head = tail = 0;
+                free = buffer.length;
+            }
+            int n;
+            try {
+                n = source.read(buffer, tail, free);
+            } catch (IOException ioe) {
+                n = -1;
+            }
+            if (n < 0) {
+                eof = true;
+            } else {
+                length += n;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Return the number of currently buffered characters
+     * @return the number of characters
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Return the buffered character at the given offset
+     * @param index offset from the first buffered character (0 .. length()-1)
+     * @return the character
+     */
+    public char charAt(int index) {
+        return buffer[(head + index) & mask];
+    }
+
+    /**
+     * Return the first count buffered characters as String
+     * @param count the number of characters (at most length())
+     * @return String
+     */
+    public String substring(int count) {
+        int end = head + count;
+        if (end <= buffer.length) {
+            return new String(buffer, head, count);
+        }
+        StringBuilder sb = new StringBuilder(count);
+        sb.append(buffer, head, buffer.length - head);
+        sb.append(buffer, 0, end - buffer.length);
+        return sb.toString();
+    }
+
+    /**
+     * Removes the first count characters from the buffer
+     * @param count the number of characters (at most length())
+     */
+    public void consume(int count) {
+        head = (head + count) & mask;
+        length -= count;
+        consumed += count;
+    }
+
+    /**
+     * Return the total number of characters consumed since creation
+     * @return the number of consumed characters
+     */
+    public long getConsumed() {
+        return consumed;
+    }
+
+    /*----------------------------------------------------------------------------*/
+
+    private void grow(int minCapacity) {
+        int capacity = buffer.length;
+        while (capacity < minCapacity) {
+            capacity <<= 1;
+        }
+        char[] newBuffer = new char[capacity];
+        int firstPart = Math.min(length, buffer.length - head);
+        System.arraycopy(buffer, head, newBuffer, 0, firstPart);
+        System.arraycopy(buffer, 0, newBuffer, firstPart, length - firstPart);
+        buffer = newBuffer;
+        mask = capacity - 1;
+        head = 0;
+    }
+
+}
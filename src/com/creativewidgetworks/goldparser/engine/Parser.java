@@ -10,6 +10,11 @@
  *                                      with a line comment since the newlines before the EOF are
  *                                      suppressed by lookahadDFA().
  *      Kay Gürtzig     2024-04-15      Improved version of bugfix #28 -> preserving the comment
+ *      Kay Gürtzig     2026-10-19      KGU#1225: lookaheadDFA() now works on the DFATable compiled
+ *                                      in loadTables() and on chars instead of single-char Strings
+ *      Kay Gürtzig     2026-10-19      KGU#1226: lookaheadBuffer now is a circular LookaheadBuffer filled
+ *                                      blockwise, new method getConsumedCharCount()
+ *      Kay Gürtzig     2026-10-19      KGU#1227: parseLALR() looks actions and gotos up in a LALRTable
  *      
  ******************************************************************************************************
  */
@@ -96,14 +101,23 @@ public class Parser {
 
     // DFA
     protected FAStateList dfa;
+    // START KGU#1225 2026-10-19: Dense transition tables compiled from dfa
+    protected DFATable dfaTable;
+    // END KGU#1225 2026-10-19
     protected CharacterSetList characterSetTable;
-    protected StringBuilder lookaheadBuffer;
+    // START KGU#1226 2026-10-19: Avoid shifting the buffer content with every token
+    //protected StringBuilder lookaheadBuffer;
+    protected LookaheadBuffer lookaheadBuffer;
+    // END KGU#1226 2026-10-19
     
     // Productions
     protected ProductionList productionTable;
     
     // LALR
     protected LRStateList lrStates;
+    // START KGU#1227 2026-10-19: Compiled action/goto table of lrStates
+    protected LALRTable lalrTable;
+    // END KGU#1227 2026-10-19
     private int currentLALR;
     protected Stack<Token> stack;
 
@@ -197,7 +211,10 @@ public class Parser {
             // END SSO 2017-06-26
             
             // Remove the characters
-            lookaheadBuffer.delete(0, count);
+            // START KGU#1226 2026-10-19: Now just an index shift
+            //lookaheadBuffer.delete(0, count);
+            lookaheadBuffer.consume(count);
+            // END KGU#1226 2026-10-19
         }
     }
 
@@ -312,6 +329,19 @@ public class Parser {
     
     /*----------------------------------------------------------------------------*/
 
+    // START KGU#1226 2026-10-19: Allows throughput statistics
+    /**
+     * Return the number of source characters consumed by the lexer since the
+     * last {@link #open(Reader)} or {@link #restart()}
+     * @return the number of consumed characters
+     */
+    public long getConsumedCharCount() {
+        return lookaheadBuffer == null ? 0 : lookaheadBuffer.getConsumed();
+    }
+    // END KGU#1226 2026-10-19
+    
+    /*----------------------------------------------------------------------------*/
+
     protected Reader getSource() {
         return source;
     }
@@ -537,6 +567,24 @@ public class Parser {
         
         tablesLoaded = result;
         
+        // START KGU#1225 2026-10-19: Avoid edge and range scanning in lookaheadDFA()
+        if (dfa != null) {
+            dfaTable = new DFATable(dfa);
+        } else {
+            // Without a DFA, no token can be recognized
+            dfaTable = null;
+            tablesLoaded = result = false;
+        }
+        // END KGU#1225 2026-10-19
+        // START KGU#1227 2026-10-19: Avoid the linear search in LRState.find()
+        if (lrStates != null && symbolTable != null) {
+            lalrTable = new LALRTable(lrStates, symbolTable.size());
+        } else {
+            lalrTable = null;
+            tablesLoaded = result = false;
+        }
+        // END KGU#1227 2026-10-19
+        
         resolveCommentGroupsForVersion1Grammars();
         
         return result;
@@ -548,35 +596,47 @@ public class Parser {
      * Return a single character at charIndex. This method will read and fill the
      * buffer as needed from the source stream. 
      * @param charIndex offset of the lookahead buffer.
-     * @return char that was read or "" EOF has been reached.
+     * @return char that was read or -1 if EOF has been reached.
      */
-    private String lookahead(int charIndex) {
+    // START KGU#1225 2026-10-19: Avoid the allocation of a String per character
+    //private String lookahead(int charIndex) {
+    private int lookahead(int charIndex) {
+    // END KGU#1225 2026-10-19
         if (charIndex >= 0) {
             if (charIndex > lookaheadBuffer.length()) {
                 // Requesting data past the end of stream, so perform a read
-                int readCount = charIndex - lookaheadBuffer.length();
-                for (int i = 0; i < readCount; i++) {
-                    int c;
-                    try {
-                        c = source.read();
-                    } catch (IOException ioe) {
-                        c = -1;
-                    }
-                    if (c != -1) {
-                        lookaheadBuffer.append((char)c);
-                    } else {
-                        break; // EOF reached
-                    }
-                }
+                // START KGU#1226 2026-10-19: Read blockwise
+                //int readCount = charIndex - lookaheadBuffer.length();
+                //for (int i = 0; i < readCount; i++) {
+                //    int c;
+                //    try {
+                //        c = source.read();
+                //    } catch (IOException ioe) {
+                //        c = -1;
+                //    }
+                //    if (c != -1) {
+                //        lookaheadBuffer.append((char)c);
+                //    } else {
+                //        break; // EOF reached
+                //    }
+                //}
+                lookaheadBuffer.fill(source, charIndex);
+                // END KGU#1226 2026-10-19
             }
             
             // If the buffer is still smaller than charIndex, we have reached
-            // the end of the text. In this case, return a null string - the DFA
+            // the end of the text. In this case, return -1 - the DFA
             // code will understand.
-            return (charIndex <= lookaheadBuffer.length()) ? String.valueOf(lookaheadBuffer.charAt(charIndex - 1)) : "";
+            // START KGU#1225 2026-10-19
+            //return (charIndex <= lookaheadBuffer.length()) ? String.valueOf(lookaheadBuffer.charAt(charIndex - 1)) : "";
+            return (charIndex <= lookaheadBuffer.length()) ? lookaheadBuffer.charAt(charIndex - 1) : -1;
+            // END KGU#1225 2026-10-19
         }
         
-        return "";
+        // START KGU#1225 2026-10-19
+        //return "";
+        return -1;
+        // END KGU#1225 2026-10-19
     }
     
     /*----------------------------------------------------------------------------*/
@@ -593,7 +653,10 @@ public class Parser {
             count = lookaheadBuffer.length();
         }
         
-        return count > 0 ? lookaheadBuffer.substring(0, count) : "";
+        // START KGU#1226 2026-10-19
+        //return count > 0 ? lookaheadBuffer.substring(0, count) : "";
+        return count > 0 ? lookaheadBuffer.substring(count) : "";
+        // END KGU#1226 2026-10-19
     }
     
     /*----------------------------------------------------------------------------*/
@@ -606,33 +669,49 @@ public class Parser {
     private Token lookaheadDFA() {
         Token token = new Token();
      
-        int currentDFA = dfa.getInitialState();
+        // START KGU#1225 2026-10-19: Use the compiled tables
+        //int currentDFA = dfa.getInitialState();
+        int currentDFA = dfaTable.getInitialState();
+        // END KGU#1225 2026-10-19
         
         int curPosition = 1;            // Next byte in the input stream
         int lastAcceptState = -1;       // Nothing has been accepted yet
         int lastAcceptPosition = -1;
         int target = 0;
         
-        String str = lookahead(1);
-        if (str.length() > 0) {
+        // START KGU#1225 2026-10-19: Look up the target state in the DFATable
+        //String str = lookahead(1);
+        //if (str.length() > 0) {
+        int ch = lookahead(1);
+        if (ch >= 0) {
+        // END KGU#1225 2026-10-19
             boolean found;
             boolean done = false;
             while (!done) {
                 // Search all the branches of the current DFA state for the next 
                 // character in the input stream. If found, the target state is returned.
-                str = lookahead(curPosition);
-                if (str.length() == 0) {
+                // START KGU#1225 2026-10-19: The table lookup replaces the edge and range search
+                //str = lookahead(curPosition);
+                //if (str.length() == 0) {
+                //    found = false;
+                //} else {
+                //    found = false;
+                //    for (int i = 0; !found && i < dfa.get(currentDFA).getEdges().size(); i++) {
+                //        FAEdge edge = dfa.get(currentDFA).getEdges().get(i);
+                //        if (edge.getChars().contains(str.charAt(0))) {
+                //            found = true;
+                //            target = edge.getTarget();
+                //        }
+                //    }
+                //}
+                ch = lookahead(curPosition);
+                if (ch < 0) {
                     found = false;
                 } else {
-                    found = false;
-                    for (int i = 0; !found && i < dfa.get(currentDFA).getEdges().size(); i++) {
-                        FAEdge edge = dfa.get(currentDFA).getEdges().get(i);
-                        if (edge.getChars().contains(str.charAt(0))) {
-                            found = true;
-                            target = edge.getTarget();
-                        }
-                    }
+                    target = dfaTable.getTarget(currentDFA, ch);
+                    found = target != DFATable.NO_TARGET;
                 }
+                // END KGU#1225 2026-10-19
 
                 // This block checks whether an edge was found from the current state. If so, the 
                 // state and current position advance. Otherwise it is time to exit the main loop 
@@ -643,7 +722,10 @@ public class Parser {
                     // This code checks whether the target state accepts a token. If so, it sets
                     // the appropriate variables so when the algorithm is done, it can return the
                     // proper token and number of characters.
-                    if (dfa.get(target).getAccept() != null) {
+                    // START KGU#1225 2026-10-19
+                    //if (dfa.get(target).getAccept() != null) {
+                    if (dfaTable.getAccept(target) != null) {
+                    // END KGU#1225 2026-10-19
                         lastAcceptState = target;
                         lastAcceptPosition = curPosition;
                     }
@@ -659,7 +741,10 @@ public class Parser {
                     } else {
                         // Create Token and read characters
                         // Data contains the total number of accept characters
-                        token.setSymbol(dfa.get(lastAcceptState).getAccept());
+                        // START KGU#1225 2026-10-19
+                        //token.setSymbol(dfa.get(lastAcceptState).getAccept());
+                        token.setSymbol(dfaTable.getAccept(lastAcceptState));
+                        // END KGU#1225 2026-10-19
                         token.setData(getLookaheadBuffer(lastAcceptPosition));
                     }
                 }
@@ -818,7 +903,10 @@ public class Parser {
 
         haveReduction = false;
         
-        LRAction parseAction = lrStates.get(currentLALR).find(nextToken);
+        // START KGU#1227 2026-10-19
+        //LRAction parseAction = lrStates.get(currentLALR).find(nextToken);
+        LRAction parseAction = lalrTable.find(currentLALR, nextToken);
+        // END KGU#1227 2026-10-19
         //System.out.println("Action: " + parseAction.toString());
         
         switch (parseAction.getType()) {
@@ -855,7 +943,10 @@ public class Parser {
                 // goto value
                 int index = stack.peek().getState();
 
-                LRAction lrAction = lrStates.get(index).find(production.getHead());
+                // START KGU#1227 2026-10-19
+                //LRAction lrAction = lrStates.get(index).find(production.getHead());
+                LRAction lrAction = lalrTable.find(index, production.getHead());
+                // END KGU#1227 2026-10-19
                 if (!lrAction.equals(LRState.LRACTION_UNDEFINED)) {
                     currentLALR = lrAction.getValue();
                     head.setState(currentLALR);
@@ -1087,7 +1178,10 @@ public class Parser {
         sysPosition = new Position(1, 1);
         currentPosition = new Position(1, 1);
         
-        lookaheadBuffer = new StringBuilder();
+        // START KGU#1226 2026-10-19
+        //lookaheadBuffer = new StringBuilder();
+        lookaheadBuffer = new LookaheadBuffer();
+        // END KGU#1226 2026-10-19
         
         haveReduction = false;
         
@@ -0,0 +1,208 @@
+/*
+    Structorizer
+    A not so little tool anymore, which you can use to create Nassi-Schneiderman Diagrams (NSD)
+
+    Copyright (C) 2009  Bob Fisch
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.diagrcontrol;
+
+/******************************************************************************************************
+ *
+ *      Author:         Kay Gürtzig
+ *
+ *      Description:    Directly callable binding of a DiagramController function or procedure
+ *
+ ******************************************************************************************************
+ *
+ *      Revision List
+ *
+ *      Author          Date            Description
+ *      ------          ----            -----------
+ *      Kay Gürtzig     2026-10-19      First Issue (KGU#1215)
+ *      Kay Gürtzig     2026-10-19      KGU#1215: Handles spread and adapted on binding, called via invokeExact()
+ *
+ ******************************************************************************************************
+ *
+ *      Comment:
+ *      The reflective Method objects of the function and procedure maps of a DiagramController
+ *      are resolved once to MethodHandles bound to the controller instance, such that repeated
+ *      calls (e.g. getX() in a tight loop) neither need a map lookup in the controller nor a
+ *      reflective Method.invoke().
+ *      Controllers overriding DiagramController.execute(String, Object[]) keep being called
+ *      via execute() in order not to bypass their specific behaviour.
+ *
+ ******************************************************************************************************///
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import lu.fisch.diagrcontrol.DiagramController.FunctionException;
+
+/**
+ * Callable binding of a single function or procedure offered by a {@link DiagramController},
+ * based on a {@link MethodHandle} resolved once from the controller's function or procedure map.
+ *
+ * @author Kay Gürtzig
+ * @see DiagramController#getFunctionMap()
+ * @see DiagramController#getProcedureMap()
+ */
+public final class ControllerRoutine {
+
+	private final DiagramController controller;
+	/** The lower-case routine name */
+	private final String name;
+	private final boolean isFunction;
+	/**
+	 * Bound handle, adapted to type {@code (Object[])Object}, {@code null} if calls must
+	 * be passed to {@link DiagramController#execute(String, Object[])}
+	 */
+	private final MethodHandle handle;
+	private final Class<?>[] paramTypes;
+	private final Logger logger;
+
+	private ControllerRoutine(DiagramController controller, String name, boolean isFunction, Method method,
+			MethodHandle handle)
+	{
+		this.controller = controller;
+		this.name = name;
+		this.isFunction = isFunction;
+		this.handle = handle;
+		this.paramTypes = method.getParameterTypes();
+		this.logger = Logger.getLogger(controller.getClass().getName());
+	}
+
+	/**
+	 * Resolves all functions (if {@code functions} is {@code true}) or procedures (otherwise)
+	 * of the given {@code controller} to {@link ControllerRoutine}s.
+	 *
+	 * @param controller - the {@link DiagramController}
+	 * @param functions - whether the function map (or the procedure map) is to be resolved
+	 * @return a map from signature keys {@code "<name>#<arg_count>"} to the routine bindings
+	 */
+	public static HashMap<String, ControllerRoutine> resolve(DiagramController controller, boolean functions)
+	{
+		HashMap<String, Method> methods = functions ? controller.getFunctionMap() : controller.getProcedureMap();
+		HashMap<String, ControllerRoutine> routines = new HashMap<String, ControllerRoutine>();
+		boolean overridesExecute = overridesExecute(controller);
+		MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+		for (Map.Entry<String, Method> entry: methods.entrySet()) {
+			String key = entry.getKey();
+			Method method = entry.getValue();
+			MethodHandle handle = null;
+			if (!overridesExecute) {
+				try {
+					// Spread and adapt once, such that invoke() may use invokeExact()
+					handle = lookup.unreflect(method).bindTo(controller)
+							.asSpreader(Object[].class, method.getParameterCount())
+							.asType(MethodType.methodType(Object.class, Object[].class));
+				}
+				catch (IllegalAccessException | IllegalArgumentException ex) {
+					// Falls back to execute(), which will log the problem if it persists
+				}
+			}
+			routines.put(key, new ControllerRoutine(controller, key.substring(0, key.indexOf('#')),
+					functions, method, handle));
+		}
+		return routines;
+	}
+
+	/**
+	 * @return the {@link DiagramController} this routine belongs to
+	 */
+	public DiagramController getController()
+	{
+		return controller;
+	}
+
+	/**
+	 * Calls the routine with the given arguments, which are converted to the declared
+	 * parameter types via {@link DiagramController#castArgument(Object, Class)} in place.
+	 * Delay isn't applied here.
+	 *
+	 * @param arguments - array of the argument values
+	 * @return the result value (as Object), {@code null} for procedures
+	 * @throws FunctionException if some argument could not be converted
+	 */
+	public Object invoke(Object[] arguments) throws FunctionException
+	{
+		if (handle == null) {
+			return controller.execute(name, arguments);
+		}
+		for (int i = 0; i < arguments.length; i++) {
+			try {
+				arguments[i] = controller.castArgument(arguments[i], paramTypes[i]);
+			}
+			catch (Exception ex) {
+				FunctionException err = new FunctionException(
+						controller.getClass().getSimpleName() + ": "
+								+ (isFunction ? "Function" : "Procedure")
+								+ " <" + name + "> argument " + (i+1)
+								+ ": <" + arguments[i] + "> could not be converted to "
+								+ paramTypes[i].getSimpleName());
+				err.setStackTrace(ex.getStackTrace());
+				throw err;
+			}
+		}
+		if (logger.isLoggable(Level.CONFIG)) {
+			StringBuilder sb = new StringBuilder();
+			sb.append("Executing ");
+			sb.append(name);
+			sb.append("(");
+			for (int i = 0; i < arguments.length; i++) {
+				if (i > 0) {
+					sb.append(",");
+				}
+				sb.append(String.valueOf(arguments[i]));
+			}
+			sb.append(")");
+			logger.config(sb.toString());
+		}
+		try {
+			return (Object)handle.invokeExact(arguments);
+		}
+		catch (Throwable ex) {
+			if (ex instanceof Error) {
+				throw (Error)ex;
+			}
+			logger.log(Level.SEVERE, "Defective DiagramControl class " + controller.getClass().getName()
+					+ "." + name + ": " + ex.toString(), ex);
+		}
+		return null;
+	}
+
+	/**
+	 * @return {@code true} if the class of {@code controller} provides its own implementation
+	 * of {@link DiagramController#execute(String, Object[])}
+	 */
+	private static boolean overridesExecute(DiagramController controller)
+	{
+		try {
+			return controller.getClass().getMethod("execute", String.class, Object[].class).getDeclaringClass()
+					!= DiagramController.class;
+		}
+		catch (NoSuchMethodException | SecurityException ex) {
+			return true;
+		}
+	}
+
+}
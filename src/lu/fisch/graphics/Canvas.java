@@ -39,6 +39,7 @@ package lu.fisch.graphics;
  *      Kay Gürtzig     2017-05-16      Enh. #389: New methods for polygons, API changes
  *      Kay Gürtzig     2017-05-17      Issue #405: API enhancement for rotated drawing
  *      Kay Gürtzig     2021-01-02      Enh. #905: New field `flags' (with related methods) and new method getColor
+ *      Kay Gürtzig     2026-10-19      KGU#1233: Thread-safe text width cache for stringWidth()
  *
  ******************************************************************************************************
  *
@@ -56,9 +57,13 @@ import java.awt.Paint;
 import java.awt.Polygon;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Class to represent a drawing canvas. Aims to work like a "TCanvas" in Delphi
@@ -73,6 +78,97 @@ public class Canvas  {
 	private int flags = 0;
 	// END KGU#906 2021-01-02
 	
+	// START KGU#1233 2026-10-19: Text measurement cache
+	/** Maximum number of font / rendering context combinations held in {@link #TEXT_METRICS} */
+	private static final int MAX_CACHED_FONTS = 16;
+	/** Maximum number of rendering contexts (e.g. zoom factors) cached per font */
+	private static final int MAX_CACHED_CONTEXTS = 8;
+	/** Maximum number of full strings cached per font / rendering context combination */
+	private static final int MAX_CACHED_STRINGS = 2048;
+	/** Number of character codes with a cached advance (ISO 8859-1) */
+	private static final int N_CACHED_CHARS = 256;
+	
+	/**
+	 * Cached width information for a font with a font rendering context
+	 */
+	private static final class TextMetrics {
+		private final Font font;
+		private final FontRenderContext frc;
+		/**
+		 * Whether the width of a string of Latin-1 characters is the sum of the
+		 * character advances for the font (no kerning, no ligatures, ...)
+		 */
+		private final boolean simple;
+		/** Advances of the Latin-1 characters, NaN if not retrieved yet */
+		private final float[] advances = new float[N_CACHED_CHARS];
+		/** Widths of recently measured other strings (LRU) */
+		private final Map<String, Integer> widths =
+				new LinkedHashMap<String, Integer>(64, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Integer> _eldest)
+			{
+				return size() > MAX_CACHED_STRINGS;
+			}
+		};
+		
+		TextMetrics(Font _font, FontRenderContext _frc)
+		{
+			font = _font;
+			frc = _frc;
+			simple = !_font.hasLayoutAttributes() && _font.getTransform().isIdentity();
+			Arrays.fill(advances, Float.NaN);
+		}
+		
+		int stringWidth(String _string)
+		{
+			if (simple) {
+				// Same summation as for the string bounds of simple text
+				float width = 0;
+				int i = 0;
+				for (; i < _string.length(); i++) {
+					char ch = _string.charAt(i);
+					if (ch >= N_CACHED_CHARS) {
+						break;
+					}
+					float advance = advances[ch];
+					if (Float.isNaN(advance)) {
+						// Concurrent retrieval is harmless, the result is the same
+						advance = (float)font.getStringBounds(String.valueOf(ch), frc).getWidth();
+						advances[ch] = advance;
+					}
+					width += advance;
+				}
+				if (i == _string.length()) {
+					return (int)width;
+				}
+			}
+			Integer width = null;
+			synchronized (widths) {
+				width = widths.get(_string);
+			}
+			if (width == null) {
+				width = Double.valueOf(font.getStringBounds(_string, frc).getWidth()).intValue();
+				synchronized (widths) {
+					widths.put(_string, width);
+				}
+			}
+			return width;
+		}
+	}
+	
+	/** Width caches per font and rendering context (LRU, access under synchronisation) */
+	private static final Map<Font, Map<FontRenderContext, TextMetrics>> TEXT_METRICS =
+			new LinkedHashMap<Font, Map<FontRenderContext, TextMetrics>>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Font, Map<FontRenderContext, TextMetrics>> _eldest)
+		{
+			return size() > MAX_CACHED_FONTS;
+		}
+	};
+	// END KGU#1233 2026-10-19
+	
 	/**
 	 * Creates a new Canvas based on the provided {@link Graphics2D} object
 	 * @param _canvas - the underlying {@code java.awt.Graphics2D} object
@@ -145,9 +241,51 @@ public class Canvas  {
 	 */
 	public int stringWidth(String _string)
 	{
-		Rectangle2D bounds = canvas.getFont().getStringBounds(_string, canvas.getFontRenderContext());
-		return Double.valueOf(bounds.getWidth()).intValue();
+		// START KGU#1233 2026-10-19: Use the text measurement cache
+		//Rectangle2D bounds = canvas.getFont().getStringBounds(_string, canvas.getFontRenderContext());
+		//return Double.valueOf(bounds.getWidth()).intValue();
+		return getTextMetrics(canvas.getFont(), canvas.getFontRenderContext()).stringWidth(_string);
+		// END KGU#1233 2026-10-19
+	}
+	
+	// START KGU#1233 2026-10-19: Text measurement cache
+	/**
+	 * Retrieves (or creates) the width cache for the given font and rendering context
+	 * @param _font - the font
+	 * @param _frc - the font rendering context (e.g. reflecting a zoom transformation)
+	 * @return the cached text metrics
+	 */
+	private static TextMetrics getTextMetrics(Font _font, FontRenderContext _frc)
+	{
+		synchronized (TEXT_METRICS) {
+			Map<FontRenderContext, TextMetrics> metrics = TEXT_METRICS.get(_font);
+			if (metrics == null) {
+				metrics = new LinkedHashMap<FontRenderContext, TextMetrics>(4);
+				TEXT_METRICS.put(_font, metrics);
+			}
+			TextMetrics textMetrics = metrics.get(_frc);
+			if (textMetrics == null) {
+				if (metrics.size() >= MAX_CACHED_CONTEXTS) {
+					metrics.clear();
+				}
+				textMetrics = new TextMetrics(_font, _frc);
+				metrics.put(_frc, textMetrics);
+			}
+			return textMetrics;
+		}
+	}
+	
+	/**
+	 * Discards all cached text measurements, should be called when the diagram
+	 * font has been changed
+	 */
+	public static void clearTextMetrics()
+	{
+		synchronized (TEXT_METRICS) {
+			TEXT_METRICS.clear();
+		}
 	}
+	// END KGU#1233 2026-10-19
 
 	/**
 	 * Forecasts the height of the given string {@code _string} on drawing with the
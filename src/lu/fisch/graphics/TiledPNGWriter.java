@@ -0,0 +1,277 @@
+/*
+    Structorizer
+    A little tool which you can use to create Nassi-Schneiderman Diagrams (NSD)
+
+    Copyright (C) 2009  Bob Fisch
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.graphics;
+
+/******************************************************************************************************
+ *
+ *      Author:         Kay Gürtzig
+ *
+ *      Description:    Writes PNG files strip by strip without allocating the full raster
+ *
+ ******************************************************************************************************
+ *
+ *      Revision List
+ *
+ *      Author          Date            Description
+ *      ------          ----            -----------
+ *      Kay Gürtzig     2026-10-19      First Issue (KGU#1221)
+ *
+ ******************************************************************************************************
+ *
+ *      Comment:
+ *      The image area is cut into horizontal strips of full width, the height of which is chosen such
+ *      that a strip does not exceed a given pixel budget. Every strip is rendered by a TileRenderer
+ *      into a reused strip buffer via a translated and clipped Graphics2D and then its scanlines are
+ *      immediately filtered, compressed, and written as IDAT chunk data. So the memory demand no
+ *      longer depends on the height of the image.
+ *      The result is an 8-bit RGBA PNG (colour type 6), i.e. the same format ImageIO produces for a
+ *      BufferedImage of TYPE_4BYTE_ABGR.
+ *
+ ******************************************************************************************************///
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Renders an image area strip-wise and streams it into a PNG file.
+ * @author Kay Gürtzig
+ */
+public class TiledPNGWriter {
+
+	/**
+	 * Draws the content of the image area into a strip.
+	 */
+	public interface TileRenderer {
+		/**
+		 * Is to draw everything intersecting {@code tile} into {@code g}.
+		 * @param g - graphics of the strip buffer, translated and clipped such that
+		 *     the original drawing coordinates may be used
+		 * @param tile - the area (in drawing coordinates) to be rendered
+		 */
+		public void render(Graphics2D g, Rectangle tile);
+	}
+
+	/** Default maximum number of pixels per strip (16 MiB of raster data) */
+	public static final int DEFAULT_PIXEL_BUDGET = 1 << 22;
+	/** Maximum size of an IDAT chunk */
+	private static final int CHUNK_SIZE = 1 << 16;
+	private static final byte[] PNG_SIGNATURE = {(byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+	/** PNG row filter type "Sub" */
+	private static final byte FILTER_SUB = 1;
+
+	private final Rectangle area;
+	private final int stripHeight;
+
+	/**
+	 * Prepares the export of the given drawing area with the default pixel budget.
+	 * @param area - the area (in drawing coordinates) to be exported
+	 */
+	public TiledPNGWriter(Rectangle area)
+	{
+		this(area, DEFAULT_PIXEL_BUDGET);
+	}
+
+	/**
+	 * Prepares the export of the given drawing area.
+	 * @param area - the area (in drawing coordinates) to be exported
+	 * @param pixelBudget - maximum number of pixels to be rendered at once
+	 */
+	public TiledPNGWriter(Rectangle area, int pixelBudget)
+	{
+		if (area.width <= 0 || area.height <= 0) {
+			throw new IllegalArgumentException("Empty image area " + area);
+		}
+		this.area = new Rectangle(area);
+		this.stripHeight = Math.max(1, Math.min(area.height, pixelBudget / area.width));
+	}
+
+	/**
+	 * @return the number of bytes of the strip buffer, i.e. the raster memory
+	 * needed by {@link #write(OutputStream, TileRenderer)}
+	 */
+	public long getRasterBytes()
+	{
+		return 4L * area.width * stripHeight;
+	}
+
+	/**
+	 * Renders the area via {@code renderer} and writes it as PNG file {@code file}.
+	 * @param file - the target file
+	 * @param renderer - draws the diagram(s)
+	 * @throws IOException
+	 */
+	public void write(File file, TileRenderer renderer) throws IOException
+	{
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+			write(out, renderer);
+		}
+	}
+
+	/**
+	 * Renders the area via {@code renderer} and writes it as PNG data to
+	 * {@code out} (which will not be closed).
+	 * @param out - the target stream
+	 * @param renderer - draws the diagram(s)
+	 * @throws IOException
+	 */
+	public void write(OutputStream out, TileRenderer renderer) throws IOException
+	{
+		int width = area.width;
+		DataOutputStream dos = new DataOutputStream(out);
+		dos.write(PNG_SIGNATURE);
+		// IHDR: width, height, bit depth 8, colour type 6 (RGBA), default compression, filter, no interlace
+		byte[] header = new byte[13];
+		writeInt(header, 0, width);
+		writeInt(header, 4, area.height);
+		header[8] = 8;
+		header[9] = 6;
+		writeChunk(dos, "IHDR", header, header.length);
+
+		BufferedImage strip = new BufferedImage(width, stripHeight, BufferedImage.TYPE_4BYTE_ABGR);
+		byte[] pixels = ((DataBufferByte)strip.getRaster().getDataBuffer()).getData();
+		int rowLength = 4 * width;
+		byte[] row = new byte[rowLength + 1];
+		row[0] = FILTER_SUB;
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+		try {
+			DeflaterOutputStream zos = new DeflaterOutputStream(new IdatStream(dos), deflater, CHUNK_SIZE);
+			for (int y0 = 0; y0 < area.height; y0 += stripHeight) {
+				int height = Math.min(stripHeight, area.height - y0);
+				if (y0 > 0) {
+					Arrays.fill(pixels, (byte)0);
+				}
+				Rectangle tile = new Rectangle(area.x, area.y + y0, width, height);
+				Graphics2D g = strip.createGraphics();
+				try {
+					g.translate(-tile.x, -tile.y);
+					g.setClip(tile.x, tile.y, tile.width, tile.height);
+					renderer.render(g, tile);
+				}
+				finally {
+					g.dispose();
+				}
+				for (int y = 0; y < height; y++) {
+					int offset = y * rowLength;
+					// The raster holds A, B, G, R per pixel, PNG expects R, G, B, A
+					for (int i = 0; i < rowLength; i += 4) {
+						row[i + 1] = pixels[offset + i + 3];
+						row[i + 2] = pixels[offset + i + 2];
+						row[i + 3] = pixels[offset + i + 1];
+						row[i + 4] = pixels[offset + i];
+					}
+					// Apply the "Sub" filter (backwards, so the raw left neighbours are still available)
+					for (int i = rowLength; i > 4; i--) {
+						row[i] -= row[i - 4];
+					}
+					zos.write(row);
+				}
+			}
+			zos.finish();
+			zos.flush();
+		}
+		finally {
+			deflater.end();
+		}
+		writeChunk(dos, "IEND", new byte[0], 0);
+		dos.flush();
+	}
+
+	/**
+	 * Collects the compressed data and writes them as IDAT chunks
+	 */
+	private static final class IdatStream extends OutputStream {
+		private final DataOutputStream out;
+		private final byte[] buffer = new byte[CHUNK_SIZE];
+		private int fill = 0;
+
+		IdatStream(DataOutputStream out)
+		{
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			if (fill == buffer.length) {
+				flush();
+			}
+			buffer[fill++] = (byte)b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			while (len > 0) {
+				if (fill == buffer.length) {
+					flush();
+				}
+				int n = Math.min(len, buffer.length - fill);
+				System.arraycopy(b, off, buffer, fill, n);
+				fill += n;
+				off += n;
+				len -= n;
+			}
+		}
+
+		@Override
+		public void flush() throws IOException
+		{
+			if (fill > 0) {
+				writeChunk(out, "IDAT", buffer, fill);
+				fill = 0;
+			}
+		}
+	}
+
+	private static void writeChunk(DataOutputStream out, String type, byte[] data, int length) throws IOException
+	{
+		byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+		CRC32 crc = new CRC32();
+		crc.update(typeBytes);
+		crc.update(data, 0, length);
+		out.writeInt(length);
+		out.write(typeBytes);
+		out.write(data, 0, length);
+		out.writeInt((int)crc.getValue());
+	}
+
+	private static void writeInt(byte[] target, int offset, int value)
+	{
+		target[offset] = (byte)(value >>> 24);
+		target[offset + 1] = (byte)(value >>> 16);
+		target[offset + 2] = (byte)(value >>> 8);
+		target[offset + 3] = (byte)value;
+	}
+
+}
@@ -39,6 +39,10 @@ package lu.fisch.structorizer.archivar;
  *      Kay Gürtzig     2020-04-23      Bugfix #860: ArchiveIndexEntry did not set path field with absolute nsd file paths
  *      Kay Gürtzig     2020-04-24      Bugfix #862/3: Ensure correct update of ArchiveIndexEntry on attaching the Root
  *      Kay Gürtzig     2020-10-19      Issue #875: Modifications to enable diagram insertion to archives
+ *      Kay Gürtzig     2026-10-19      KGU#1213: NSD files now written via XmlGenerator.writeCode() (streaming)
+ *      Kay Gürtzig     2026-10-19      KGU#1214: Optional ArchiveSnapshotCache for diagrams loaded from arrz files
+ *      Kay Gürtzig     2026-10-19      KGU#1234: loadArrangement() decomposed to allow concurrent loading,
+ *                                      loadArrangementEntry() leaves the variable retrieval to the caller
  *
  ******************************************************************************************************
  *
@@ -833,7 +837,10 @@ public class Archivar {
 			FileOutputStream fos = new FileOutputStream(filename);
 			out = new OutputStreamWriter(fos, "UTF-8");
 			XmlGenerator xmlgen = new XmlGenerator();
-			out.write(xmlgen.generateCode(_root, "\t", true));
+			// START KGU#1213 2026-10-19: Stream the content rather than building it in memory
+			//out.write(xmlgen.generateCode(_root, "\t", true));
+			xmlgen.writeCode(_root, "\t", true, out);
+			// END KGU#1213 2026-10-19
 			_root.filename = filename;
 			_root.rememberSaved();
 			done = true;
@@ -938,60 +945,63 @@ public class Archivar {
 	public List<ArchiveRecord> loadArrangement(File _arrFile, File _fromArchive, File _tempDir, StringList _troubles)
 	{
 		LinkedList<ArchiveRecord> items = null;
+		// START KGU#1234 2026-10-19: Decomposed to allow concurrent loading of the entries
+		List<String> entries = readArrangementList(_arrFile, _troubles);
+		if (entries == null) {
+			return null;
+		}
+		// END KGU#1234 2026-10-19
+		try {
+			// START KGU#1234 2026-10-19: Decomposed, see readArrangementList() and loadArrangementEntry()
+			items = new LinkedList<ArchiveRecord>();
+			for (String entry: entries) {
+				ArchiveRecord record = loadArrangementEntry(entry, _arrFile, _fromArchive, _tempDir, _troubles);
+				if (record != null) {
+					record.root.retrieveVarNames();	// Initialise the variable table, otherwise the highlighting won't work
+					items.add(record);
+				}
+			}
+			// END KGU#1234 2026-10-19
+		} catch (Exception ex) {
+			_troubles.add(_arrFile.getAbsolutePath() + ": " + ex.toString());
+			logger.log(Level.WARNING, "Trouble on loading arrangement: " + _arrFile.getAbsolutePath(), ex);
+		}
+		// START KGU#1234 2026-10-19: Moved behind the loop
+		finally {
+			finishArrangementLoading(_fromArchive);
+		}
+		// END KGU#1234 2026-10-19
+
+		return items;
+	}
+	
+	// START KGU#1234 2026-10-19: Support for concurrent loading of arrangements
+	/**
+	 * Reads the arrangement list file {@code _arrFile} and returns its diagram entry
+	 * lines (i.e. the lines consisting of at least three comma-separated fields) in
+	 * the order of occurrence. The entries may then be loaded via
+	 * {@link #loadArrangementEntry(String, File, File, File, StringList)}, which is
+	 * thread-safe.
+	 * 
+	 * @param _arrFile - the arrangement list file
+	 * @param _troubles - {@link StringList} to which occurring error messages will be added
+	 * @return the list of entry lines or {@code null} if the file couldn't be read
+	 * 
+	 * @see #loadArrangement(File, File, File, StringList)
+	 */
+	public List<String> readArrangementList(File _arrFile, StringList _troubles)
+	{
+		List<String> entries = null;
 		Scanner in;
 		try {
 			in = new Scanner(_arrFile, "UTF8");
-			items = new LinkedList<ArchiveRecord>();
+			entries = new LinkedList<String>();
 			while (in.hasNextLine())
 			{
 				String line = in.nextLine();
-				StringList fields = StringList.explode(line, ",");
-				if (fields.count() >= 3)
+				if (StringList.explode(line, ",").count() >= 3)
 				{
-					boolean fileMissing = false;
-					Root root = null;
-					Point point = new Point();
-					point.x = Integer.parseInt(fields.get(0));
-					point.y = Integer.parseInt(fields.get(1));
-					String nsdFileName = fields.get(2);
-					if (nsdFileName.startsWith("\""))
-						nsdFileName = nsdFileName.substring(1);
-					if (nsdFileName.endsWith("\""))
-						nsdFileName = nsdFileName.substring(0, nsdFileName.length() - 1);
-					File nsd = new File(nsdFileName);
-					if (nsd.exists()) {
-						root = loadNSDFile(nsd, _fromArchive, _troubles);
-					}
-					else if (!nsd.isAbsolute() && _tempDir != null) {
-						nsd = new File(_tempDir.getAbsolutePath() + File.separator + nsdFileName);
-						root = loadNSDFile(nsd, _fromArchive, _troubles);
-					}
-					// It might be that the arr file refers to a virtual arrz path (#656)
-					else if (_fromArchive == null && nsdFileName.contains(".arrz")) {
-						File arrzFile = nsd.getParentFile();
-						String pureName = nsd.getName();
-						if (arrzFile.exists()) {
-							root = extractNSDFrom(arrzFile, pureName, null, _troubles);
-						}
-						// START KGU#749 2019-10-14: Bugfix #763 - we must inform about missing files
-						else {
-							fileMissing = true;
-						}
-						// END KGU#749 2019-10-14
-					}
-					// START KGU#749 2019-10-14: Bugfix #763 - we must inform about missing files
-					else {
-						fileMissing = true;
-					}
-					// END KGU#749 2019-10-14
-					if (root != null) {
-						items.add(new ArchiveRecord(root, point));
-					}
-					// START KGU#749 2019-10-14: Bugfix #763 - we must inform about missing files
-					else if (fileMissing) {
-						_troubles.add(_arrFile.getName() + ": \"" + nsd.getAbsolutePath() + "\" MISSING!");
-					}
-					// END KGU#749 2019-10-14
+					entries.add(line);
 				}
 			}
 
@@ -1003,9 +1013,100 @@ public class Archivar {
 			_troubles.add(_arrFile.getAbsolutePath() + ": " + ex.toString());
 			logger.log(Level.WARNING, "Trouble on loading arrangement: " + _arrFile.getAbsolutePath(), ex);
 		}
-
-		return items;
+		return entries;
 	}
+	
+	/**
+	 * Loads the diagram specified by the arrangement list entry {@code _entry} (as
+	 * obtained from {@link #readArrangementList(File, StringList)}). May be called
+	 * concurrently for different entries, provided that the {@code _troubles} lists
+	 * differ.<br/>
+	 * The variable table of the loaded diagram is not initialised, because
+	 * {@link Root#retrieveVarNames()} may consult the routine pool. So the caller
+	 * must do it on the event dispatch thread before the diagram is displayed.
+	 * 
+	 * @param _entry - an entry line of the arrangement list
+	 * @param _arrFile - the arrangement list file containing the names or paths of the diagram files
+	 * @param _fromArchive - the arrangement archive file if the arrangement originates in the archive (for extraction)
+	 * @param _tempDir - the temporary directory where to read the diagram files from if the paths aren't absolute.
+	 * @param _troubles - {@link StringList} to which occurring error messages will be added
+	 * @return the {@link ArchiveRecord} with {@link Root} and location or {@code null}
+	 * @throws Exception if the entry is malformed
+	 * 
+	 * @see #finishArrangementLoading(File)
+	 */
+	public ArchiveRecord loadArrangementEntry(String _entry, File _arrFile, File _fromArchive, File _tempDir, StringList _troubles) throws Exception
+	{
+		ArchiveRecord record = null;
+		StringList fields = StringList.explode(_entry, ",");
+		if (fields.count() >= 3)
+		{
+			boolean fileMissing = false;
+			Root root = null;
+			Point point = new Point();
+			point.x = Integer.parseInt(fields.get(0));
+			point.y = Integer.parseInt(fields.get(1));
+			String nsdFileName = fields.get(2);
+			if (nsdFileName.startsWith("\""))
+				nsdFileName = nsdFileName.substring(1);
+			if (nsdFileName.endsWith("\""))
+				nsdFileName = nsdFileName.substring(0, nsdFileName.length() - 1);
+			File nsd = new File(nsdFileName);
+			if (nsd.exists()) {
+				root = loadNSDFile(nsd, _fromArchive, _troubles, false);
+			}
+			else if (!nsd.isAbsolute() && _tempDir != null) {
+				nsd = new File(_tempDir.getAbsolutePath() + File.separator + nsdFileName);
+				root = loadNSDFile(nsd, _fromArchive, _troubles, false);
+			}
+			// It might be that the arr file refers to a virtual arrz path (#656)
+			else if (_fromArchive == null && nsdFileName.contains(".arrz")) {
+				File arrzFile = nsd.getParentFile();
+				String pureName = nsd.getName();
+				if (arrzFile.exists()) {
+					root = extractNSDFrom(arrzFile, pureName, null, _troubles, false);
+				}
+				// START KGU#749 2019-10-14: Bugfix #763 - we must inform about missing files
+				else {
+					fileMissing = true;
+				}
+				// END KGU#749 2019-10-14
+			}
+			// START KGU#749 2019-10-14: Bugfix #763 - we must inform about missing files
+			else {
+				fileMissing = true;
+			}
+			// END KGU#749 2019-10-14
+			if (root != null) {
+				record = new ArchiveRecord(root, point);
+			}
+			// START KGU#749 2019-10-14: Bugfix #763 - we must inform about missing files
+			else if (fileMissing) {
+				_troubles.add(_arrFile.getName() + ": \"" + nsd.getAbsolutePath() + "\" MISSING!");
+			}
+			// END KGU#749 2019-10-14
+		}
+		return record;
+	}
+	
+	/**
+	 * Concludes the loading of an arrangement entry by entry (persists the snapshots
+	 * of newly parsed diagrams if the arrangement originates in an archive).
+	 * 
+	 * @param _fromArchive - the arrangement archive file or {@code null}
+	 * 
+	 * @see #loadArrangementEntry(String, File, File, File, StringList)
+	 */
+	public void finishArrangementLoading(File _fromArchive)
+	{
+		// START KGU#1214 2026-10-19: Persist the snapshots of newly parsed diagrams
+		ArchiveSnapshotCache cache = ArchiveSnapshotCache.forArchive(_fromArchive);
+		if (cache != null) {
+			cache.flush();
+		}
+		// END KGU#1214 2026-10-19
+	}
+	// END KGU#1234 2026-10-19
 
 	/**
 	 * Loads the {@link Root} from the given file {@code _nsdFile}. If the file had been
@@ -1024,12 +1125,40 @@ public class Archivar {
 	 * @see #unzipArrangement(File, File)
 	 */
 	private Root loadNSDFile(File _nsdFile, File _fromArchive, StringList _troubles) throws Exception {
+		// START KGU#1234 2026-10-19: Variable retrieval made optional
+		return loadNSDFile(_nsdFile, _fromArchive, _troubles, true);
+	}
+
+	/**
+	 * Like {@link #loadNSDFile(File, File, StringList)} but allows to leave the
+	 * initialisation of the variable table to the caller (which is necessary if
+	 * called off the event dispatch thread).
+	 * 
+	 * @param _retrieveVars - whether to call {@link Root#retrieveVarNames()}
+	 */
+	private Root loadNSDFile(File _nsdFile, File _fromArchive, StringList _troubles, boolean _retrieveVars) throws Exception {
+		// END KGU#1234 2026-10-19
 		Root root = null;
+		// START KGU#1214 2026-10-19: Optional snapshot cache for archive contents
+		ArchiveSnapshotCache cache = ArchiveSnapshotCache.forArchive(_fromArchive);
+		// END KGU#1214 2026-10-19
 		// open an existing file
 		NSDParser parser = new NSDParser();
 		try {
-			// The second argument improves attribute information for temporary legacy nsd files extracted from arrz files (KGU#363)
-			root = parser.parse(_nsdFile, _fromArchive);
+			// START KGU#1214 2026-10-19: Try the snapshot cache first
+			//// The second argument improves attribute information for temporary legacy nsd files extracted from arrz files (KGU#363)
+			//root = parser.parse(_nsdFile, _fromArchive);
+			if (cache != null) {
+				root = cache.get(_nsdFile);
+			}
+			if (root == null) {
+				// The second argument improves attribute information for temporary legacy nsd files extracted from arrz files (KGU#363)
+				root = parser.parse(_nsdFile, _fromArchive);
+				if (cache != null) {
+					cache.put(_nsdFile, root);
+				}
+			}
+			// END KGU#1214 2026-10-19
 
 			root.filename = _nsdFile.getAbsolutePath();
 			// Enh. #318 Allow nsd files to "reside" in arrz files
@@ -1037,7 +1166,12 @@ public class Archivar {
 				root.filename = _fromArchive.getAbsolutePath() + File.separator + _nsdFile.getName();
 				root.shadowFilepath = _nsdFile.getAbsolutePath();
 			}
-			root.retrieveVarNames();	// Initialise the variable table, otherwise the highlighting won't work
+			// START KGU#1234 2026-10-19: Variable retrieval made optional
+			//root.retrieveVarNames();	// Initialise the variable table, otherwise the highlighting won't work
+			if (_retrieveVars) {
+				root.retrieveVarNames();	// Initialise the variable table, otherwise the highlighting won't work
+			}
+			// END KGU#1234 2026-10-19
 		}
 		catch (Exception ex) {
 			String errorMessage = ex.getLocalizedMessage();
@@ -1066,6 +1200,19 @@ public class Archivar {
 	 * @return - the extracted {@link Root} object, or {@code null} if something went wrong.
 	 */
 	public Root extractNSDFrom(File _arrzFile, String _nsdName, File _targetDir, StringList _troubles) {
+		// START KGU#1234 2026-10-19: Variable retrieval made optional
+		return extractNSDFrom(_arrzFile, _nsdName, _targetDir, _troubles, true);
+	}
+
+	/**
+	 * Like {@link #extractNSDFrom(File, String, File, StringList)} but allows to leave
+	 * the initialisation of the variable table to the caller (which is necessary if
+	 * called off the event dispatch thread).
+	 * 
+	 * @param _retrieveVars - whether to call {@link Root#retrieveVarNames()}
+	 */
+	private Root extractNSDFrom(File _arrzFile, String _nsdName, File _targetDir, StringList _troubles, boolean _retrieveVars) {
+		// END KGU#1234 2026-10-19
 		final int BUFSIZE = 2048;
 		if (_targetDir == null) {
 			_targetDir = findTempDir();
@@ -1100,7 +1247,16 @@ public class Archivar {
 						Files.setLastModifiedTime(destPath, entry.getLastModifiedTime());
 					} catch (IOException e) {}
 					if (targetFile.exists()) {
-						root = this.loadNSDFile(targetFile, _arrzFile, _troubles);
+						// START KGU#1234 2026-10-19: Variable retrieval made optional
+						//root = this.loadNSDFile(targetFile, _arrzFile, _troubles);
+						root = this.loadNSDFile(targetFile, _arrzFile, _troubles, _retrieveVars);
+						// END KGU#1234 2026-10-19
+						// START KGU#1214 2026-10-19: Persist the snapshot if newly parsed
+						ArchiveSnapshotCache cache = ArchiveSnapshotCache.forArchive(_arrzFile);
+						if (cache != null) {
+							cache.flush();
+						}
+						// END KGU#1214 2026-10-19
 					}
 					break;
 				}
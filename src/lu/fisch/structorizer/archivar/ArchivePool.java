@@ -34,6 +34,7 @@ package lu.fisch.structorizer.archivar;
  *      Kay Gürtzig     2019-03-12      First issue for Enh. Requ. #696, #697, #698
  *      Kay Gürtzig     2024-10-09      Enh. #1171: New method getPositionOf(Root) to support batch
  *                                      picture export
+ *      Kay Gürtzig     2026-10-19      KGU#1222: Pool changes advance the include epoch of Root
  *
  ******************************************************************************************************
  *
@@ -325,6 +326,11 @@ public class ArchivePool implements IRoutinePool {
 	}
 
 	private void notifyPoolListeners(int _flags) {
+		// START KGU#1222 2026-10-19: Cached symbol information must check its includes
+		if ((_flags & IRoutinePoolListener.RPC_POOL_CHANGED) != 0) {
+			Root.notifyIncludeRelationsChanged();
+		}
+		// END KGU#1222 2026-10-19
 		for (IRoutinePoolListener listener: this.poolListeners) {
 			listener.routinePoolChanged(this, _flags);
 		}
@@ -0,0 +1,322 @@
+/*
+    Structorizer
+    A little tool which you can use to create Nassi-Schneiderman Diagrams (NSD)
+
+    Copyright (C) 2009  Bob Fisch
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lu.fisch.structorizer.archivar;
+
+/******************************************************************************************************
+ *
+ *      Author:         Kay Gürtzig
+ *
+ *      Description:    Optional on-disk cache of diagram snapshots next to arrangement archives
+ *
+ ******************************************************************************************************
+ *
+ *      Revision List
+ *
+ *      Author          Date            Description
+ *      ------          ----            -----------
+ *      Kay Gürtzig     2026-10-19      First Issue (KGU#1214)
+ *      Kay Gürtzig     2026-10-19      KGU#1214: Keyword fingerprint now a SHA-256 digest (was a String hash)
+ *      Kay Gürtzig     2026-10-19      KGU#1214: Fingerprint only recomputed on preference changes
+ *
+ ******************************************************************************************************
+ *
+ *      Comment:
+ *      The cache file "<archive>.snap" holds the DiagramSnapshot bytes of all diagrams loaded
+ *      from the archive "<archive>". It is only valid as long as the archive file keeps its size
+ *      and modification time and the parser keywords (which may be refactored on loading) haven't
+ *      changed. Otherwise the cache is silently discarded and rebuilt.
+ *      The cache is only used if the Ini property "arrzSnapshotCache" is "true".
+ *
+ ******************************************************************************************************///
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import lu.fisch.structorizer.elements.DiagramSnapshot;
+import lu.fisch.structorizer.elements.Root;
+import lu.fisch.structorizer.io.Ini;
+import lu.fisch.structorizer.parsers.CodeParser;
+
+/**
+ * Holds the {@link DiagramSnapshot}s of the diagrams of an arrangement archive and
+ * persists them in a cache file next to the archive, such that re-opening the archive
+ * does not require to parse the NSD XML files again.
+ *
+ * @author Kay Gürtzig
+ */
+public class ArchiveSnapshotCache {
+
+	/** Name extension of the cache files (appended to the archive file name) */
+	public static final String CACHE_EXTENSION = ".snap";
+
+	private static final int CACHE_MAGIC = 0x4E534443;	// "NSDC"
+
+	private static final Logger logger = Logger.getLogger(ArchiveSnapshotCache.class.getName());
+
+	/** The caches of the archives accessed in this session, keyed by absolute archive path */
+	private static final HashMap<String, ArchiveSnapshotCache> caches = new HashMap<String, ArchiveSnapshotCache>();
+
+	/** A cached snapshot with the size and modification time of the extracted NSD file */
+	private static final class Entry {
+		final long length;
+		final long lastModified;
+		final byte[] snapshot;
+		Entry(long length, long lastModified, byte[] snapshot)
+		{
+			this.length = length;
+			this.lastModified = lastModified;
+			this.snapshot = snapshot;
+		}
+	}
+
+	/** The preference text the fingerprint was last computed for (guarded by {@link #caches}) */
+	private static String fingerprintSource = null;
+	/** The fingerprint last computed, see {@link #getKeywordFingerprint()} (guarded by {@link #caches}) */
+	private static String lastFingerprint = null;
+
+	private final File archive;
+	private final File cacheFile;
+	private long archiveLength;
+	private long archiveModified;
+	private String fingerprint;
+	private final HashMap<String, Entry> entries = new HashMap<String, Entry>();
+	private boolean changed = false;
+
+	private ArchiveSnapshotCache(File _archive)
+	{
+		archive = _archive;
+		cacheFile = new File(_archive.getAbsolutePath() + CACHE_EXTENSION);
+		archiveLength = _archive.length();
+		archiveModified = _archive.lastModified();
+		fingerprint = getKeywordFingerprint();
+	}
+
+	/**
+	 * @return {@code true} if the snapshot cache is enabled via the Ini property
+	 * "arrzSnapshotCache".
+	 */
+	public static boolean isEnabled()
+	{
+		try {
+			return Ini.getInstance().getProperty("arrzSnapshotCache", "false").equals("true");
+		}
+		catch (Exception ex) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the snapshot cache for the given archive file (loading it from the cache
+	 * file if necessary). Returns {@code null} if the cache is disabled.
+	 *
+	 * @param _archive - an arrangement archive file
+	 * @return the cache object or {@code null}
+	 */
+	public static ArchiveSnapshotCache forArchive(File _archive)
+	{
+		if (_archive == null || !isEnabled()) {
+			return null;
+		}
+		String key = _archive.getAbsolutePath();
+		synchronized (caches) {
+			ArchiveSnapshotCache cache = caches.get(key);
+			if (cache == null || !cache.isValid()) {
+				cache = new ArchiveSnapshotCache(_archive);
+				cache.load();
+				caches.put(key, cache);
+			}
+			return cache;
+		}
+	}
+
+	/**
+	 * Retrieves the diagram extracted from the archive as {@code _nsdFile} from the cache.
+	 *
+	 * @param _nsdFile - the NSD file extracted from the archive
+	 * @return a newly decoded {@link Root} or {@code null} if there is no valid cache entry
+	 */
+	public synchronized Root get(File _nsdFile)
+	{
+		Entry entry = entries.get(_nsdFile.getName());
+		if (entry == null || entry.length != _nsdFile.length() || entry.lastModified != _nsdFile.lastModified()) {
+			return null;
+		}
+		try {
+			return (Root)DiagramSnapshot.decode(entry.snapshot);
+		}
+		catch (IOException | ClassCastException ex) {
+			logger.log(Level.WARNING, "Corrupt snapshot of " + _nsdFile.getName() + " in " + cacheFile, ex);
+			entries.remove(_nsdFile.getName());
+			changed = true;
+		}
+		return null;
+	}
+
+	/**
+	 * Puts a snapshot of the given diagram {@code _root}, freshly loaded from {@code _nsdFile},
+	 * into the cache. The cache file will only be updated on {@link #flush()}.
+	 *
+	 * @param _nsdFile - the NSD file extracted from the archive
+	 * @param _root - the diagram parsed from {@code _nsdFile}
+	 */
+	public synchronized void put(File _nsdFile, Root _root)
+	{
+		try {
+			entries.put(_nsdFile.getName(),
+					new Entry(_nsdFile.length(), _nsdFile.lastModified(), DiagramSnapshot.encode(_root)));
+			changed = true;
+		}
+		catch (IOException ex) {
+			logger.log(Level.WARNING, "No snapshot of " + _nsdFile.getName(), ex);
+		}
+	}
+
+	/**
+	 * Writes the cache file if the cache content has changed since loading or the
+	 * last flush. Problems are just logged.
+	 */
+	public synchronized void flush()
+	{
+		if (!changed) {
+			return;
+		}
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(cacheFile)))) {
+			out.writeInt(CACHE_MAGIC);
+			out.writeShort(DiagramSnapshot.VERSION);
+			out.writeLong(archiveLength);
+			out.writeLong(archiveModified);
+			out.writeUTF(fingerprint);
+			out.writeInt(entries.size());
+			for (Map.Entry<String, Entry> entry: entries.entrySet()) {
+				Entry value = entry.getValue();
+				out.writeUTF(entry.getKey());
+				out.writeLong(value.length);
+				out.writeLong(value.lastModified);
+				out.writeInt(value.snapshot.length);
+				out.write(value.snapshot);
+			}
+			changed = false;
+		}
+		catch (IOException ex) {
+			logger.log(Level.WARNING, "Failed to write " + cacheFile, ex);
+		}
+	}
+
+	/**
+	 * @return whether this cache still matches the archive file and the current
+	 * parser keywords.
+	 */
+	private boolean isValid()
+	{
+		return archive.length() == archiveLength
+				&& archive.lastModified() == archiveModified
+				&& getKeywordFingerprint().equals(fingerprint);
+	}
+
+	/**
+	 * Loads the cache file if it exists and matches the archive, otherwise leaves
+	 * this cache empty.
+	 */
+	private void load()
+	{
+		if (!cacheFile.isFile()) {
+			return;
+		}
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(cacheFile)))) {
+			if (in.readInt() != CACHE_MAGIC || in.readShort() != DiagramSnapshot.VERSION
+					|| in.readLong() != archiveLength || in.readLong() != archiveModified
+					|| !in.readUTF().equals(fingerprint)) {
+				// Outdated - will be overwritten on next flush
+				return;
+			}
+			int nEntries = in.readInt();
+			for (int i = 0; i < nEntries; i++) {
+				String name = in.readUTF();
+				long length = in.readLong();
+				long lastModified = in.readLong();
+				byte[] snapshot = new byte[in.readInt()];
+				in.readFully(snapshot);
+				entries.put(name, new Entry(length, lastModified, snapshot));
+			}
+		}
+		catch (IOException ex) {
+			logger.log(Level.WARNING, "Failed to read " + cacheFile, ex);
+			entries.clear();
+		}
+	}
+
+	/**
+	 * @return the hex-coded SHA-256 digest of all preferences which may influence
+	 * the result of NSD file parsing (keywords, case sensitivity, refactoring option).
+	 * The digest is only computed anew if the preferences changed since the last call.
+	 */
+	private static String getKeywordFingerprint()
+	{
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, String> entry: new TreeMap<String, String>(CodeParser.getPropertyMap(true)).entrySet()) {
+			sb.append(entry.getKey()).append('=').append(entry.getValue()).append('\u0001');
+		}
+		String refactor = "true";
+		try {
+			refactor = Ini.getInstance().getProperty("impRefactorOnLoading", "true");
+		}
+		catch (Exception ex) {}
+		sb.append("impRefactorOnLoading=").append(refactor);
+		String source = sb.toString();
+		synchronized (caches) {
+			if (source.equals(fingerprintSource)) {
+				return lastFingerprint;
+			}
+			String fingerprint;
+			try {
+				byte[] digest = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+				StringBuilder hex = new StringBuilder(2 * digest.length);
+				for (byte b: digest) {
+					hex.append(String.format("%02x", b & 0xff));
+				}
+				fingerprint = hex.toString();
+			}
+			catch (NoSuchAlgorithmException ex) {
+				// Every Java platform must support SHA-256, so this is only a fallback
+				fingerprint = source;
+			}
+			fingerprintSource = source;
+			lastFingerprint = fingerprint;
+			return fingerprint;
+		}
+	}
+
+}
@@ -0,0 +1,458 @@
+/*
+    Structorizer
+    A little tool which you can use to create Nassi-Shneiderman Diagrams (NSD)
+
+    Copyright (C) 2009  Bob Fisch
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lu.fisch.structorizer.archivar;
+
+/******************************************************************************************************
+ *
+ *      Author:         Kay Gürtzig
+ *
+ *      Description:    Inverted word index over the diagrams of a routine pool
+ *
+ ******************************************************************************************************
+ *
+ *      Revision List
+ *
+ *      Author          Date            Description
+ *      ------          ----            -----------
+ *      Kay Gürtzig     2026-10-19      First Issue (KGU#1230)
+ *      Kay Gürtzig     2026-10-19      KGU#1230: Deregistration from dropped diagrams, method discard(IRoutinePool)
+ *
+ ******************************************************************************************************
+ *
+ *      Comment:
+ *      There is one DiagramIndex per routine pool. It maps the words occurring in the texts and
+ *      comments of the diagrams to the elements containing them (postings per diagram). Words are
+ *      the maximal sequences of ASCII letters, digits, and underscores (i.e. the complement of the
+ *      regex class \W), held in lower case.
+ *      The index is maintained incrementally: the pool notifications (IRoutinePoolListener) and
+ *      the Root replacement notifications (Updater) just advance a counter, on the next query the
+ *      set of indexed diagrams is synchronized with the pool, and every diagram the content version
+ *      of which (Root.getSymbolVersion()) changed since its indexing is indexed anew. So there is
+ *      no lock held while the pool notifies its listeners, and unmodified diagrams are never
+ *      scanned twice.
+ *      Texts containing non-ASCII characters that lower-case to ASCII characters (e.g. the Kelvin
+ *      sign) are tokenized differently by a case-ignorant substring search, so the diagrams
+ *      containing such characters are marked irregular and never excluded by
+ *      findCandidateRoots(String, boolean).
+ *
+ ******************************************************************************************************///
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lu.fisch.structorizer.elements.Element;
+import lu.fisch.structorizer.elements.IElementSequence;
+import lu.fisch.structorizer.elements.Root;
+import lu.fisch.structorizer.elements.Updater;
+import lu.fisch.utils.StringList;
+
+/**
+ * Inverted index of the words occurring in the texts and comments of the diagrams of
+ * an {@link IRoutinePool}, answering questions like "which diagrams mention variable X
+ * or contain text Z" without scanning all diagrams.
+ * Obtain the instance for a pool via {@link #getInstance(IRoutinePool)}.
+ * @author Kay Gürtzig
+ */
+public class DiagramIndex implements IRoutinePoolListener, Updater {
+
+	/** Change flags that may affect the set of indexed diagrams */
+	private static final int RELEVANT_CHANGES = RPC_POOL_CHANGED;
+
+	private static final WeakHashMap<IRoutinePool, DiagramIndex> INDEXES =
+			new WeakHashMap<IRoutinePool, DiagramIndex>();
+
+	/**
+	 * Returns the index for routine pool {@code pool}, creating it (and registering it
+	 * as listener of the pool) on first demand.
+	 * @param pool - a routine pool
+	 * @return the associated index
+	 */
+	public static DiagramIndex getInstance(IRoutinePool pool)
+	{
+		synchronized (INDEXES) {
+			DiagramIndex index = INDEXES.get(pool);
+			if (index == null) {
+				index = new DiagramIndex(pool);
+				INDEXES.put(pool, index);
+				pool.addChangeListener(index);
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * Discards the index for routine pool {@code pool} (if there is one), i.e. deregisters
+	 * it as listener of the pool and of all indexed diagrams and releases the postings.
+	 * To be called when the pool is going to be abandoned.
+	 * @param pool - a routine pool
+	 */
+	public static void discard(IRoutinePool pool)
+	{
+		DiagramIndex index;
+		synchronized (INDEXES) {
+			index = INDEXES.remove(pool);
+		}
+		if (index != null) {
+			pool.removeChangeListener(index);
+			index.clear();
+		}
+	}
+
+	/**
+	 * Index information of a single diagram
+	 */
+	private static final class Entry {
+		/** The content version of the diagram the postings were derived from */
+		final long version;
+		/** The words occurring in the diagram */
+		final String[] words;
+		/** Whether the diagram must not be excluded by substring queries */
+		final boolean irregular;
+
+		Entry(long version, String[] words, boolean irregular)
+		{
+			this.version = version;
+			this.words = words;
+			this.irregular = irregular;
+		}
+	}
+
+	/** The associated pool (not preventing its disposal) */
+	private final WeakReference<IRoutinePool> poolRef;
+	/** Counts relevant change notifications of the pool and Root replacements */
+	private final AtomicLong poolChanges = new AtomicLong();
+	/** Value of {@link #poolChanges} the set of indexed diagrams is valid for */
+	private long validPoolChanges = -1;
+	/** The indexed diagrams */
+	private final Map<Root, Entry> entries = new HashMap<Root, Entry>();
+	/** The postings: word -> diagram -> elements containing the word (in traversal order) */
+	private final Map<String, Map<Root, Element[]>> postings = new HashMap<String, Map<Root, Element[]>>();
+
+	private DiagramIndex(IRoutinePool pool)
+	{
+		poolRef = new WeakReference<IRoutinePool>(pool);
+	}
+
+	@Override
+	public void routinePoolChanged(IRoutinePool _source, int _flags)
+	{
+		if ((_flags & RELEVANT_CHANGES) != 0) {
+			poolChanges.incrementAndGet();
+		}
+	}
+
+	@Override
+	public void update(Root source)
+	{
+		// Modifications are detected by the content version on the next query
+	}
+
+	@Override
+	public void replaced(Root oldRoot, Root newRoot)
+	{
+		// The pool doesn't necessarily notify its listeners in this case
+		poolChanges.incrementAndGet();
+	}
+
+	/*----------------------------------------------------------------------------*/
+
+	/**
+	 * Retrieves the diagrams containing the given word in some element text or comment.
+	 * @param word - an identifier or other word (case-ignorant)
+	 * @return the set of diagrams mentioning {@code word} (empty if {@code word} is
+	 *     no word in the sense of this index)
+	 */
+	public synchronized Set<Root> findRootsWithWord(String word)
+	{
+		validate();
+		Map<Root, Element[]> posting = postings.get(word.toLowerCase(Locale.ROOT));
+		if (posting == null) {
+			return new LinkedHashSet<Root>();
+		}
+		return new LinkedHashSet<Root>(posting.keySet());
+	}
+
+	/**
+	 * Retrieves the elements containing the given word in their text or comment.
+	 * @param word - an identifier or other word (case-ignorant)
+	 * @param elementClass - the element class the results are to be restricted to
+	 *     (e.g. {@code Call.class} to find the calls of a routine), or {@code null}
+	 * @return the list of the found elements, grouped by diagram
+	 */
+	public synchronized List<Element> findElementsWithWord(String word, Class<? extends Element> elementClass)
+	{
+		validate();
+		List<Element> elements = new ArrayList<Element>();
+		Map<Root, Element[]> posting = postings.get(word.toLowerCase(Locale.ROOT));
+		if (posting != null) {
+			for (Element[] eles: posting.values()) {
+				for (Element ele: eles) {
+					if (elementClass == null || elementClass.isInstance(ele)) {
+						elements.add(ele);
+					}
+				}
+			}
+		}
+		return elements;
+	}
+
+	/**
+	 * Determines the indexed diagrams that may contain the given text, either as
+	 * substring (case-sensitive or not) or as whole word (in the sense of a split by
+	 * the regular expression {@code \W+}). Diagrams not contained in the result
+	 * certainly do not contain {@code text}, the candidates still have to be checked.
+	 * @param text - the searched (literal) text
+	 * @param wholeWord - whether {@code text} is an identifier to be matched as whole word
+	 * @return the set of candidate diagrams or {@code null} if the index can't help
+	 *     with {@code text} (e.g. if it doesn't contain a word or non-ASCII characters)
+	 */
+	public synchronized Set<Root> findCandidateRoots(String text, boolean wholeWord)
+	{
+		// Check for ASCII text and standard case conversion (the latter depends on the locale)
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) >= 0x80) {
+				return null;
+			}
+		}
+		if (!"abcdefghijklmnopqrstuvwxyz".equals("ABCDEFGHIJKLMNOPQRSTUVWXYZ".toLowerCase())) {
+			return null;
+		}
+		String lowText = text.toLowerCase(Locale.ROOT);
+		validate();
+		Set<Root> candidates = null;
+		int start = 0;
+		while (start < lowText.length()) {
+			// Find the next word within the text
+			while (start < lowText.length() && !isWordChar(lowText.charAt(start))) {
+				start++;
+			}
+			int end = start;
+			while (end < lowText.length() && isWordChar(lowText.charAt(end))) {
+				end++;
+			}
+			if (end > start) {
+				// A word at the text boundaries may be part of a longer word
+				boolean openLeft = start == 0 && !wholeWord;
+				boolean openRight = end == lowText.length() && !wholeWord;
+				Set<Root> roots = findRootsWithWordPart(lowText.substring(start, end), openLeft, openRight);
+				if (candidates == null) {
+					candidates = roots;
+				}
+				else {
+					candidates.retainAll(roots);
+				}
+			}
+			start = end;
+		}
+		if (candidates != null) {
+			for (Map.Entry<Root, Entry> entry: entries.entrySet()) {
+				if (entry.getValue().irregular) {
+					candidates.add(entry.getKey());
+				}
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * Collects the diagrams containing a word that equals {@code part} or, if
+	 * {@code openLeft} and/or {@code openRight} is true, ends with, starts with,
+	 * or contains {@code part}, respectively.
+	 */
+	private Set<Root> findRootsWithWordPart(String part, boolean openLeft, boolean openRight)
+	{
+		Set<Root> roots = new HashSet<Root>();
+		if (!openLeft && !openRight) {
+			Map<Root, Element[]> posting = postings.get(part);
+			if (posting != null) {
+				roots.addAll(posting.keySet());
+			}
+		}
+		else {
+			for (Map.Entry<String, Map<Root, Element[]>> posting: postings.entrySet()) {
+				String word = posting.getKey();
+				if (openLeft && openRight ? word.contains(part)
+						: openLeft ? word.endsWith(part) : word.startsWith(part)) {
+					roots.addAll(posting.getValue().keySet());
+				}
+			}
+		}
+		return roots;
+	}
+
+	/*----------------------------------------------------------------------------*/
+
+	/**
+	 * Brings the index up to date: synchronizes the set of indexed diagrams with the
+	 * pool (if the pool reported changes) and re-indexes all modified diagrams.
+	 */
+	private void validate()
+	{
+		long changes = poolChanges.get();
+		if (changes != validPoolChanges) {
+			validPoolChanges = changes;
+			IRoutinePool pool = poolRef.get();
+			Set<Root> roots = pool == null ? Collections.<Root>emptySet() : pool.getAllRoots();
+			Iterator<Map.Entry<Root, Entry>> iter = entries.entrySet().iterator();
+			while (iter.hasNext()) {
+				Map.Entry<Root, Entry> entry = iter.next();
+				if (!roots.contains(entry.getKey())) {
+					removePostings(entry.getKey(), entry.getValue());
+					entry.getKey().removeUpdater(this);
+					iter.remove();
+				}
+			}
+			for (Root root: roots) {
+				if (!entries.containsKey(root)) {
+					root.addUpdater(this);
+					entries.put(root, index(root));
+				}
+			}
+		}
+		for (Map.Entry<Root, Entry> entry: entries.entrySet()) {
+			Root root = entry.getKey();
+			if (entry.getValue().version != root.getSymbolVersion()) {
+				removePostings(root, entry.getValue());
+				entry.setValue(index(root));
+			}
+		}
+	}
+
+	/**
+	 * Deregisters from all indexed diagrams and drops all index information.
+	 */
+	private synchronized void clear()
+	{
+		for (Root root: entries.keySet()) {
+			root.removeUpdater(this);
+		}
+		entries.clear();
+		postings.clear();
+		validPoolChanges = -1;
+	}
+
+	private void removePostings(Root root, Entry entry)
+	{
+		for (String word: entry.words) {
+			Map<Root, Element[]> posting = postings.get(word);
+			if (posting != null) {
+				posting.remove(root);
+				if (posting.isEmpty()) {
+					postings.remove(word);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the postings for all elements of diagram {@code root} (including {@code root}
+	 * itself).
+	 * @return the index entry for {@code root}
+	 */
+	private Entry index(Root root)
+	{
+		long version = root.getSymbolVersion();
+		Map<String, ArrayList<Element>> occurrences = new LinkedHashMap<String, ArrayList<Element>>();
+		boolean irregular = addWords(root, occurrences);
+		IElementSequence.Iterator iter = root.children.iterator(true);
+		while (iter.hasNext()) {
+			if (addWords(iter.next(), occurrences)) {
+				irregular = true;
+			}
+		}
+		for (Map.Entry<String, ArrayList<Element>> occurrence: occurrences.entrySet()) {
+			Map<Root, Element[]> posting = postings.get(occurrence.getKey());
+			if (posting == null) {
+				posting = new LinkedHashMap<Root, Element[]>();
+				postings.put(occurrence.getKey(), posting);
+			}
+			ArrayList<Element> eles = occurrence.getValue();
+			posting.put(root, eles.toArray(new Element[eles.size()]));
+		}
+		return new Entry(version, occurrences.keySet().toArray(new String[occurrences.size()]), irregular);
+	}
+
+	/**
+	 * Adds element {@code ele} to the occurrence lists of the words of its text and comment.
+	 * @return {@code true} if text or comment contain irregular characters
+	 */
+	private static boolean addWords(Element ele, Map<String, ArrayList<Element>> occurrences)
+	{
+		boolean irregular = addWords(ele, ele.getText(), occurrences);
+		if (addWords(ele, ele.getComment(), occurrences)) {
+			irregular = true;
+		}
+		return irregular;
+	}
+
+	private static boolean addWords(Element ele, StringList lines, Map<String, ArrayList<Element>> occurrences)
+	{
+		boolean irregular = false;
+		for (int i = 0; i < lines.count(); i++) {
+			String line = lines.get(i);
+			int start = -1;
+			for (int j = 0; j <= line.length(); j++) {
+				char ch = j < line.length() ? line.charAt(j) : ' ';
+				if (isWordChar(ch)) {
+					if (start < 0) {
+						start = j;
+					}
+				}
+				else {
+					if (start >= 0) {
+						String word = line.substring(start, j).toLowerCase(Locale.ROOT);
+						ArrayList<Element> eles = occurrences.get(word);
+						if (eles == null) {
+							eles = new ArrayList<Element>();
+							occurrences.put(word, eles);
+						}
+						if (eles.isEmpty() || eles.get(eles.size() - 1) != ele) {
+							eles.add(ele);
+						}
+						start = -1;
+					}
+					if (ch >= 0x80 && Character.toLowerCase(ch) < 0x80) {
+						irregular = true;
+					}
+				}
+			}
+		}
+		return irregular;
+	}
+
+	/** @return whether {@code ch} is a word character (i.e. not matched by {@code \W}) */
+	private static boolean isWordChar(char ch)
+	{
+		return ch >= 'a' && ch <= 'z' || ch >= 'A' && ch <= 'Z' || ch >= '0' && ch <= '9' || ch == '_';
+	}
+
+}
@@ -0,0 +1,552 @@
+/*
+    Structorizer
+    A little tool which you can use to create Nassi-Shneiderman Diagrams (NSD)
+
+    Copyright (C) 2009  Bob Fisch
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lu.fisch.structorizer.archivar;
+
+/******************************************************************************************************
+ *
+ *      Author:         Kay Gürtzig
+ *
+ *      Description:    Cached include relations among the diagrams of a routine pool
+ *
+ ******************************************************************************************************
+ *
+ *      Revision List
+ *
+ *      Author          Date            Description
+ *      ------          ----            -----------
+ *      Kay Gürtzig     2026-10-19      First Issue (KGU#1223)
+ *      Kay Gürtzig     2026-10-19      KGU#1223: Changes invalidate only the affected nodes and the closures
+ *                                      of their dependents (reverse include edges) instead of all nodes
+ *
+ ******************************************************************************************************
+ *
+ *      Comment:
+ *      There is one IncludeGraph per routine pool. It caches the resolution of include names per
+ *      including diagram (as far as queried) and the transitive include closures derived from them,
+ *      the latter in topological order and together with a detected include cycle, if any.
+ *      Nothing is computed in advance. A node (i.e. the resolutions for an including diagram) is
+ *      dropped if the include list or the namespace of the diagram changed, or if one of the include
+ *      names it refers to may resolve differently now. Dropping a node also discards the cached
+ *      closures of all diagrams (transitively) including the diagram, which are found via reverse
+ *      include edges.
+ *      Root announces the modification of an Includable (or a type change) together with the
+ *      diagram (Root.notifyIncludeRelationsChanged(Root)), such that only the nodes referring to its
+ *      old or new name are affected. If the pool signals a change of its diagram set or names (via
+ *      IRoutinePoolListener) or an unspecific change is announced, then the cached resolutions of all
+ *      nodes are rechecked against the pool, which is far cheaper than rebuilding all closures.
+ *      The notification methods just record the change, the actual update happens on the next
+ *      query, so there is no lock held while the pool notifies its listeners.
+ *
+ ******************************************************************************************************///
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Vector;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lu.fisch.structorizer.elements.Root;
+
+/**
+ * Central service resolving and caching the include relations among the diagrams of
+ * an {@link IRoutinePool}: the Includables an include name refers to, the transitive
+ * include closure of a diagram (in topological order), and include cycles.
+ * Obtain the instance for a pool via {@link #getInstance(IRoutinePool)}.
+ * @author Kay Gürtzig
+ */
+public class IncludeGraph implements IRoutinePoolListener {
+
+	/** Change flags that may affect the resolution of include names */
+	private static final int RELEVANT_CHANGES =
+			RPC_POOL_CHANGED | RPC_NAME_CHANGED | RPC_STATUS_CHANGED;
+
+	private static final WeakHashMap<IRoutinePool, IncludeGraph> GRAPHS =
+			new WeakHashMap<IRoutinePool, IncludeGraph>();
+
+	/**
+	 * Returns the include graph for routine pool {@code pool}, creating it (and registering it
+	 * as listener of the pool) on first demand.
+	 * @param pool - a routine pool
+	 * @return the associated include graph
+	 */
+	public static IncludeGraph getInstance(IRoutinePool pool)
+	{
+		synchronized (GRAPHS) {
+			IncludeGraph graph = GRAPHS.get(pool);
+			if (graph == null) {
+				graph = new IncludeGraph(pool);
+				GRAPHS.put(pool, graph);
+				pool.addChangeListener(graph);
+			}
+			return graph;
+		}
+	}
+
+	/**
+	 * Records a possible change of the include relations for all include graphs, to be
+	 * taken into account on their next query.
+	 * @param changed - the diagram whose type, name, namespace, or include list may have
+	 *     changed, or {@code null} if the change can't be attributed to a single diagram
+	 * @see Root#notifyIncludeRelationsChanged(Root)
+	 */
+	public static void notifyIncludeRelationsChanged(Root changed)
+	{
+		IncludeGraph[] graphs;
+		synchronized (GRAPHS) {
+			graphs = GRAPHS.values().toArray(new IncludeGraph[GRAPHS.size()]);
+		}
+		for (IncludeGraph graph: graphs) {
+			if (changed == null) {
+				graph.poolChanges.incrementAndGet();
+			}
+			else {
+				synchronized (graph.changedRoots) {
+					graph.changedRoots.add(changed);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Resolution results of a transitive include closure
+	 */
+	private static final class Closure {
+		/** The involved Includables, each one preceding the diagrams including it */
+		final Root[] order;
+		/** The nodes of the Includables in {@link #order} the closure was derived from */
+		final Node[] nodes;
+		/** An include cycle (each element including the next one and the last one the first) or {@code null} */
+		final Root[] cycle;
+
+		Closure(Root[] order, Node[] nodes, Root[] cycle)
+		{
+			this.order = order;
+			this.nodes = nodes;
+			this.cycle = cycle;
+		}
+	}
+
+	/**
+	 * Cached include information of an including diagram
+	 */
+	private static final class Node {
+		/** The include list the information was derived from */
+		final String[] includeNames;
+		/** The namespace the information was derived from */
+		final String namespace;
+		/** Resolved include names with all candidates (created on demand) */
+		HashMap<String, Vector<Root>> resolvedAll = null;
+		/** Resolved include names filtered by closest path (created on demand) */
+		HashMap<String, Vector<Root>> resolvedClosest = null;
+		/** Direct includes per resolution mode (see {@link IncludeGraph#mode(boolean, boolean)}) */
+		final Root[][] direct = new Root[4][];
+		/** Transitive closure per resolution mode (see {@link IncludeGraph#mode(boolean, boolean)}) */
+		final Closure[] closures = new Closure[4];
+
+		Node(Root root)
+		{
+			includeNames = getIncludeNames(root);
+			namespace = root.getNamespace();
+		}
+
+		boolean isValidFor(Root root)
+		{
+			return Objects.equals(namespace, root.getNamespace())
+					&& Arrays.equals(includeNames, getIncludeNames(root));
+		}
+
+		private static String[] getIncludeNames(Root root)
+		{
+			return root.includeList == null ? new String[0] : root.includeList.toArray();
+		}
+	}
+
+	/** The associated pool (not preventing its disposal) */
+	private final WeakReference<IRoutinePool> poolRef;
+	/** Counts relevant change notifications of the pool and unspecific include changes */
+	private final AtomicLong poolChanges = new AtomicLong();
+	/** Value of {@link #poolChanges} the resolutions in {@link #nodes} have been checked for */
+	private long validPoolChanges = 0;
+	/** Diagrams announced as changed since the last query (guarded by itself) */
+	private final Set<Root> changedRoots = Collections.newSetFromMap(new WeakHashMap<Root, Boolean>());
+	private final Map<Root, Node> nodes = new WeakHashMap<Root, Node>();
+	/** Reverse include edges: maps Includables to the diagrams with cached nodes including them */
+	private final Map<Root, Set<Root>> dependents = new WeakHashMap<Root, Set<Root>>();
+	/** Maps the Includables found on resolution to the include name they were found by */
+	private final Map<Root, String> candidateNames = new WeakHashMap<Root, String>();
+
+	private IncludeGraph(IRoutinePool pool)
+	{
+		poolRef = new WeakReference<IRoutinePool>(pool);
+	}
+
+	@Override
+	public void routinePoolChanged(IRoutinePool _source, int _flags)
+	{
+		if ((_flags & RELEVANT_CHANGES) != 0) {
+			poolChanges.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Retrieves the Includables include name {@code name} refers to for diagram
+	 * {@code includer}, i.e. the cached equivalent of
+	 * {@link IRoutinePool#findIncludesByName(String, Root, boolean)}.
+	 * @param includer - the interested diagram, may be {@code null}
+	 * @param name - the include name
+	 * @param filterByClosestPath - whether only the candidates with maximum namespace
+	 *     similarity are to be returned
+	 * @return a new vector of the found Includables
+	 */
+	public Vector<Root> findIncludesByName(Root includer, String name, boolean filterByClosestPath)
+	{
+		if (includer == null) {
+			IRoutinePool pool = poolRef.get();
+			return pool == null ? new Vector<Root>() : pool.findIncludesByName(name, null, filterByClosestPath);
+		}
+		synchronized (this) {
+			update();
+			return new Vector<Root>(resolve(getNode(includer), includer, name, filterByClosestPath));
+		}
+	}
+
+	/**
+	 * Retrieves the Includables directly included by {@code root} (in the order of its
+	 * include list, without duplicates).
+	 * @param root - the including diagram
+	 * @param filterByClosestPath - whether the include names are to be resolved with
+	 *     namespace filtering
+	 * @param uniqueOnly - if {@code true} then ambiguous include names are ignored
+	 * @return array of the included diagrams
+	 */
+	public synchronized Root[] getDirectIncludes(Root root, boolean filterByClosestPath, boolean uniqueOnly)
+	{
+		update();
+		return getDirect(root, filterByClosestPath, uniqueOnly).clone();
+	}
+
+	/**
+	 * Retrieves all Includables {@code root} depends on, directly or indirectly, in
+	 * topological order, i.e. every Includable precedes the ones including it.
+	 * @param root - the including diagram
+	 * @param filterByClosestPath - whether the include names are to be resolved with
+	 *     namespace filtering
+	 * @param uniqueOnly - if {@code true} then ambiguous include names are ignored
+	 * @return array of the involved Includables (not containing {@code root} itself)
+	 * @see #getIncludeCycle(Root, boolean, boolean)
+	 */
+	public synchronized Root[] getIncludeClosure(Root root, boolean filterByClosestPath, boolean uniqueOnly)
+	{
+		update();
+		return getClosure(root, filterByClosestPath, uniqueOnly).order.clone();
+	}
+
+	/**
+	 * Checks the include relations reachable from {@code root} for cycles.
+	 * @param root - the including diagram
+	 * @param filterByClosestPath - whether the include names are to be resolved with
+	 *     namespace filtering
+	 * @param uniqueOnly - if {@code true} then ambiguous include names are ignored
+	 * @return a detected include cycle (every diagram including the next one and the
+	 *     last one including the first one) or {@code null} if there is none
+	 * @see #getIncludeClosure(Root, boolean, boolean)
+	 */
+	public synchronized Root[] getIncludeCycle(Root root, boolean filterByClosestPath, boolean uniqueOnly)
+	{
+		update();
+		Root[] cycle = getClosure(root, filterByClosestPath, uniqueOnly).cycle;
+		return cycle == null ? null : cycle.clone();
+	}
+
+	/** @return the index of the resolution mode in the caches of a {@link Node} */
+	private static int mode(boolean filterByClosestPath, boolean uniqueOnly)
+	{
+		return (filterByClosestPath ? 1 : 0) | (uniqueOnly ? 2 : 0);
+	}
+
+	/**
+	 * Processes the changes recorded since the last query, dropping the affected nodes
+	 * (and the closures depending on them).
+	 */
+	private void update()
+	{
+		long changes = poolChanges.get();
+		if (changes != validPoolChanges) {
+			validPoolChanges = changes;
+			recheckResolutions();
+		}
+		Root[] changed;
+		synchronized (changedRoots) {
+			if (changedRoots.isEmpty()) {
+				return;
+			}
+			changed = changedRoots.toArray(new Root[changedRoots.size()]);
+			changedRoots.clear();
+		}
+		// Include names that may resolve differently now
+		HashSet<String> names = new HashSet<String>();
+		for (Root root: changed) {
+			String oldName = candidateNames.get(root);
+			if (oldName != null) {
+				names.add(oldName);
+			}
+			if (root.isInclude()) {
+				names.add(root.getMethodName());
+			}
+			// Its own include list or namespace may have changed
+			dropNode(root);
+		}
+		if (!names.isEmpty()) {
+			for (Map.Entry<Root, Node> entry: new ArrayList<Map.Entry<Root, Node>>(nodes.entrySet())) {
+				for (String name: entry.getValue().includeNames) {
+					if (names.contains(name)) {
+						dropNode(entry.getKey());
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Re-resolves the cached include names of all nodes via the pool and drops the
+	 * nodes with differing results.
+	 */
+	private void recheckResolutions()
+	{
+		IRoutinePool pool = poolRef.get();
+		for (Map.Entry<Root, Node> entry: new ArrayList<Map.Entry<Root, Node>>(nodes.entrySet())) {
+			Root root = entry.getKey();
+			Node node = entry.getValue();
+			if (root != null && nodes.get(root) == node
+					&& (!node.isValidFor(root)
+							|| !isUnchanged(pool, root, node.resolvedAll, false)
+							|| !isUnchanged(pool, root, node.resolvedClosest, true))) {
+				dropNode(root);
+			}
+		}
+	}
+
+	/**
+	 * Checks whether the cached resolutions {@code resolved} for {@code includer} still
+	 * match the current resolutions in {@code pool}.
+	 */
+	private static boolean isUnchanged(IRoutinePool pool, Root includer,
+			HashMap<String, Vector<Root>> resolved, boolean filterByClosestPath)
+	{
+		if (resolved != null) {
+			for (Map.Entry<String, Vector<Root>> entry: resolved.entrySet()) {
+				Vector<Root> incls = pool == null ? new Vector<Root>()
+						: pool.findIncludesByName(entry.getKey(), includer, filterByClosestPath);
+				Vector<Root> cached = entry.getValue();
+				if (incls.size() != cached.size()) {
+					return false;
+				}
+				for (int i = 0; i < incls.size(); i++) {
+					if (incls.get(i) != cached.get(i)) {
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Drops the node of {@code root} together with its outgoing reverse edges and
+	 * discards the cached closures of all diagrams including {@code root} directly
+	 * or indirectly.
+	 */
+	private void dropNode(Root root)
+	{
+		Node node = nodes.remove(root);
+		if (node != null) {
+			for (Root[] incls: node.direct) {
+				if (incls != null) {
+					for (Root incl: incls) {
+						Set<Root> deps = dependents.get(incl);
+						if (deps != null) {
+							deps.remove(root);
+						}
+					}
+				}
+			}
+		}
+		// Discard the closures of the (transitive) dependents
+		HashSet<Root> visited = new HashSet<Root>();
+		ArrayList<Root> stack = new ArrayList<Root>();
+		stack.add(root);
+		while (!stack.isEmpty()) {
+			Set<Root> deps = dependents.get(stack.remove(stack.size() - 1));
+			if (deps != null) {
+				for (Root dep: deps) {
+					if (visited.add(dep)) {
+						Node depNode = nodes.get(dep);
+						if (depNode != null) {
+							Arrays.fill(depNode.closures, null);
+						}
+						stack.add(dep);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Provides the valid node for {@code root}, discarding outdated information before.
+	 */
+	private Node getNode(Root root)
+	{
+		Node node = nodes.get(root);
+		if (node == null || !node.isValidFor(root)) {
+			if (node != null) {
+				dropNode(root);
+			}
+			node = new Node(root);
+			nodes.put(root, node);
+		}
+		return node;
+	}
+
+	private Vector<Root> resolve(Node node, Root includer, String name, boolean filterByClosestPath)
+	{
+		HashMap<String, Vector<Root>> resolved = filterByClosestPath ? node.resolvedClosest : node.resolvedAll;
+		if (resolved == null) {
+			resolved = new HashMap<String, Vector<Root>>();
+			if (filterByClosestPath) {
+				node.resolvedClosest = resolved;
+			}
+			else {
+				node.resolvedAll = resolved;
+			}
+		}
+		Vector<Root> incls = resolved.get(name);
+		if (incls == null) {
+			IRoutinePool pool = poolRef.get();
+			incls = pool == null ? new Vector<Root>() : pool.findIncludesByName(name, includer, filterByClosestPath);
+			resolved.put(name, incls);
+			for (Root incl: incls) {
+				candidateNames.put(incl, name);
+			}
+		}
+		return incls;
+	}
+
+	private Root[] getDirect(Root root, boolean filterByClosestPath, boolean uniqueOnly)
+	{
+		Node node = getNode(root);
+		int mode = mode(filterByClosestPath, uniqueOnly);
+		if (node.direct[mode] == null) {
+			LinkedHashSet<Root> incls = new LinkedHashSet<Root>();
+			for (String name: node.includeNames) {
+				Vector<Root> candidates = resolve(node, root, name, filterByClosestPath);
+				if (!uniqueOnly || candidates.size() == 1) {
+					incls.addAll(candidates);
+				}
+			}
+			node.direct[mode] = incls.toArray(new Root[incls.size()]);
+			for (Root incl: incls) {
+				dependents.computeIfAbsent(incl,
+						k -> Collections.newSetFromMap(new WeakHashMap<Root, Boolean>())).add(root);
+			}
+		}
+		return node.direct[mode];
+	}
+
+	private Closure getClosure(Root root, boolean filterByClosestPath, boolean uniqueOnly)
+	{
+		Node node = getNode(root);
+		int mode = mode(filterByClosestPath, uniqueOnly);
+		Closure closure = node.closures[mode];
+		if (closure != null) {
+			// The nodes of the involved Includables must not have been replaced meanwhile
+			for (int i = 0; i < closure.order.length; i++) {
+				Root incl = closure.order[i];
+				if (closure.nodes[i] == null || nodes.get(incl) != closure.nodes[i]
+						|| !closure.nodes[i].isValidFor(incl)) {
+					// Also drops the closures of the other dependents
+					dropNode(incl);
+					closure = null;
+					break;
+				}
+			}
+		}
+		if (closure == null) {
+			LinkedHashSet<Root> order = new LinkedHashSet<Root>();
+			Root[] cycle = collect(root, root, filterByClosestPath, uniqueOnly, order,
+					new ArrayList<Root>(), new HashSet<Root>());
+			Root[] incls = order.toArray(new Root[order.size()]);
+			Node[] inclNodes = new Node[incls.length];
+			for (int i = 0; i < incls.length; i++) {
+				inclNodes[i] = nodes.get(incls[i]);
+			}
+			closure = new Closure(incls, inclNodes, cycle);
+			node.closures[mode] = closure;
+		}
+		return closure;
+	}
+
+	/**
+	 * Depth-first traversal of the include relations from {@code root}, adding the visited
+	 * Includables to {@code order} in post-order.
+	 * @param root - the currently visited diagram
+	 * @param origin - the diagram the closure is requested for (not to be added)
+	 * @param order - collects the visited Includables in topological order
+	 * @param path - the current include path from {@code origin} to {@code root}
+	 * @param onPath - the elements of {@code path} as set
+	 * @return the first detected cycle or {@code null}
+	 */
+	private Root[] collect(Root root, Root origin, boolean filterByClosestPath, boolean uniqueOnly,
+			LinkedHashSet<Root> order, ArrayList<Root> path, HashSet<Root> onPath)
+	{
+		Root[] cycle = null;
+		path.add(root);
+		onPath.add(root);
+		for (Root incl: getDirect(root, filterByClosestPath, uniqueOnly)) {
+			if (onPath.contains(incl)) {
+				if (cycle == null) {
+					int pos = path.indexOf(incl);
+					cycle = path.subList(pos, path.size()).toArray(new Root[path.size() - pos]);
+				}
+			}
+			else if (!order.contains(incl)) {
+				Root[] subCycle = collect(incl, origin, filterByClosestPath, uniqueOnly, order, path, onPath);
+				if (cycle == null) {
+					cycle = subCycle;
+				}
+			}
+		}
+		onPath.remove(root);
+		path.remove(path.size() - 1);
+		if (root != origin) {
+			order.add(root);
+		}
+		return cycle;
+	}
+
+}
@@ -0,0 +1,182 @@
+/*
+    Structorizer
+    A little tool which you can use to create Nassi-Shneiderman Diagrams (NSD)
+
+    Copyright (C) 2009  Bob Fisch
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lu.fisch.structorizer.arranger;
+
+/******************************************************************************************************
+ *
+ *      Author:         Kay Gürtzig
+ *
+ *      Description:    Dialog showing the progress of an ArrangementLoader and allowing to stop it.
+ *
+ ******************************************************************************************************
+ *
+ *      Revision List
+ *
+ *      Author          Date            Description
+ *      ------          ----            -----------
+ *      Kay Gürtzig     2026-10-19      First Issue (KGU#1234)
+ *
+ ******************************************************************************************************
+ *
+ *      Comment:
+ *      In contrast to the CodeImportMonitor, this dialog closes itself as soon as
+ *      the worker is done.
+ *
+ ******************************************************************************************************///
+
+import java.awt.BorderLayout;
+import java.awt.Frame;
+import java.awt.GridLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.WindowConstants;
+import javax.swing.border.EmptyBorder;
+
+import lu.fisch.structorizer.gui.GUIScaler;
+import lu.fisch.structorizer.locales.LangDialog;
+import lu.fisch.structorizer.locales.LangTextHolder;
+import lu.fisch.structorizer.locales.Locales;
+
+/**
+ * Modal monitor dialog for an {@link ArrangementLoader}, showing the number of
+ * loaded diagrams and allowing to stop the loading. Starts the worker and
+ * returns from the constructor when the worker is done.
+ *
+ * @author Kay Gürtzig
+ */
+@SuppressWarnings("serial")
+public class ArrangementLoadMonitor extends LangDialog implements PropertyChangeListener, ActionListener {
+
+	private ArrangementLoader worker;
+	private JProgressBar progressBar;
+	private JLabel lblLoaded;
+	private JLabel lblLoadedCount;
+	private JButton btnCancel;
+
+	public static final LangTextHolder ttlLoading = new LangTextHolder("Loading % ...");
+
+	/**
+	 * Temporary modal dialog to inform about the loading progress of an arrangement
+	 * and allowing to stop it. Will only return after {@code _worker} is done.
+	 *
+	 * @param _owner - the commanding Frame
+	 * @param _worker - the loader worker (not yet started)
+	 * @param _title - name of the arrangement or the like
+	 */
+	public ArrangementLoadMonitor(Frame _owner, ArrangementLoader _worker, String _title)
+	{
+		super(_owner, true);
+		this.worker = _worker;
+
+		initComponents();
+
+		Locales.getInstance().setLocale(this);
+
+		this.setTitle(ttlLoading.getText().replace("%", _title));
+		this.lblLoadedCount.setText("0 / " + this.worker.getTaskCount());
+
+		this.setLocationRelativeTo(_owner);
+
+		this.worker.addPropertyChangeListener(this);
+		this.worker.execute();
+
+		// The dialog will be disposed when the worker is done
+		this.setVisible(true);
+	}
+
+	/**
+	 * Sets up the GUI components
+	 */
+	private void initComponents()
+	{
+		this.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+
+		JPanel contentPane = new JPanel();
+		contentPane.setLayout(new BorderLayout());
+		contentPane.setBorder(new EmptyBorder(5, 5, 5, 5));
+
+		JPanel progressPane = new JPanel();
+		GridLayout progressLayout = new GridLayout(0, 2);
+		progressLayout.setVgap(5);
+		progressLayout.setHgap(5);
+		progressPane.setLayout(progressLayout);
+
+		lblLoaded = new JLabel("Loaded diagrams:");
+		lblLoadedCount = new JLabel("");
+		progressPane.add(lblLoaded);
+		progressPane.add(lblLoadedCount);
+
+		progressBar = new JProgressBar(0, 100);
+		progressBar.setValue(0);
+		progressBar.setStringPainted(true);
+
+		JPanel buttonBar = new JPanel();
+		buttonBar.setBorder(new EmptyBorder(10, 0, 0, 0));
+		buttonBar.setLayout(new BorderLayout());
+
+		btnCancel = new JButton("Cancel");
+		btnCancel.addActionListener(this);
+		buttonBar.add(btnCancel, BorderLayout.EAST);
+
+		contentPane.add(progressPane, BorderLayout.NORTH);
+		contentPane.add(progressBar, BorderLayout.CENTER);
+		contentPane.add(buttonBar, BorderLayout.SOUTH);
+
+		this.getContentPane().add(contentPane);
+
+		GUIScaler.rescaleComponents(this);
+
+		this.pack();
+	}
+
+	@Override
+	public void propertyChange(PropertyChangeEvent evt) {
+		if (evt.getSource() == this.worker) {
+			String aspect = evt.getPropertyName();
+			if (aspect.equals("state")) {
+				if (this.worker.isDone()) {
+					this.dispose();
+				}
+			}
+			else if (aspect.equals("progress")) {
+				this.progressBar.setValue((Integer)evt.getNewValue());
+			}
+			else if (aspect.equals("loaded")) {
+				this.lblLoadedCount.setText(evt.getNewValue() + " / " + this.worker.getTaskCount());
+			}
+		}
+	}
+
+	@Override
+	public void actionPerformed(ActionEvent evt) {
+		if (evt.getSource() == btnCancel) {
+			btnCancel.setEnabled(false);
+			this.worker.requestCancel();
+		}
+	}
+
+}
@@ -0,0 +1,247 @@
+/*
+    Structorizer
+    A little tool which you can use to create Nassi-Shneiderman Diagrams (NSD)
+
+    Copyright (C) 2009  Bob Fisch
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lu.fisch.structorizer.arranger;
+
+/******************************************************************************************************
+ *
+ *      Author:         Kay Gürtzig
+ *
+ *      Description:    Background worker loading the diagrams of an arrangement concurrently.
+ *
+ ******************************************************************************************************
+ *
+ *      Revision List
+ *
+ *      Author          Date            Description
+ *      ------          ----            -----------
+ *      Kay Gürtzig     2026-10-19      First Issue (KGU#1234)
+ *
+ ******************************************************************************************************
+ *
+ *      Comment:
+ *      The diagrams are parsed by a pool of threads but handed over to the consumer
+ *      (i.e. the Surface) strictly in the order of the tasks, batch-wise, on the event
+ *      dispatch thread. The worker waits for each batch to be consumed, such that
+ *      all delivered diagrams have been placed when the worker is done, even if it
+ *      was cancelled. For the same reason, cancellation is requested via
+ *      {@link #requestCancel()} rather than {@link SwingWorker#cancel(boolean)}.
+ *
+ ******************************************************************************************************///
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+
+import lu.fisch.structorizer.archivar.ArchiveRecord;
+import lu.fisch.utils.StringList;
+
+/**
+ * Background worker loading a sequence of diagrams concurrently and delivering
+ * them in their original order, batch-wise, to a consumer on the event dispatch
+ * thread. Reports progress via property "progress" and the number of delivered
+ * diagrams via property "loaded".
+ *
+ * @author Kay Gürtzig
+ */
+public class ArrangementLoader extends SwingWorker<Integer, Void> {
+
+	/**
+	 * A loading job for a single diagram, to be executed on a pool thread
+	 */
+	public interface Task {
+		/**
+		 * Loads the diagram
+		 * @param _troubles - a {@link StringList} to add error messages to (not shared)
+		 * @return the loaded diagram with its location or {@code null}
+		 * @throws Exception if the loading of the entire arrangement is to be aborted
+		 */
+		public ArchiveRecord load(StringList _troubles) throws Exception;
+	}
+
+	/** Maximum number of diagrams handed over to the consumer at once */
+	private static final int MAX_BATCH_SIZE = 16;
+	/** Minimum interval between deliveries of incomplete batches (ms) */
+	private static final long DELIVERY_INTERVAL = 250;
+	/** Polling interval for cancellation requests while waiting for a diagram (ms) */
+	private static final long POLL_INTERVAL = 50;
+
+	private final List<Task> tasks;
+	private final Consumer<List<ArchiveRecord>> consumer;
+	private final StringList troubles = new StringList();
+	private volatile boolean cancelRequested = false;
+	private Exception failure = null;
+	private int nLoaded = 0;
+	private long lastDelivery = 0;
+
+	/**
+	 * Creates a loader worker for the given tasks.
+	 * @param _tasks - the loading tasks in the intended order of delivery
+	 * @param _consumer - receives the loaded diagrams in order, in batches (on the
+	 *    event dispatch thread)
+	 */
+	public ArrangementLoader(List<Task> _tasks, Consumer<List<ArchiveRecord>> _consumer)
+	{
+		tasks = _tasks;
+		consumer = _consumer;
+	}
+
+	/**
+	 * @return the total number of diagrams to be loaded
+	 */
+	public int getTaskCount()
+	{
+		return tasks.size();
+	}
+
+	/**
+	 * Requests the loading to be stopped. Diagrams already delivered will stay.
+	 * The worker will be done after the next delivery at latest.
+	 */
+	public void requestCancel()
+	{
+		cancelRequested = true;
+	}
+
+	/**
+	 * @return true if the loading was stopped on request
+	 */
+	public boolean wasCancelRequested()
+	{
+		return cancelRequested;
+	}
+
+	/**
+	 * @return the error messages of all loaded tasks in task order (meaningful when done)
+	 */
+	public StringList getTroubles()
+	{
+		return troubles;
+	}
+
+	/**
+	 * @return the exception that aborted the loading, or {@code null} (meaningful when done)
+	 */
+	public Exception getFailure()
+	{
+		return failure;
+	}
+
+	/**
+	 * @return the number of diagrams delivered to the consumer (meaningful when done)
+	 */
+	public int getLoadedCount()
+	{
+		return nLoaded;
+	}
+
+	@Override
+	protected Integer doInBackground() throws Exception
+	{
+		int nTasks = tasks.size();
+		int nThreads = Math.max(1, Math.min(nTasks, Runtime.getRuntime().availableProcessors()));
+		ExecutorService pool = Executors.newFixedThreadPool(nThreads);
+		List<Future<ArchiveRecord>> futures = new ArrayList<Future<ArchiveRecord>>(nTasks);
+		List<StringList> taskTroubles = new ArrayList<StringList>(nTasks);
+		try {
+			for (Task task: tasks) {
+				StringList trouble = new StringList();
+				taskTroubles.add(trouble);
+				futures.add(pool.submit(() -> task.load(trouble)));
+			}
+			List<ArchiveRecord> batch = new ArrayList<ArchiveRecord>();
+			lastDelivery = System.currentTimeMillis();
+			for (int i = 0; i < nTasks && failure == null && !cancelRequested; i++) {
+				Future<ArchiveRecord> future = futures.get(i);
+				ArchiveRecord record = null;
+				while (!cancelRequested && failure == null) {
+					// Don't keep ready diagrams back too long while waiting for a slow one
+					if (!batch.isEmpty() && System.currentTimeMillis() - lastDelivery >= DELIVERY_INTERVAL) {
+						deliver(batch);
+					}
+					try {
+						record = future.get(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+						break;
+					}
+					catch (TimeoutException ex) {}
+					catch (ExecutionException ex) {
+						failure = (ex.getCause() instanceof Exception) ? (Exception)ex.getCause() : ex;
+					}
+				}
+				if (cancelRequested) {
+					break;
+				}
+				troubles.add(taskTroubles.get(i));
+				if (record != null) {
+					batch.add(record);
+					if (batch.size() >= MAX_BATCH_SIZE) {
+						deliver(batch);
+					}
+				}
+				setProgress(100 * (i+1) / nTasks);
+			}
+			deliver(batch);
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		return nLoaded;
+	}
+
+	/**
+	 * Hands the collected diagrams over to the consumer on the event dispatch thread
+	 * and waits until they have been processed, then clears {@code _batch}.
+	 * @param _batch - the diagrams loaded so far and not yet delivered
+	 */
+	private void deliver(List<ArchiveRecord> _batch) throws InterruptedException
+	{
+		if (_batch.isEmpty()) {
+			return;
+		}
+		List<ArchiveRecord> records = new ArrayList<ArchiveRecord>(_batch);
+		_batch.clear();
+		try {
+			SwingUtilities.invokeAndWait(new Runnable() {
+				@Override
+				public void run() {
+					consumer.accept(records);
+				}
+			});
+		} catch (InvocationTargetException ex) {
+			Logger.getLogger(getClass().getName()).log(Level.WARNING, "Delivery of loaded diagrams failed", ex.getCause());
+		}
+		int nLoadedBefore = nLoaded;
+		nLoaded += records.size();
+		lastDelivery = System.currentTimeMillis();
+		firePropertyChange("loaded", nLoadedBefore, nLoaded);
+	}
+
+}
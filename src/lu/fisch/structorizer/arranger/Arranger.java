@@ -84,6 +84,7 @@ package lu.fisch.structorizer.arranger;
  *      Kay Gürtzig     2021-03-01  Enh. #410: Temporary pool notification suppression introduced
  *      Kay Gürtzig     2022-05-31  Enh. #1035: New public method addToPool(ArchiveIndex, String)
  *      Kay Gürtzig     2024-10-10  Bugfix #1175: loadArrangement() must make sure Arranger is visible
+ *      Kay Gürtzig     2026-10-19  KGU#1230: The DiagramIndex of the Arranger is discarded with the instance
  *
  ******************************************************************************************************
  *
@@ -128,6 +129,7 @@ import javax.swing.event.ChangeEvent;
 import lu.fisch.graphics.Rect;
 import lu.fisch.structorizer.archivar.Archivar.ArchiveIndex;
 import lu.fisch.structorizer.archivar.Archivar.ArchiveIndexEntry;
+import lu.fisch.structorizer.archivar.DiagramIndex;
 import lu.fisch.structorizer.archivar.IRoutinePool;
 import lu.fisch.structorizer.archivar.IRoutinePoolListener;
 import lu.fisch.structorizer.elements.Element;
@@ -1184,6 +1186,9 @@ implements WindowListener, KeyListener, IRoutinePool, IRoutinePoolListener, Lang
                 /* While the singleton reference is still held, a dispose() call won't have any garbage
                  * collection effect, but if there are no diagrams then we may actually induce disposal. */
                 if (surface.getDiagramCount() == 0) {
+                    // START KGU#1230 2026-10-19: Release the diagram index of this pool
+                    DiagramIndex.discard(this);
+                    // END KGU#1230 2026-10-19
                     mySelf = null;
                 }
                 dispose();
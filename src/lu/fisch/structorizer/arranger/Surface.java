@@ -136,6 +136,10 @@ package lu.fisch.structorizer.arranger;
  *      Kay Gürtzig     2024-10-10      Issue #1176: More sensible addition to recent file list after loading an arrz file
  *                                      from Arranger button
  *      Kay Gürtzig     2024-11-25      Issue #1180: deep test coverage consistency defects mended.
+ *      Kay Gürtzig     2026-10-19      KGU#1213: NSD files now written via XmlGenerator.writeCode() (streaming)
+ *      Kay Gürtzig     2026-10-19      KGU#1214: Diagram copy/paste via binary snapshot (Diagram.NSDSelection)
+ *      Kay Gürtzig     2026-10-19      KGU#1222: Pool changes advance the include epoch of Root
+ *      Kay Gürtzig     2026-10-19      KGU#1234: Many diagrams are loaded in the background (ArrangementLoader)
  *
  ******************************************************************************************************
  *
@@ -229,6 +233,7 @@ import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -267,11 +272,13 @@ import lu.fisch.structorizer.archivar.ArchiveRecord;
 import lu.fisch.structorizer.archivar.IRoutinePool;
 import lu.fisch.structorizer.archivar.IRoutinePoolListener;
 import lu.fisch.structorizer.elements.Call;
+import lu.fisch.structorizer.elements.DiagramSnapshot;
 import lu.fisch.structorizer.elements.Element;
 import lu.fisch.structorizer.elements.Root;
 import lu.fisch.structorizer.elements.Updater;
 import lu.fisch.structorizer.executor.Function;
 import lu.fisch.structorizer.generators.XmlGenerator;
+import lu.fisch.structorizer.gui.Diagram.NSDSelection;
 import lu.fisch.structorizer.gui.Diagram.SerialDecisionAspect;
 import lu.fisch.structorizer.gui.IconLoader;
 import lu.fisch.structorizer.gui.Mainform;
@@ -325,6 +332,10 @@ public class Surface extends LangPanel implements MouseListener, MouseMotionList
 	private static final int MIN_WIDTH = 80;
 	/** Empirical height estimate for an empty diagram */ 
 	private static final int MIN_HEIGHT = 118;
+	// START KGU#1234 2026-10-19: Background loading of many diagrams
+	/** Number of diagrams beyond which they will be loaded by an {@link ArrangementLoader} */
+	private static final int LOADER_THRESHOLD = 20;
+	// END KGU#1234 2026-10-19
 	
 	/** Symbols for the degree of content difference on diagram comparison for equivalence levels 3..6 */
 	private static final String[] SYMBOLS_CONTENT_DIFF = {"*=*", "=", "≠", "?"};
@@ -689,11 +700,45 @@ public class Surface extends LangPanel implements MouseListener, MouseMotionList
 		// We try to load as many files of the list as possible and collect the error messages
 		int nLoaded = 0;
 		int toBeLoaded = files.length;
-		// TODO delegate this to a worker thread with a large number (e.g. > 20) of files
 		String troubles = "";
 		Cursor origCursor = getCursor();
 		try {
 			setCursor(new Cursor(Cursor.WAIT_CURSOR));
+			// START KGU#1234 2026-10-19: Delegate the loading of many diagram files to a worker thread
+			if (toBeLoaded > LOADER_THRESHOLD && SwingUtilities.isEventDispatchThread()) {
+				List<ArrangementLoader.Task> tasks = new ArrayList<ArrangementLoader.Task>(toBeLoaded);
+				for (File file: files) {
+					if (!StructogramFilter.isNSD(file.getName())) {
+						// Arrangement files may require interaction, so do it the old way
+						tasks = null;
+						break;
+					}
+					tasks.add(new ArrangementLoader.Task() {
+						@Override
+						public ArchiveRecord load(StringList _troubles) {
+							try {
+								return new ArchiveRecord(loadNSDFile(file, null));
+							}
+							catch (Exception ex) {
+								String trouble = "\"" + file.getAbsolutePath() + "\": " + ex.getLocalizedMessage();
+								_troubles.add(trouble);
+								logger.log(Level.INFO, "Arranger failed to load " + trouble);
+							}
+							return null;
+						}
+					});
+				}
+				if (tasks != null) {
+					ArrangementLoader loader = new ArrangementLoader(tasks,
+							records -> addLoadedDiagrams(records, null, null));
+					new ArrangementLoadMonitor(JOptionPane.getFrameForComponent(this), loader,
+							"*.nsd");
+					troubles = loader.getTroubles().getText();
+					nLoaded = loader.getLoadedCount();
+					toBeLoaded = 0;	// Nothing left to do for the loop below
+				}
+			}
+			// END KGU#1234 2026-10-19
 			for (int i = 0; i < toBeLoaded; i++) {
 				//String filename = files[i].toString();
 				String errorMessage = loadFile(files[i]);
@@ -766,20 +811,24 @@ public class Surface extends LangPanel implements MouseListener, MouseMotionList
 		String filename = file.getName();
 		if (StructogramFilter.isNSD(filename))
 		{
-			// open an existing file
-			NSDParser parser = new NSDParser();
+			// START KGU#1234 2026-10-19: Parsing outsourced to loadNSDFile() (for the ArrangementLoader)
+			//NSDParser parser = new NSDParser();
+			// END KGU#1234 2026-10-19
 			// START KGU#111 2015-12-17: Bugfix #63: We must now handle a possible exception
 			try {
 				// END KGU#111 2015-12-17
-				// START KGU#363 2017-05-21: Issue #372 API change
-				//Root root = parser.parse(f.toURI().toString());
-				// START KGU#363 2018-09-11: Improvement for temporary legacy nsd files extracted from arrz files
-				//Root root = parser.parse(f);
-				Root root = parser.parse(file, zipFile);
-				// END KGU#363 2018-09-11
-				// END KGU#363 2017-05-21
-
-				root.filename = file.getAbsolutePath();
+				// START KGU#1234 2026-10-19: Parsing outsourced to loadNSDFile() (for the ArrangementLoader)
+				//// START KGU#363 2017-05-21: Issue #372 API change
+				////Root root = parser.parse(f.toURI().toString());
+				//// START KGU#363 2018-09-11: Improvement for temporary legacy nsd files extracted from arrz files
+				////Root root = parser.parse(f);
+				//Root root = parser.parse(file, zipFile);
+				//// END KGU#363 2018-09-11
+				//// END KGU#363 2017-05-21
+				//
+				//root.filename = file.getAbsolutePath();
+				Root root = loadNSDFile(file, zipFile);
+				// END KGU#1234 2026-10-19
 // START KGU#679 2019-03-12: Enh. #698 - became dead code
 //				// START KGU#316 2016-12-28: Enh. #318 Allow nsd files to "reside" in arrz files
 //				if (zipFile != null) {
@@ -813,6 +862,51 @@ public class Surface extends LangPanel implements MouseListener, MouseMotionList
 		// END KGU#289 2016-11-14
 		return errorMessage;
 	}
+	
+	// START KGU#1234 2026-10-19: Decomposed for background loading
+	/**
+	 * Parses the given NSD file. Neither touches the Surface nor the diagram pool,
+	 * so it may be called from any thread. The variable table of the diagram is not
+	 * initialised, though ({@link Root#retrieveVarNames()} must be called on the
+	 * event dispatch thread).
+	 * @param file - the NSD file to load
+	 * @param zipFile - the arrangement archive the file was extracted from, or null
+	 * @return the loaded {@link Root}
+	 * @throws Exception if the file couldn't be parsed
+	 */
+	private static Root loadNSDFile(File file, File zipFile) throws Exception
+	{
+		// open an existing file
+		NSDParser parser = new NSDParser();
+		// START KGU#363 2017-05-21: Issue #372 API change
+		//Root root = parser.parse(f.toURI().toString());
+		// START KGU#363 2018-09-11: Improvement for temporary legacy nsd files extracted from arrz files
+		//Root root = parser.parse(f);
+		Root root = parser.parse(file, zipFile);
+		// END KGU#363 2018-09-11
+		// END KGU#363 2017-05-21
+
+		root.filename = file.getAbsolutePath();
+		return root;
+	}
+	
+	/**
+	 * Places a batch of diagrams delivered by an {@link ArrangementLoader} (after
+	 * having initialised their variable tables) and informs the listeners (e.g.
+	 * the {@link ArrangerIndex}) about it. To be called on the event dispatch thread.
+	 * @param records - the loaded diagrams (with their locations if specified)
+	 * @param form - the commanding {@link Mainform} or null
+	 * @param group - the owning group or null
+	 */
+	private void addLoadedDiagrams(List<ArchiveRecord> records, Mainform form, Group group)
+	{
+		for (ArchiveRecord record: records) {
+			record.root.retrieveVarNames();	// Initialise the variable table, otherwise the highlighting won't work
+			addDiagram(record.root, form, record.point, group);
+		}
+		notifyChangeListeners(IRoutinePoolListener.RPC_POOL_CHANGED);
+	}
+	// END KGU#1234 2026-10-19
 
 	/**
 	 * Stores the current diagram arrangement (new with version 3.28-13: only selected diagrams)
@@ -1393,7 +1487,10 @@ public class Surface extends LangPanel implements MouseListener, MouseMotionList
 					FileOutputStream fos = new FileOutputStream(filename);
 					out = new OutputStreamWriter(fos, "UTF-8");
 					XmlGenerator xmlgen = new XmlGenerator();
-					out.write(xmlgen.generateCode(diagr.root,"\t", true));
+					// START KGU#1213 2026-10-19: Stream the content rather than building it in memory
+					//out.write(xmlgen.generateCode(diagr.root,"\t", true));
+					xmlgen.writeCode(diagr.root, "\t", true, out);
+					// END KGU#1213 2026-10-19
 					diagr.root.filename = filename;
 					diagr.root.rememberSaved();
 					savedRoots.add(diagr.root);
@@ -1821,15 +1918,53 @@ public class Surface extends LangPanel implements MouseListener, MouseMotionList
 			setCursor(new Cursor(Cursor.WAIT_CURSOR));
 			// END KGU#901 2020-12-29
 			StringList problems = new StringList();
-			List<ArchiveRecord> records = (new Archivar()).loadArrangement(arrFile, unzippedFrom, currentDirectory, problems);
+			// START KGU#1234 2026-10-19: Load large arrangements in the background
+			//List<ArchiveRecord> records = (new Archivar()).loadArrangement(arrFile, unzippedFrom, currentDirectory, problems);
+			//if (!problems.isEmpty()) {
+			//	errorMessage = problems.getText().replace(" MISSING!", msgFileMissing.getText());
+			//}
+			//Mainform form = (frame instanceof Mainform) ? (Mainform)frame : null;
+			//for (ArchiveRecord record: records) {
+			//	addDiagram(record.root, form, record.point, group);
+			//	nLoaded++;
+			//}
+			Archivar archivar = new Archivar();
+			Mainform form = (frame instanceof Mainform) ? (Mainform)frame : null;
+			List<String> entries = null;
+			if (SwingUtilities.isEventDispatchThread()) {
+				entries = archivar.readArrangementList(arrFile, new StringList());
+			}
+			if (entries != null && entries.size() > LOADER_THRESHOLD) {
+				// Diagram files are to be looked for relative to the current directory as it is now
+				File tempDir = currentDirectory;
+				List<ArrangementLoader.Task> tasks = new ArrayList<ArrangementLoader.Task>(entries.size());
+				for (String entry: entries) {
+					tasks.add(troubles -> archivar.loadArrangementEntry(entry, arrFile, unzippedFrom, tempDir, troubles));
+				}
+				Group owningGroup = group;
+				ArrangementLoader loader = new ArrangementLoader(tasks,
+						records -> addLoadedDiagrams(records, form, owningGroup));
+				new ArrangementLoadMonitor(frame, loader, arrFile.getName());
+				archivar.finishArrangementLoading(unzippedFrom);
+				problems.add(loader.getTroubles());
+				Exception failure = loader.getFailure();
+				if (failure != null) {
+					problems.add(arrFile.getAbsolutePath() + ": " + failure.toString());
+					logger.log(Level.WARNING, "Trouble on loading arrangement: " + arrFile.getAbsolutePath(), failure);
+				}
+				nLoaded = loader.getLoadedCount();
+			}
+			else {
+				List<ArchiveRecord> records = archivar.loadArrangement(arrFile, unzippedFrom, currentDirectory, problems);
+				for (ArchiveRecord record: records) {
+					addDiagram(record.root, form, record.point, group);
+					nLoaded++;
+				}
+			}
 			if (!problems.isEmpty()) {
 				errorMessage = problems.getText().replace(" MISSING!", msgFileMissing.getText());
 			}
-			Mainform form = (frame instanceof Mainform) ? (Mainform)frame : null;
-			for (ArchiveRecord record: records) {
-				addDiagram(record.root, form, record.point, group);
-				nLoaded++;
-			}
+			// END KGU#1234 2026-10-19
 // END KGU#679 2019-03-10
 
 			done = true;
@@ -2949,12 +3084,23 @@ public class Surface extends LangPanel implements MouseListener, MouseMotionList
 		if (okay)
 		// END KGU#624 2018-12-21
 		{
-			XmlGenerator xmlgen = new XmlGenerator();
 			// START KGU#642 2018-12-21: Enh. #655
 			//StringSelection toClip = new StringSelection(xmlgen.generateCode(this.mouseSelected.root,"\t"));
-			StringSelection toClip = new StringSelection(
-					xmlgen.generateCode(this.diagramsSelected.iterator().next().root,"\t", true)
-					);
+			// START KGU#1214 2026-10-19: Transfer a snapshot, XML only on demand
+			//StringSelection toClip = new StringSelection(
+			//		xmlgen.generateCode(this.diagramsSelected.iterator().next().root,"\t", true)
+			//		);
+			Root root = this.diagramsSelected.iterator().next().root;
+			Transferable toClip = null;
+			try {
+				toClip = new NSDSelection(root);
+			}
+			catch (IOException ex) {
+				logger.log(Level.WARNING, "Diagram snapshot failed", ex);
+				XmlGenerator xmlgen = new XmlGenerator();
+				toClip = new StringSelection(xmlgen.generateCode(root, "\t", true));
+			}
+			// END KGU#1214 2026-10-19
 			// END KGU#624 2018-12-21
 			Clipboard clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
 			clipboard.setContents(toClip, this);
@@ -2975,7 +3121,18 @@ public class Surface extends LangPanel implements MouseListener, MouseMotionList
 		Transferable contents = clip.getContents(this);
 		String rootXML = "";
 		Root root = null;
-		if ((contents != null) && contents.isDataFlavorSupported(DataFlavor.stringFlavor)) {
+		// START KGU#1214 2026-10-19: Prefer the binary snapshot if copied within this JVM
+		if (contents != null && contents.isDataFlavorSupported(NSDSelection.snapshotFlavor)) {
+			try {
+				root = (Root)DiagramSnapshot.decode((byte[])contents.getTransferData(NSDSelection.snapshotFlavor));
+				root.retrieveVarNames();
+			}
+			catch (Exception ex) {
+				logger.log(Level.WARNING, "Diagram snapshot failed", ex);
+			}
+		}
+		if (root == null && (contents != null) && contents.isDataFlavorSupported(DataFlavor.stringFlavor)) {
+		// END KGU#1214 2026-10-19
 			try {
 				rootXML = (String)contents.getTransferData(DataFlavor.stringFlavor);
 				InputStream istr = new ByteArrayInputStream(rootXML.getBytes(StandardCharsets.UTF_8));
@@ -5108,6 +5265,11 @@ public class Surface extends LangPanel implements MouseListener, MouseMotionList
 	private void notifyChangeListeners(int _flags)
 	// END KGU#624 2018-12-21
 	{
+		// START KGU#1222 2026-10-19: Cached symbol information must check its includes
+		if ((_flags & IRoutinePoolListener.RPC_POOL_CHANGED) != 0) {
+			Root.notifyIncludeRelationsChanged();
+		}
+		// END KGU#1222 2026-10-19
 		if (this.notifications_enabled ) {
 			for (IRoutinePoolListener listener: listeners) {
 				// START KGU#624 2018-12-21: Enh. #655
@@ -67,6 +67,7 @@ package lu.fisch.structorizer.elements;
  *                                      missing Override annotations added.
  *      Kay Gürtzig     2025-07-31      Enh. #1197: Branch selector colouring enabled
  *      Kay Gürtzig     2025-08-04      Bugfix #1197: It wasn't possible to save an Alternative anymore
+ *      Kay Gürtzig     2026-10-19      KGU#1231: Branch head selections registered for targeted deselection
  *
  ******************************************************************************************************
  *
@@ -966,6 +967,11 @@ public class Alternative extends Element implements IFork {
 				this.selectedBranchHead = -1;
 			}
 		}
+		// START KGU#1231 2026-10-19
+		if (this.selectedBranchHead >= 0) {
+			registerSelection(this);
+		}
+		// END KGU#1231 2026-10-19
 		return oldSel != this.selectedBranchHead;
 	}
 	
@@ -999,6 +1005,15 @@ public class Alternative extends Element implements IFork {
 		return super.setSelected(_sel);
 	}
 	
+	// START KGU#1231 2026-10-19
+	@Override
+	protected void unselect()
+	{
+		this.selectedBranchHead = -1;
+		super.unselect();
+	}
+	// END KGU#1231 2026-10-19
+	
 	@Override
 	public void setColor(Color _color)
 	{
@@ -71,6 +71,7 @@ package lu.fisch.structorizer.elements;
  *                                      Missing @Override annotations inserted.
  *      Kay Gürtzig     2025-07-31      Enh. #1197: Branch selector colouring enabled
  *      Kay Gürtzig     2025-08-04      Bugfix #1197: It wasn't possible to save an Alternative anymore
+ *      Kay Gürtzig     2026-10-19      KGU#1231: Branch head selections registered for targeted deselection
  *
  ******************************************************************************************************
  *
@@ -1420,6 +1421,11 @@ public class Case extends Element implements IFork
 				}
 			}
 		}
+		// START KGU#1231 2026-10-19
+		if (this.selectedBranchHead >= 0) {
+			registerSelection(this);
+		}
+		// END KGU#1231 2026-10-19
 		return oldSel != this.selectedBranchHead;
 	}
 	
@@ -1457,6 +1463,15 @@ public class Case extends Element implements IFork
 		return super.setSelected(_sel);
 	}
 	
+	// START KGU#1231 2026-10-19
+	@Override
+	protected void unselect()
+	{
+		this.selectedBranchHead = -1;
+		super.unselect();
+	}
+	// END KGU#1231 2026-10-19
+	
 	@Override
 	public void setColor(Color _color)
 	{
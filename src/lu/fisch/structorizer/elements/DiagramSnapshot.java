@@ -0,0 +1,562 @@
+/*
+    Structorizer
+    A little tool which you can use to create Nassi-Schneiderman Diagrams (NSD)
+
+    Copyright (C) 2009  Bob Fisch
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.structorizer.elements;
+
+/******************************************************************************************************
+ *
+ *      Author:         Kay Gürtzig
+ *
+ *      Description:    Compact binary encoding of diagrams (Root) and element trees
+ *
+ ******************************************************************************************************
+ *
+ *      Revision List
+ *
+ *      Author          Date            Description
+ *      ------          ----            -----------
+ *      Kay Gürtzig     2026-10-19      First Issue (KGU#1214)
+ *
+ ******************************************************************************************************
+ *
+ *      Comment:
+ *      A snapshot holds the same information as an NSD file (texts, comments, colours, disabled
+ *      flags, FOR loop parameters, branch head colours, and the diagram attributes incl. the
+ *      stored parser preferences), but it is neither validated nor refactored on decoding, such
+ *      that it is much faster than the XmlGenerator / NSDParser round trip. It is meant for
+ *      transfers within a session (clipboard) and for caches, never as a primary file format.
+ *
+ *      Format (version 1): int magic "NSDS", short version, then the element tree in pre-order.
+ *      Each element starts with a kind byte, followed by text, comment, colour and flags and
+ *      the kind-specific data; every Subqueue is written as colour, element count and elements.
+ *      Strings are written as varint (UTF-8 byte length + 1, 0 for null) and UTF-8 bytes.
+ *
+ ******************************************************************************************************///
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import lu.fisch.utils.StringList;
+
+/**
+ * Encoder / decoder for a compact, versioned binary representation of {@link Root}s
+ * and {@link Element} trees, as a fast alternative to the NSD XML round trip for
+ * internal transfers and caching.
+ *
+ * @author Kay Gürtzig
+ */
+public final class DiagramSnapshot {
+
+	/** Format identification: "NSDS" */
+	public static final int MAGIC = 0x4E534453;
+	/** Current format version */
+	public static final short VERSION = 1;
+
+	// Element kind codes
+	private static final byte K_ROOT = 0;
+	private static final byte K_INSTRUCTION = 1;
+	private static final byte K_CALL = 2;
+	private static final byte K_JUMP = 3;
+	private static final byte K_ALTERNATIVE = 4;
+	private static final byte K_CASE = 5;
+	private static final byte K_FOR = 6;
+	private static final byte K_WHILE = 7;
+	private static final byte K_REPEAT = 8;
+	private static final byte K_FOREVER = 9;
+	private static final byte K_PARALLEL = 10;
+	private static final byte K_TRY = 11;
+	private static final byte K_SUBQUEUE = 12;
+
+	// Flag bits
+	private static final int F_DISABLED = 0x01;
+	private static final int F_BOXED = 0x02;
+	private static final int F_PROGRAM = 0x04;
+	private static final int F_INCLUDE = 0x08;
+	private static final int F_METHOD_DECL = 0x10;
+
+	private DiagramSnapshot() {}
+
+	/**
+	 * Encodes the given {@link Root} or {@link Element} (with all its substructure)
+	 * into a byte array.
+	 * @param _ele - a diagram or element
+	 * @return the snapshot bytes
+	 * @throws IOException if the element tree contains an unsupported element class
+	 */
+	public static byte[] encode(Element _ele) throws IOException
+	{
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(4096);
+		DataOutputStream out = new DataOutputStream(bos);
+		write(_ele, out);
+		out.flush();
+		return bos.toByteArray();
+	}
+
+	/**
+	 * Decodes a snapshot produced by {@link #encode(Element)}.
+	 * @param _bytes - the snapshot bytes
+	 * @return the reconstructed element ({@link Root} if a diagram had been encoded)
+	 * @throws IOException if the data is no snapshot or of an unsupported version
+	 */
+	public static Element decode(byte[] _bytes) throws IOException
+	{
+		return read(new DataInputStream(new ByteArrayInputStream(_bytes)));
+	}
+
+	/**
+	 * Writes the header and the element tree of {@code _ele} to the given stream.
+	 * @param _ele - the diagram or element to be written
+	 * @param _out - the target stream
+	 * @throws IOException on write errors or unsupported element classes
+	 */
+	public static void write(Element _ele, DataOutputStream _out) throws IOException
+	{
+		_out.writeInt(MAGIC);
+		_out.writeShort(VERSION);
+		writeElement(_ele, _out);
+	}
+
+	/**
+	 * Reads a snapshot (header and element tree) from the given stream.
+	 * @param _in - the source stream
+	 * @return the reconstructed element ({@link Root} if a diagram had been encoded)
+	 * @throws IOException if the data is no snapshot or of an unsupported version
+	 */
+	public static Element read(DataInputStream _in) throws IOException
+	{
+		if (_in.readInt() != MAGIC) {
+			throw new IOException("No diagram snapshot");
+		}
+		short version = _in.readShort();
+		if (version != VERSION) {
+			throw new IOException("Unsupported diagram snapshot version " + version);
+		}
+		return readElement(_in);
+	}
+
+	/*======== Encoding ========*/
+
+	private static void writeElement(Element _ele, DataOutputStream _out) throws IOException
+	{
+		Class<?> eleClass = _ele.getClass();
+		int flags = _ele.disabled ? F_DISABLED : 0;
+		if (eleClass == Root.class) {
+			Root root = (Root)_ele;
+			if (root.isBoxed) { flags |= F_BOXED; }
+			if (root.isProgram()) { flags |= F_PROGRAM; }
+			if (root.isInclude()) { flags |= F_INCLUDE; }
+			writeHead(K_ROOT, _ele, flags, _out);
+			writeString(root.getAuthor(), _out);
+			writeDate(root.getCreated(), _out);
+			writeString(root.getModifiedBy(), _out);
+			writeDate(root.getModified(), _out);
+			writeString(root.licenseName, _out);
+			writeString(root.licenseText, _out);
+			writeString(root.origin, _out);
+			writeString(root.getNamespace(), _out);
+			writeStringList(root.includeList, _out);
+			if (root.storedParserPrefs == null) {
+				writeVarInt(0, _out);
+			}
+			else {
+				writeVarInt(root.storedParserPrefs.size() + 1, _out);
+				for (Map.Entry<String, StringList> entry: root.storedParserPrefs.entrySet()) {
+					writeString(entry.getKey(), _out);
+					writeStringList(entry.getValue(), _out);
+				}
+			}
+			writeSubqueue(root.children, _out);
+		}
+		else if (eleClass == Instruction.class) {
+			writeHead(K_INSTRUCTION, _ele, flags, _out);
+		}
+		else if (eleClass == Call.class) {
+			if (((Call)_ele).isMethodDeclaration) { flags |= F_METHOD_DECL; }
+			writeHead(K_CALL, _ele, flags, _out);
+		}
+		else if (eleClass == Jump.class) {
+			writeHead(K_JUMP, _ele, flags, _out);
+		}
+		else if (eleClass == Alternative.class) {
+			Alternative alt = (Alternative)_ele;
+			writeHead(K_ALTERNATIVE, _ele, flags, _out);
+			writeColor(alt.getBranchHeadColor(0), _out);
+			writeColor(alt.getBranchHeadColor(1), _out);
+			writeSubqueue(alt.qTrue, _out);
+			writeSubqueue(alt.qFalse, _out);
+		}
+		else if (eleClass == Case.class) {
+			Case cas = (Case)_ele;
+			writeHead(K_CASE, _ele, flags, _out);
+			writeVarInt(cas.qs.size(), _out);
+			for (int i = 0; i < cas.qs.size(); i++) {
+				writeColor(cas.getBranchHeadColor(i), _out);
+				writeSubqueue(cas.qs.get(i), _out);
+			}
+		}
+		else if (eleClass == For.class) {
+			For loop = (For)_ele;
+			writeHead(K_FOR, _ele, flags, _out);
+			_out.writeByte(loop.style.ordinal());
+			writeString(loop.getCounterVar(), _out);
+			writeString(loop.getStartValue(), _out);
+			writeString(loop.getEndValue(), _out);
+			_out.writeInt(loop.getStepConst());
+			writeString(loop.style == For.ForLoopStyle.TRAVERSAL ? loop.getValueList() : null, _out);
+			writeSubqueue(loop.q, _out);
+		}
+		else if (eleClass == While.class) {
+			writeHead(K_WHILE, _ele, flags, _out);
+			writeSubqueue(((While)_ele).q, _out);
+		}
+		else if (eleClass == Repeat.class) {
+			writeHead(K_REPEAT, _ele, flags, _out);
+			writeSubqueue(((Repeat)_ele).q, _out);
+		}
+		else if (eleClass == Forever.class) {
+			writeHead(K_FOREVER, _ele, flags, _out);
+			writeSubqueue(((Forever)_ele).q, _out);
+		}
+		else if (eleClass == Parallel.class) {
+			Parallel para = (Parallel)_ele;
+			writeHead(K_PARALLEL, _ele, flags, _out);
+			writeVarInt(para.qs.size(), _out);
+			for (Subqueue sq: para.qs) {
+				writeSubqueue(sq, _out);
+			}
+		}
+		else if (eleClass == Try.class) {
+			Try tryEle = (Try)_ele;
+			writeHead(K_TRY, _ele, flags, _out);
+			writeSubqueue(tryEle.qTry, _out);
+			writeSubqueue(tryEle.qCatch, _out);
+			writeSubqueue(tryEle.qFinally, _out);
+		}
+		else if (eleClass == Subqueue.class) {
+			_out.writeByte(K_SUBQUEUE);
+			writeSubqueue((Subqueue)_ele, _out);
+		}
+		else {
+			throw new IOException("Unsupported element class " + eleClass.getName());
+		}
+	}
+
+	private static void writeHead(byte _kind, Element _ele, int _flags, DataOutputStream _out) throws IOException
+	{
+		_out.writeByte(_kind);
+		_out.writeByte(_flags);
+		writeStringList(_ele.text, _out);
+		writeStringList(_ele.comment, _out);
+		writeColor(_ele.getColor(), _out);
+	}
+
+	private static void writeSubqueue(Subqueue _sq, DataOutputStream _out) throws IOException
+	{
+		writeColor(_sq.getColor(), _out);
+		int size = _sq.getSize();
+		writeVarInt(size, _out);
+		for (int i = 0; i < size; i++) {
+			writeElement(_sq.getElement(i), _out);
+		}
+	}
+
+	private static void writeStringList(StringList _sl, DataOutputStream _out) throws IOException
+	{
+		if (_sl == null) {
+			writeVarInt(0, _out);
+			return;
+		}
+		int count = _sl.count();
+		writeVarInt(count + 1, _out);
+		for (int i = 0; i < count; i++) {
+			writeString(_sl.get(i), _out);
+		}
+	}
+
+	private static void writeString(String _str, DataOutputStream _out) throws IOException
+	{
+		if (_str == null) {
+			writeVarInt(0, _out);
+			return;
+		}
+		byte[] bytes = _str.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(bytes.length + 1, _out);
+		_out.write(bytes);
+	}
+
+	private static void writeColor(Color _color, DataOutputStream _out) throws IOException
+	{
+		if (_color == null) {
+			_out.writeBoolean(false);
+		}
+		else {
+			_out.writeBoolean(true);
+			_out.writeInt(_color.getRGB());
+		}
+	}
+
+	private static void writeDate(Date _date, DataOutputStream _out) throws IOException
+	{
+		_out.writeLong(_date == null ? Long.MIN_VALUE : _date.getTime());
+	}
+
+	private static void writeVarInt(int _value, DataOutputStream _out) throws IOException
+	{
+		while ((_value & ~0x7F) != 0) {
+			_out.writeByte((_value & 0x7F) | 0x80);
+			_value >>>= 7;
+		}
+		_out.writeByte(_value);
+	}
+
+	/*======== Decoding ========*/
+
+	private static Element readElement(DataInputStream _in) throws IOException
+	{
+		byte kind = _in.readByte();
+		if (kind == K_SUBQUEUE) {
+			Subqueue sq = new Subqueue();
+			readSubqueue(sq, _in);
+			return sq;
+		}
+		int flags = _in.readUnsignedByte();
+		StringList text = readStringList(_in);
+		StringList comment = readStringList(_in);
+		Color color = readColor(_in);
+		Element ele = null;
+		switch (kind) {
+		case K_ROOT:
+		{
+			Root root = new Root();
+			root.setText(text);
+			root.isBoxed = (flags & F_BOXED) != 0;
+			root.setProgram((flags & F_PROGRAM) != 0);
+			if ((flags & F_INCLUDE) != 0) {
+				root.setInclude(true);
+			}
+			String author = readString(_in);
+			Date created = readDate(_in);
+			String modifiedBy = readString(_in);
+			Date modified = readDate(_in);
+			root.setAuthorDates(author, created, modifiedBy, modified);
+			root.licenseName = readString(_in);
+			root.licenseText = readString(_in);
+			root.origin = readString(_in);
+			String namespace = readString(_in);
+			if (namespace != null) {
+				root.setNamespace(namespace);
+			}
+			root.includeList = readStringList(_in);
+			int nPrefs = readVarInt(_in) - 1;
+			if (nPrefs >= 0) {
+				root.storedParserPrefs = new HashMap<String, StringList>();
+				for (int i = 0; i < nPrefs; i++) {
+					String key = readString(_in);
+					root.storedParserPrefs.put(key, readStringList(_in));
+				}
+			}
+			readSubqueue(root.children, _in);
+			ele = root;
+			break;
+		}
+		case K_INSTRUCTION:
+			ele = new Instruction(text);
+			break;
+		case K_CALL:
+			ele = new Call(text);
+			((Call)ele).isMethodDeclaration = (flags & F_METHOD_DECL) != 0;
+			break;
+		case K_JUMP:
+			ele = new Jump(text);
+			break;
+		case K_ALTERNATIVE:
+		{
+			Alternative alt = new Alternative(text);
+			alt.setBranchHeadColor(0, readColor(_in));
+			alt.setBranchHeadColor(1, readColor(_in));
+			readSubqueue(alt.qTrue, _in);
+			readSubqueue(alt.qFalse, _in);
+			ele = alt;
+			break;
+		}
+		case K_CASE:
+		{
+			Case cas = new Case(text);
+			cas.qs.clear();
+			int nBranches = readVarInt(_in);
+			Color[] branchColors = new Color[nBranches];
+			for (int i = 0; i < nBranches; i++) {
+				branchColors[i] = readColor(_in);
+				Subqueue sq = new Subqueue();
+				sq.parent = cas;
+				readSubqueue(sq, _in);
+				cas.qs.add(sq);
+			}
+			// Branch head colours can only be set with the branches present
+			for (int i = 0; i < nBranches; i++) {
+				if (branchColors[i] != null) {
+					cas.setBranchHeadColor(i, branchColors[i]);
+				}
+			}
+			ele = cas;
+			break;
+		}
+		case K_FOR:
+		{
+			For loop = new For(text);
+			For.ForLoopStyle style = For.ForLoopStyle.values()[_in.readUnsignedByte()];
+			loop.setCounterVar(readString(_in));
+			loop.setStartValue(readString(_in));
+			loop.setEndValue(readString(_in));
+			loop.setStepConst(_in.readInt());
+			String valueList = readString(_in);
+			if (valueList != null) {
+				loop.setValueList(valueList);
+			}
+			loop.style = style;
+			readSubqueue(loop.q, _in);
+			ele = loop;
+			break;
+		}
+		case K_WHILE:
+			ele = new While(text);
+			readSubqueue(((While)ele).q, _in);
+			break;
+		case K_REPEAT:
+			ele = new Repeat(text);
+			readSubqueue(((Repeat)ele).q, _in);
+			break;
+		case K_FOREVER:
+			ele = new Forever(text);
+			readSubqueue(((Forever)ele).q, _in);
+			break;
+		case K_PARALLEL:
+		{
+			Parallel para = new Parallel(text);
+			para.qs.clear();
+			int nThreads = readVarInt(_in);
+			for (int i = 0; i < nThreads; i++) {
+				Subqueue sq = new Subqueue();
+				sq.parent = para;
+				readSubqueue(sq, _in);
+				para.qs.add(sq);
+			}
+			ele = para;
+			break;
+		}
+		case K_TRY:
+		{
+			Try tryEle = new Try(text);
+			readSubqueue(tryEle.qTry, _in);
+			readSubqueue(tryEle.qCatch, _in);
+			readSubqueue(tryEle.qFinally, _in);
+			ele = tryEle;
+			break;
+		}
+		default:
+			throw new IOException("Corrupt diagram snapshot (element kind " + kind + ")");
+		}
+		if (comment != null) {
+			ele.setComment(comment);
+		}
+		if (color != null) {
+			ele.setColor(color);
+		}
+		ele.disabled = (flags & F_DISABLED) != 0;
+		return ele;
+	}
+
+	private static void readSubqueue(Subqueue _sq, DataInputStream _in) throws IOException
+	{
+		Color color = readColor(_in);
+		if (color != null) {
+			// Set before the children are added, since it would be propagated to them
+			_sq.setColor(color);
+		}
+		int size = readVarInt(_in);
+		for (int i = 0; i < size; i++) {
+			_sq.addElement(readElement(_in));
+		}
+	}
+
+	private static StringList readStringList(DataInputStream _in) throws IOException
+	{
+		int count = readVarInt(_in) - 1;
+		if (count < 0) {
+			return null;
+		}
+		StringList sl = new StringList();
+		for (int i = 0; i < count; i++) {
+			sl.add(readString(_in));
+		}
+		return sl;
+	}
+
+	private static String readString(DataInputStream _in) throws IOException
+	{
+		int length = readVarInt(_in) - 1;
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		_in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static Color readColor(DataInputStream _in) throws IOException
+	{
+		if (!_in.readBoolean()) {
+			return null;
+		}
+		int rgb = _in.readInt();
+		return new Color(rgb, (rgb >>> 24) != 0xFF);
+	}
+
+	private static Date readDate(DataInputStream _in) throws IOException
+	{
+		long time = _in.readLong();
+		return time == Long.MIN_VALUE ? null : new Date(time);
+	}
+
+	private static int readVarInt(DataInputStream _in) throws IOException
+	{
+		int value = 0;
+		int shift = 0;
+		int b;
+		do {
+			if (shift > 28) {
+				throw new IOException("Corrupt diagram snapshot (varint)");
+			}
+			b = _in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+}
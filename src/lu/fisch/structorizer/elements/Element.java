@@ -146,6 +146,11 @@ package lu.fisch.structorizer.elements;
  *                                      Enh. #1198: Case editor choice option changed from boolean to enum
  *      Kay Gürtzig     2025-08-13      Enh. #1198: Defective initial preference for useInputBoxCase mended
  *      Kay Gürtzig     2025-09-06      Issue #1221: Comment lines should neither be trimmed nor skipped
+ *      Kay Gürtzig     2026-10-19      KGU#1220: RECORD_MATCHER replaced by a pattern, lastId made atomic (thread safety),
+ *                                      hashCode() derived from the id (reproducible generated names)
+ *      Kay Gürtzig     2026-10-19      KGU#1221: Lazy initialisation of specialSigns/specialSignsCi made thread-safe
+ *      Kay Gürtzig     2026-10-19      KGU#1231: Registry of selected elements for targeted deselection
+ *      Kay Gürtzig     2026-10-19      KGU#1233: setFont() clears the text measurement cache of Canvas
  *
  ******************************************************************************************************
  *
@@ -255,6 +260,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
 import java.util.Vector;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -649,7 +656,10 @@ public abstract class Element {
 	private static final Pattern HEX_PATTERN = Pattern.compile("0x[0-9A-Fa-f]+");
 	private static final Pattern SIGN_PATTERN = Pattern.compile("[+-]");
 	//private static final java.util.regex.Pattern ARRAY_PATTERN = java.util.regex.Pattern.compile("(\\w.*)(\\[.*\\])$"); // seems to have been wrong
-	private static final Matcher RECORD_MATCHER = java.util.regex.Pattern.compile("([A-Za-z]\\w*)\\s*\\{.*\\}").matcher("");
+	// START KGU#1220 2026-10-19: A shared matcher isn't thread-safe
+	//private static final Matcher RECORD_MATCHER = java.util.regex.Pattern.compile("([A-Za-z]\\w*)\\s*\\{.*\\}").matcher("");
+	private static final Pattern RECORD_PATTERN = Pattern.compile("([A-Za-z]\\w*)\\s*\\{.*\\}");
+	// END KGU#1220 2026-10-19
 	// END KGU 2017-09-19
 	// START KGU#575 2018-09-17: Issue #594 - replace an obsolete 3rd-party Regex library
 	// Remark: It would not be a good idea to define the Matchers here because these aren't really constant but must be
@@ -759,6 +769,13 @@ public abstract class Element {
 
 	public Element parent = null;
 	public boolean selected = false;
+	// START KGU#1231 2026-10-19: Targeted deselection
+	/**
+	 * Elements the {@link #selected} flag (or a branch head selection) of which may
+	 * have been set, such that deselection needn't traverse entire diagrams (weak keys)
+	 */
+	private static final Map<Element, Boolean> SELECTION_CANDIDATES = new WeakHashMap<Element, Boolean>();
+	// END KGU#1231 2026-10-19
 	// START KGU#41 2015-10-13: Execution mark had to be separated from selection
 	/** Is set while being executed */
 	public boolean executed = false;
@@ -823,13 +840,22 @@ public abstract class Element {
 	/** Strings to be highlighted in the element text (lazy initialisation) */
 	// START KGU#843 2020-04-12: Bugfix #847 We should distinguish between case-indifferent and case-relevant search
 	//private static StringList specialSigns = null;
-	private static HashSet<String> specialSigns = null;
+	// START KGU#1221 2026-10-19: volatile for concurrent image export
+	//private static HashSet<String> specialSigns = null;
+	private static volatile HashSet<String> specialSigns = null;
+	// END KGU#1221 2026-10-19
 	/** Strings to be highlighted in the element text case-independently (lazy initialisation) */
-	private static StringList specialSignsCi = null;
+	// START KGU#1221 2026-10-19: volatile for concurrent image export
+	//private static StringList specialSignsCi = null;
+	private static volatile StringList specialSignsCi = null;
+	// END KGU#1221 2026-10-19
 	// END KGU#843 2020-04-12
 
 	// START KGU#261 2017-01-19: Enh. #259 prepare the variable type map
-	private static long lastId = 0;
+	// START KGU#1220 2026-10-19: Elements may be created concurrently (e.g. in parallel code export)
+	//private static long lastId = 0;
+	private static final AtomicLong lastId = new AtomicLong();
+	// END KGU#1220 2026-10-19
 
 	/**
 	 * Change- and cloning-invariant id of this element
@@ -837,13 +863,38 @@ public abstract class Element {
 	private long id = 0;
 	private void makeNewId()
 	{
-		id = ++lastId;
+		// START KGU#1220 2026-10-19
+		//id = ++lastId;
+		id = lastId.incrementAndGet();
+		// END KGU#1220 2026-10-19
 	}
 	public long getId()
 	{
 		return id;
 	}
 
+	// START KGU#1220 2026-10-19: Reproducible hash codes for deterministic code export
+	/**
+	 * Derives the hash code from the (cloning-invariant) element id rather than from
+	 * the object identity. So auxiliary names generators compose from hash codes (as
+	 * well as the iteration order of hash maps with element keys) no longer vary
+	 * from run to run.<br/>
+	 * This is consistent with {@link Object#equals(Object)}, which is not overridden
+	 * ({@link #equals(Element)} is a mere overload for structural comparison): identical
+	 * objects share the id, and the id is only assigned on construction (or copied into
+	 * a fresh clone), so it never changes while the element is held in a hash container.
+	 * Clones share the hash code with their original without being equal to it, which is
+	 * admissible.
+	 */
+	@Override
+	public int hashCode()
+	{
+		// Spread the sequential ids (Fibonacci hashing)
+		long hash = id * 0x9E3779B97F4A7C15L;
+		return (int)(hash ^ (hash >>> 32));
+	}
+	// END KGU#1220 2026-10-19
+
 	public Element()
 	{
 		makeNewId();
@@ -1059,6 +1110,11 @@ public abstract class Element {
 		// START KGU#183 2016-04-24: Issue #169
 		_ele.selected = this.selected;
 		// END KGU#183 2016-04-24
+		// START KGU#1231 2026-10-19
+		if (_ele.selected) {
+			registerSelection(_ele);
+		}
+		// END KGU#1231 2026-10-19
 		// START KGU#277 2016-10-13: Enh. #270
 		_ele.disabled = this.disabled;
 		// END KGU#277 2016-10-13
@@ -1644,9 +1700,64 @@ public abstract class Element {
 	public Element setSelected(boolean _sel)
 	{
 		selected = _sel;
+		// START KGU#1231 2026-10-19
+		if (_sel) {
+			registerSelection(this);
+		}
+		// END KGU#1231 2026-10-19
 		return _sel ? this : null;
 	}
 
+	// START KGU#1231 2026-10-19: Targeted deselection
+	/**
+	 * Registers element {@code _ele} as possibly selected for {@link #clearSelectionsIn(Root, Element)}.
+	 * Must be called wherever the {@link #selected} flag is set directly.
+	 * @param _ele - the element just having been selected
+	 */
+	protected static void registerSelection(Element _ele)
+	{
+		synchronized (SELECTION_CANDIDATES) {
+			SELECTION_CANDIDATES.put(_ele, Boolean.TRUE);
+		}
+	}
+
+	/**
+	 * Resets the {@link #selected} flag and all other selection marks of this element
+	 * (but not of its substructure).
+	 */
+	protected void unselect()
+	{
+		selected = false;
+	}
+
+	/**
+	 * Unselects all elements of diagram {@code _root} except {@code _except}, where only
+	 * the elements having been registered as selected are visited.
+	 * @param _root - the diagram
+	 * @param _except - an element to retain its selection state (may be null)
+	 */
+	public static void clearSelectionsIn(Root _root, Element _except)
+	{
+		synchronized (SELECTION_CANDIDATES) {
+			java.util.Iterator<Element> iter = SELECTION_CANDIDATES.keySet().iterator();
+			while (iter.hasNext()) {
+				Element ele = iter.next();
+				if (ele == null) {
+					continue;
+				}
+				if (!ele.selected && !(ele instanceof IFork && ((IFork)ele).getSelectedBranchHead() >= 0)) {
+					// Has meanwhile been unselected otherwise
+					iter.remove();
+				}
+				else if (ele != _except && getRoot(ele) == _root) {
+					ele.unselect();
+					iter.remove();
+				}
+			}
+		}
+	}
+	// END KGU#1231 2026-10-19
+
 	/**
 	 * Sets the selection flag on this element for the given {@code _drawingContext}
 	 * @param _sel - if the element is to be selected or not
@@ -2724,6 +2835,9 @@ public abstract class Element {
 	public static void setFont(Font _font)
 	{
 		font = _font;
+		// START KGU#1233 2026-10-19: Cached measurements of the previous fonts are obsolete
+		Canvas.clearTextMetrics();
+		// END KGU#1233 2026-10-19
 		// START KGU 2019-03-29: Cache all dependent fonts to enhance drawing performance
 		boldFont = new Font(Element.font.getName(), Font.BOLD, Element.font.getSize());
 		// START KGU#480 2018-01-21: Enh. #490 - we will underline alias names
@@ -3863,6 +3977,9 @@ public abstract class Element {
 	public static String identifyExprType(HashMap<String, TypeMapEntry> typeMap, String expr, boolean canonicalizeTypeNames)
 	{
 		String typeSpec = "";	// This means no info
+		// START KGU#1220 2026-10-19
+		Matcher recordMatcher = null;
+		// END KGU#1220 2026-10-19
 		// 1. Check whether it's a known typed variable
 		TypeMapEntry typeEntry = null;
 		if (typeMap != null) {
@@ -3950,8 +4067,12 @@ public abstract class Element {
 			typeSpec = "String";
 		}
 		// START KGU#388 2017-09-12: Enh. #423: Record initializer support (name-prefixed!)
-		else if ((RECORD_MATCHER.reset(expr)).matches() && typeMap != null){
-			typeSpec = RECORD_MATCHER.group(1);
+		// START KGU#1220 2026-10-19
+		//else if ((RECORD_MATCHER.reset(expr)).matches() && typeMap != null){
+		//	typeSpec = RECORD_MATCHER.group(1);
+		else if ((recordMatcher = RECORD_PATTERN.matcher(expr)).matches() && typeMap != null){
+			typeSpec = recordMatcher.group(1);
+		// END KGU#1220 2026-10-19
 			if (!typeMap.containsKey(":" + typeSpec)) {
 				// It's hardly a valid prefixed record initializer...
 				typeSpec = "";
@@ -4366,114 +4487,126 @@ public abstract class Element {
 			if (specialSigns == null)	// lazy initialisation
 			{
 				// START KGU#843 2020-04-12: Bugfix #847
-				specialSigns = new HashSet<String>();
+				// START KGU#1221 2026-10-19: Publish the set only when complete (concurrent image export)
+				//specialSigns = new HashSet<String>();
+				HashSet<String> signs = new HashSet<String>();
+				// END KGU#1221 2026-10-19
 				// START KGU#843 2020-04-12: Bugfix #847
 			// END KGU#64 2015-11-03
 				// START KGU#425 2017-09-29: Add the possible ellipses, too
-				specialSigns.add("...");
-				specialSigns.add("..");					
+				signs.add("...");
+				signs.add("..");					
 				// END KGU#425 2017-09-29
-				specialSigns.add(".");
-				specialSigns.add("[");
-				specialSigns.add("]");
-				specialSigns.add("\u2190");
-				specialSigns.add(":=");
+				signs.add(".");
+				signs.add("[");
+				signs.add("]");
+				signs.add("\u2190");
+				signs.add(":=");
 				// START KGU#332 2017-01-27: Enh. #306 "dim" as declaration keyword
-				specialSigns.add(":");
+				signs.add(":");
 				// END KGU#332 2017-01-27
 				// START KGU#408 2021-02-24: Enh. #410 Since the " ? : " is executable, it should be highlighted
-				specialSigns.add("?");
+				signs.add("?");
 				// END KGU#408 2021-02-24
 
-				specialSigns.add("+");
-				specialSigns.add("/");
+				signs.add("+");
+				signs.add("/");
 				// START KGU 2015-11-03: This operator had been missing
-				specialSigns.add("%");
+				signs.add("%");
 				// END KGU 2015-11-03
-				specialSigns.add("*");
-				specialSigns.add("-");
-				specialSigns.add("var");
+				signs.add("*");
+				signs.add("-");
+				signs.add("var");
 				// START KGU#332 2017-01-27: Enh. #306 "dim" as declaration keyword
-				specialSigns.add("dim");
+				signs.add("dim");
 				// END KGU#332 2017-01-27
 				// START KGU#375 2017-03-30: Enh. #388 "const" as declaration keyword
-				specialSigns.add("const");
+				signs.add("const");
 				// END KGU#375 2017-03-30
 				// START KGU#388 2017-09-13: Enh. #423 "type", "record", and "struct" as type definition keywords
-				specialSigns.add("type");
-				specialSigns.add("record");
-				specialSigns.add("struct");
+				signs.add("type");
+				signs.add("record");
+				signs.add("struct");
 				// END KGU#388 2017-09-13
 				// START KGU#542 2019-11-17: Enh. #739 "enum" added to type definition keywords
-				specialSigns.add("enum");
+				signs.add("enum");
 				// END KGU#542 2019-11-17
 				// START KGU#331 2017-01-13: Enh. #333
 				//specialSigns.add("<=");
 				//specialSigns.add(">=");
 				//specialSigns.add("<>");
 				//specialSigns.add("!=");
-				specialSigns.add("\u2260");
-				specialSigns.add("\u2264");
-				specialSigns.add("\u2265");
+				signs.add("\u2260");
+				signs.add("\u2264");
+				signs.add("\u2265");
 				// END KGU#331 2017-01-13
-				specialSigns.add("<<");
-				specialSigns.add(">>");
-				specialSigns.add("<");
-				specialSigns.add(">");
-				specialSigns.add("==");
-				specialSigns.add("=");
-				specialSigns.add("!");
+				signs.add("<<");
+				signs.add(">>");
+				signs.add("<");
+				signs.add(">");
+				signs.add("==");
+				signs.add("=");
+				signs.add("!");
 				// START KGU#24 2014-10-18
-				specialSigns.add("&&");
-				specialSigns.add("||");
+				signs.add("&&");
+				signs.add("||");
 				// END KGU#24 2014-10-18
 				// START KGU#109 2016-01-15: Issues #61, #107 highlight the BASIC declarator keyword, too
-				specialSigns.add("as");
+				signs.add("as");
 				// END KGU#109 2016-01-15
 
 				// START KGU#100 2016-01-16: Enh. #84: Also highlight the initialiser delimiters
-				specialSigns.add("{");
-				specialSigns.add("}");
+				signs.add("{");
+				signs.add("}");
 				// END KGU#100 2016-01-16
 
 				// The quotes will only occur as tokens if they are unpaired!
-				specialSigns.add("'");
-				specialSigns.add("\"");
+				signs.add("'");
+				signs.add("\"");
 				// START KGU#64 2015-11-03: See above
 				
 				// START KGU#872 2020-10-17: Enh. #872 operator symbols for C style
-				specialSigns.add("!=");
-				specialSigns.add("<=");
-				specialSigns.add(">=");
+				signs.add("!=");
+				signs.add("<=");
+				signs.add(">=");
 				// END KGU#872 2020-10-17
 				// START KGU#920 2021-02-03: Issue #920 Infinity now also literal
-				specialSigns.add("Infinity");
-				specialSigns.add("\u221E");
+				signs.add("Infinity");
+				signs.add("\u221E");
 				// END KGU#920 2021-02-03
 				// START KGU#883 2020-11-01: Enh. #881 bit operators and Boolean literal were missing
-				specialSigns.add("false");
-				specialSigns.add("true");
-				specialSigns.add("&");
-				specialSigns.add("|");
-				specialSigns.add("^");
-				specialSigns.add("~");
+				signs.add("false");
+				signs.add("true");
+				signs.add("&");
+				signs.add("|");
+				signs.add("^");
+				signs.add("~");
 				// END KGU#883 2020-11-01
+				// START KGU#1221 2026-10-19
+				specialSigns = signs;
+				// END KGU#1221 2026-10-19
 			}
 			// START KGU#611/KGU843 2020-04-12: Issue #643, bugfix #847
 			if (specialSignsCi == null) {
-				specialSignsCi = new StringList();
-				specialSignsCi.add("mod");
-				specialSignsCi.add("div");
+				// START KGU#1221 2026-10-19: Publish the list only when complete
+				//specialSignsCi = new StringList();
+				StringList signsCi = new StringList();
+				// END KGU#1221 2026-10-19
+				signsCi.add("mod");
+				signsCi.add("div");
 				// START KGU#24 2014-10-18
-				specialSignsCi.add("and");
-				specialSignsCi.add("or");
-				specialSignsCi.add("xor");
-				specialSignsCi.add("not");
+				signsCi.add("and");
+				signsCi.add("or");
+				signsCi.add("xor");
+				signsCi.add("not");
 				// END KGU#24 2014-10-18
 				// START KGU#115 2015-12-23: Issue #74 - These Pascal operators hadn't been supported
-				specialSignsCi.add("shl");
-				specialSignsCi.add("shr");
+				signsCi.add("shl");
+				signsCi.add("shr");
 				// END KGU#115 2015-12-23
+				// START KGU#1221 2026-10-19
+				specialSignsCi = signsCi;
+				// END KGU#1221 2026-10-19
 			}
 			// END KGU#611/KGU#843 2020-04-12
 			// END KGU#64 2015-11-03
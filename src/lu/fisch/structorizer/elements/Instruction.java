@@ -83,6 +83,7 @@ package lu.fisch.structorizer.elements;
  *                                      issues #161, #1161: Method mayPassControl() overridden
  *      Kay Gürtzig     2025-01-17      Bugfix #1183: updateTypeMap was caught in an eternal loop by assignment
  *                                      lines like "m[i][j] <- something"
+ *      Kay Gürtzig     2026-10-19      KGU#1220: Shared TypeMapEntry matchers replaced by patterns (thread safety)
  *
  ******************************************************************************************************
  *
@@ -1281,7 +1282,10 @@ public class Instruction extends Element {
 		boolean isEnum = isTypeDefinition(line);
 		if (isEnum) {
 			int posEq = line.indexOf('=');
-			isEnum = posEq > 0 && TypeMapEntry.MATCHER_ENUM.reset(line.substring(posEq+1).trim()).matches();
+			// START KGU#1220 2026-10-19
+			//isEnum = posEq > 0 && TypeMapEntry.MATCHER_ENUM.reset(line.substring(posEq+1).trim()).matches();
+			isEnum = posEq > 0 && TypeMapEntry.PATTERN_ENUM.matcher(line.substring(posEq+1).trim()).matches();
+			// END KGU#1220 2026-10-19
 		}
 		return isEnum;
 	}
@@ -1637,7 +1641,10 @@ public class Instruction extends Element {
 				// START KGU#542 2019-11-17: Enh. #739 Handle enumeration tapes
 				if (isEnum) {
 					// first make sure the syntax is okay
-					if (TypeMapEntry.MATCHER_ENUM.reset(typeSpec).matches() ) {
+					// START KGU#1220 2026-10-19
+					//if (TypeMapEntry.MATCHER_ENUM.reset(typeSpec).matches() ) {
+					if (TypeMapEntry.PATTERN_ENUM.matcher(typeSpec).matches() ) {
+					// END KGU#1220 2026-10-19
 						Root root = getRoot(this);
 						if (root != null) {
 							TypeMapEntry enumType = new TypeMapEntry(typeSpec, typename, typeMap, this, lineNo, false, false);
@@ -1664,7 +1671,10 @@ public class Instruction extends Element {
 			}
 			// START KGU#1081 2023-09-28: Enh. #1091 Accept array type definitions
 			else if (typeSpec.equalsIgnoreCase("array")
-					|| TypeMapEntry.MATCHER_ARRAY.reset(typeSpec).matches()) {
+					// START KGU#1220 2026-10-19
+					//|| TypeMapEntry.MATCHER_ARRAY.reset(typeSpec).matches()) {
+					|| TypeMapEntry.PATTERN_ARRAY.matcher(typeSpec).matches()) {
+					// END KGU#1220 2026-10-19
 				typeMap.put(":" + typename, new TypeMapEntry(typeSpec, typename, typeMap, this, lineNo, false, true));
 			}
 			// END KGU#1081 2023-09-28
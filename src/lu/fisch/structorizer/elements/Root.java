@@ -196,6 +196,14 @@ package lu.fisch.structorizer.elements;
  *      Kay Gürtzig     2025-08-08      Issue #1205: Refinement of check 2 (method analyse_2) to avoid false
  *                                      complaining endless loops on fileEOF or Turtleizer conditions
  *      Kay Gürtzig     2025-10-17/18   Bugfix #1226: #1193 flaws mended, more thourough argument/result inference
+ *      Kay Gürtzig     2026-10-19      KGU#1214: Method setAuthorDates() for DiagramSnapshot decoding
+ *      Kay Gürtzig     2026-10-19      KGU#1220: splitKeywords no longer refilled in place, enum pattern (thread safety)
+ *      Kay Gürtzig     2026-10-19      KGU#1222: Cached variable names and type map validated against the versions
+ *                                      of the include closure (SymbolStamp) instead of being recomputed
+ *      Kay Gürtzig     2026-10-19      KGU#1223: Include names resolved via the cached IncludeGraph of the pool
+ *      Kay Gürtzig     2026-10-19      KGU#1230: Method getSymbolVersion() for the DiagramIndex
+ *      Kay Gürtzig     2026-10-19      KGU#1231: getElementByCoord() unselects the registered selections only
+ *      Kay Gürtzig     2026-10-19      KGU#1223: Include changes announced with the changed diagram
  *
  ******************************************************************************************************
  *
@@ -228,6 +236,7 @@ import java.util.Map.Entry;
 import java.util.Queue;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.Stack;
 import java.util.Hashtable;
@@ -261,6 +270,7 @@ import java.awt.Point;
 import java.awt.Polygon;
 import java.awt.Rectangle;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.EmptyStackException;
@@ -274,6 +284,7 @@ import lu.fisch.structorizer.io.*;
 import lu.fisch.structorizer.locales.LangTextHolder;
 import lu.fisch.structorizer.locales.Locales;
 import lu.fisch.structorizer.archivar.IRoutinePool;
+import lu.fisch.structorizer.archivar.IncludeGraph;
 import lu.fisch.structorizer.arranger.Arranger;
 import lu.fisch.structorizer.executor.Executor;
 import lu.fisch.structorizer.executor.Function;
@@ -533,6 +544,14 @@ public class Root extends Element {
 	 * @see #setInclude(boolean)
 	 */
 	public void setProgram(boolean isProgram) {
+		// START KGU#1222 2026-10-19: An Includable may vanish
+		if (this.isInclude()) {
+			// START KGU#1223 2026-10-19: Tell which diagram changed
+			//notifyIncludeRelationsChanged();
+			notifyIncludeRelationsChanged(this);
+			// END KGU#1223 2026-10-19
+		}
+		// END KGU#1222 2026-10-19
 		if (isProgram) {
 			diagrType = DiagramType.DT_MAIN;
 		} else {
@@ -590,6 +609,12 @@ public class Root extends Element {
 	public void setInclude(boolean usual)
 	{
 		diagrType = usual ? DiagramType.DT_INCL : DiagramType.DT_INCL_DIAGRCTRL;
+		// START KGU#1222 2026-10-19: An Includable may have emerged
+		// START KGU#1223 2026-10-19: Tell which diagram changed
+		//notifyIncludeRelationsChanged();
+		notifyIncludeRelationsChanged(this);
+		// END KGU#1223 2026-10-19
+		// END KGU#1222 2026-10-19
 	}
 	/**
 	 * @return {@code true} iff this is an Includable representing a {@link DiagramController}
@@ -653,6 +678,22 @@ public class Root extends Element {
 		}
 	}
 	// END KGU#363 2017-03-10
+	// START KGU#1214 2026-10-19: Binary snapshot support
+	/**
+	 * Directly sets the author and date attributes (as retrieved from a {@link DiagramSnapshot}).
+	 * @param _author - the author name (may be null)
+	 * @param _created - the creation date (may be null)
+	 * @param _modifiedBy - name of the last modifier (may be null)
+	 * @param _modified - the last modification date (may be null)
+	 */
+	void setAuthorDates(String _author, Date _created, String _modifiedBy, Date _modified)
+	{
+		this.author = _author;
+		this.created = _created;
+		this.modifiedby = _modifiedBy;
+		this.modified = _modified;
+	}
+	// END KGU#1214 2026-10-19
 	// START KGU#363 2017-05-21: Enh. #372
 	/**
 	 * Tries to extract sensible file attribute values and to use them to initialize the
@@ -781,9 +822,179 @@ public class Root extends Element {
 	private HashMap<String, TypeMapEntry> typeMap = null;
 	// END KGU#502 2018-03-12
 	// END KGU#261 2017-01-19
+	// START KGU#1222 2026-10-19: Versioned, dependency-tracked symbol information
+	/** Source of the symbol versions of all diagrams */
+	private static final AtomicLong SYMBOL_VERSIONS = new AtomicLong();
+	/**
+	 * Is advanced whenever the resolution of include names may have changed (diagram
+	 * type changes, changes of Includables, pool modifications)
+	 */
+	private static final AtomicLong INCLUDE_EPOCH = new AtomicLong();
+	/** Version of the symbol-relevant content of this diagram, renewed on every change */
+	private volatile long symbolVersion = SYMBOL_VERSIONS.incrementAndGet();
+	/** Dependencies of the cached {@link #variables} (and {@link #constants}) */
+	private SymbolStamp varStamp = null;
+	/** Dependencies of the cached {@link #typeMap} ({@code null} while the map is being built) */
+	private SymbolStamp typeStamp = null;
+
+	/**
+	 * Records the include closure a cached symbol table was derived from, together
+	 * with the symbol versions of the involved Includables at that time.
+	 */
+	private static final class SymbolStamp {
+		/** The routine pool the includes were retrieved from (may be null) */
+		private final IRoutinePool pool;
+		/** The transitive closure of the includables (in retrieval order) */
+		private final Root[] closure;
+		/** The symbol versions of the {@link #closure} members */
+		private final long[] versions;
+		/** The include epoch the {@link #closure} was verified for */
+		private long epoch;
+
+		private SymbolStamp(IRoutinePool pool, Root[] closure, long epoch)
+		{
+			this.pool = pool;
+			this.closure = closure;
+			this.epoch = epoch;
+			this.versions = new long[closure.length];
+			for (int i = 0; i < closure.length; i++) {
+				versions[i] = closure[i].symbolVersion;
+			}
+		}
+
+		/**
+		 * Checks whether the cached information of {@code owner} is still valid for
+		 * retrieval from routine pool {@code pool}.
+		 * @param owner - the diagram owning this stamp
+		 * @param pool - the effective routine pool
+		 * @param forTypes - whether the stamp belongs to the type map (influences the
+		 *     include resolution)
+		 * @return {@code true} if neither the pool nor any of the includables changed
+		 */
+		private boolean isValid(Root owner, IRoutinePool pool, boolean forTypes)
+		{
+			if (pool != this.pool) {
+				return false;
+			}
+			for (int i = 0; i < closure.length; i++) {
+				if (closure[i].symbolVersion != versions[i]) {
+					return false;
+				}
+			}
+			long currentEpoch = INCLUDE_EPOCH.get();
+			if (epoch != currentEpoch) {
+				// The include names might resolve differently now
+				if (!Arrays.equals(closure, owner.getIncludeClosure(pool, forTypes))) {
+					return false;
+				}
+				epoch = currentEpoch;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Signals that the resolution of include names may have changed, e.g. because
+	 * diagrams were added to or removed from a routine pool, such that cached symbol
+	 * information will have to check its include closure on next access.
+	 */
+	public static void notifyIncludeRelationsChanged()
+	{
+		// START KGU#1223 2026-10-19
+		//INCLUDE_EPOCH.incrementAndGet();
+		notifyIncludeRelationsChanged(null);
+		// END KGU#1223 2026-10-19
+	}
+
+	// START KGU#1223 2026-10-19
+	/**
+	 * Signals that the type, name, namespace, or include list of diagram {@code _changed}
+	 * may have changed, such that cached symbol information will have to check its
+	 * include closure on next access and the {@link IncludeGraph}s only have to update
+	 * the information depending on {@code _changed}.
+	 * @param _changed - the modified diagram or {@code null} if the change can't be
+	 *     attributed to a single diagram (e.g. a routine pool modification)
+	 * @see #notifyIncludeRelationsChanged()
+	 */
+	public static void notifyIncludeRelationsChanged(Root _changed)
+	{
+		INCLUDE_EPOCH.incrementAndGet();
+		IncludeGraph.notifyIncludeRelationsChanged(_changed);
+	}
+	// END KGU#1223 2026-10-19
+
+	// START KGU#1230 2026-10-19
+	/**
+	 * @return the version of the content of this diagram, which is renewed on every
+	 * undoable modification (as well as on undo and redo)
+	 * @see lu.fisch.structorizer.archivar.DiagramIndex
+	 */
+	public long getSymbolVersion()
+	{
+		return symbolVersion;
+	}
+	// END KGU#1230 2026-10-19
+
+	/**
+	 * Retrieves the transitive closure of the Includables of this diagram from the
+	 * given routine pool.
+	 * @param pool - the routine pool to retrieve the Includables from (may be null)
+	 * @param forTypes - if {@code true} then the includables are retrieved with namespace
+	 *     filtering and all candidates are considered (as for the type map), otherwise only
+	 *     unambiguous includables are considered (as for the variable retrieval)
+	 * @return the array of involved Includables (without this diagram)
+	 */
+	private Root[] getIncludeClosure(IRoutinePool pool, boolean forTypes)
+	{
+		// START KGU#1223 2026-10-19: Delegated to the cached include graph of the pool
+		//LinkedHashSet<Root> closure = new LinkedHashSet<Root>();
+		//if (pool != null) {
+		//	LinkedList<Root> toDo = new LinkedList<Root>();
+		//	toDo.add(this);
+		//	while (!toDo.isEmpty()) {
+		//		Root root = toDo.removeFirst();
+		//		if (root.includeList != null) {
+		//			for (int i = 0; i < root.includeList.count(); i++) {
+		//				Vector<Root> incls = pool.findIncludesByName(root.includeList.get(i), root, forTypes);
+		//				if (forTypes || incls.size() == 1) {
+		//					for (Root incl: incls) {
+		//						if (incl != this && closure.add(incl)) {
+		//							toDo.add(incl);
+		//						}
+		//					}
+		//				}
+		//			}
+		//		}
+		//	}
+		//}
+		//return closure.toArray(new Root[closure.size()]);
+		if (pool == null) {
+			return new Root[0];
+		}
+		return IncludeGraph.getInstance(pool).getIncludeClosure(this, forTypes, !forTypes);
+		// END KGU#1223 2026-10-19
+	}
+
+	/**
+	 * @param routinePool - an explicitly given routine pool or {@code null}
+	 * @return the routine pool to be used for the retrieval of Includables, i.e.
+	 * {@code routinePool} if given, {@link #specialRoutinePool} if given, or the
+	 * {@link Arranger} if available, otherwise {@code null}
+	 */
+	private IRoutinePool getIncludePool(IRoutinePool routinePool)
+	{
+		if (routinePool == null && (routinePool = specialRoutinePool) == null && Arranger.hasInstance()) {
+			routinePool = Arranger.getInstance();
+		}
+		return routinePool;
+	}
+	// END KGU#1222 2026-10-19
 	// START KGU#163 2016-03-25: Added to solve the complete detection of unknown/uninitialised identifiers
 	/** Pre-processed parser preference keywords to match them against tokenized strings */
-	private static Vector<StringList> splitKeywords = new Vector<StringList>();
+	// START KGU#1220 2026-10-19: Made volatile and replaced as a whole (instead of being refilled) for concurrent code export
+	//private static Vector<StringList> splitKeywords = new Vector<StringList>();
+	private static volatile Vector<StringList> splitKeywords = new Vector<StringList>();
+	// END KGU#1220 2026-10-19
 	// START KGU#920 2021-02-02: Issue #920 Infinity allowed as literal
 	/** Specific names not to be mistaken as uninitialized variables in unified texts */
 	//private String[] operatorsAndLiterals = {"false", "true", "div"};
@@ -1690,15 +1901,29 @@ public class Root extends Element {
             //Element selCh = children.getElementByCoord(_x, _y, _forSelection);
             Element selCh = children.getElementByCoord(_x - pt0Sub.x, _y - pt0Sub.y, _forSelection);
             // END KGU#136 2016-03-01
-            if(selCh!=null)
+            // START KGU#1231 2026-10-19: The substructure is no longer entirely visited, so unselect
+            // the elements registered as selected
+            //if(selCh!=null)
+            //{
+            //        if (_forSelection) selected = false;
+            //        return selCh;
+            //}
+            //else
+            //{
+            //        return selMe;
+            //}
+            Element sel = selMe;
+            if (selCh != null)
             {
                     if (_forSelection) selected = false;
-                    return selCh;
+                    sel = selCh;
             }
-            else
+            if (_forSelection)
             {
-                    return selMe;
+                    clearSelectionsIn(this, sel);
             }
+            return sel;
+            // END KGU#1231 2026-10-19
     }
     // END KGU 2015-10-11
 
@@ -1786,6 +2011,9 @@ public class Root extends Element {
                             ((Subqueue) _ele).addElement(_new);
                             _ele.selected = false;
                             _new.selected = true;
+                            // START KGU#1231 2026-10-19
+                            registerSelection(_new);
+                            // END KGU#1231 2026-10-19
                             // START KGU#137 2016-01-11: Bugfix #103 - rely on addUndo() 
                             //hasChanged=true;
                             // END KGU#137 2016-01-11
@@ -1811,6 +2039,9 @@ public class Root extends Element {
                             ((Subqueue) _ele.parent).insertElementAt(_new, i);
                             _ele.selected = false;
                             _new.selected = true;
+                            // START KGU#1231 2026-10-19
+                            registerSelection(_new);
+                            // END KGU#1231 2026-10-19
                             // START KGU#137 2016-01-11: Bugfix #103 - rely on addUndo() 
                             //hasChanged=true;
                             // END KGU#137 2016-01-11
@@ -2708,7 +2939,10 @@ public class Root extends Element {
     				String name = this.includeList.get(i);
     				// START KGU#676 2019-03-31: Enh. #696
     				//Vector<Root> roots = Arranger.getInstance().findIncludesByName(name, this);
-    				Vector<Root> roots = pool.findIncludesByName(name, this, false);
+    				// START KGU#1223 2026-10-19: Use the cached include graph
+    				//Vector<Root> roots = pool.findIncludesByName(name, this, false);
+    				Vector<Root> roots = IncludeGraph.getInstance(pool).findIncludesByName(this, name, false);
+    				// END KGU#1223 2026-10-19
     				// END KGU#676 2019-03-31
     				if (roots.size() == 1) {
     					roots.get(0).addFullText(_lines, _instructionsOnly, _implicatedRoots);
@@ -2882,13 +3116,24 @@ public class Root extends Element {
 			_keywords = CodeParser.getAllProperties();
 		}
 		// START KGU#1087 2023-10-05: Bugfix #1094 In certain cases, splitKeywords wasn't initialised
-		if (splitKeywords.size() != _keywords.length) {
-			splitKeywords.clear();
+		// START KGU#1220 2026-10-19: Work on a local reference, the shared vector mustn't be modified
+		//if (splitKeywords.size() != _keywords.length) {
+		//	splitKeywords.clear();
+		//	for (int k = 0; k < _keywords.length; k++)
+		//	{
+		//		splitKeywords.add(Element.splitLexically(_keywords[k], false));
+		//	}
+		//}
+		Vector<StringList> splitKeys = splitKeywords;
+		if (splitKeys.size() != _keywords.length) {
+			splitKeys = new Vector<StringList>(_keywords.length);
 			for (int k = 0; k < _keywords.length; k++)
 			{
-				splitKeywords.add(Element.splitLexically(_keywords[k], false));
+				splitKeys.add(Element.splitLexically(_keywords[k], false));
 			}
+			splitKeywords = splitKeys;
 		}
+		// END KGU#1220 2026-10-19
 		// END KGU#1087 2023-10-05
 //		Regex r;
 
@@ -2915,7 +3160,10 @@ public class Root extends Element {
 		{
 			if (_keywords[kw].trim().length() > 0)
 			{
-				StringList keyTokens = splitKeywords.elementAt(kw);
+				// START KGU#1220 2026-10-19
+				//StringList keyTokens = splitKeywords.elementAt(kw);
+				StringList keyTokens = splitKeys.elementAt(kw);
+				// END KGU#1220 2026-10-19
 				int keyLength = keyTokens.count();
 				int pos = -1;
 				while ((pos = tokens.indexOf(keyTokens, pos + 1, !CodeParser.ignoreCase)) >= 0)
@@ -3132,12 +3380,17 @@ public class Root extends Element {
         StringList varNames = new StringList();
 
         // START KGU#163 2016-03-25: Pre-processed match patterns for identifier search
-        splitKeywords.clear();
+        // START KGU#1220 2026-10-19: Build a new vector rather than refilling the shared one
+        //splitKeywords.clear();
         String[] keywords = CodeParser.getAllProperties();
+        Vector<StringList> splitKeys = new Vector<StringList>(keywords.length);
         for (int k = 0; k < keywords.length; k++)
         {
-            splitKeywords.add(Element.splitLexically(keywords[k], false));
+            //splitKeywords.add(Element.splitLexically(keywords[k], false));
+            splitKeys.add(Element.splitLexically(keywords[k], false));
         }
+        splitKeywords = splitKeys;
+        // END KGU#1220 2026-10-19
         // END KGU#163 2016-03-25
 
         for(int i=0; i<lines.count(); i++)
@@ -3163,7 +3416,10 @@ public class Root extends Element {
             {
                 if (keywords[kw].trim().length() > 0)
                 {
-                    StringList keyTokens = splitKeywords.elementAt(kw);
+                    // START KGU#1220 2026-10-19
+                    //StringList keyTokens = splitKeywords.elementAt(kw);
+                    StringList keyTokens = splitKeys.elementAt(kw);
+                    // END KGU#1220 2026-10-19
                     int keyLength = keyTokens.count();
                     int pos = -1;
                     while ((pos = tokens.indexOf(keyTokens, pos + 1, !CodeParser.ignoreCase)) >= 0)
@@ -3264,9 +3520,19 @@ public class Root extends Element {
      */
     public StringList getVarNames() {
     	//System.out.println("getVarNames() called...");
+    	// START KGU#1222 2026-10-19: The cache is only valid if no includable has changed meanwhile
+    	//if (this.variables != null) {
+    	//	return this.variables;
+    	//}
     	if (this.variables != null) {
-    		return this.variables;
+    		SymbolStamp stamp = this.varStamp;
+    		if (stamp != null && stamp.isValid(this, getIncludePool(null), false)) {
+    			return this.variables;
+    		}
+    		// The constants are retrieved together with the variables
+    		this.constants.clear();
     	}
+    	// END KGU#1222 2026-10-19
     	// This is the same as retrieveVarNames()
     	return getVarNames(this, false, false, true);
     }
@@ -3402,6 +3668,10 @@ public class Root extends Element {
             varNames = varNames.reverse();	// FIXME (KGU): What is intended by reversing?
             if (_entireProg) {
                     this.variables = varNames;
+                    // START KGU#1222 2026-10-19: Record the includables the result depends on
+                    IRoutinePool pool = getIncludePool(null);
+                    this.varStamp = new SymbolStamp(pool, getIncludeClosure(pool, false), INCLUDE_EPOCH.get());
+                    // END KGU#1222 2026-10-19
             }
             //System.out.println(varNames.getCommaText());
             return varNames;
@@ -3426,7 +3696,10 @@ public class Root extends Element {
     	String typename = tokens.get(1);
     	String typeSpec = tokens.concatenate(null, 3, tokens.count()).trim();
     	// Confirm that the syntax is okay
-    	if (TypeMapEntry.MATCHER_ENUM.reset(typeSpec).matches()) {
+    	// START KGU#1220 2026-10-19
+    	//if (TypeMapEntry.MATCHER_ENUM.reset(typeSpec).matches()) {
+    	if (TypeMapEntry.PATTERN_ENUM.matcher(typeSpec).matches()) {
+    	// END KGU#1220 2026-10-19
     		enumConstants = new LinkedHashMap<String, String>();
     		int val = 0;
     		String valStr = "";
@@ -3527,9 +3800,19 @@ public class Root extends Element {
     public HashMap<String, TypeMapEntry> getTypeInfo(IRoutinePool routinePool)    
     // END KGU#678 2019-03-30
     {
+    	// START KGU#1222 2026-10-19: Check whether some includable has changed since
+    	IRoutinePool pool = getIncludePool(routinePool);
+    	// A missing stamp with existing map means that the map is just being built (cyclic inclusion)
+    	if (this.typeMap != null && this.typeStamp != null && !this.typeStamp.isValid(this, pool, true)) {
+    		this.typeMap = null;
+    	}
+    	// END KGU#1222 2026-10-19
     	// START KGU#502 2018-03-12: Bugfix #518 - Avoid repeated traversal in case of lacking type and var info
     	//if (this.typeMap.isEmpty()) {
     	if (this.typeMap == null) {
+    		// START KGU#1222 2026-10-19
+    		this.typeStamp = null;
+    		// END KGU#1222 2026-10-19
     		// START KGU#852 2020-04-22: Bugfix #854 - we must ensure topological order on export
     		//this.typeMap = new HashMap<String, TypeMapEntry>();
     		this.typeMap = new LinkedHashMap<String, TypeMapEntry>();
@@ -3546,16 +3829,24 @@ public class Root extends Element {
     				//		typeMap.putAll(incl.getTypeInfo());
     				//	}
     				//}
-    				IRoutinePool pool = routinePool;
-    				if (pool == null && (pool = specialRoutinePool) == null && Arranger.hasInstance()) {
-    					pool = Arranger.getInstance();
-    				}
+    				// START KGU#1222 2026-10-19: Pool now determined in advance
+    				//IRoutinePool pool = routinePool;
+    				//if (pool == null && (pool = specialRoutinePool) == null && Arranger.hasInstance()) {
+    				//	pool = Arranger.getInstance();
+    				//}
+    				// END KGU#1222 2026-10-19
     				if (pool != null) {
     					// START KGU#408 2021-02-24: Enh. #410 Filter by namespace if available
     					//for (Root incl: pool.findIncludesByName(inclName, this)) {
-    					for (Root incl: pool.findIncludesByName(inclName, this, true)) {
+    					// START KGU#1223 2026-10-19: Use the cached include graph
+    					//for (Root incl: pool.findIncludesByName(inclName, this, true)) {
+    					for (Root incl: IncludeGraph.getInstance(pool).findIncludesByName(this, inclName, true)) {
+    					// END KGU#1223 2026-10-19
     					// END KGU#408 2021-02-24
-    						typeMap.putAll(incl.getTypeInfo());
+    						// START KGU#1222 2026-10-19: Consistently use the same pool
+    						//typeMap.putAll(incl.getTypeInfo());
+    						typeMap.putAll(incl.getTypeInfo(pool));
+    						// END KGU#1222 2026-10-19
     					}
     				}
     				// END KGU#676 2019-03-30
@@ -3579,6 +3870,9 @@ public class Root extends Element {
     			
     		};
     		this.traverse(collector);
+    		// START KGU#1222 2026-10-19: Record the includables the result depends on
+    		this.typeStamp = new SymbolStamp(pool, getIncludeClosure(pool, true), INCLUDE_EPOCH.get());
+    		// END KGU#1222 2026-10-19
     	}
     	return this.typeMap;
     }
@@ -3590,6 +3884,9 @@ public class Root extends Element {
     	//this.typeMap.clear();
     	this.typeMap = null;
     	// END KGU#502 2018-03-12
+    	// START KGU#1222 2026-10-19
+    	this.typeStamp = null;
+    	// END KGU#1222 2026-10-19
     }
     // END KGU#261 2017-01-20
 
@@ -3606,6 +3903,17 @@ public class Root extends Element {
 		this.variables = null;
 		this.constants.clear();
 		this.clearTypeInfo();
+		// START KGU#1222 2026-10-19: Let dependent diagrams detect the change
+		this.varStamp = null;
+		this.symbolVersion = SYMBOL_VERSIONS.incrementAndGet();
+		if (this.isInclude()) {
+			// Name or includes may have changed
+			// START KGU#1223 2026-10-19: Tell which diagram changed
+			//notifyIncludeRelationsChanged();
+			notifyIncludeRelationsChanged(this);
+			// END KGU#1223 2026-10-19
+		}
+		// END KGU#1222 2026-10-19
 		// START KGU#990 2021-10-02: Bugfix #990 - new fields to facilitate export
 		this.returnsValue = null;
 		// END KGU#990 2021-10-02
@@ -5775,7 +6083,10 @@ public class Root extends Element {
 			String name = includeList.get(i);
 			int count = 0;	// Number of matching routines
 			if (Arranger.hasInstance()) {
-				count = Arranger.getInstance().findIncludesByName(name, this, false).size();
+				// START KGU#1223 2026-10-19: Use the cached include graph
+				//count = Arranger.getInstance().findIncludesByName(name, this, false).size();
+				count = IncludeGraph.getInstance(Arranger.getInstance()).findIncludesByName(this, name, false).size();
+				// END KGU#1223 2026-10-19
 			}
 			if (count == 0) {
 				//error  = new DetectedError("An includable diagram «<diagram_name>» is currently not available.", this);
@@ -5799,7 +6110,10 @@ public class Root extends Element {
 				addError(_errors, new DetectedError(errorMsg(Menu.error23_3, new String[]{name, path.concatenate("<-")}), this), 23);    									
 			}
 			else if (Arranger.hasInstance()) {
-				Vector<Root> roots = Arranger.getInstance().findIncludesByName(name, this, false);
+				// START KGU#1223 2026-10-19: Use the cached include graph
+				//Vector<Root> roots = Arranger.getInstance().findIncludesByName(name, this, false);
+				Vector<Root> roots = IncludeGraph.getInstance(Arranger.getInstance()).findIncludesByName(this, name, false);
+				// END KGU#1223 2026-10-19
 				if (roots.size() == 1) {
 					Root importedRoot = roots.get(0);
 					Vector<DetectedError> impErrors = new Vector<DetectedError>();
@@ -8140,7 +8454,10 @@ public class Root extends Element {
 		StringList uninitialized = new StringList();
 		if (this.includeList != null && _pool != null) {
 			for (int i = 0; i < this.includeList.count(); i++) {
-				Vector<Root> includes = _pool.findIncludesByName(this.includeList.get(i), this, false);
+				// START KGU#1223 2026-10-19: Use the cached include graph
+				//Vector<Root> includes = _pool.findIncludesByName(this.includeList.get(i), this, false);
+				Vector<Root> includes = IncludeGraph.getInstance(_pool).findIncludesByName(this, this.includeList.get(i), false);
+				// END KGU#1223 2026-10-19
 				for (Root include: includes) {
 					obtainedVars.addIfNew(include.getVarNames());
 				}
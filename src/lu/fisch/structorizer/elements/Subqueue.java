@@ -66,6 +66,9 @@ package lu.fisch.structorizer.elements;
  *      Kay Gürtzig     2025-09-06      Bugfix #1222.2: Method isNoOp() contained a logical mistake: If the entire
  *                                      Subqueue is disabled then its emptiness is of no interest anymore, only
  *                                      if all elements are indiviually disabled or void.
+ *      Kay Gürtzig     2026-10-19      KGU#1231: getElementByCoord() does a binary search over y0Children and
+ *                                      no longer visits all children for deselection
+ *      Kay Gürtzig     2026-10-19      KGU#1232: draw() only visits the children within the viewport range
  *
  ******************************************************************************************************
  *
@@ -214,6 +217,34 @@ public class Subqueue extends Element implements IElementSequence {
 		myrect = _top_left.copy();
 		myrect.bottom = myrect.top;
 		
+		// START KGU#1232 2026-10-19: Avoid a full pass over long sequences
+		// If all children were drawn before and no child has changed since, then
+		// children outside the viewport would not draw anyway, so we only visit
+		// the range of children vertically intersecting the viewport
+		int[] range = null;
+		if (this.wasDrawn && _viewport != null && children.size() > 1)
+		{
+			range = getVisibleChildRange(_canvas, _top_left, _viewport);
+		}
+		if (range != null)
+		{
+			Vector<Integer> y0Children = this.y0Children;
+			int lastIx = children.size() - 1;
+			for (int i = range[0]; i <= range[1]; i++)
+			{
+				myrect.top = _top_left.top + y0Children.get(i);
+				if (i == lastIx)
+				{
+					myrect.bottom = _top_left.bottom;
+				}
+				else {
+					myrect.bottom = _top_left.top + y0Children.get(i+1);
+				}
+				children.get(i).draw(_canvas, myrect, _viewport, _inContention);
+			}
+		}
+		else
+		// END KGU#1232 2026-10-19
 		if (children.size() > 0)
 		{
 			// draw children
@@ -264,6 +295,59 @@ public class Subqueue extends Element implements IElementSequence {
 		// END KGU#502/KGU#524/KGU#553 2019-03-14
 	}
 	
+	// START KGU#1232 2026-10-19: Viewport-bounded drawing
+	/**
+	 * Determines the index range of the children that may be visible within
+	 * {@code _viewport} if this is placed at {@code _top_left}, by binary search
+	 * over the cached child offsets.
+	 * @param _canvas - the drawing canvas (for the case the layout is not up to date)
+	 * @param _top_left - the bounds of this sequence
+	 * @param _viewport - the visible area
+	 * @return an int array {first, last} of child indices (possibly empty range,
+	 *     i.e. first > last) or {@code null} if the cached offsets aren't consistent
+	 */
+	private int[] getVisibleChildRange(Canvas _canvas, Rect _top_left, Rectangle _viewport)
+	{
+		// Cheap if the cached layout is up to date
+		this.prepareDraw(_canvas);
+		Vector<Integer> y0Children = this.y0Children;
+		int nChildren = children.size();
+		if (y0Children.size() != nChildren)
+		{
+			return null;
+		}
+		// Be as tolerant as checkVisibility() is
+		int yMin = _viewport.y - _top_left.top - E_PADDING/2;
+		int yMax = _viewport.y + _viewport.height - _top_left.top + E_PADDING/2;
+		// First child with a bottom below yMin (the last child extends to the bottom)
+		int lower = 0, upper = nChildren - 1;
+		while (lower < upper) {
+			int mid = (lower + upper) >>> 1;
+			if (y0Children.get(mid + 1) < yMin) {
+				lower = mid + 1;
+			}
+			else {
+				upper = mid;
+			}
+		}
+		int first = lower;
+		// Last child with a top above yMax
+		lower = first; upper = nChildren - 1;
+		int last = first - 1;
+		while (lower <= upper) {
+			int mid = (lower + upper) >>> 1;
+			if (y0Children.get(mid) <= yMax) {
+				last = mid;
+				lower = mid + 1;
+			}
+			else {
+				upper = mid - 1;
+			}
+		}
+		return new int[] {first, last};
+	}
+	// END KGU#1232 2026-10-19
+	
 	public int getSize()
 	{
 		return children.size();
@@ -386,23 +470,54 @@ public class Subqueue extends Element implements IElementSequence {
 		// If this element isn't hit then there is no use searching the substructure
 		if (res != null || _forSelection)
 		{
-			Element sel = null;
-			for (int i = 0; i < children.size(); i++)
-			{
-				// START KGU#136 2016-03-01: Bugfix #97
-				//sel = ((Element) children.get(i)).getElementByCoord(_x, _y, _forSelection);
-				if (i < this.y0Children.size())
-				{
-					int yOff = this.y0Children.get(i);
-					sel = children.get(i).getElementByCoord(_x, _y-yOff, _forSelection);
+			// START KGU#1231 2026-10-19: Binary search instead of visiting all children
+			// (Deselection of the other elements is done by Root via Element.clearSelectionsIn())
+			//Element sel = null;
+			//for (int i = 0; i < children.size(); i++)
+			//{
+			//	if (i < this.y0Children.size())
+			//	{
+			//		int yOff = this.y0Children.get(i);
+			//		sel = children.get(i).getElementByCoord(_x, _y-yOff, _forSelection);
+			//	}
+			//	if (sel != null)
+			//	{
+			//		if (_forSelection) selected = false;
+			//		res = sel;
+			//	}
+			//}
+			Vector<Integer> y0Children = this.y0Children;
+			int nChildren = Math.min(children.size(), y0Children.size());
+			// Find the last child starting at or above _y
+			int lower = 0, upper = nChildren - 1, i = -1;
+			while (lower <= upper) {
+				int mid = (lower + upper) >>> 1;
+				if (y0Children.get(mid) <= _y) {
+					i = mid;
+					lower = mid + 1;
 				}
-				// END KGU#136 2016-03-01
+				else {
+					upper = mid - 1;
+				}
+			}
+			// On a common border of two children, the lower child wins (as before)
+			for (; i >= 0; i--)
+			{
+				int yOff = y0Children.get(i);
+				Element child = children.get(i);
+				Element sel = child.getElementByCoord(_x, _y-yOff, _forSelection);
 				if (sel != null)
 				{
 					if (_forSelection) selected = false;
 					res = sel;
+					break;
+				}
+				if (_y - yOff > child.rect.bottom) {
+					// No child further above can contain _y
+					break;
 				}
 			}
+			// END KGU#1231 2026-10-19
 		}
 		return res;
 	}
@@ -469,6 +584,11 @@ public class Subqueue extends Element implements IElementSequence {
 		// START KGU#183 2016-04-24: Issue #169
 		ele.selected = this.selected;
 		// END KGU#183 2016-04-24
+		// START KGU#1231 2026-10-19
+		if (ele.selected) {
+			registerSelection(ele);
+		}
+		// END KGU#1231 2026-10-19
 		return ele;
 	}
 
@@ -610,11 +730,21 @@ public class Subqueue extends Element implements IElementSequence {
 	public Element setSelected(boolean _sel)
 	{
 		selected = _sel;
+		// START KGU#1231 2026-10-19
+		if (_sel) {
+			registerSelection(this);
+		}
+		// END KGU#1231 2026-10-19
 		for (int i = 0; i < getSize(); i++)
 		{
 			Element child = children.get(i);
 			// This must not be recursive!
 			child.selected = _sel;
+			// START KGU#1231 2026-10-19
+			if (_sel) {
+				registerSelection(child);
+			}
+			// END KGU#1231 2026-10-19
 			// START KGU#1182 2025-07-31: Enh. #1197 Clear branch head selections
 			if (child instanceof IFork) {
 				// Unselect branch heads
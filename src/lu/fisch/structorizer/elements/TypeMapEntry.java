@@ -49,6 +49,8 @@ package lu.fisch.structorizer.elements;
  *      Kay Gürtzig     2023-09-28      Enh. #1091: Facilities for the definition of array types
  *      Kay Gürtzig     2023-10-15      Bugfix #1096: Array type parsing completely rewritten
  *      Kay Gürtzig     2024-04-14      Issue# 357: New method isNumeric()
+ *      Kay Gürtzig     2026-10-19      KGU#1220: Shared matchers MATCHER_ENUM, MATCHER_ARRAY replaced by patterns (thread safety)
+ *      Kay Gürtzig     2026-10-19      KGU#1220: MATCHER_ENUM, MATCHER_ARRAY reinstated as deprecated (API compatibility)
  *
  ******************************************************************************************************
  *
@@ -121,13 +123,34 @@ public class TypeMapEntry {
 //	private static final Pattern RANGE_PATTERN = Pattern.compile("^([0-9]+)\\s*?[.][.][.]?\\s*?([0-9]+)$");
 	// END KGU#1090 2023-10-15
 	// START KGU#542 2019-11-17: Enh. #739
-	/** A type description matcher to accept an enumerator type specification */
-	public static final Matcher MATCHER_ENUM = Pattern.compile("^" + BString.breakup("enum", true) 
-	+ "\\s*[{]\\s*[A-Za-z_][A-Za-z_0-9]*\\s*([=]\\s*[^=,}]*?)?(,\\s*[A-Za-z_][A-Za-z_0-9]*(\\s*[=]\\s*[^=,}]*?)?)*\\s*[}]$").matcher("");
+	// START KGU#1220 2026-10-19: Shared matchers aren't thread-safe, so provide the patterns
+	///** A type description matcher to accept an enumerator type specification */
+	//public static final Matcher MATCHER_ENUM = Pattern.compile("^" + BString.breakup("enum", true) 
+	//+ "\\s*[{]\\s*[A-Za-z_][A-Za-z_0-9]*\\s*([=]\\s*[^=,}]*?)?(,\\s*[A-Za-z_][A-Za-z_0-9]*(\\s*[=]\\s*[^=,}]*?)?)*\\s*[}]$").matcher("");
+	/** A type description pattern to accept an enumerator type specification */
+	public static final Pattern PATTERN_ENUM = Pattern.compile("^" + BString.breakup("enum", true) 
+	+ "\\s*[{]\\s*[A-Za-z_][A-Za-z_0-9]*\\s*([=]\\s*[^=,}]*?)?(,\\s*[A-Za-z_][A-Za-z_0-9]*(\\s*[=]\\s*[^=,}]*?)?)*\\s*[}]$");
+	/**
+	 * A type description matcher to accept an enumerator type specification
+	 * @deprecated Not thread-safe, use {@link #PATTERN_ENUM} instead
+	 */
+	@Deprecated
+	public static final Matcher MATCHER_ENUM = PATTERN_ENUM.matcher("");
+	// END KGU#1220 2026-10-19
 	// END KGU#542 2019-11-17
 	// START KGU#1081 2023-09-28: Issue #1091 Consistent array type detection
-	/** A type description matcher to accept an array type specification */
-	public static final Matcher MATCHER_ARRAY = Pattern.compile("(\\w+\\s*\\[.*\\].*)|(^" + BString.breakup("array", false) + "((\\s*(\\[.*?\\]\\s*)+)|\\s+)" + BString.breakup("of", false) + "\\W.*)").matcher("");
+	// START KGU#1220 2026-10-19
+	///** A type description matcher to accept an array type specification */
+	//public static final Matcher MATCHER_ARRAY = Pattern.compile("(\\w+\\s*\\[.*\\].*)|(^" + BString.breakup("array", false) + "((\\s*(\\[.*?\\]\\s*)+)|\\s+)" + BString.breakup("of", false) + "\\W.*)").matcher("");
+	/** A type description pattern to accept an array type specification */
+	public static final Pattern PATTERN_ARRAY = Pattern.compile("(\\w+\\s*\\[.*\\].*)|(^" + BString.breakup("array", false) + "((\\s*(\\[.*?\\]\\s*)+)|\\s+)" + BString.breakup("of", false) + "\\W.*)");
+	/**
+	 * A type description matcher to accept an array type specification
+	 * @deprecated Not thread-safe, use {@link #PATTERN_ARRAY} instead
+	 */
+	@Deprecated
+	public static final Matcher MATCHER_ARRAY = PATTERN_ARRAY.matcher("");
+	// END KGU#1220 2026-10-19
 	// END KGU#1081 2023-09-28
 	
 	// START KGU#686 2019-03-16: Enh. #56 - facilitate type retrieval by a backlink to the type map
@@ -190,7 +213,10 @@ public class TypeMapEntry {
 				// END KGU#1090 2023-10-15
 			}
 			// START KGU#542 2019-11-17
-			else if (MATCHER_ENUM.reset(typeDescriptor).matches()) {
+			// START KGU#1220 2026-10-19
+			//else if (MATCHER_ENUM.reset(typeDescriptor).matches()) {
+			else if (PATTERN_ENUM.matcher(typeDescriptor).matches()) {
+			// END KGU#1220 2026-10-19
 				int start = typeDescriptor.indexOf('{') + 1;
 				this.valueNames = StringList.explode(typeDescriptor.substring(start, typeDescriptor.length()-1), "\\s*,\\s*");
 //				Root root = null;
@@ -37,6 +37,7 @@ package lu.fisch.structorizer.executor;
  *      Kay Gürtzig     2016-12-12      Issue #307: Extended by forLoopVars
  *      Kay Gürtzig     2017-04-21      Enh. #389: Extensions for import calls, conversion into a context cartridge
  *      Kay Gürtzig     2018-03-19      Enh. #389: Renamed as ExecutionContext
+ *      Kay Gürtzig     2026-10-19      KGU#1215: Extended by controllerResultVars
  *
  ******************************************************************************************************
  *
@@ -111,6 +112,14 @@ public class ExecutionContext {
 	/** Holds the prepared return value (if any) */
 	public Object returnedValue = null;
 	
+	// START KGU#1215 2026-10-19: Controller function results are passed via interpreter variables
+	/**
+	 * Names of the interpreter variables currently holding results of diagram controller
+	 * functions (to be unset as soon as the respective element has been executed)
+	 */
+	public StringList controllerResultVars = new StringList();
+	// END KGU#1215 2026-10-19
+	
 	/**
 	 * Sets up a new execution context for the given {@link Root} {@code _root}
 	 * @param _root
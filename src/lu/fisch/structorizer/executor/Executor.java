@@ -228,6 +228,14 @@ package lu.fisch.structorizer.executor;
  *      Kay Gürtzig     2024-11-27      Bugfix #1181: Execution highlighting in the code preview was compromised
  *                                      after Calls and within multi-line Calls
  *      Kay Gürtzig     2025-01-21      Enh. #1184: Lazy multi-dimensional array creation on first element assignment
+ *      Kay Gürtzig     2026-10-19      KGU#1215: Controller routines bound via ControllerRoutine (MethodHandles),
+ *                                      function results passed as native values instead of re-parsed text
+ *      Kay Gürtzig     2026-10-19      KGU#1215: Separate binding maps for controller functions and procedures,
+ *                                      controller result variables unset after the element execution
+ *      Kay Gürtzig     2026-10-19      KGU#1220: Shared TypeMapEntry matcher replaced by a pattern
+ *      Kay Gürtzig     2026-10-19      KGU#1223: Includables resolved via the cached IncludeGraph of the pool
+ *      Kay Gürtzig     2026-10-19      KGU#1215: Controller result variables of loop conditions unset after
+ *                                      each condition check (evaluateLoopCondition())
  *
  ******************************************************************************************************
  *
@@ -396,6 +404,7 @@ import javax.swing.SwingUtilities;
 import lu.fisch.diagrcontrol.*;
 import lu.fisch.diagrcontrol.DiagramController.FunctionException;
 import lu.fisch.structorizer.archivar.IRoutinePool;
+import lu.fisch.structorizer.archivar.IncludeGraph;
 import lu.fisch.structorizer.arranger.Arranger;
 import lu.fisch.structorizer.elements.*;
 import lu.fisch.structorizer.gui.Diagram;
@@ -900,9 +909,17 @@ public class Executor implements Runnable
 		this.controllerFunctions.clear();
 		this.controllerProcedures.clear();
 		this.controllerFunctionNames.clear();
+		// START KGU#1215 2026-10-19: Resolve the routines to directly callable bindings once
+		this.controllerFunctionRoutines.clear();
+		this.controllerProcedureRoutines.clear();
+		// END KGU#1215 2026-10-19
 		StringBuilder sb = new StringBuilder();
 		for (int i = 0; i < controllers.length; i++) {
 			DiagramController controller = controllers[i];
+			// START KGU#1215 2026-10-19
+			this.controllerFunctionRoutines.putAll(ControllerRoutine.resolve(controller, true));
+			this.controllerProcedureRoutines.putAll(ControllerRoutine.resolve(controller, false));
+			// END KGU#1215 2026-10-19
 			for (String key: controller.getFunctionMap().keySet()) {
 				String name = key.substring(0, key.indexOf('#'));
 				DiagramController conflicting = null;
@@ -981,6 +998,16 @@ public class Executor implements Runnable
 			new HashMap<String, DiagramController>();
 	private Set<String> controllerFunctionNames = new HashSet<String>(); 
 	// END KGU#448 2017-10-28
+	// START KGU#1215 2026-10-19: Directly callable bindings of controller routines
+	/** Maps the signature keys of all controller functions to their bindings */
+	private HashMap<String, ControllerRoutine> controllerFunctionRoutines =
+			new HashMap<String, ControllerRoutine>();
+	/** Maps the signature keys of all controller procedures to their bindings */
+	private HashMap<String, ControllerRoutine> controllerProcedureRoutines =
+			new HashMap<String, ControllerRoutine>();
+	/** Name prefix for the interpreter variables holding controller function results */
+	private static final String CONTROLLER_RESULT_PREFIX = "structorizer_ctrl_result_";
+	// END KGU#1215 2026-10-19
 	// START KGU#384 2017-04-22: Context redesign -> this.context
 	//private Interpreter interpreter;
 	//private boolean returned = false;
@@ -2948,7 +2975,10 @@ public class Executor implements Runnable
     		else {
     			// START KGU#408 2021-02-24: Enh. #410 Involve the namespace if possible
     			//candidates = pool.findIncludesByName(name, context.root);
-    			candidates = pool.findIncludesByName(name, context.root, true);
+    			// START KGU#1223 2026-10-19: Use the cached include graph
+    			//candidates = pool.findIncludesByName(name, context.root, true);
+    			candidates = IncludeGraph.getInstance(pool).findIncludesByName(context.root, name, true);
+    			// END KGU#1223 2026-10-19
     			// END KGU#408 2021-02-24
     		}
     		// START KGU#317 2016-12-29: Now the execution will be aborted on ambiguous calls
@@ -3046,7 +3076,16 @@ public class Executor implements Runnable
 		String trouble = "";
 		try {
 			// We don't expect results here
-			controller.execute(procName, arguments);
+			// START KGU#1215 2026-10-19: Use the bound handle if available
+			//controller.execute(procName, arguments);
+			ControllerRoutine routine = controllerProcedureRoutines.get(procName.toLowerCase() + "#" + arguments.length);
+			if (routine != null && routine.getController() == controller) {
+				routine.invoke(arguments);
+			}
+			else {
+				controller.execute(procName, arguments);
+			}
+			// END KGU#1215 2026-10-19
 		}
 		catch (FunctionException ex) {
 			trouble = ex.getMessage();
@@ -5442,6 +5481,11 @@ public class Executor implements Runnable
 		}
 		// END KGU#277 2016-10-13
 		
+		// START KGU#1215 2026-10-19: Controller function results set by this element are to be dropped
+		ExecutionContext stepContext = context;
+		int nResultVars = stepContext.controllerResultVars.count();
+		try {
+		// END KGU#1215 2026-10-19
 		element.executed = true;
 		// START KGU#143 2016-01-21: Bugfix #114 - make sure no compromising editing is done
 		diagram.doButtons();
@@ -5539,6 +5583,12 @@ public class Executor implements Runnable
 			}
 			// END KGU#44/KGU#47 2015-10-13
 		}
+		// START KGU#1215 2026-10-19
+		}
+		finally {
+			unsetControllerResults(stepContext, nResultVars);
+		}
+		// END KGU#1215 2026-10-19
 		if (trouble.equals("")) {
 			element.executed = false;
 			// START KGU#117 2016-03-07: Enh. #77
@@ -5552,6 +5602,28 @@ public class Executor implements Runnable
 		return trouble;
 	}
 
+	// START KGU#1215 2026-10-19
+	/**
+	 * Unsets all interpreter variables holding diagram controller function results
+	 * that were set in context {@code _context} beyond the first {@code _nKeep} ones.
+	 * @param _context - the execution context the results were set in
+	 * @param _nKeep - the number of result variables to be kept
+	 */
+	private void unsetControllerResults(ExecutionContext _context, int _nKeep)
+	{
+		StringList resultVars = _context.controllerResultVars;
+		while (resultVars.count() > _nKeep) {
+			String resultVar = resultVars.get(resultVars.count() - 1);
+			resultVars.remove(resultVars.count() - 1);
+			try {
+				_context.interpreter.unset(resultVar);
+			} catch (EvalError ex) {
+				logger.log(Level.WARNING, "Failed to unset " + resultVar, ex);
+			}
+		}
+	}
+	// END KGU#1215 2026-10-19
+
 	private String stepRoot(Root element)
 	{
 		// KGU 2015-11-25: Was very annoying to wait here in step mode
@@ -5705,7 +5777,10 @@ public class Executor implements Runnable
 					element.updateTypeMapFromLine(this.context.dynTypeMap, cmd, i);
 					// START KGU#542 2019-11-17: Enh. #739 - In case of an enum type definition we have to assign the constants
 					String typeDescr = cmd.substring(cmd.indexOf('=')+1).trim();
-					if (TypeMapEntry.MATCHER_ENUM.reset(typeDescr).matches()) {
+					// START KGU#1220 2026-10-19
+					//if (TypeMapEntry.MATCHER_ENUM.reset(typeDescr).matches()) {
+					if (TypeMapEntry.PATTERN_ENUM.matcher(typeDescr).matches()) {
+					// END KGU#1220 2026-10-19
 						isTypeDef = false;	// Is to be counted as an ordinary instruction (costs even more)
 						HashMap<String, String> enumItems = context.root.extractEnumerationConstants(cmd);
 						if (enumItems == null) {
@@ -6159,6 +6234,9 @@ public class Executor implements Runnable
 				}
 			}
 			Iterator<Integer> iter = positions.iterator();
+			// START KGU#1215 2026-10-19: Index for the result variables
+			int nResults = context.controllerResultVars.count();
+			// END KGU#1215 2026-10-19
 			try {
 				while (iter.hasNext()) {
 					pos = iter.next();
@@ -6187,17 +6265,32 @@ public class Executor implements Runnable
 							argVals[i] = this.evaluateExpression(args.get(i), false, false);
 						}
 						// Passed till here, we try to execute the function - this may throw a FunctionException
-						Object result = controller.execute(fName, argVals);
+						// START KGU#1215 2026-10-19: Use the bound handle, pass the result natively
+						//Object result = controller.execute(fName, argVals);
+						ControllerRoutine routine = this.controllerFunctionRoutines.get(fSign);
+						Object result = routine != null && routine.getController() == controller
+								? routine.invoke(argVals)
+								: controller.execute(fName, argVals);
+						// END KGU#1215 2026-10-19
 						tokens.remove(pos, tokens.count());
 						//tokens.add(controller.castArgument(result, function.getReturnType()).toString());
 						// START KGU#898 2020-12-25: Bugfix #898 - we must put the results in parentheses
 						//tokens.add(result.toString());
-						tokens.add("(");
-						// START KGU#911 2021-01-10: Enh. #910 worked only for numeric objects
-						//tokens.add(result.toString());
-						tokens.add(prepareValueForDisplay(result, null));
-						// END KGU#911 2021-01-10
-						tokens.add(")");
+						// START KGU#1215 2026-10-19: No longer stringify and reparse the result
+						//tokens.add("(");
+						//// START KGU#911 2021-01-10: Enh. #910 worked only for numeric objects
+						////tokens.add(result.toString());
+						//tokens.add(prepareValueForDisplay(result, null));
+						//// END KGU#911 2021-01-10
+						//tokens.add(")");
+						String resultVar;
+						do {
+							resultVar = CONTROLLER_RESULT_PREFIX + nResults++;
+						} while (tokens.contains(resultVar));
+						context.interpreter.set(resultVar, result);
+						context.controllerResultVars.add(resultVar);
+						tokens.add(resultVar);
+						// END KGU#1215 2026-10-19
 						// END KGU#898 2020-12-25
 						if (!tail.isEmpty()) {
 							tokens.add(Element.splitLexically(tail.substring(1), true));
@@ -6223,6 +6316,30 @@ public class Executor implements Runnable
 	}
 	// END KGU#417 2017-06-29
 	
+	// START KGU#1215 2026-10-19
+	/**
+	 * Evaluates the (already converted) loop condition {@code condStr} including
+	 * possible diagram controller function calls. The interpreter variables holding
+	 * the controller results are unset immediately afterwards, such that a loop
+	 * with many iterations doesn't pile them up until the loop element is finished.
+	 * @param condStr - the converted condition string
+	 * @return the condition value (should be a Boolean)
+	 * @throws EvalError if the evaluation failed
+	 */
+	private Object evaluateLoopCondition(String condStr) throws EvalError
+	{
+		ExecutionContext condContext = context;
+		int nResultVars = condContext.controllerResultVars.count();
+		try {
+			String tempCondStr = this.evaluateDiagramControllerFunctions(condStr);
+			return this.evaluateExpression(convertStringComparison(tempCondStr), false, false);
+		}
+		finally {
+			unsetControllerResults(condContext, nResultVars);
+		}
+	}
+	// END KGU#1215 2026-10-19
+	
 	// START KGU 2015-11-11: Equivalent decomposition of method stepInstruction
 	/**
 	 * Submethod of {@link #stepInstruction(Instruction)}, handling an assignment.
@@ -7395,8 +7512,11 @@ public class Executor implements Runnable
 			//int cw = 0;
 			// START KGU#417 2017-06-30: Enh. #424 - Turtleizer functions must be evaluated each time
 			//Object cond = context.interpreter.eval(convertStringComparison(condStr));
-			String tempCondStr = this.evaluateDiagramControllerFunctions(condStr);
-			Object cond = this.evaluateExpression(convertStringComparison(tempCondStr), false, false);
+			// START KGU#1215 2026-10-19: Controller results are dropped after each condition check
+			//String tempCondStr = this.evaluateDiagramControllerFunctions(condStr);
+			//Object cond = this.evaluateExpression(convertStringComparison(tempCondStr), false, false);
+			Object cond = this.evaluateLoopCondition(condStr);
+			// END KGU#1215 2026-10-19
 			// END KGU#417 2017-06-30
 
 			if (cond == null || !(cond instanceof Boolean))
@@ -7449,8 +7569,11 @@ public class Executor implements Runnable
 					}
 					// START KGU#417 2017-06-30: Enh. #424 - Turtleizer functions must be evaluated each time
 					//cond = context.interpreter.eval(convertStringComparison(condStr));
-					tempCondStr = this.evaluateDiagramControllerFunctions(condStr);
-					cond = this.evaluateExpression(convertStringComparison(tempCondStr), false, false);
+					// START KGU#1215 2026-10-19
+					//tempCondStr = this.evaluateDiagramControllerFunctions(condStr);
+					//cond = this.evaluateExpression(convertStringComparison(tempCondStr), false, false);
+					cond = this.evaluateLoopCondition(condStr);
+					// END KGU#1215 2026-10-19
 					// END KGU#417 2017-06-30
 					if (cond == null)
 					{
@@ -7586,8 +7709,11 @@ public class Executor implements Runnable
 						delay();	// Symbolizes the loop condition check time
 						// END KGU#665 2019-02-26
 						// START KGU#417 2017-06-30: Enh. #424 - Turtleizer functions must be evaluated each time
-						String tempCondStr = this.evaluateDiagramControllerFunctions(condStr);
-						cond = this.evaluateExpression(convertStringComparison(tempCondStr), false, false);
+						// START KGU#1215 2026-10-19
+						//String tempCondStr = this.evaluateDiagramControllerFunctions(condStr);
+						//cond = this.evaluateExpression(convertStringComparison(tempCondStr), false, false);
+						cond = this.evaluateLoopCondition(condStr);
+						// END KGU#1215 2026-10-19
 						// END KGU#417 2017-06-30
 						if (cond == null || !(cond instanceof Boolean))
 						{
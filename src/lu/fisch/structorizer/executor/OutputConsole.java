@@ -43,10 +43,18 @@ package lu.fisch.structorizer.executor;
  *      Kay Gürtzig     2018-03-13      Enh. #519: Font resizing via ctrl + mouse wheel (newboerg's proposal)
  *      Kay Gürtzig     2018-08-03      Enh. #577: New checkbox menu items "menuLogMeta" and "menuLogCalls"
  *      Kay Gürtzig     2018-08-09      Issue #577: New menu item and accelerator for saving the log
+ *      Kay Gürtzig     2026-10-19      KGU#1228: Output now queued and transferred to the document in
+ *                                      batches by a Swing timer, number of lines limited, spill file option
  *
  ******************************************************************************************************
  *
- *      Comment:  /
+ *      Comment:
+ *      Since KGU#1228, write() and clear() may be called from any thread without ever touching the
+ *      document: the fragments are queued and moved into the document on the event dispatch thread
+ *      every FLUSH_INTERVAL ms, consecutive fragments of equal colour in one insertion. The document
+ *      keeps at most lineLimit lines (oldest lines are dropped). If the executor produces more lines
+ *      between two updates than the limit, the older queued fragments are dropped before they reach
+ *      the document. A complete log can be obtained by directing ("spilling") the output to a file.
  *         
  ******************************************************************************************************///
 
@@ -60,8 +68,15 @@ import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -76,6 +91,7 @@ import javax.swing.JScrollPane;
 import javax.swing.JTextPane;
 import javax.swing.KeyStroke;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.UIDefaults;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.MutableAttributeSet;
@@ -88,6 +104,7 @@ import lu.fisch.structorizer.elements.Element;
 import lu.fisch.structorizer.gui.FontChooser;
 import lu.fisch.structorizer.gui.GUIScaler;
 import lu.fisch.structorizer.gui.IconLoader;
+import lu.fisch.structorizer.io.Ini;
 import lu.fisch.structorizer.io.LogFilter;
 import lu.fisch.structorizer.locales.LangFrame;
 import lu.fisch.structorizer.locales.LangTextHolder;
@@ -126,6 +143,44 @@ public class OutputConsole extends LangFrame implements ActionListener, MouseWhe
 	public static final LangTextHolder msgErrorFileSave = new LangTextHolder("Error on saving the file: %!");
 	public static final LangTextHolder msgTitleError = new LangTextHolder("Error");
 	// END KGU#569 2018-08-04
+	// START KGU#1228 2026-10-19: Bounded, batched output
+	/** Default for the maximum number of lines held in the {@link #textPane} */
+	public static final int DEFAULT_LINE_LIMIT = 10000;
+	/** Interval (in ms) between the transfers of pending output into the {@link #doc} */
+	private static final int FLUSH_INTERVAL = 50;
+	public JMenuItem menuContentLimit;
+	public JCheckBoxMenuItem menuContentSpill;
+	public static final LangTextHolder msgLineLimit = new LangTextHolder("Maximum number of lines to be kept in the console:");
+	public static final LangTextHolder msgErrorSpillFile = new LangTextHolder("Error on writing the spill file: %!");
+
+	/** An output fragment waiting for the transfer into the {@link #doc} */
+	private static final class Fragment {
+		final String text;
+		final Color colour;
+		final int nLines;
+		Fragment(String text, Color colour)
+		{
+			this.text = text;
+			this.colour = colour;
+			int n = 0;
+			for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', i+1)) {
+				n++;
+			}
+			this.nLines = n;
+		}
+	}
+	/** Output fragments not yet transferred to the {@link #doc}, also the lock for the pending state */
+	private final ArrayDeque<Fragment> pending = new ArrayDeque<Fragment>();
+	/** Number of newlines in {@link #pending} */
+	private int pendingLines = 0;
+	/** Whether the {@link #doc} content is to be removed with the next flush */
+	private boolean discardDoc = false;
+	/** Writer of the spill file if spilling is active (guarded by {@link #pending}) */
+	private Writer spillWriter = null;
+	private volatile int lineLimit = DEFAULT_LINE_LIMIT;
+	private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+	private Timer flushTimer;
+	// END KGU#1228 2026-10-19
 	
 	public OutputConsole()
 	{
@@ -168,6 +223,12 @@ public class OutputConsole extends LangFrame implements ActionListener, MouseWhe
 			}});
 		menuContentSave.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_S,Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
 		// END KGU#569 2018-08-03
+		// START KGU#1228 2026-10-19
+		menuContentLimit = new JMenuItem("Line limit ...");
+		menuContentLimit.addActionListener(this);
+		menuContentSpill = new JCheckBoxMenuItem("Spill output to file ...");
+		menuContentSpill.addActionListener(this);
+		// END KGU#1228 2026-10-19
 
 		JMenuBar menuBar = new JMenuBar();
 		menuBar.add(menuProp);
@@ -179,6 +240,11 @@ public class OutputConsole extends LangFrame implements ActionListener, MouseWhe
 		menuContent.add(menuContentLogMeta);
 		menuContent.add(menuContentLogCalls);
 		menuContent.addSeparator();
+		// START KGU#1228 2026-10-19
+		menuContent.add(menuContentLimit);
+		menuContent.add(menuContentSpill);
+		menuContent.addSeparator();
+		// END KGU#1228 2026-10-19
 		menuContent.add(menuContentSave);
 		// END KGU#569 2018-08-03
 		setJMenuBar(menuBar);
@@ -219,21 +285,48 @@ public class OutputConsole extends LangFrame implements ActionListener, MouseWhe
 		// START KGU#569 2018-08-04: Enh. #577 - more precise scrolling control
 		textHeight = textPane.getHeight();
 		// END KGU#569 2018-08-04
+		// START KGU#1228 2026-10-19
+		try {
+			lineLimit = Math.max(1, Integer.parseInt(Ini.getInstance().getProperty("consoleLineLimit",
+					Integer.toString(DEFAULT_LINE_LIMIT))));
+		}
+		catch (NumberFormatException ex) {
+			lineLimit = DEFAULT_LINE_LIMIT;
+		}
+		flushTimer = new Timer(FLUSH_INTERVAL, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent evt) {
+				flush();
+			}});
+		flushTimer.setRepeats(false);
+		// END KGU#1228 2026-10-19
 	}
 
+	/**
+	 * Clears the content. May be called from any thread (the document will be
+	 * cleared asynchronously).
+	 */
 	public void clear()
 	{
-		try {
-			doc.remove(0, doc.getLength());
-		} catch (BadLocationException ex) {
-			// START KGU#484 2018-04-05: Issue #463
-			//ex.printStackTrace();
-			Logger.getLogger(getClass().getName()).log(Level.WARNING, "Trouble clearing the content.", ex);
-			// END KGU#484 2018-04-05
+		// START KGU#1228 2026-10-19: Never touch the document outside the EDT
+		//try {
+		//	doc.remove(0, doc.getLength());
+		//} catch (BadLocationException ex) {
+		//	// START KGU#484 2018-04-05: Issue #463
+		//	//ex.printStackTrace();
+		//	Logger.getLogger(getClass().getName()).log(Level.WARNING, "Trouble clearing the content.", ex);
+		//	// END KGU#484 2018-04-05
+		//}
+		//// START KGU#569 2018-08-04: Enh. #577 - more precise scrolling control
+		//textHeight = textPane.getHeight();
+		//// END KGU#569 2018-08-04
+		synchronized (pending) {
+			pending.clear();
+			pendingLines = 0;
+			discardDoc = true;
 		}
-		// START KGU#569 2018-08-04: Enh. #577 - more precise scrolling control
-		textHeight = textPane.getHeight();
-		// END KGU#569 2018-08-04
+		scheduleFlush();
+		// END KGU#1228 2026-10-19
 	}
 
 	/**
@@ -247,12 +340,128 @@ public class OutputConsole extends LangFrame implements ActionListener, MouseWhe
 
 	/**
 	 * Appends string _text in the specified (foreground) colour to the textArea
-	 * as is, i.e. without additional newline.
+	 * as is, i.e. without additional newline.<br/>
+	 * May be called from any thread: the text is only queued here and will be
+	 * transferred to the text area within {@link #FLUSH_INTERVAL} ms.
 	 * @param _text - a string
 	 * @param _colour - the text colour to use
 	 */
 	public void write(String _text, Color _colour)
 	{
+		// START KGU#1228 2026-10-19: Queue the text instead of inserting it directly
+		Fragment fragment = new Fragment(_text, _colour);
+		synchronized (pending) {
+			if (spillWriter != null) {
+				try {
+					spillWriter.write(_text);
+				}
+				catch (IOException ex) {
+					Logger.getLogger(getClass().getName()).log(Level.WARNING, "Spilling failed.", ex);
+					closeSpillFile();
+					SwingUtilities.invokeLater(new Runnable() {
+						public void run() {
+							menuContentSpill.setSelected(false);
+							JOptionPane.showMessageDialog(OutputConsole.this,
+									msgErrorSpillFile.getText().replace("%", ex.toString()),
+									msgTitleError.getText(),
+									JOptionPane.ERROR_MESSAGE);
+						}
+					});
+				}
+			}
+			pending.add(fragment);
+			pendingLines += fragment.nLines;
+			// Drop the oldest pending fragments as long as the rest suffices to fill the limit
+			while (pending.size() > 1 && pendingLines - pending.peekFirst().nLines >= lineLimit) {
+				pendingLines -= pending.removeFirst().nLines;
+				discardDoc = true;
+			}
+		}
+		scheduleFlush();
+	}
+
+	/**
+	 * Makes sure that a {@link #flush()} will happen within {@link #FLUSH_INTERVAL} ms.
+	 */
+	private void scheduleFlush()
+	{
+		if (flushScheduled.compareAndSet(false, true)) {
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					flushTimer.restart();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Transfers all pending output into the {@link #doc} and drops the oldest
+	 * lines exceeding the line limit. Must be called on the event dispatch thread.
+	 */
+	private void flush()
+	{
+		Fragment[] fragments;
+		boolean discard;
+		// Reset the flag first, such that output queued from now on will be flushed again
+		flushScheduled.set(false);
+		synchronized (pending) {
+			fragments = pending.toArray(new Fragment[pending.size()]);
+			pending.clear();
+			pendingLines = 0;
+			discard = discardDoc;
+			discardDoc = false;
+			if (spillWriter != null) {
+				try {
+					spillWriter.flush();
+				} catch (IOException ex) {
+					Logger.getLogger(getClass().getName()).log(Level.WARNING, "Failed to flush the spill file.", ex);
+				}
+			}
+		}
+		if (discard) {
+			try {
+				doc.remove(0, doc.getLength());
+			} catch (BadLocationException ex) {
+				Logger.getLogger(getClass().getName()).log(Level.WARNING, "Trouble clearing the content.", ex);
+			}
+			textHeight = textPane.getHeight();
+		}
+		// Insert consecutive fragments of equal colour at once
+		StringBuilder sb = new StringBuilder();
+		Color colour = null;
+		for (Fragment fragment: fragments) {
+			if (colour != null && !fragment.colour.equals(colour)) {
+				insert(sb.toString(), colour);
+				sb.setLength(0);
+			}
+			colour = fragment.colour;
+			sb.append(fragment.text);
+		}
+		if (sb.length() > 0) {
+			insert(sb.toString(), colour);
+		}
+		// Drop the oldest lines beyond the limit
+		javax.swing.text.Element rootElement = doc.getDefaultRootElement();
+		// (The last paragraph is the one after the last newline)
+		int excess = rootElement.getElementCount() - 1 - lineLimit;
+		if (excess > 0) {
+			try {
+				doc.remove(0, rootElement.getElement(excess - 1).getEndOffset());
+			} catch (BadLocationException ex) {
+				Logger.getLogger(getClass().getName()).log(Level.WARNING, "Trouble shortening the content.", ex);
+			}
+		}
+	}
+
+	/**
+	 * Appends string _text in the specified (foreground) colour to the {@link #doc}
+	 * and scrolls to the end. Must be called on the event dispatch thread.
+	 * @param _text - a string
+	 * @param _colour - the text colour to use
+	 */
+	private void insert(String _text, Color _colour)
+	{
+		// END KGU#1228 2026-10-19
 		try {
 			this.doc.insertString(doc.getLength(), _text, doc.getStyle(_colour.toString()));
 		} catch (BadLocationException e) {
@@ -351,6 +560,9 @@ public class OutputConsole extends LangFrame implements ActionListener, MouseWhe
 	public boolean save()
 	{
 		boolean done = false;
+		// START KGU#1228 2026-10-19: Make sure all output is contained
+		flush();
+		// END KGU#1228 2026-10-19
 		JFileChooser dlgSave = new JFileChooser();
 		GUIScaler.rescaleComponents(dlgSave);
 		dlgSave.setDialogTitle(menuContentSave.getText());
@@ -490,9 +702,124 @@ public class OutputConsole extends LangFrame implements ActionListener, MouseWhe
 		{
 			fontDown();
 		}
+		// START KGU#1228 2026-10-19
+		else if (src == menuContentLimit) {
+			askLineLimit();
+		}
+		else if (src == menuContentSpill) {
+			if (menuContentSpill.isSelected()) {
+				menuContentSpill.setSelected(startSpilling());
+			}
+			else {
+				synchronized (pending) {
+					closeSpillFile();
+				}
+			}
+		}
+		// END KGU#1228 2026-10-19
 	}
 	// END KGU#279 2016-10-11
 
+	// START KGU#1228 2026-10-19
+	/**
+	 * Lets the user specify the maximum number of lines to be kept in the
+	 * text area and stores it in the ini file.
+	 */
+	private void askLineLimit()
+	{
+		Object answer = JOptionPane.showInputDialog(this, msgLineLimit.getText(),
+				menuContentLimit.getText(), JOptionPane.QUESTION_MESSAGE, null, null, lineLimit);
+		if (answer != null) {
+			try {
+				int limit = Integer.parseInt(answer.toString().trim());
+				if (limit > 0) {
+					lineLimit = limit;
+					Ini.getInstance().setProperty("consoleLineLimit", Integer.toString(limit));
+					scheduleFlush();
+				}
+			}
+			catch (NumberFormatException ex) {
+				// Just ignore it
+			}
+		}
+	}
+
+	/**
+	 * Lets the user choose a file to which all subsequent output is to be
+	 * written in full (independent of the line limit).
+	 * @return true if the spill file has been opened.
+	 */
+	private boolean startSpilling()
+	{
+		JFileChooser dlgSpill = new JFileChooser();
+		GUIScaler.rescaleComponents(dlgSpill);
+		dlgSpill.setDialogTitle(menuContentSpill.getText());
+		dlgSpill.setSelectedFile(lastSaved != null ? lastSaved : new File("OutputConsole.log"));
+		LogFilter filter = new LogFilter();
+		dlgSpill.addChoosableFileFilter(filter);
+		dlgSpill.setFileFilter(filter);
+		if (dlgSpill.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+			return false;
+		}
+		File outFile = dlgSpill.getSelectedFile();
+		// In case of a missing extension append ".log", otherwise leave name as is
+		if (LogFilter.getExtension(outFile).isEmpty()) {
+			outFile = new File(outFile.getAbsolutePath() + ".log");
+		}
+		if (outFile.exists() && (JOptionPane.showConfirmDialog(this,
+				msgOverwriteFile.getText(),
+				menuContentSpill.getText(),
+				JOptionPane.OK_CANCEL_OPTION) != JOptionPane.OK_OPTION)) {
+			return false;
+		}
+		try {
+			Writer writer = new OutputStreamWriter(new FileOutputStream(outFile), StandardCharsets.UTF_8);
+			synchronized (pending) {
+				closeSpillFile();
+				spillWriter = new BufferedWriter(writer);
+			}
+			lastSaved = outFile;
+		}
+		catch (IOException ex) {
+			JOptionPane.showMessageDialog(this, msgErrorSpillFile.getText().replace("%", ex.toString()),
+					msgTitleError.getText(),
+					JOptionPane.ERROR_MESSAGE);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Closes the spill file (if open). Caller must hold the lock on {@link #pending}.
+	 */
+	private void closeSpillFile()
+	{
+		if (spillWriter != null) {
+			try {
+				spillWriter.close();
+			} catch (IOException ex) {
+				Logger.getLogger(getClass().getName()).log(Level.WARNING, "Failed to close the spill file.", ex);
+			}
+			spillWriter = null;
+		}
+	}
+
+	/**
+	 * Stops the output transfer and closes the spill file (if any).
+	 */
+	@Override
+	public void dispose()
+	{
+		if (flushTimer != null) {
+			flushTimer.stop();
+		}
+		synchronized (pending) {
+			closeSpillFile();
+		}
+		super.dispose();
+	}
+	// END KGU#1228 2026-10-19
+
 	// START KGU#503 2018-03-13: Enh. #519 - "zooming" via font size control with ctrl + mouse wheel
 	@Override
 	public void mouseWheelMoved(MouseWheelEvent mwEvt) {
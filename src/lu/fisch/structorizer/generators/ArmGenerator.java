@@ -77,6 +77,8 @@ package lu.fisch.structorizer.generators;
  *      Kay Gürtzig     2025-09-02/05   Bugfix #1210 (trouble with FOR loops and suppressTransformation),
  *                                      bugfix #1214 (too radical code denial on condition faults),
  *                                      bugfix #1215 (defective FOREVER and REPEAT loop exits)
+ *      Kay Gürtzig     2026-10-19      KGU#1220: Static register map and keyword patterns converted to
+ *                                      instance fields (thread safety for concurrent export)
  *
  ******************************************************************************************************
  *
@@ -171,11 +173,18 @@ public class ArmGenerator extends Generator {
             String.format("\\( *!? *%s *\\)", variablePattern));
     // END KGU#968 2021-10-05
     // START KGU#968 2021-04-24: Enh. #967 - correct keyword comparison; patterns will be set when code generation is started
-    private static Pattern inputPattern = null;
-    private static Pattern outputPattern = null;
+    // START KGU#1220 2026-10-19: Instance fields now, generators may work concurrently
+    //private static Pattern inputPattern = null;
+    //private static Pattern outputPattern = null;
+    private Pattern inputPattern = null;
+    private Pattern outputPattern = null;
+    // END KGU#1220 2026-10-19
     // END KGU#968 2021-04-24
     // START KGU#1017 2021-11-17: Issue #1020
-    private static Pattern returnPattern = null;
+    // START KGU#1220 2026-10-19
+    //private static Pattern returnPattern = null;
+    private Pattern returnPattern = null;
+    // END KGU#1220 2026-10-19
     // END KGU#1017 2021-11-17
     
     // START KGU#1012 2021-11-14: Restrictive mode
@@ -232,6 +241,13 @@ public class ArmGenerator extends Generator {
 //            "lsl,lsr,asr,ror,rrx", ",");
     // This set will contain all the strings from ARM_INSTRUCTIONS
     private static final HashSet<String> ARM_INSTR_LOOKUP = new HashSet<String>();
+    // START KGU#1220 2026-10-19: Filled in advance rather than lazily (concurrent generators)
+    static {
+        for (String s: ARM_INSTRUCTIONS) {
+            ARM_INSTR_LOOKUP.add(s);
+        }
+    }
+    // END KGU#1220 2026-10-19
     // END KGU#968 2021-10-06
 
     /**
@@ -268,8 +284,12 @@ public class ArmGenerator extends Generator {
      * mapped user variable name.
      */
     // FIXME: The way it is used it could as well be an array of Strings
-    private static final HashMap<String, String> mVariables = new HashMap<>();
-    static {
+    // START KGU#1220 2026-10-19: Register allocation is specific to the generator instance
+    //private static final HashMap<String, String> mVariables = new HashMap<>();
+    //static {
+    private final HashMap<String, String> mVariables = new HashMap<>();
+    {
+    // END KGU#1220 2026-10-19
         mVariables.put("R0", "");
         mVariables.put("R1", "");
         mVariables.put("R2", "");
@@ -295,7 +315,10 @@ public class ArmGenerator extends Generator {
      * the address of the associated array variable (unfortunately we may not rely
      * on no instruction having modified it in the mean time...)
      */
-    private static final boolean[] addressAssigned = {
+    // START KGU#1220 2026-10-19: Instance field now
+    //private static final boolean[] addressAssigned = {
+    private final boolean[] addressAssigned = {
+    // END KGU#1220 2026-10-19
             false, false, false, false,
             false, false, false, false,
             false, false, false, false,
@@ -3377,12 +3400,14 @@ public class ArmGenerator extends Generator {
         //        return true;
         //    }
         //}
-        if (ARM_INSTR_LOOKUP.isEmpty()) {
-            // Fill the instruction name set once (lazy initialisation)
-            for (String s: ARM_INSTRUCTIONS) {
-                ARM_INSTR_LOOKUP.add(s);
-            }
-        }
+        // START KGU#1220 2026-10-19: Now filled in the static initialiser
+        //if (ARM_INSTR_LOOKUP.isEmpty()) {
+        //    // Fill the instruction name set once (lazy initialisation)
+        //    for (String s: ARM_INSTRUCTIONS) {
+        //        ARM_INSTR_LOOKUP.add(s);
+        //    }
+        //}
+        // END KGU#1220 2026-10-19
         StringList tokens = Element.splitLexically(line.toLowerCase(), true);
         tokens.removeAll(" ");
         // START KGU#1066 2022-09-30: Bugfix #1074 ARM instruction code must be at index 0
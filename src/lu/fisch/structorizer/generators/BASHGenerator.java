@@ -110,6 +110,8 @@ package lu.fisch.structorizer.generators;
  *      Kay Gürtzig         2025-09-07      Issue #1223: First approach to implement generateCode(Try, String)
  *      Kay Gürtzig         2025-09-08      Issue #1223: generateCode(Try, String) accomplished (with finally
  *                                          and throw.
+ *      Kay Gürtzig         2026-10-19      KGU#1220: VAR_ACCESS_MATCHER replaced by VAR_ACCESS_PATTERN (thread safety)
+ *      Kay Gürtzig         2026-10-19      KGU#1220: VAR_ACCESS_MATCHER reinstated as deprecated (API compatibility)
  *
  ******************************************************************************************************
  *
@@ -332,8 +334,18 @@ public class BASHGenerator extends Generator {
 	/** Currently exported {@link Root} */
 	protected Root root = null;
 	
-	/** Matcher for simple variable access consisting of a dollar sign and an identifier within braces */
-	protected static final Matcher VAR_ACCESS_MATCHER = Pattern.compile("[$]\\{[A-Za-z][A-Za-z0-9_]*\\}").matcher("");
+	// START KGU#1220 2026-10-19: A shared matcher isn't thread-safe
+	///** Matcher for simple variable access consisting of a dollar sign and an identifier within braces */
+	//protected static final Matcher VAR_ACCESS_MATCHER = Pattern.compile("[$]\\{[A-Za-z][A-Za-z0-9_]*\\}").matcher("");
+	/** Pattern for simple variable access consisting of a dollar sign and an identifier within braces */
+	protected static final Pattern VAR_ACCESS_PATTERN = Pattern.compile("[$]\\{[A-Za-z][A-Za-z0-9_]*\\}");
+	/**
+	 * Matcher for simple variable access consisting of a dollar sign and an identifier within braces
+	 * @deprecated Not thread-safe, use {@link #VAR_ACCESS_PATTERN} instead
+	 */
+	@Deprecated
+	protected static final Matcher VAR_ACCESS_MATCHER = VAR_ACCESS_PATTERN.matcher("");
+	// END KGU#1220 2026-10-19
 
 	/** Name of an auxiliary function to copy associative arrays */
 	private static final String FN_COPY_ASSOC_ARRAY = "auxCopyAssocArray";
@@ -919,7 +931,10 @@ public class BASHGenerator extends Generator {
 					this.varNames.contains(varName = exprTokens.get(2)) &&
 					exprTokens.get(3).equals("}") ||
 					exprTokens.count() == 1 &&
-					VAR_ACCESS_MATCHER.reset(exprTokens.get(0)).matches() &&
+					// START KGU#1220 2026-10-19
+					//VAR_ACCESS_MATCHER.reset(exprTokens.get(0)).matches() &&
+					VAR_ACCESS_PATTERN.matcher(exprTokens.get(0)).matches() &&
+					// END KGU#1220 2026-10-19
 					this.varNames.contains(varName = exprTokens.get(0).substring(2, exprTokens.get(0).length()-1));
 			if (isVarAccess) {
 				// START KGU#803 2020-02-19: Issue #816
@@ -0,0 +1,205 @@
+/*
+    Structorizer
+    A little tool which you can use to create Nassi-Schneiderman Diagrams (NSD)
+
+    Copyright (C) 2009  Bob Fisch
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.structorizer.generators;
+
+/******************************************************************************************************
+ *
+ *      Author:         Kay Gürtzig
+ *
+ *      Description:    Anchor-based map of elements to generated code line intervals
+ *
+ ******************************************************************************************************
+ *
+ *      Revision List
+ *
+ *      Author          Date            Description
+ *      ------          ----            -----------
+ *      Kay Gürtzig     2026-10-19      First Issue (KGU#1219)
+ *
+ ******************************************************************************************************
+ *
+ *      Comment:
+ *      Formerly, every line insertion into the generated code had to walk through all entries of
+ *      the code map in order to increment the affected line numbers, which made the generation of
+ *      large programs (with many subroutines, prototypes, and comments) quadratic. Now the start and
+ *      end line of every entry are represented by LineAnchors, which are shifted in O(log n).
+ *      For compatibility, the map still hands out the int[] triples {start, end, indentation}. The
+ *      arrays obtained via get() are brought up to date before and may be modified by the caller;
+ *      such modifications are taken over into the anchors with the next access to the map.
+ *
+ ******************************************************************************************************///
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import lu.fisch.structorizer.elements.Element;
+
+/**
+ * Maps processed elements to the corresponding code line interval and indentation depth
+ * (as triple {start line, end line, indentation}), where the line numbers automatically
+ * follow line insertions announced via {@link #shift(int, int)}.
+ *
+ * @author Kay Gürtzig
+ */
+public class CodeMap extends HashMap<Element, int[]> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final LineAnchors lines = new LineAnchors();
+	/** Start and end anchor for every entry */
+	private final HashMap<Object, LineAnchors.Anchor[]> anchors = new HashMap<Object, LineAnchors.Anchor[]>();
+	/** Keys of the entries handed out since the last synchronisation */
+	private final ArrayList<Object> handedOut = new ArrayList<Object>();
+	/** Whether all entries have been handed out (e.g. via {@link #values()}) */
+	private boolean allHandedOut = false;
+
+	/**
+	 * Accounts for the insertion of {@code nLines} code lines before line {@code atLine},
+	 * i.e. increments all start and end lines greater than or equal to {@code atLine}.
+	 * @param atLine - the line index of the insertion
+	 * @param nLines - the number of inserted lines
+	 */
+	public void shift(int atLine, int nLines)
+	{
+		takeOver();
+		lines.shift(atLine, nLines);
+	}
+
+	@Override
+	public int[] put(Element key, int[] value)
+	{
+		takeOver();
+		LineAnchors.Anchor[] oldAnchors = anchors.remove(key);
+		if (oldAnchors != null) {
+			lines.remove(oldAnchors[0]);
+			lines.remove(oldAnchors[1]);
+		}
+		anchors.put(key, new LineAnchors.Anchor[] {lines.add(value[0]), lines.add(value[1])});
+		// The caller may keep and modify the array
+		handedOut.add(key);
+		return super.put(key, value);
+	}
+
+	@Override
+	public void putAll(Map<? extends Element, ? extends int[]> map)
+	{
+		for (Map.Entry<? extends Element, ? extends int[]> entry: map.entrySet()) {
+			put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	@Override
+	public int[] get(Object key)
+	{
+		takeOver();
+		int[] value = super.get(key);
+		if (value != null) {
+			update(key, value);
+			handedOut.add(key);
+		}
+		return value;
+	}
+
+	@Override
+	public int[] remove(Object key)
+	{
+		takeOver();
+		LineAnchors.Anchor[] oldAnchors = anchors.remove(key);
+		if (oldAnchors != null) {
+			lines.remove(oldAnchors[0]);
+			lines.remove(oldAnchors[1]);
+		}
+		return super.remove(key);
+	}
+
+	@Override
+	public void clear()
+	{
+		handedOut.clear();
+		allHandedOut = false;
+		anchors.clear();
+		lines.clear();
+		super.clear();
+	}
+
+	@Override
+	public Collection<int[]> values()
+	{
+		updateAll();
+		return super.values();
+	}
+
+	@Override
+	public Set<Map.Entry<Element, int[]>> entrySet()
+	{
+		updateAll();
+		return super.entrySet();
+	}
+
+	/**
+	 * Brings all int[] triples up to date (and takes over later modifications of them).
+	 */
+	private void updateAll()
+	{
+		takeOver();
+		for (Object key: anchors.keySet()) {
+			update(key, super.get(key));
+		}
+		allHandedOut = true;
+	}
+
+	/** Writes the current anchor lines of the entry for {@code key} into {@code value} */
+	private void update(Object key, int[] value)
+	{
+		LineAnchors.Anchor[] entryAnchors = anchors.get(key);
+		value[0] = lines.get(entryAnchors[0]);
+		value[1] = lines.get(entryAnchors[1]);
+	}
+
+	/**
+	 * Moves the anchors of the entries handed out since the last call to the
+	 * line numbers the holders may have written into the int[] triples.
+	 */
+	private void takeOver()
+	{
+		if (allHandedOut) {
+			allHandedOut = false;
+			handedOut.clear();
+			handedOut.addAll(anchors.keySet());
+		}
+		for (Object key: handedOut) {
+			int[] value = super.get(key);
+			LineAnchors.Anchor[] entryAnchors = anchors.get(key);
+			if (value != null && entryAnchors != null) {
+				for (int i = 0; i < 2; i++) {
+					if (lines.get(entryAnchors[i]) != value[i]) {
+						lines.move(entryAnchors[i], value[i]);
+					}
+				}
+			}
+		}
+		handedOut.clear();
+	}
+
+}
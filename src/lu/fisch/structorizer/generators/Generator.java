@@ -133,6 +133,12 @@ package lu.fisch.structorizer.generators;
  *      Kay Gürtzig     2025-08-20      Bugfix #1210: Input/output conversion avoided with option suppressTransformation
  *                                      precautions against missing parameter types
  *      Kay Gürtzig     2025-09-05      Issue #1214: Support for thread-safe temporary disabling of elements added
+ *      Kay Gürtzig     2026-10-19      KGU#1219: codeMap now a CodeMap with self-adjusting line anchors, such that
+ *                                      insertCode() and insertComment() no longer walk through all entries
+ *      Kay Gürtzig     2026-10-19      KGU#1220: File API resource copying serialized for concurrent batch export,
+ *                                      declaredStuff reset on batch export (missing declarations in later files)
+ *      Kay Gürtzig     2026-10-19      KGU#1222: Variable names of includables taken from the validated cache
+ *      Kay Gürtzig     2026-10-19      KGU#1223: Includables resolved via the cached IncludeGraph of the pool
  *
  ******************************************************************************************************
  *
@@ -212,6 +218,7 @@ import javax.swing.JOptionPane;
 
 import lu.fisch.structorizer.archivar.ArchivePool;
 import lu.fisch.structorizer.archivar.IRoutinePool;
+import lu.fisch.structorizer.archivar.IncludeGraph;
 import lu.fisch.structorizer.elements.Alternative;
 import lu.fisch.structorizer.elements.Call;
 import lu.fisch.structorizer.elements.Case;
@@ -305,6 +312,10 @@ public abstract class Generator extends javax.swing.filechooser.FileFilter imple
 			+ "be sensible.",
 			"\n");
 	// END  KGU#815/#824 2020-03-20
+	// START KGU#1220 2026-10-19: Batch export may run several generators concurrently
+	/** Serializes the copying of file API resources (possibly into the same directory) */
+	private static final Object FILE_API_LOCK = new Object();
+	// END KGU#1220 2026-10-19
 
 	
 	/************ Fields ***********************/
@@ -401,7 +412,10 @@ public abstract class Generator extends javax.swing.filechooser.FileFilter imple
 	// END KGU#376/KGU#388 2017-09-26
 	// START KGU#705 2019-09-23: Enh. #738
 	/** Maps processed elements to the corresponding code line interval and indentation depth */
-	protected HashMap<Element, int[]> codeMap = null;
+	// START KGU#1219 2026-10-19: Anchor-based map, shifted in O(log n) on line insertion
+	//protected HashMap<Element, int[]> codeMap = null;
+	protected CodeMap codeMap = null;
+	// END KGU#1219 2026-10-19
 	// END KGU#705 2019-09-23
 	
 	// START KGU#236 2016-08-10: Issue #227: Find out whether there are I/O operations
@@ -1217,15 +1231,18 @@ public abstract class Generator extends javax.swing.filechooser.FileFilter imple
 		int nLines = lines.length;
 		updateLineMarkers(_atLine, nLines);
 		if (codeMap != null) {
-			for (int[] entry: codeMap.values()) {
-				if (entry[0] >= _atLine) {
-					entry[0] += nLines;
-					entry[1] += nLines;
-				}
-				else if (entry[1] >= _atLine) {
-					entry[1] += nLines;
-				}
-			}
+			// START KGU#1219 2026-10-19: The anchors of the entries are shifted at once
+			//for (int[] entry: codeMap.values()) {
+			//	if (entry[0] >= _atLine) {
+			//		entry[0] += nLines;
+			//		entry[1] += nLines;
+			//	}
+			//	else if (entry[1] >= _atLine) {
+			//		entry[1] += nLines;
+			//	}
+			//}
+			codeMap.shift(_atLine, nLines);
+			// END KGU#1219 2026-10-19
 		}
 		for (int i = 0; i < nLines; i++)
 		{
@@ -1740,15 +1757,18 @@ public abstract class Generator extends javax.swing.filechooser.FileFilter imple
 		updateLineMarkers(atLine, 1);
 		// END KGU#815 2020-03-16
 		if (codeMap != null) {
-			for (int[] entry: codeMap.values()) {
-				if (entry[0] >= atLine) {
-					entry[0]++;
-					entry[1]++;
-				}
-				else if (entry[1] >= atLine) {
-					entry[1]++;
-				}
-			}
+			// START KGU#1219 2026-10-19: The anchors of the entries are shifted at once
+			//for (int[] entry: codeMap.values()) {
+			//	if (entry[0] >= atLine) {
+			//		entry[0]++;
+			//		entry[1]++;
+			//	}
+			//	else if (entry[1] >= atLine) {
+			//		entry[1]++;
+			//	}
+			//}
+			codeMap.shift(atLine, 1);
+			// END KGU#1219 2026-10-19
 		}
 	}
 	// END KGU#705 2019-09-24
@@ -2876,7 +2896,10 @@ public abstract class Generator extends javax.swing.filechooser.FileFilter imple
 			{
 				Root newIncl = null;
 				String includeName = _root.includeList.get(i);
-				Vector<Root> candidates = routinePool.findIncludesByName(includeName, _root, false);
+				// START KGU#1223 2026-10-19: Use the cached include graph
+				//Vector<Root> candidates = routinePool.findIncludesByName(includeName, _root, false);
+				Vector<Root> candidates = IncludeGraph.getInstance(routinePool).findIncludesByName(_root, includeName, false);
+				// END KGU#1223 2026-10-19
 				if (!candidates.isEmpty()) {
 					newIncl = putRootsToMap(candidates.firstElement(), _root, _includedRoots);
 				}
@@ -3860,7 +3883,10 @@ public abstract class Generator extends javax.swing.filechooser.FileFilter imple
 				this.setDefHandled(incl.getSignatureString(false, false), this.getInitFlagName(incl));
 			}
 			// END KGU#834 2020-03-26
-			appendDefinitions(incl, _indent, incl.retrieveVarNames(), _force);
+			// START KGU#1222 2026-10-19: The cached variable names are validated now
+			//appendDefinitions(incl, _indent, incl.retrieveVarNames(), _force);
+			appendDefinitions(incl, _indent, incl.getVarNames().copy(), _force);
+			// END KGU#1222 2026-10-19
 			if (incl == _root) {
 				thisDone = true;
 			}
@@ -4346,12 +4372,25 @@ public abstract class Generator extends javax.swing.filechooser.FileFilter imple
 	 * @param _root - program or top-level routine diagram (call hierarchy root)
 	 * @param _frame - the GUI Frame object responsible for this action
 	 * @param _routinePool - {@link Arranger} or some other routine pool for subroutine analysis
-	 * @param _codeMap TODO
+	 * @param _codeMap - a map to be filled with the code line intervals and indentations of
+	 * the elements, or {@code null}
 	 * @return the produced code as a (multi-line) string.
 	 */
 	public String deriveCode(Root _root, Frame _frame, IRoutinePool _routinePool, HashMap<Element, int[]> _codeMap)
 	{
-		codeMap = _codeMap;
+		// START KGU#1219 2026-10-19: Work with an anchor-based map, copy the result into _codeMap
+		//codeMap = _codeMap;
+		if (_codeMap instanceof CodeMap) {
+			codeMap = (CodeMap)_codeMap;
+		}
+		else if (_codeMap != null) {
+			codeMap = new CodeMap();
+			codeMap.putAll(_codeMap);
+		}
+		else {
+			codeMap = null;
+		}
+		// END KGU#1219 2026-10-19
 		
 		String code = "";
 		routinePool = _routinePool;
@@ -4393,6 +4432,11 @@ public abstract class Generator extends javax.swing.filechooser.FileFilter imple
 					"Error while compiling the code preview!\n" + message,
 					"Error", JOptionPane.ERROR_MESSAGE);
 		}
+		// START KGU#1219 2026-10-19
+		if (_codeMap != null && _codeMap != codeMap) {
+			_codeMap.putAll(codeMap);
+		}
+		// END KGU#1219 2026-10-19
 		return code;
 	}
 	
@@ -4928,6 +4972,10 @@ public abstract class Generator extends javax.swing.filechooser.FileFilter imple
 		}
 		// END KGU#720/KGU#722 2019-08-07
 		this.exportSubroutines = _routinePool != null;
+		// START KGU#1220 2026-10-19: Declarations registered on a previous batch export (with
+		// the same generator instance) must not suppress the declarations in this one
+		this.declaredStuff.clear();
+		// END KGU#1220 2026-10-19
 
 		boolean overwrite = false;
 		// Explicit options override the preferences from the settings file
@@ -5051,7 +5099,12 @@ public abstract class Generator extends javax.swing.filechooser.FileFilter imple
 			
 			// START KGU#311 2016-12-27: Enh. #314 Allow the subclass to copy necessary resource files
 			if (someRootUsesFileAPI) {
-				copyFileAPIResources(_targetFile);
+				// START KGU#1220 2026-10-19: Concurrent exports might target the same resource file
+				//copyFileAPIResources(_targetFile);
+				synchronized (FILE_API_LOCK) {
+					copyFileAPIResources(_targetFile);
+				}
+				// END KGU#1220 2026-10-19
 			}
 			// END KGU#311 2016-12-27
 		}
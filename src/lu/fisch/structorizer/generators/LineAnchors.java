@@ -0,0 +1,255 @@
+/*
+    Structorizer
+    A little tool which you can use to create Nassi-Schneiderman Diagrams (NSD)
+
+    Copyright (C) 2009  Bob Fisch
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.structorizer.generators;
+
+/******************************************************************************************************
+ *
+ *      Author:         Kay Gürtzig
+ *
+ *      Description:    Self-adjusting line anchors for generated code
+ *
+ ******************************************************************************************************
+ *
+ *      Revision List
+ *
+ *      Author          Date            Description
+ *      ------          ----            -----------
+ *      Kay Gürtzig     2026-10-19      First Issue (KGU#1219)
+ *
+ ******************************************************************************************************
+ *
+ *      Comment:
+ *      The anchors are held in a treap (randomized search tree) ordered by line number. Since an
+ *      insertion of lines shifts all anchors at or beyond the insertion line by the same amount,
+ *      the order of the anchors never changes. So a shift can be done by splitting the tree at
+ *      the insertion line and adding the line count as lazy offset to the root of the upper part.
+ *      The current line of an anchor is obtained by summing up the pending offsets of all its
+ *      ancestors. All operations take O(log n) expected time.
+ *
+ ******************************************************************************************************///
+
+import java.util.Random;
+
+/**
+ * A set of line anchors, i.e. line numbers in a growing line sequence, which
+ * automatically follow the insertion of lines before or at their position.
+ *
+ * @author Kay Gürtzig
+ * @see CodeMap
+ */
+final class LineAnchors {
+
+	/** Handle of an anchored line number */
+	static final class Anchor {
+		/** The line number, valid after the offsets of all ancestors have been added */
+		private int line;
+		/** Pending offset for all descendants (not for this node itself) */
+		private int offset = 0;
+		private final int priority;
+		private Anchor left = null, right = null, parent = null;
+
+		private Anchor(int line, int priority)
+		{
+			this.line = line;
+			this.priority = priority;
+		}
+	}
+
+	private Anchor root = null;
+	private final Random random = new Random(0x5EEDL);
+
+	/**
+	 * Creates a new anchor at the given line number
+	 * @param line - the line number
+	 * @return the anchor handle
+	 */
+	Anchor add(int line)
+	{
+		Anchor anchor = new Anchor(line, random.nextInt());
+		insert(anchor);
+		return anchor;
+	}
+
+	/**
+	 * @param anchor - an anchor of this set
+	 * @return the current line number of {@code anchor}
+	 */
+	int get(Anchor anchor)
+	{
+		int line = anchor.line;
+		for (Anchor node = anchor.parent; node != null; node = node.parent) {
+			line += node.offset;
+		}
+		return line;
+	}
+
+	/**
+	 * Moves the given {@code anchor} to the given {@code line}
+	 * @param anchor - an anchor of this set
+	 * @param line - the new line number
+	 */
+	void move(Anchor anchor, int line)
+	{
+		remove(anchor);
+		anchor.line = line;
+		insert(anchor);
+	}
+
+	/**
+	 * Removes the given {@code anchor} from this set.
+	 * @param anchor - an anchor of this set
+	 */
+	void remove(Anchor anchor)
+	{
+		pushDownPath(anchor);
+		Anchor parent = anchor.parent;
+		Anchor subst = merge(anchor.left, anchor.right);
+		if (subst != null) {
+			subst.parent = parent;
+		}
+		if (parent == null) {
+			root = subst;
+		}
+		else if (parent.left == anchor) {
+			parent.left = subst;
+		}
+		else {
+			parent.right = subst;
+		}
+		anchor.left = anchor.right = anchor.parent = null;
+	}
+
+	/**
+	 * Accounts for the insertion of {@code nLines} lines before line {@code atLine},
+	 * i.e., increments all anchors at or beyond {@code atLine} by {@code nLines}.
+	 * @param atLine - line index of the insertion
+	 * @param nLines - number of inserted lines (must not be negative)
+	 */
+	void shift(int atLine, int nLines)
+	{
+		Anchor[] parts = split(root, atLine);
+		Anchor upper = parts[1];
+		if (upper != null) {
+			upper.line += nLines;
+			upper.offset += nLines;
+		}
+		root = merge(parts[0], upper);
+		if (root != null) {
+			root.parent = null;
+		}
+	}
+
+	/** Removes all anchors */
+	void clear()
+	{
+		root = null;
+	}
+
+	private void insert(Anchor anchor)
+	{
+		anchor.offset = 0;
+		Anchor[] parts = split(root, anchor.line);
+		root = merge(merge(parts[0], anchor), parts[1]);
+		root.parent = null;
+	}
+
+	/** Applies the pending offsets of all ancestors of {@code anchor} from top to bottom */
+	private void pushDownPath(Anchor anchor)
+	{
+		if (anchor.parent != null) {
+			pushDownPath(anchor.parent);
+		}
+		pushDown(anchor);
+	}
+
+	private static void pushDown(Anchor node)
+	{
+		if (node.offset != 0) {
+			if (node.left != null) {
+				node.left.line += node.offset;
+				node.left.offset += node.offset;
+			}
+			if (node.right != null) {
+				node.right.line += node.offset;
+				node.right.offset += node.offset;
+			}
+			node.offset = 0;
+		}
+	}
+
+	/**
+	 * Splits the tree {@code node} into the anchors with lines less than {@code line}
+	 * and the ones with lines greater than or equal to {@code line}.
+	 * @return the roots of the two parts (with no parent)
+	 */
+	private static Anchor[] split(Anchor node, int line)
+	{
+		if (node == null) {
+			return new Anchor[] {null, null};
+		}
+		pushDown(node);
+		Anchor[] parts;
+		if (node.line < line) {
+			parts = split(node.right, line);
+			node.right = parts[0];
+			if (parts[0] != null) {
+				parts[0].parent = node;
+			}
+			parts[0] = node;
+		}
+		else {
+			parts = split(node.left, line);
+			node.left = parts[1];
+			if (parts[1] != null) {
+				parts[1].parent = node;
+			}
+			parts[1] = node;
+		}
+		node.parent = null;
+		return parts;
+	}
+
+	/**
+	 * Merges the trees {@code lower} and {@code upper}, where all lines of {@code lower}
+	 * must not exceed the lines of {@code upper}.
+	 * @return the root of the merged tree
+	 */
+	private static Anchor merge(Anchor lower, Anchor upper)
+	{
+		if (lower == null) {
+			return upper;
+		}
+		if (upper == null) {
+			return lower;
+		}
+		if (lower.priority > upper.priority) {
+			pushDown(lower);
+			lower.right = merge(lower.right, upper);
+			lower.right.parent = lower;
+			return lower;
+		}
+		pushDown(upper);
+		upper.left = merge(lower, upper.left);
+		upper.left.parent = upper;
+		return upper;
+	}
+
+}
@@ -101,6 +101,7 @@ package lu.fisch.structorizer.generators;
  *      Kay Gürtzig             2025-07-03      Missing Override annotations added
  *      Kay Gürtzig             2025-08-16      Bugfix #1206: Proper translation for exit instructions implemented
  *      Kay Gürtzig             2025-08-29      Bugfix #1210: Free-text FOR loops caused errors in suppressTransition mode
+ *      Kay Gürtzig             2026-10-19      KGU#1222: Variable names of includables taken from the validated cache
  *
  ******************************************************************************************************
  *
@@ -1957,7 +1958,10 @@ public class OberonGenerator extends Generator {
 			//if (incl != _root) {
 			if (incl != _root && (importedLibRoots == null || !importedLibRoots.contains(incl))) {
 			// END KGU#815/KGU#824 2020-03-18
-				introPlaced = generateVarDecls(incl, _indent, incl.retrieveVarNames(), complexConsts, introPlaced);
+				// START KGU#1222 2026-10-19: The cached variable names are validated now
+				//introPlaced = generateVarDecls(incl, _indent, incl.retrieveVarNames(), complexConsts, introPlaced);
+				introPlaced = generateVarDecls(incl, _indent, incl.getVarNames().copy(), complexConsts, introPlaced);
+				// END KGU#1222 2026-10-19
 			}
 		}
 		// START KGU#504 2018-03-13: Bugfix #520, #521
@@ -36,6 +36,7 @@ package lu.fisch.structorizer.generators;
  *      Kay Gürtzig     2020-04-02      PapParallel fundamentally rewritten, provisional Jump mechanism implemented
  *      Kay Gürtzig     2020-04-25      Bugfix #863/2: Assignment symbols hadn't been transformed in CALLs
  *      Kay Gürtzig     2020-04-28      Issue #864: Parameter lists of calls and routine declarations had to be transformed
+ *      Kay Gürtzig     2026-10-19      KGU#1220: PapItem id counter made thread-local (concurrent export)
  *
  ******************************************************************************************************
  *
@@ -219,7 +220,11 @@ public class PapGenerator extends Generator {
 	 */
 	private static abstract class PapItem {
 		
-		private static long nextId = 0;
+		// START KGU#1220 2026-10-19: Several generators may work concurrently (in different threads)
+		//private static long nextId = 0;
+		/** Id counter, specific to the thread as a PAP is always created within a single thread */
+		private static final ThreadLocal<Long> nextId = ThreadLocal.withInitial(() -> 0L);
+		// END KGU#1220 2026-10-19
 		
 		private long id = -1;
 		public double format = 1.0;
@@ -231,7 +236,11 @@ public class PapGenerator extends Generator {
 		 */
 		public PapItem(String _text)
 		{
-			id = nextId++;
+			// START KGU#1220 2026-10-19
+			//id = nextId++;
+			id = nextId.get();
+			nextId.set(id + 1);
+			// END KGU#1220 2026-10-19
 			text = _text;
 		}
 
@@ -243,7 +252,11 @@ public class PapGenerator extends Generator {
 		 */
 		public PapItem(String _text, double _format)
 		{
-			id = nextId++;
+			// START KGU#1220 2026-10-19
+			//id = nextId++;
+			id = nextId.get();
+			nextId.set(id + 1);
+			// END KGU#1220 2026-10-19
 			text = _text;
 			format = _format;
 		}
@@ -261,7 +274,10 @@ public class PapGenerator extends Generator {
 		 */
 		public static void resetNextId()
 		{
-			nextId = 0;
+			// START KGU#1220 2026-10-19
+			//nextId = 0;
+			nextId.set(0L);
+			// END KGU#1220 2026-10-19
 		}
 		
 		/**
@@ -95,6 +95,7 @@ package lu.fisch.structorizer.generators;
  *      Kay Gürtzig             2025-02-06      Bugfix #1188: The transformation of C-style array initialisations was wrong
  *      Kay Gürtzig             2025-02-16      Bugfix #1192: Translation of tail return instruction keywords
  *      Kay Gürtzig             2025-07-03      Several missing Override annotations added.
+ *      Kay Gürtzig             2026-10-19      KGU#1220: Static matchers replaced by instance matchers (thread safety)
  *
  ******************************************************************************************************
  *
@@ -277,10 +278,17 @@ public class PythonGenerator extends Generator
 	private HashMap<String, TypeMapEntry> typeMap = null;
 	/** Pattern for type name extraction from a type definition */
 	private static final Pattern PTRN_TYPENAME = Pattern.compile("type (\\w+)\\s*=.*");
-	private static Matcher mtchTypename = PTRN_TYPENAME.matcher("");
+	// START KGU#1220 2026-10-19: Matchers must not be shared among concurrent generators
+	//private static Matcher mtchTypename = PTRN_TYPENAME.matcher("");
+	private final Matcher mtchTypename = PTRN_TYPENAME.matcher("");
+	// END KGU#1220 2026-10-19
 	// END KGU#388 2017-10-02
 	// START KGU#799 2020-02-13: Bugfix #812
-	private static final Matcher MTCH_IDENTIFIER = Pattern.compile("([A-Za-z_]\\w*).*").matcher("");
+	// START KGU#1220 2026-10-19
+	//private static final Matcher MTCH_IDENTIFIER = Pattern.compile("([A-Za-z_]\\w*).*").matcher("");
+	private static final Pattern PTRN_IDENTIFIER = Pattern.compile("([A-Za-z_]\\w*).*");
+	private final Matcher mtchIdentifier = PTRN_IDENTIFIER.matcher("");
+	// END KGU#1220 2026-10-19
 	// END KGU#799 2020-02-13
 
 	// START KGU#598 2018-10-17: Enh. #490 Improved support for Turtleizer export
@@ -674,9 +682,14 @@ public class PythonGenerator extends Generator
 					if (inputItems != null && root.isInclude()) {
 						for (int j = 1; j < inputItems.count(); j++) {
 							String var = inputItems.get(j);
-							if (!Function.testIdentifier(var, false, null) && MTCH_IDENTIFIER.reset(var).matches()) {
-								var = MTCH_IDENTIFIER.group(1);
+							// START KGU#1220 2026-10-19
+							//if (!Function.testIdentifier(var, false, null) && MTCH_IDENTIFIER.reset(var).matches()) {
+							//	var = MTCH_IDENTIFIER.group(1);
+							//}
+							if (!Function.testIdentifier(var, false, null) && mtchIdentifier.reset(var).matches()) {
+								var = mtchIdentifier.group(1);
 							}
+							// END KGU#1220 2026-10-19
 							if (var != null) {
 								this.wasDefHandled(root, var, true, true);	// mark var as defined if it isn't
 							}
@@ -1729,9 +1742,14 @@ public class PythonGenerator extends Generator
 		Element.unifyOperators(tokens, true);
 		String var = Instruction.getAssignedVarname(tokens, false);
 		if (var != null && !Function.testIdentifier(var, false, "")) {
-			if (MTCH_IDENTIFIER.reset(var).matches()) {
-				var = MTCH_IDENTIFIER.group(0);
+			// START KGU#1220 2026-10-19
+			//if (MTCH_IDENTIFIER.reset(var).matches()) {
+			//	var = MTCH_IDENTIFIER.group(0);
+			//}
+			if (mtchIdentifier.reset(var).matches()) {
+				var = mtchIdentifier.group(0);
 			}
+			// END KGU#1220 2026-10-19
 			else {
 				var = null;
 			}
@@ -56,6 +56,7 @@ package lu.fisch.structorizer.generators;
  *      Kay Gürtzig     2021-02-26      Bugfix #945: Disabled status of parallel elements had not been saved
  *      Kay Gürtzig     2025-07-03      Missing Override annotations added
  *      Kay Gürtzig     2025-07-31      Enh. #1197: Branch selector colouring and its export enabled
+ *      Kay Gürtzig     2026-10-19      KGU#1213: Streaming output via new method writeCode(Root, String, boolean, Writer)
  *
  ******************************************************************************************************
  *
@@ -63,6 +64,9 @@ package lu.fisch.structorizer.generators;
  *
  ******************************************************************************************************///
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.Map;
 
 import lu.fisch.utils.*;
@@ -81,6 +85,13 @@ public class XmlGenerator extends Generator
 	// END KGU#134 2016-01-08
 	// END KGU#118 2015-12-31
 	
+	// START KGU#1213 2026-10-19: Streaming output
+	/** If not null then the generated lines are directly written to this instead of {@link #code} */
+	private Writer out = null;
+	/** Whether a line has already been written to {@link #out} (needed for the separators) */
+	private boolean outStarted = false;
+	// END KGU#1213 2026-10-19
+	
 	/************ Fields ***********************/
 	@Override
 	protected String getDialogTitle()
@@ -207,7 +218,7 @@ public class XmlGenerator extends Generator
 	{
 		String r = "0";
 		//if(_inst.rotated==true) {r="1";}
-		code.add(_indent + "<instruction text=\"" + BString.encodeToHtml(_inst.getText().getCommaText()) +
+		addCode(_indent + "<instruction text=\"" + BString.encodeToHtml(_inst.getText().getCommaText()) +
 				"\" comment=\"" + BString.encodeToHtml(_inst.getComment().getCommaText()) +
 				"\" color=\"" + _inst.getHexColor() +
 				"\" rotated=\"" + r +
@@ -218,7 +229,7 @@ public class XmlGenerator extends Generator
 	@Override
 	protected void generateCode(Alternative _alt, String _indent)
 	{
-		code.add(_indent + "<alternative text=\"" + BString.encodeToHtml(_alt.getText().getCommaText()) +
+		addCode(_indent + "<alternative text=\"" + BString.encodeToHtml(_alt.getText().getCommaText()) +
 				"\" comment=\"" + BString.encodeToHtml(_alt.getComment().getCommaText()) +
 				"\" color=\"" + _alt.getHexColor() +
 				// START KGU#1182 2025-07-31: Enh. #1197 Support for brach head colours
@@ -236,13 +247,13 @@ public class XmlGenerator extends Generator
 		generateCode(_alt.qTrue, _indent+this.getIndent(), "qTrue");
 		generateCode(_alt.qFalse, _indent+this.getIndent(), "qFalse");
 		// END KGU 2016-12-21
-		code.add(_indent+"</alternative>");
+		addCode(_indent+"</alternative>");
 	}
 	
 	@Override
 	protected void generateCode(Case _case, String _indent)
 	{
-		code.add(_indent + "<case text=\"" + BString.encodeToHtml(_case.getText().getCommaText()) +
+		addCode(_indent + "<case text=\"" + BString.encodeToHtml(_case.getText().getCommaText()) +
 				"\" comment=\"" + BString.encodeToHtml(_case.getComment().getCommaText()) +
 				"\" color=\"" + _case.getHexColor() +
 				// START KGU#1182 2025-07-31: Enh. #1197 Support for brach head colours
@@ -259,13 +270,13 @@ public class XmlGenerator extends Generator
 			generateCode(_case.qs.get(i), _indent+this.getIndent(), "qCase");
 			// END KGU 2016-12-21
 		}
-		code.add(_indent + "</case>");
+		addCode(_indent + "</case>");
 	}
 
 	@Override
 	protected void generateCode(Parallel _para, String _indent)
 	{
-		code.add(_indent + "<parallel text=\"" + BString.encodeToHtml(_para.getText().getCommaText()) +
+		addCode(_indent + "<parallel text=\"" + BString.encodeToHtml(_para.getText().getCommaText()) +
 				"\" comment=\"" + BString.encodeToHtml(_para.getComment().getCommaText()) +
 				"\" color=\"" + _para.getHexColor() +
 				// START KGU#942 2021-02-26: Bugfix #945 Had been missing... (enh. #270)
@@ -281,7 +292,7 @@ public class XmlGenerator extends Generator
 			generateCode(_para.qs.get(i), _indent+this.getIndent(), "qPara");
 			// END KGU 2016-12-21
 		}
-		code.add(_indent + "</parallel>");
+		addCode(_indent + "</parallel>");
 	}
 
 	@Override
@@ -322,7 +333,7 @@ public class XmlGenerator extends Generator
 				specificAttributes += "\" " + forLoopAttributes[i] + "=\"" + BString.encodeToHtml(specificInfo[i]);
 			}
 		}
-		code.add(_indent+"<for text=\""+BString.encodeToHtml(_for.getText().getCommaText()) +
+		addCode(_indent+"<for text=\""+BString.encodeToHtml(_for.getText().getCommaText()) +
 				"\" comment=\"" + BString.encodeToHtml(_for.getComment().getCommaText()) +
 				specificAttributes +
 				"\" style=\"" + BString.encodeToHtml(_for.style.toString()) +
@@ -338,13 +349,13 @@ public class XmlGenerator extends Generator
 		//code.add(_indent+this.getIndent()+"</qFor>");
 		generateCode(_for.getBody(), _indent+this.getIndent(), "qFor");
 		// END KGU 2016-12-21
-		code.add(_indent + "</for>");
+		addCode(_indent + "</for>");
 	}
 	
 	@Override
 	protected void generateCode(While _while, String _indent)
 	{
-		code.add(_indent + "<while text=\"" + BString.encodeToHtml(_while.getText().getCommaText()) +
+		addCode(_indent + "<while text=\"" + BString.encodeToHtml(_while.getText().getCommaText()) +
 				"\" comment=\"" + BString.encodeToHtml(_while.getComment().getCommaText()) +
 				"\" color=\"" + _while.getHexColor() +
 				"\" disabled=\"" + (_while.isDisabled(true) ? "1" : "0") +
@@ -355,13 +366,13 @@ public class XmlGenerator extends Generator
 		//code.add(_indent+this.getIndent()+"</qWhile>");
 		generateCode(_while.getBody(), _indent+this.getIndent(), "qWhile");
 		// END KGU 2016-12-21
-		code.add(_indent + "</while>");
+		addCode(_indent + "</while>");
 	}
 	
 	@Override
 	protected void generateCode(Repeat _repeat, String _indent)
 	{
-		code.add(_indent + "<repeat text=\"" + BString.encodeToHtml(_repeat.getText().getCommaText()) +
+		addCode(_indent + "<repeat text=\"" + BString.encodeToHtml(_repeat.getText().getCommaText()) +
 				"\" comment=\"" + BString.encodeToHtml(_repeat.getComment().getCommaText()) +
 				"\" color=\"" + _repeat.getHexColor() +
 				"\" disabled=\"" + (_repeat.isDisabled(true) ? "1" : "0") +
@@ -372,13 +383,13 @@ public class XmlGenerator extends Generator
 		//code.add(_indent+this.getIndent()+"</qRepeat>");
 		generateCode(_repeat.getBody(), _indent+this.getIndent(), "qRepeat");
 		// END KGU 2016-12-21
-		code.add(_indent + "</repeat>");
+		addCode(_indent + "</repeat>");
 	}
 	
 	@Override
 	protected void generateCode(Forever _forever, String _indent)
 	{
-		code.add(_indent+"<forever comment=\"" +
+		addCode(_indent+"<forever comment=\"" +
 				BString.encodeToHtml(_forever.getComment().getCommaText()) + 
 				"\" color=\"" + _forever.getHexColor() +
 				"\" disabled=\"" + (_forever.isDisabled(true) ? "1" : "0") +
@@ -389,13 +400,13 @@ public class XmlGenerator extends Generator
 		//code.add(_indent+this.getIndent()+"</qForever>");
 		generateCode(_forever.getBody(), _indent+this.getIndent(), "qForever");
 		// END KGU 2016-12-21
-		code.add(_indent + "</forever>");
+		addCode(_indent + "</forever>");
 	}
 	
 	@Override
 	protected void generateCode(Call _call, String _indent)
 	{
-		code.add(_indent + "<call text=\"" + BString.encodeToHtml(_call.getText().getCommaText()) +
+		addCode(_indent + "<call text=\"" + BString.encodeToHtml(_call.getText().getCommaText()) +
 				"\" comment=\"" + BString.encodeToHtml(_call.getComment().getCommaText()) +
 				"\" color=\"" + _call.getHexColor() + 
 				"\" disabled=\"" + (_call.isDisabled(true) ? "1" : "0") +
@@ -408,7 +419,7 @@ public class XmlGenerator extends Generator
 	@Override
 	protected void generateCode(Jump _jump, String _indent)
 	{
-		code.add(_indent + "<jump text=\"" + BString.encodeToHtml(_jump.getText().getCommaText()) +
+		addCode(_indent + "<jump text=\"" + BString.encodeToHtml(_jump.getText().getCommaText()) +
 				"\" comment=\"" + BString.encodeToHtml(_jump.getComment().getCommaText()) +
 				"\" color=\"" + _jump.getHexColor() +
 				"\" disabled=\"" + (_jump.isDisabled(true) ? "1" : "0") +
@@ -419,7 +430,7 @@ public class XmlGenerator extends Generator
 	@Override
 	protected void generateCode(Try _try, String _indent)
 	{
-		code.add(_indent+"<try text=\""+BString.encodeToHtml(_try.getText().getCommaText()) +
+		addCode(_indent+"<try text=\""+BString.encodeToHtml(_try.getText().getCommaText()) +
 				"\" comment=\"" + BString.encodeToHtml(_try.getComment().getCommaText()) +
 				"\" color=\"" + _try.getHexColor() +
 				"\" disabled=\"" + (_try.isDisabled(true) ? "1" : "0") +
@@ -427,7 +438,7 @@ public class XmlGenerator extends Generator
 		generateCode(_try.qTry, _indent + this.getIndent(), "qTry");
 		generateCode(_try.qCatch, _indent + this.getIndent(), "qCatch");
 		generateCode(_try.qFinally, _indent + this.getIndent(), "qFinally");
-		code.add(_indent + "</try>");
+		addCode(_indent + "</try>");
 	}
 	// END KGU#686 2019-03-17
 
@@ -438,15 +449,84 @@ public class XmlGenerator extends Generator
 		if (_subqueue.getSize() == 0) {
 			colorAttr = " color=\"" + _subqueue.getHexColor() + "\"";
 		}
-		code.add(_indent + "<" + tagName + colorAttr + ">");
+		addCode(_indent + "<" + tagName + colorAttr + ">");
 		generateCode(_subqueue, _indent + this.getIndent());
-		code.add(_indent+"</" + tagName + ">");
+		addCode(_indent+"</" + tagName + ">");
 	}
 	// END KGU 2016-12-21
 	
+	// START KGU#1213 2026-10-19: Streaming alternative to generateCode(Root, String, boolean)
+	/**
+	 * Writes the NSD file content for the given {@link Root} directly to the given
+	 * {@link Writer}, without building the document in memory. The written text is
+	 * identical to the result of {@link #generateCode(Root, String, boolean)}.<br/>
+	 * The writer is flushed but not closed.
+	 * 
+	 * @param _root - the diagram to be saved
+	 * @param _indent - the initial indentation
+	 * @param _public - irrelevant here
+	 * @param _out - the target writer (should be buffered)
+	 * @throws IOException if writing failed
+	 */
+	public void writeCode(Root _root, String _indent, boolean _public, Writer _out) throws IOException
+	{
+		out = _out;
+		outStarted = false;
+		try {
+			generateLines(_root, _indent);
+			out.flush();
+		}
+		catch (UncheckedIOException ex) {
+			throw ex.getCause();
+		}
+		finally {
+			out = null;
+		}
+	}
+	
+	/**
+	 * Appends the given line either to {@link #code} or (in streaming mode) writes
+	 * it to {@link #out}, in the latter case preceded by a newline unless it is the
+	 * first line.
+	 * @param line - the line to be added (without newline)
+	 */
+	private void addCode(String line)
+	{
+		if (out == null) {
+			code.add(line);
+		}
+		else {
+			try {
+				if (outStarted) {
+					out.write('\n');
+				}
+				out.write(line);
+				outStarted = true;
+			}
+			catch (IOException ex) {
+				// The overridden generateCode methods may not throw IOExceptions
+				throw new UncheckedIOException(ex);
+			}
+		}
+	}
+	// END KGU#1213 2026-10-19
+	
 	@Override
 	public String generateCode(Root _root, String _indent, boolean _public)
 	{
+		// START KGU#1213 2026-10-19: Outsourced to allow streaming
+		generateLines(_root, _indent);
+		return code.getText();
+	}
+	
+	/**
+	 * Generates the NSD lines for the given {@link Root} via {@link #addCode(String)}.
+	 * @param _root - the diagram to be saved
+	 * @param _indent - the initial indentation
+	 */
+	private void generateLines(Root _root, String _indent)
+	{
+		// END KGU#1213 2026-10-19
 		String pr = _root.isProgram() ? "program" : "sub";
 		// START KGU#376 2017-05-16: Enh. #389
 		if (_root.isInclude()) {
@@ -528,7 +608,7 @@ public class XmlGenerator extends Generator
 		}
 		// END KGU#362 2017-03-13
 
-		code.add("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+		addCode("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
 		//code.add("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>");
 		// START KGU 2015-12-04: Might not be so bad an idea to write the product version into the file
 		//code.add("<root xmlns:nsd=\"http://structorizer.fisch.lu/\" text=\""+BString.encodeToHtml(_root.getText().getCommaText())+"\" comment=\""+
@@ -536,7 +616,7 @@ public class XmlGenerator extends Generator
 		//code.add("<root xmlns:nsd=\"http://structorizer.fisch.lu/\" version=\"" + Element.E_VERSION + "\" text=\"" +
 		// START KGU#563 2018-07-26: Issue #566
 		//code.add("<root xmlns:nsd=\"http://structorizer.fisch.lu/\" version=\"" + Element.E_VERSION + "\"" +
-		code.add("<root xmlns:nsd=\"" + Element.E_HOME_PAGE + "\" version=\"" + Element.E_VERSION + "\"" +
+		addCode("<root xmlns:nsd=\"" + Element.E_HOME_PAGE + "\" version=\"" + Element.E_VERSION + "\"" +
 		// END KGU#563 2018-07-26
 								pp_attributes + " text=\"" + 
 		// END KGU#257 2016-09-25
@@ -550,9 +630,7 @@ public class XmlGenerator extends Generator
 		//code.add(_indent+"</children>");
 		generateCode(_root.children, _indent, "children");
 		// END KGU 2016-12-21
-		code.add("</root>");
-		
-		return code.getText();
+		addCode("</root>");
 	}
 
 // START KGU#763 2019-11-13: Bugfix #778 - moved to class Generator
@@ -257,6 +257,11 @@ package lu.fisch.structorizer.gui;
  *      Kay Gürtzig     2025-08-08      Issue #1204: Mechanism #1114 extended to Root elements.
  *      Kay Gürtzig     2025-08-29      Bugfix #1212: Cursor navigation through TRY elements was compromised
  *                                      by hidden FNALLY sections (#714), cf.#751.
+ *      Kay Gürtzig     2026-10-19      KGU#1213: NSD files now written via XmlGenerator.writeCode() (streaming)
+ *      Kay Gürtzig     2026-10-19      KGU#1214: Diagram copy to clipboard via NSDSelection (binary snapshot)
+ *      Kay Gürtzig     2026-10-19      KGU#1221: exportPNGmulti() renders and streams every tile separately
+ *      Kay Gürtzig     2026-10-19      KGU#1210: Shared C header definition cache released after each code import
+ *      Kay Gürtzig     2026-10-19      KGU#1211: Copybook cache released after each code import
  *
  ******************************************************************************************************
  *
@@ -3497,7 +3502,10 @@ public class Diagram extends JPanel implements MouseMotionListener, MouseListene
 			// END KGU#94 2015-12-04
 			Writer out = new OutputStreamWriter(fos, "UTF-8");
 			XmlGenerator xmlgen = new XmlGenerator();
-			out.write(xmlgen.generateCode(root, "\t", false));
+			// START KGU#1213 2026-10-19: Stream the content rather than building it in memory
+			//out.write(xmlgen.generateCode(root, "\t", false));
+			xmlgen.writeCode(root, "\t", false, out);
+			// END KGU#1213 2026-10-19
 			out.close();
 
 			// START KGU#94 2015-12-04: Bugfix #40 part 2
@@ -3991,8 +3999,19 @@ public class Diagram extends JPanel implements MouseMotionListener, MouseListene
 			// START KGU#177 2016-04-14: Enh. #158 - Allow to copy a diagram via clipboard
 			//eCopy = selected.copy();
 			if (selected instanceof Root) {
-				XmlGenerator xmlgen = new XmlGenerator();
-				StringSelection toClip = new StringSelection(xmlgen.generateCode(root, "\t", false));
+				// START KGU#1214 2026-10-19: Transfer a snapshot, XML only on demand
+				//XmlGenerator xmlgen = new XmlGenerator();
+				//StringSelection toClip = new StringSelection(xmlgen.generateCode(root, "\t", false));
+				Transferable toClip = null;
+				try {
+					toClip = new NSDSelection(root);
+				}
+				catch (IOException ex) {
+					logger.log(Level.WARNING, "Diagram snapshot failed", ex);
+					XmlGenerator xmlgen = new XmlGenerator();
+					toClip = new StringSelection(xmlgen.generateCode(root, "\t", false));
+				}
+				// END KGU#1214 2026-10-19
 				Clipboard clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
 				clipboard.setContents(toClip, this);
 			} else {
@@ -6288,73 +6307,95 @@ public class Diagram extends JPanel implements MouseMotionListener, MouseListene
 				int rows = Integer.valueOf(JOptionPane.showInputDialog(null, Menu.msgDialogExpRows.getText(), "3"));
 				// END KGU#218 2016-07-28
 
-				BufferedImage image = new BufferedImage(root.width + 1, root.height + 1, BufferedImage.TYPE_4BYTE_ABGR);
-				// START KGU#221 2016-07-28: Issue #208 Need to achieve transparent background
-				//printAll(image.getGraphics());
-				// START KGU#906 2021-01-06: Enh. #905
-				//redraw(image.createGraphics());
-				redraw(image.createGraphics(), DrawingContext.DC_IMAGE_EXPORT);
-				// END KGU#906 2021-01-06
-				// END KGU#221 2016-07-28
-				// source: http://answers.yahoo.com/question/index?qid=20110821001157AAcdXVk
-				// source: http://kalanir.blogspot.com/2010/02/how-to-split-image-into-chunks-java.html
+				// START KGU#1221 2026-10-19: Render every tile separately instead of cutting it from a full image
+				//BufferedImage image = new BufferedImage(root.width + 1, root.height + 1, BufferedImage.TYPE_4BYTE_ABGR);
+				//// START KGU#221 2016-07-28: Issue #208 Need to achieve transparent background
+				////printAll(image.getGraphics());
+				//// START KGU#906 2021-01-06: Enh. #905
+				////redraw(image.createGraphics());
+				//redraw(image.createGraphics(), DrawingContext.DC_IMAGE_EXPORT);
+				//// END KGU#906 2021-01-06
+				//// END KGU#221 2016-07-28
+				//// source: http://answers.yahoo.com/question/index?qid=20110821001157AAcdXVk
+				//// source: http://kalanir.blogspot.com/2010/02/how-to-split-image-into-chunks-java.html
+				//try {
+				//	// 1. Load image file into memory
+				//	//File file = new File("mario.png"); // mario.png in the same working directory
+				//	//FileInputStream fis = new FileInputStream(file);
+				//	//BufferedImage image = ImageIO.read(fis);
+
+				//	// 2. Decide the number of pieces, and calculate the size of each chunk
+				//	//int rows = 4;
+				//	//int cols = 6;
+				//	int chunks = rows * cols;
+
+				//	int chunkWidth = image.getWidth() / cols;
+				//	int chunkHeight = image.getHeight() / rows;
+				//	// START KGU#223 2016-07-28: Bugfix #209 - identify the integer division defects
+				//	int widthDefect = image.getWidth() % cols;
+				//	int heightDefect = image.getHeight() % rows;
+				//	// END KGU#223 2016-07-28
+
+				//	// 3. Define an Image array to hold image chunks
+				//	int count = 0;
+				//	BufferedImage imgs[] = new BufferedImage[chunks];
+
+				//	// 4. Fill the Image array with split image parts
+				//	for (int x = 0; x < rows; x++) {
+				//		for (int y = 0; y < cols; y++) {
+				//			//Initialize the image array with image chunks
+				//			// START KGU#223 2016-07-28: Bugfix #209
+				//			// We must compensate the rounding defects lest the right and lower borders should be cut 
+				//			//imgs[count] = new BufferedImage(chunkWidth, chunkHeight, image.getType());
+				//			int tileWidth = chunkWidth + (y < cols - 1 ? 0 : widthDefect);
+				//			int tileHeight = chunkHeight + (x < rows - 1 ? 0 : heightDefect);
+				//			imgs[count] = new BufferedImage(tileWidth, tileHeight, image.getType());
+				//			// END KGU#223 2016-07-28
+
+				//			// draws the image chunk
+				//			Graphics2D gr = imgs[count++].createGraphics();
+				//			// START KGU#223 2016-07-28: Bugfix #209
+				//			//gr.drawImage(image, 0, 0, chunkWidth, chunkHeight, chunkWidth * y, chunkHeight * x, chunkWidth * y + chunkWidth, chunkHeight * x + chunkHeight, null);
+				//			// We need to achieve transparent background
+				//			gr.drawImage(image, 0, 0, tileWidth, tileHeight, chunkWidth * y, chunkHeight * x, chunkWidth * y + tileWidth, chunkHeight * x + tileHeight, null);
+				//			// END KGU#223 2016-07-28
+				//			gr.dispose();
+				//		}
+				//	}
+
+				//	// 5. Save mini images into image files
+				//	// START KGU#224 2016-07-28: Issue #209 - provide the original base name
+				//	file = new File(filename);
+				//	filename = file.getAbsolutePath();
+				//	// END KGU#224 2016-07-28
+				//	for (int i = 0; i < imgs.length; i++) {
+				//		// START KGU#224 2016-07-28: Issue #209 - Better file name coding
+				//		//File f = new File(file.getAbsolutePath().replace(".png", "-"+i+".png"));
+				//		File f = new File(filename.replace(".png", String.format("-%1$02d-%2$02d.png", i / cols, i % cols)));
+				//		// END KGU#224 2016-07-28
+				//		ImageIO.write(imgs[i], "png", f);
+				//	}
+				int width = root.width + 1;
+				int height = root.height + 1;
 				try {
-					// 1. Load image file into memory
-					//File file = new File("mario.png"); // mario.png in the same working directory
-					//FileInputStream fis = new FileInputStream(file);
-					//BufferedImage image = ImageIO.read(fis);
-
-					// 2. Decide the number of pieces, and calculate the size of each chunk
-					//int rows = 4;
-					//int cols = 6;
-					int chunks = rows * cols;
-
-					int chunkWidth = image.getWidth() / cols;
-					int chunkHeight = image.getHeight() / rows;
-					// START KGU#223 2016-07-28: Bugfix #209 - identify the integer division defects
-					int widthDefect = image.getWidth() % cols;
-					int heightDefect = image.getHeight() % rows;
-					// END KGU#223 2016-07-28
-
-					// 3. Define an Image array to hold image chunks
-					int count = 0;
-					BufferedImage imgs[] = new BufferedImage[chunks];
-
-					// 4. Fill the Image array with split image parts
+					int chunkWidth = width / cols;
+					int chunkHeight = height / rows;
+					// We must compensate the rounding defects lest the right and lower borders should be cut
+					int widthDefect = width % cols;
+					int heightDefect = height % rows;
+
+					file = new File(filename);
+					filename = file.getAbsolutePath();
 					for (int x = 0; x < rows; x++) {
 						for (int y = 0; y < cols; y++) {
-							//Initialize the image array with image chunks
-							// START KGU#223 2016-07-28: Bugfix #209
-							// We must compensate the rounding defects lest the right and lower borders should be cut 
-							//imgs[count] = new BufferedImage(chunkWidth, chunkHeight, image.getType());
 							int tileWidth = chunkWidth + (y < cols - 1 ? 0 : widthDefect);
 							int tileHeight = chunkHeight + (x < rows - 1 ? 0 : heightDefect);
-							imgs[count] = new BufferedImage(tileWidth, tileHeight, image.getType());
-							// END KGU#223 2016-07-28
-
-							// draws the image chunk
-							Graphics2D gr = imgs[count++].createGraphics();
-							// START KGU#223 2016-07-28: Bugfix #209
-							//gr.drawImage(image, 0, 0, chunkWidth, chunkHeight, chunkWidth * y, chunkHeight * x, chunkWidth * y + chunkWidth, chunkHeight * x + chunkHeight, null);
-							// We need to achieve transparent background
-							gr.drawImage(image, 0, 0, tileWidth, tileHeight, chunkWidth * y, chunkHeight * x, chunkWidth * y + tileWidth, chunkHeight * x + tileHeight, null);
-							// END KGU#223 2016-07-28
-							gr.dispose();
+							Rectangle tile = new Rectangle(chunkWidth * y, chunkHeight * x, tileWidth, tileHeight);
+							File f = new File(filename.replace(".png", String.format("-%1$02d-%2$02d.png", x, y)));
+							new TiledPNGWriter(tile).write(f, (g, strip) -> redraw(g, DrawingContext.DC_IMAGE_EXPORT));
 						}
 					}
-
-					// 5. Save mini images into image files
-					// START KGU#224 2016-07-28: Issue #209 - provide the original base name
-					file = new File(filename);
-					filename = file.getAbsolutePath();
-					// END KGU#224 2016-07-28
-					for (int i = 0; i < imgs.length; i++) {
-						// START KGU#224 2016-07-28: Issue #209 - Better file name coding
-						//File f = new File(file.getAbsolutePath().replace(".png", "-"+i+".png"));
-						File f = new File(filename.replace(".png", String.format("-%1$02d-%2$02d.png", i / cols, i % cols)));
-						// END KGU#224 2016-07-28
-						ImageIO.write(imgs[i], "png", f);
-					}
+				// END KGU#1221 2026-10-19
 				} catch (Exception e) {
 					JOptionPane.showMessageDialog(this.getFrame(),
 							Menu.msgErrorImageSave.getText(),
@@ -7029,12 +7070,24 @@ public class Diagram extends JPanel implements MouseMotionListener, MouseListene
 			//System.out.println("*** " + this.getClass().getSimpleName()+" going to work!");
 			this.parser.setSwingWorker(this);
 			List<Root> roots = null;
+			// START KGU#1210 2026-10-19: The shared definition caches are only meant for batch imports
+			try {
+			// END KGU#1210 2026-10-19
 			roots = parser.parse(file.getAbsolutePath(),
 					ini.getProperty("impImportCharset", "ISO-8859-1"),
 					// START KGU#354 2017-04-27: Enh. #354
 					logPath
 					// END KGU#354 2017-04-27
 					);
+			// START KGU#1210 2026-10-19
+			}
+			finally {
+				CPreParser.clearDefinitionCache();
+				// START KGU#1211 2026-10-19
+				CopybookCache.getInstance().clear();
+				// END KGU#1211 2026-10-19
+			}
+			// END KGU#1210 2026-10-19
 			return roots;
 		}
 
@@ -10386,6 +10439,61 @@ public class Diagram extends JPanel implements MouseMotionListener, MouseListene
 		}
 	}
 
+	// START KGU#1214 2026-10-19: Fast diagram transfer via binary snapshots
+	/**
+	 * Clipboard content for a copied diagram. Within this JVM the diagram is transferred
+	 * as {@link DiagramSnapshot} (fast), other applications obtain the NSD XML text, which
+	 * is only generated on demand.
+	 */
+	public static class NSDSelection implements Transferable {
+
+		/** JVM-local flavor for the snapshot bytes */
+		public static final DataFlavor snapshotFlavor = new DataFlavor(
+				DataFlavor.javaJVMLocalObjectMimeType + ";class=\"[B\"", "Structorizer diagram snapshot");
+
+		private static final DataFlavor[] supportedFlavors = {snapshotFlavor, DataFlavor.stringFlavor};
+
+		private final byte[] snapshot;
+		private String xml = null;
+
+		/**
+		 * Creates the transferable from the current state of the given diagram
+		 * @param root - the diagram to be transferred
+		 * @throws IOException if the diagram could not be encoded
+		 */
+		public NSDSelection(Root root) throws IOException {
+			this.snapshot = DiagramSnapshot.encode(root);
+		}
+
+		@Override
+		public DataFlavor[] getTransferDataFlavors() {
+			return supportedFlavors.clone();
+		}
+
+		@Override
+		public boolean isDataFlavorSupported(DataFlavor flavor) {
+			return snapshotFlavor.equals(flavor) || DataFlavor.stringFlavor.equals(flavor);
+		}
+
+		@Override
+		public Object getTransferData(DataFlavor flavor) throws UnsupportedFlavorException, IOException {
+			if (snapshotFlavor.equals(flavor)) {
+				return snapshot.clone();
+			}
+			else if (DataFlavor.stringFlavor.equals(flavor)) {
+				synchronized (this) {
+					if (xml == null) {
+						Root root = (Root)DiagramSnapshot.decode(snapshot);
+						xml = new XmlGenerator().generateCode(root, "\t", false);
+					}
+				}
+				return xml;
+			}
+			throw new UnsupportedFlavorException(flavor);
+		}
+	}
+	// END KGU#1214 2026-10-19
+
 	/*========================================
 	 * ANALYSER
 	 *========================================*/
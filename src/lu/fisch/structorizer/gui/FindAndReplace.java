@@ -60,6 +60,11 @@ package lu.fisch.structorizer.gui;
  *      Kay Gürtzig     2021-03-09      Issue #966: Tuning of highlight colours in case of dark luf themes
  *      Kay Gürtzig     2022-08-15      Bugfix #1062: Mode changes didn't reset the result tree
  *      Kay Gürtzig     2025-08-08      Bugfix #1203: Analyser wasn't restarted after successful replacements
+ *      Kay Gürtzig     2026-10-19      KGU#1229: Search pattern compiled once per search, parallel match phase,
+ *                                      results over several diagrams retrieved in background
+ *      Kay Gürtzig     2026-10-19      KGU#1230: Diagrams excluded by the DiagramIndex aren't searched
+ *      Kay Gürtzig     2026-10-19      KGU#1229: Workaround for #675 no longer repeats a background search
+ *      Kay Gürtzig     2026-10-19      KGU#1229: Compiled search criteria cached until the pattern or an option changes
  *
  ******************************************************************************************************
  *
@@ -89,8 +94,13 @@ import java.awt.event.KeyListener;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Enumeration;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.ListIterator;
+import java.util.Set;
 import java.util.Vector;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -114,6 +124,8 @@ import javax.swing.JSeparator;
 import javax.swing.JTextPane;
 import javax.swing.JTree;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.UIManager;
 import javax.swing.border.TitledBorder;
 import javax.swing.event.PopupMenuEvent;
@@ -127,9 +139,11 @@ import javax.swing.text.StyledDocument;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeCellRenderer;
 import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreeNode;
 import javax.swing.tree.TreePath;
 import javax.swing.tree.TreeSelectionModel;
 
+import lu.fisch.structorizer.archivar.DiagramIndex;
 import lu.fisch.structorizer.archivar.IRoutinePool;
 import lu.fisch.structorizer.archivar.IRoutinePoolListener;
 import lu.fisch.structorizer.arranger.Arranger;
@@ -203,6 +217,12 @@ public class FindAndReplace extends LangFrame implements IRoutinePoolListener /*
 	 */
 	private DefaultMutableTreeNode currentNode = null;
 	private DefaultTreeModel resultModel = null;
+	// START KGU#1229 2026-10-19: Background retrieval over several diagrams
+	/** Retrieves the results over several diagrams in background (null if not running) */
+	private SearchWorker searchWorker = null;
+	/** The compiled criteria of the recent search (to be accessed on the EDT only) */
+	private SearchCriteria searchCriteria = null;
+	// END KGU#1229 2026-10-19
 	
 	// Pre-compiled matchers for word separation
 	private static final Pattern PTRN_WORDL = Pattern.compile("(\\n|.)*?\\W");
@@ -239,6 +259,256 @@ public class FindAndReplace extends LangFrame implements IRoutinePoolListener /*
 	/** The commanding {@link Diagram} */
 	private Diagram diagram;
 	
+	// START KGU#1229 2026-10-19: Compiled search criteria, parallel match phase
+	/**
+	 * Immutable snapshot of the current search criteria with the search pattern
+	 * compiled once per search. Other than the dialog components, it may be used
+	 * by several threads concurrently.
+	 */
+	private static final class SearchCriteria {
+		/** Word separator for the whole-word matching */
+		private static final Pattern WORD_SEPARATOR = Pattern.compile("\\W+");
+		private final String searchPattern;
+		private final boolean caseSensitive;
+		private final boolean regex;
+		private final boolean wholeWord;
+		private final boolean inTexts;
+		private final boolean inComments;
+		private final boolean[] elementTypes;
+		/** The compiled search pattern (null in whole-word mode) */
+		private final Pattern pattern;
+		
+		/**
+		 * Takes the search criteria from the components of the given dialog (to
+		 * be called on the event dispatch thread).
+		 * 
+		 * @param dialog - the {@link FindAndReplace} dialog
+		 * @throws PatternSyntaxException if the regular expression is corrupt
+		 */
+		public SearchCriteria(FindAndReplace dialog) throws PatternSyntaxException
+		{
+			searchPattern = (String)dialog.cmbSearchPattern.getEditor().getItem();
+			caseSensitive = dialog.chkCaseSensitive.isSelected();
+			regex = dialog.chkRegEx.isSelected();
+			wholeWord = !regex && dialog.chkWholeWord.isEnabled() && dialog.chkWholeWord.isSelected();
+			inTexts = dialog.chkInTexts.isSelected();
+			inComments = dialog.chkInComments.isSelected();
+			elementTypes = new boolean[dialog.chkElementTypes.length];
+			for (int i = 0; i < elementTypes.length; i++) {
+				elementTypes[i] = dialog.chkElementTypes[i].isSelected();
+			}
+			if (regex) {
+				pattern = Pattern.compile(searchPattern);
+			}
+			else if (wholeWord) {
+				pattern = null;
+			}
+			else if (caseSensitive) {
+				pattern = Pattern.compile(Pattern.quote(searchPattern));
+			}
+			else {
+				pattern = Pattern.compile(Pattern.quote(searchPattern.toLowerCase()));
+			}
+		}
+		
+		/**
+		 * Checks whether these criteria still comply with the components of the
+		 * given dialog (to be called on the event dispatch thread).
+		 * 
+		 * @param dialog - the {@link FindAndReplace} dialog
+		 * @return {@code true} if neither the search pattern nor an option differs
+		 */
+		public boolean isValidFor(FindAndReplace dialog)
+		{
+			if (!searchPattern.equals(dialog.cmbSearchPattern.getEditor().getItem())
+					|| caseSensitive != dialog.chkCaseSensitive.isSelected()
+					|| regex != dialog.chkRegEx.isSelected()
+					|| wholeWord != (!regex && dialog.chkWholeWord.isEnabled() && dialog.chkWholeWord.isSelected())
+					|| inTexts != dialog.chkInTexts.isSelected()
+					|| inComments != dialog.chkInComments.isSelected()
+					|| elementTypes.length != dialog.chkElementTypes.length) {
+				return false;
+			}
+			for (int i = 0; i < elementTypes.length; i++) {
+				if (elementTypes[i] != dialog.chkElementTypes[i].isSelected()) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		/**
+		 * Checks whether and how many matches of the search criteria are in the
+		 * given {@link Element} {@code _ele}.
+		 * 
+		 * @param _ele - the Structorizer element to be scrutinized.
+		 * @return number of matches within the relevant text fields.
+		 */
+		public int countMatches(Element _ele)
+		{
+			int nMatches = 0;
+			String elementClass = _ele.getClass().getSimpleName().toUpperCase();
+			if (elementTypes[ElementType.valueOf(elementClass).ordinal()]) {
+				if (inTexts) {
+					nMatches += countMatches(_ele.getAliasText());
+				}
+				if (inComments) {
+					nMatches += countMatches(_ele.getComment());
+				}
+			}
+			return nMatches;
+		}
+		
+		/**
+		 * Determines the number of matches in the given {@link StringList} {@code text}
+		 * 
+		 * @param text - an element text or comment split into lines.
+		 * @return the number of matches
+		 */
+		public int countMatches(StringList text)
+		{
+			int nMatches = 0;
+			String brokenText = text.getText();
+			if (wholeWord) {
+				for (String word: WORD_SEPARATOR.split(brokenText)) {
+					if (caseSensitive && word.equals(searchPattern) || !caseSensitive && word.equalsIgnoreCase(searchPattern)) {
+						nMatches++;
+					}
+				}
+			}
+			else {
+				if (!regex && !caseSensitive) {
+					brokenText = brokenText.toLowerCase();
+				}
+				Matcher matcher = pattern.matcher(brokenText);
+				while (matcher.find()) {
+					// Like String.split(), ignore an empty match at the very beginning
+					if (matcher.end() > 0) {
+						nMatches++;
+					}
+				}
+			}
+			return nMatches;
+		}
+	}
+	
+	/**
+	 * Retrieval task for a single {@link Root}: the element range to be searched
+	 * and, after {@link #match(SearchCriteria)}, the matching elements.
+	 */
+	private final class RootSearch {
+		/** Position of the Root among the searched diagrams */
+		public final int index;
+		public final Root root;
+		public final IElementSequence range;
+		/** Whether the Root itself is subject to the search */
+		public final boolean withRoot;
+		/** The matching elements in traversal order */
+		public LinkedList<Element> elements = null;
+		
+		public RootSearch(int index, Root root, IElementSequence range, boolean withRoot)
+		{
+			this.index = index;
+			this.root = root;
+			this.range = range;
+			this.withRoot = withRoot;
+		}
+		
+		/**
+		 * Retrieves the matching {@link #elements} (may be done on any thread).
+		 * 
+		 * @param criteria - the compiled search criteria
+		 */
+		public void match(SearchCriteria criteria)
+		{
+			try {
+				LinkedList<Element> found = findElements(range, true, criteria);
+				if (withRoot && criteria.countMatches(root) > 0) {
+					found.addFirst(root);
+				}
+				elements = found;
+			}
+			catch (RuntimeException ex) {
+				// E.g. if the diagram is modified meanwhile
+				logger.log(Level.WARNING, "Search in diagram " + root.getMethodName() + " failed", ex);
+				elements = new LinkedList<Element>();
+			}
+		}
+	}
+	
+	/**
+	 * Matches several diagrams in parallel in background and adds the results
+	 * to the result tree (in the order of the diagrams) as soon as they arrive.
+	 */
+	private final class SearchWorker extends SwingWorker<Void, Void> {
+		private final List<RootSearch> tasks;
+		private final SearchCriteria criteria;
+		/** Indices of the tasks with results already shown in the tree */
+		private final BitSet shown = new BitSet();
+		/** Whether the node lines are to be re-laid out when done (issue #675 workaround) */
+		private boolean relayoutWhenDone = false;
+		
+		public SearchWorker(List<RootSearch> tasks, SearchCriteria criteria)
+		{
+			this.tasks = tasks;
+			this.criteria = criteria;
+		}
+		
+		@Override
+		protected Void doInBackground()
+		{
+			// Results are handed over via invokeLater rather than publish() because
+			// the latter does not ensure that all chunks are processed before done()
+			tasks.parallelStream().forEach(task -> {
+				if (!isCancelled()) {
+					task.match(criteria);
+					SwingUtilities.invokeLater(() -> showResult(task));
+				}
+			});
+			return null;
+		}
+		
+		private void showResult(RootSearch task)
+		{
+			if (searchWorker != this || task.elements.isEmpty()) {
+				return;
+			}
+			// Keep the order of the diagrams
+			addResultNodes(task, shown.get(0, task.index).cardinality());
+			shown.set(task.index);
+			treResults.setEnabled(true);
+		}
+		
+		@Override
+		protected void done()
+		{
+			if (searchWorker == this) {
+				searchWorker = null;
+				if (relayoutWhenDone) {
+					relayoutResultNodes();
+				}
+				if (currentNode == null) {
+					selectInitialResult();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Makes the result tree recompute the sizes of all node lines, which may
+	 * otherwise be truncated with scaled GUI (issue #675).
+	 */
+	private void relayoutResultNodes()
+	{
+		Enumeration<TreeNode> nodes = resultTop.depthFirstEnumeration();
+		while (nodes.hasMoreElements()) {
+			resultModel.nodeChanged(nodes.nextElement());
+		}
+		treResults.revalidate();
+		treResults.repaint();
+	}
+	// END KGU#1229 2026-10-19
+	
 	private class MyTreeCellRenderer extends DefaultTreeCellRenderer {
 
 		public MyTreeCellRenderer() {}
@@ -1380,6 +1650,9 @@ public class FindAndReplace extends LangFrame implements IRoutinePoolListener /*
 		}
 		// END KGU#684 2019-06-13
 //		treeIterator = null;
+		// START KGU#1229 2026-10-19: A running background search is outdated
+		cancelSearch();
+		// END KGU#1229 2026-10-19
 		resultTop.removeAllChildren();
 		currentNode = null;
 		clearCurrentElement();
@@ -1454,11 +1727,27 @@ public class FindAndReplace extends LangFrame implements IRoutinePoolListener /*
 		// PHASE 1: Identify and set up the element traversing strategy
 		// Previous search exhausted? Then retrieve results
 		if (currentNode == null) {
-			fillResultTree();
+			// START KGU#1229 2026-10-19: A mere find may retrieve the results in background
+			//fillResultTree();
+			boolean async = !replace && gotoNext;
+			if (async && searchWorker != null) {
+				// Results are still arriving
+				return false;
+			}
+			fillResultTree(async);
+			// END KGU#1229 2026-10-19
 			// START KGU#647 2019-02-07: FIXME - Empirical workaround for issue #675 (truncated node lines)
 			if (scaleFactor > 1.0 && !WINDOWS_LaF_MATCHER.reset(UIManager.getLookAndFeel().getName()).matches()) {
 				// No idea why exactly, the lines get truncated (ends replaced by ellipse on the first) on the first attempt
-				fillResultTree();
+				// START KGU#1229 2026-10-19: Don't repeat a background search, re-layout when done
+				//fillResultTree();
+				if (searchWorker != null) {
+					searchWorker.relayoutWhenDone = true;
+				}
+				else {
+					fillResultTree(async);
+				}
+				// END KGU#1229 2026-10-19
 			}
 			// END KGU#647 2019-02-07
 			gotoNext = false;
@@ -1632,13 +1921,24 @@ public class FindAndReplace extends LangFrame implements IRoutinePoolListener /*
 	/**
 	 * Initializes the result tree and sets {@link #currentNode} (if possible).
 	 * 
+	 * @param async - whether the results over several diagrams may be retrieved
+	 *    in background (then {@link #currentNode} will be set on completion)
 	 * @see #updateResultTree()
 	 */
-	private void fillResultTree() {
+	// START KGU#1229 2026-10-19: Compiled criteria, parallel (and possibly asynchronous) match phase
+	//private void fillResultTree() {
+	private void fillResultTree(boolean async) {
+		cancelSearch();
+	// END KGU#1229 2026-10-19
 		resultTop.removeAllChildren();
 		resultModel.reload();
 		clearCurrentElement();
-		DefaultMutableTreeNode lastNode = null;
+		// START KGU#1229 2026-10-19
+		//DefaultMutableTreeNode lastNode = null;
+		currentNode = null;
+		SearchCriteria criteria = getSearchCriteria();
+		ArrayList<RootSearch> tasks = new ArrayList<RootSearch>();
+		// END KGU#1229 2026-10-19
 		// START KGU#712 2019-06-13 CR
 		//Vector<Root> roots = Arranger.getSortedRoots();
 		Scope scope = (Scope)this.cmbScope.getSelectedItem();
@@ -1657,6 +1957,14 @@ public class FindAndReplace extends LangFrame implements IRoutinePoolListener /*
 		if (!roots.contains(diagram.getRoot())) {
 			roots.add(0, diagram.getRoot());
 		}
+		// START KGU#1230 2026-10-19: Let the word index exclude diagrams for literal searches
+		Set<Root> candidates = null;
+		if (scope == Scope.OPENED_DIAGRAMS && !criteria.regex && !Element.E_APPLY_ALIASES
+				&& Arranger.hasInstance()) {
+			candidates = DiagramIndex.getInstance(Arranger.getInstance())
+					.findCandidateRoots(criteria.searchPattern, criteria.wholeWord);
+		}
+		// END KGU#1230 2026-10-19
 		for (Root root: roots) {
 			// START KGU#918 2021-01-27: Bugfix #918 Root type filter was forgotten
 			if (scope == Scope.OPENED_DIAGRAMS && 
@@ -1668,6 +1976,12 @@ public class FindAndReplace extends LangFrame implements IRoutinePoolListener /*
 			}
 			// END KGU#918 2021-01-27
 			// END KGU#918 2021-01-27
+			// START KGU#1230 2026-10-19
+			if (candidates != null && root != diagram.getRoot() && !candidates.contains(root)) {
+				// The index guarantees there is no match in this diagram
+				continue;
+			}
+			// END KGU#1230 2026-10-19
 			IElementSequence range = null;
 			Element selected = diagram.getSelected();
 			if (scope == Scope.CURRENT_SELECTION && root == diagram.getRoot()) {
@@ -1684,27 +1998,65 @@ public class FindAndReplace extends LangFrame implements IRoutinePoolListener /*
 			else {
 				range = root.children;
 			}
-			LinkedList<Element> elements = this.findElements(range, true);
-			if ((scope != Scope.CURRENT_SELECTION || selected == root) && checkElementMatch(root) > 0) {
-				elements.addFirst(root);
-			}
-			if (!elements.isEmpty()) {
-				DefaultMutableTreeNode rootNode = new DefaultMutableTreeNode(root);
-				//this.resultTop.add(rootNode);
-				this.resultModel.insertNodeInto(rootNode, this.resultTop, this.resultTop.getChildCount());
-				for (Element ele: elements) {
-					lastNode = new DefaultMutableTreeNode(ele);
-					if (currentNode == null) {
-						currentNode = lastNode;
-					}
-					//rootNode.add(lastNode);
-					this.resultModel.insertNodeInto(lastNode, rootNode, rootNode.getChildCount());					
-				}
+			// START KGU#1229 2026-10-19: Only gather the tasks here
+			//LinkedList<Element> elements = this.findElements(range, true);
+			//if ((scope != Scope.CURRENT_SELECTION || selected == root) && checkElementMatch(root) > 0) {
+			//	elements.addFirst(root);
+			//}
+			//...
+			tasks.add(new RootSearch(tasks.size(), root, range,
+					scope != Scope.CURRENT_SELECTION || selected == root));
+			// END KGU#1229 2026-10-19
+		}
+		// START KGU#1229 2026-10-19: Match the diagrams in parallel
+		if (async && tasks.size() > 1) {
+			treResults.clearSelection();
+			treResults.setEnabled(false);
+			searchWorker = new SearchWorker(tasks, criteria);
+			searchWorker.execute();
+			return;
+		}
+		tasks.parallelStream().forEach(task -> task.match(criteria));
+		for (RootSearch task: tasks) {
+			addResultNodes(task, resultTop.getChildCount());
+		}
+		selectInitialResult();
+	}
+	
+	/**
+	 * Adds the nodes for the results of the given {@link RootSearch} {@code task}
+	 * (if any) to the result tree.
+	 * 
+	 * @param task - a completed retrieval task
+	 * @param position - the index for the diagram node among the top-level nodes
+	 */
+	private void addResultNodes(RootSearch task, int position)
+	{
+		if (!task.elements.isEmpty()) {
+			DefaultMutableTreeNode rootNode = new DefaultMutableTreeNode(task.root);
+			for (Element ele: task.elements) {
+				rootNode.add(new DefaultMutableTreeNode(ele));
 			}
+			// A single model event for the entire subtree
+			this.resultModel.insertNodeInto(rootNode, this.resultTop, position);
 		}
-		if (rbUp.isSelected()) {
-			currentNode = lastNode;
+	}
+	
+	/**
+	 * Sets {@link #currentNode} to the first or last result (depending on the
+	 * search direction) and selects it in the result tree.
+	 */
+	private void selectInitialResult()
+	{
+		if (resultTop.getChildCount() > 0) {
+			if (rbUp.isSelected()) {
+				currentNode = resultTop.getLastLeaf();
+			}
+			else {
+				currentNode = resultTop.getFirstLeaf();
+			}
 		}
+		// END KGU#1229 2026-10-19
 		if (currentNode != null) {
 			TreePath path = new TreePath(currentNode.getPath());
 			treResults.scrollPathToVisible(path);
@@ -1820,21 +2172,21 @@ public class FindAndReplace extends LangFrame implements IRoutinePoolListener /*
 	 */
 	private int checkElementMatch(Element _ele)
 	{
-		int nMatches = 0;
-		String elementClass = _ele.getClass().getSimpleName().toUpperCase();
-		ElementType type = ElementType.valueOf(elementClass);
-		if (chkElementTypes[type.ordinal()].isSelected()) {
-			if (chkInTexts.isSelected()) {
-				// START KGU#480 2018-01-22: Enh. #490
-				//nMatches += textMatches(_ele.getText());
-				nMatches += textMatches(_ele.getAliasText());
-				// END KGU#480 2018-01-22
-			}
-			if (chkInComments.isSelected()) {
-				nMatches += textMatches(_ele.getComment());
-			}
-		}
-		return nMatches;
+		// START KGU#1229 2026-10-19: Delegated to SearchCriteria
+		//int nMatches = 0;
+		//String elementClass = _ele.getClass().getSimpleName().toUpperCase();
+		//ElementType type = ElementType.valueOf(elementClass);
+		//if (chkElementTypes[type.ordinal()].isSelected()) {
+		//	if (chkInTexts.isSelected()) {
+		//		nMatches += textMatches(_ele.getAliasText());
+		//	}
+		//	if (chkInComments.isSelected()) {
+		//		nMatches += textMatches(_ele.getComment());
+		//	}
+		//}
+		//return nMatches;
+		return getSearchCriteria().countMatches(_ele);
+		// END KGU#1229 2026-10-19
 	}
 
 	/**
@@ -1862,52 +2214,98 @@ public class FindAndReplace extends LangFrame implements IRoutinePoolListener /*
 	 * @return the number of matches
 	 */
 	private int textMatches(StringList text) {
-		int nMatches = 0;
-		boolean caseSensi = chkCaseSensitive.isSelected();
-		String searchPattern = (String)cmbSearchPattern.getEditor().getItem();
-		String brokenText = text.getText();
-		if (chkRegEx.isSelected()) {
-			//doesMatch = brokenText.matches(searchPattern);
-			// START KGU#454 2017-11-03: Bugfix #448 - the pattern might be corrupt!
-			//nMatches = brokenText.split(searchPattern, -1).length - 1;
-			try {
-				nMatches = brokenText.split(searchPattern, -1).length - 1;
-			}
-			catch (Exception ex) {
-				JOptionPane.showMessageDialog(this,
-						msgRegexCorrupt.getText().replace("%1", searchPattern).replace("%2", ex.getMessage()),
-						ttlSearchError.getText(),
-						JOptionPane.ERROR_MESSAGE);
-				// TODO: What to do to achieve clean status?
-				throw ex;
-			}
-			// END KGU#454 2017-11-03
+		// START KGU#1229 2026-10-19: Delegated to SearchCriteria (pattern compiled once per search)
+		//int nMatches = 0;
+		//boolean caseSensi = chkCaseSensitive.isSelected();
+		//String searchPattern = (String)cmbSearchPattern.getEditor().getItem();
+		//String brokenText = text.getText();
+		//if (chkRegEx.isSelected()) {
+		//	//doesMatch = brokenText.matches(searchPattern);
+		//	// START KGU#454 2017-11-03: Bugfix #448 - the pattern might be corrupt!
+		//	//nMatches = brokenText.split(searchPattern, -1).length - 1;
+		//	try {
+		//		nMatches = brokenText.split(searchPattern, -1).length - 1;
+		//	}
+		//	catch (Exception ex) {
+		//		JOptionPane.showMessageDialog(this,
+		//				msgRegexCorrupt.getText().replace("%1", searchPattern).replace("%2", ex.getMessage()),
+		//				ttlSearchError.getText(),
+		//				JOptionPane.ERROR_MESSAGE);
+		//		// TODO: What to do to achieve clean status?
+		//		throw ex;
+		//	}
+		//	// END KGU#454 2017-11-03
+		//}
+		//// START KGU#876 2020-12-28: Bugfix #900 we must ignore the selection if chkWholeWord is disabled
+		////else if (chkWholeWord.isSelected()) {
+		//else if (chkWholeWord.isEnabled() && chkWholeWord.isSelected()) {
+		//// END KGU#876 2020-12-28
+		//	// FIXME: Maybe we should rather tokenize the string!?
+		//	String[] words = brokenText.split("\\W+");
+		//	for (String word: words) {
+		//		if (caseSensi && word.equals(searchPattern) || !caseSensi && word.equalsIgnoreCase(searchPattern)) {
+		//			//doesMatch = true;
+		//			//break;
+		//			nMatches++;
+		//		}
+		//	}
+		//}
+		//else {
+		//	if (!caseSensi) {
+		//		brokenText = brokenText.toLowerCase();
+		//		searchPattern = searchPattern.toLowerCase();
+		//	}
+		//	//doesMatch = brokenText.contains(searchPattern);
+		//	nMatches = brokenText.split(Pattern.quote(searchPattern), -1).length - 1;
+		//}
+		////return doesMatch;
+		//return nMatches;
+		return getSearchCriteria().countMatches(text);
+		// END KGU#1229 2026-10-19
+	}
+
+	// START KGU#1229 2026-10-19
+	/**
+	 * Compiles the current search criteria. Shows an error message if the regular
+	 * expression is corrupt.
+	 * 
+	 * The criteria are cached and only recompiled if the search pattern or an option
+	 * has changed meanwhile.
+	 * 
+	 * @return the {@link SearchCriteria} (for one search)
+	 * @throws PatternSyntaxException if the regular expression is corrupt
+	 */
+	private SearchCriteria getSearchCriteria() throws PatternSyntaxException
+	{
+		if (searchCriteria != null && searchCriteria.isValidFor(this)) {
+			return searchCriteria;
 		}
-		// START KGU#876 2020-12-28: Bugfix #900 we must ignore the selection if chkWholeWord is disabled
-		//else if (chkWholeWord.isSelected()) {
-		else if (chkWholeWord.isEnabled() && chkWholeWord.isSelected()) {
-		// END KGU#876 2020-12-28
-			// FIXME: Maybe we should rather tokenize the string!?
-			String[] words = brokenText.split("\\W+");
-			for (String word: words) {
-				if (caseSensi && word.equals(searchPattern) || !caseSensi && word.equalsIgnoreCase(searchPattern)) {
-					//doesMatch = true;
-					//break;
-					nMatches++;
-				}
-			}
+		try {
+			searchCriteria = new SearchCriteria(this);
+			return searchCriteria;
 		}
-		else {
-			if (!caseSensi) {
-				brokenText = brokenText.toLowerCase();
-				searchPattern = searchPattern.toLowerCase();
-			}
-			//doesMatch = brokenText.contains(searchPattern);
-			nMatches = brokenText.split(Pattern.quote(searchPattern), -1).length - 1;
+		catch (PatternSyntaxException ex) {
+			JOptionPane.showMessageDialog(this,
+					msgRegexCorrupt.getText().replace("%1", ex.getPattern()).replace("%2", ex.getMessage()),
+					ttlSearchError.getText(),
+					JOptionPane.ERROR_MESSAGE);
+			throw ex;
+		}
+	}
+	
+	/**
+	 * Stops a running background search (if any) and makes sure its results are
+	 * ignored.
+	 */
+	private void cancelSearch()
+	{
+		if (searchWorker != null) {
+			// Don't interrupt the pool threads, the tasks check for cancellation
+			searchWorker.cancel(false);
+			searchWorker = null;
 		}
-		//return doesMatch;
-		return nMatches;
 	}
+	// END KGU#1229 2026-10-19
 
 	/**
 	 * Item state change listener method for both the pattern combo boxes.
@@ -2050,15 +2448,22 @@ public class FindAndReplace extends LangFrame implements IRoutinePoolListener /*
 	 * @param _scope - linear subsequence of elements limiting the search scope
 	 * @param _deeply - whether the search is to comprise all substructure
 	 *    (otherwise: flat)
+	 * @param _criteria - the compiled search criteria
 	 * @return ordered list of the elements matching the search criteria
 	 */
-	private LinkedList<Element> findElements(IElementSequence _scope, boolean _deeply)
+	// START KGU#1229 2026-10-19: Compiled criteria, may run on worker threads
+	//private LinkedList<Element> findElements(IElementSequence _scope, boolean _deeply)
+	private LinkedList<Element> findElements(IElementSequence _scope, boolean _deeply, SearchCriteria _criteria)
+	// END KGU#1229 2026-10-19
 	{
 		LinkedList<Element> elements = new LinkedList<Element>();
 		Iterator iter = _scope.iterator(_deeply);
 		while (iter.hasNext()) {
 			Element ele = iter.next();
-			if (checkElementMatch(ele) > 0) {
+			// START KGU#1229 2026-10-19
+			//if (checkElementMatch(ele) > 0) {
+			if (_criteria.countMatches(ele) > 0) {
+			// END KGU#1229 2026-10-19
 				elements.add(ele);
 			}
 		}
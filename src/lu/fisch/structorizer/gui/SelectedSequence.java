@@ -48,6 +48,7 @@ package lu.fisch.structorizer.gui;
  *      Kay Gürtzig     2019-03-13      Issues #518, #544, #557: Element drawing now restricted to visible rect.
  *      Kay Gürtzig     2020-05-02      Issue #866: Additional fields and methods to support revised selection expansion
  *      Kay Gürtzig     2022-07-30      Result type of removeElement(Element) changed from void to boolean
+ *      Kay Gürtzig     2026-10-19      KGU#1231: Selected members registered for targeted deselection
  *
  ******************************************************************************************************
  *
@@ -625,6 +626,11 @@ public class SelectedSequence extends Element implements IElementSequence {
 		{
 			// This must not be recursive!
 			((Subqueue)parent).getElement(i).selected = _sel;
+			// START KGU#1231 2026-10-19
+			if (_sel) {
+				registerSelection(((Subqueue)parent).getElement(i));
+			}
+			// END KGU#1231 2026-10-19
 		}
 		return _sel ? this : null;
 	}
@@ -26,6 +26,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.logging.Logger;
 
@@ -60,6 +61,9 @@ public class Locale {
     public String cachedFilename = null;
     // END KGU#244 2016-09-06
     public final LinkedHashMap<String,LinkedHashMap<String,String>> values = new LinkedHashMap<String,LinkedHashMap<String,String>>();
+    // START KGU#1212 2026-10-19: Translation entries indexed by component class, built on demand
+    private HashMap<String, ArrayList<Locales.LocaleEntry>> componentIndex = null;
+    // END KGU#1212 2026-10-19
     
     public static void main(String[] args)
     {
@@ -155,6 +159,9 @@ public class Locale {
     {
         // clear all sections
         sections.clear();
+        // START KGU#1212 2026-10-19
+        invalidateIndex();
+        // END KGU#1212 2026-10-19
         
         // go ahead and parse the input
         StringList section = null;
@@ -367,6 +374,9 @@ public class Locale {
                     )
             {
                 section.set(i, key+"="+value);
+                // START KGU#1212 2026-10-19
+                invalidateIndex();
+                // END KGU#1212 2026-10-19
                 return true;
             }
         }
@@ -425,6 +435,28 @@ public class Locale {
         parseBody(body);
     }
     
+    // START KGU#1212 2026-10-19: Pre-indexed translation entries
+    /**
+     * Returns the prepared translation entries (with non-empty text) referring to
+     * the component class with the given simple name, in the order of the locale file.
+     * The index is built on first demand and dropped on any modification.
+     * @param className - simple name of the component class (case is ignored)
+     * @return list of entries or {@code null} if there are none for this class
+     */
+    synchronized ArrayList<Locales.LocaleEntry> getComponentEntries(String className)
+    {
+        if (componentIndex == null) {
+            componentIndex = Locales.indexLines(getBody());
+        }
+        return componentIndex.get(className.toLowerCase());
+    }
+    
+    private synchronized void invalidateIndex()
+    {
+        componentIndex = null;
+    }
+    // END KGU#1212 2026-10-19
+    
     // START KGU#231 2016-08-09: Issue #220
     public boolean hasCachedChanges()
     {
@@ -53,6 +53,8 @@ package lu.fisch.structorizer.locales;
  *      Kay Gürtzig     2021-02-11  Enh. #893 Now also registers and serves LangEventListeners
  *      Kay Gürtzig     2021-03-07  Bugfix in setLocale() w.r.t. hash tables (on occasion of KGU#961)
  *      Kay Gürtzig     2023-10-29  Issue #1102: Defective log message repaired.
+ *      Kay Gürtzig     2026-10-19  KGU#1212: Locales pre-indexed by component class, cached method handles
+ *      Kay Gürtzig     2026-10-19  KGU#1212: Cached handles adapted for invokeExact() on creation
  *
  ******************************************************************************************************
  *
@@ -64,6 +66,9 @@ package lu.fisch.structorizer.locales;
 import java.awt.Component;
 import java.awt.event.KeyEvent;
 import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
@@ -496,7 +501,10 @@ public class Locales {
             Locale locale = getLocale(loadedLocaleName);
             if (locale!=null) {
                 // set it
-                setLocale(component, locale.getBody());
+                // START KGU#1212 2026-10-19: Only apply the entries relevant for this component
+                //setLocale(component, locale.getBody());
+                applyEntries(component, locale.getComponentEntries(component.getClass().getSimpleName()));
+                // END KGU#1212 2026-10-19
             }
         }
     }
@@ -527,7 +535,10 @@ public class Locales {
         Locale locale = getLocale(localeName);
         if(locale!=null)
         {
-            Locales.this.setLocale(component, locale.getBody());
+            // START KGU#1212 2026-10-19: Only apply the entries relevant for this component
+            //Locales.this.setLocale(component, locale.getBody());
+            applyEntries(component, locale.getComponentEntries(component.getClass().getSimpleName()));
+            // END KGU#1212 2026-10-19
         }
     }
     
@@ -554,8 +565,12 @@ public class Locales {
                     // START KGU#246 2016-09-13: Bugfix #241
                     //Method method = component.getClass().getMethod(fieldValue, new Class[]{});
                     //method.invoke(component, new Object[]{});
-                    Method method = component.getClass().getMethod(fieldName.substring(0,  fieldName.length()-2), new Class[]{});
-                    Object methodResult = method.invoke(component, new Object[]{});
+                    // START KGU#1212 2026-10-19: Use cached method handles
+                    //Method method = component.getClass().getMethod(fieldName.substring(0,  fieldName.length()-2), new Class[]{});
+                    //Object methodResult = method.invoke(component, new Object[]{});
+                    CachedHandle method = getMethodHandle(component.getClass(), fieldName.substring(0,  fieldName.length()-2));
+                    Object methodResult = invokeHandle(method, component);
+                    // END KGU#1212 2026-10-19
                     if (methodResult instanceof String)
                     {
                     	fieldValue = (String)methodResult;
@@ -576,43 +591,29 @@ public class Locales {
             // ... of a field
             else
             {
-                Field field = null;
+                // START KGU#1212 2026-10-19: Use cached getter handles
+                CachedHandle field = null;
                 try {
-                    // first try on own fields
-                    field = component.getClass().getDeclaredField(fieldName);
-                    field.setAccessible(true);
+                    // first try on own fields, then on inherited PUBLIC fields
+                    field = getFieldGetter(component.getClass(), fieldName);
                 } 
                 catch (Exception e) 
                 {
                     errorMessage = e.getMessage();
-                    // START KGU#484 2018-04-05: Issue #463
-                    //e.printStackTrace();
                     logger.log(Level.WARNING, "Field access to «"+ fieldName + "» failed.", e);
-                    // END KGU#484 2018-04-05
-                }
-                if (field == null) {
-                    // Now try on inherited PUBLIC fields
-                    try {
-                        field = component.getClass().getField(fieldName);
-                        field.setAccessible(true);
-                        // If this works then cancel the previously obtained error message
-                        errorMessage = null;
-                    } 
-                    catch (Exception e) 
-                    {
-                        errorMessage = e.getMessage();
-                        // START KGU#484 2018-04-05: Issue #463
-                        //e.printStackTrace();
-                        logger.log(Level.WARNING, "Component access failed.", e);
-                        // END KGU#484 2018-04-05
-                    }
                 }
+                // END KGU#1212 2026-10-19
                 if (field!=null)
                 {
                     try
                     {
-                        if (field.get(component) != null)
-                            fieldValue = field.get(component).toString();
+                        // START KGU#1212 2026-10-19
+                        //if (field.get(component) != null)
+                        //    fieldValue = field.get(component).toString();
+                        Object content = invokeHandle(field, component);
+                        if (content != null)
+                            fieldValue = content.toString();
+                        // END KGU#1212 2026-10-19
                     }
                     catch(Exception e)
                     {
@@ -637,6 +638,194 @@ public class Locales {
     }
     
     
+    // START KGU#1212 2026-10-19: Pre-indexed translation entries and cached method handles
+    /**
+     * A translation line of a locale, prepared for the application to a component:
+     * the key is split into pieces, a possible condition suffix is separated, and
+     * the substrings "\n" of the text are already replaced by newlines.
+     * @see Locales#indexLines(StringList)
+     */
+    static final class LocaleEntry {
+        /** The key without condition suffix (e.g. "Diagram.menuFile.text") */
+        final String key;
+        /** The dot-separated pieces of {@link #key} */
+        final String[] pieces;
+        /** The conditions of the key (or {@code null} if there aren't any) */
+        final StringList conditions;
+        /** The translated text (with resolved newlines but unresolved element names) */
+        final String text;
+        
+        private LocaleEntry(String key, StringList conditions, String text)
+        {
+            this.key = key;
+            this.pieces = StringList.explode(key, "\\.").toArray();
+            this.conditions = conditions;
+            this.text = text;
+        }
+    }
+    
+    /**
+     * Prepares the given translation lines (according to the locale file construction
+     * rules) for the application to components, i.e. splits the keys and gathers
+     * the entries with non-empty text by the (lower-case) simple name of the component
+     * class they refer to. The original order of the lines is retained.
+     * @param lines - the translation lines (may contain section headers)
+     * @return a map from lower-case component class names to the lists of entries
+     */
+    static HashMap<String, ArrayList<LocaleEntry>> indexLines(StringList lines)
+    {
+        HashMap<String, ArrayList<LocaleEntry>> index = new HashMap<String, ArrayList<LocaleEntry>>();
+        for (int i = 0; i < lines.count(); i++) {
+            StringList parts = StringList.explodeFirstOnly(lines.get(i), "=");
+            String key = parts.get(0);
+            String text = parts.get(1);
+            if (text.trim().isEmpty()) {
+                continue;
+            }
+            String className = StringList.explode(key, "\\.").get(0).toLowerCase();
+            StringList conditions = null;
+            if (key.contains("[") && key.endsWith("]"))
+            {
+                // cut off the last "]" and split off the condition
+                String[] elements = key.substring(0, key.length()-1).split("\\[");
+                key = elements[0];
+                conditions = StringList.explode(elements[1], ",");
+            }
+            ArrayList<LocaleEntry> entries = index.get(className);
+            if (entries == null) {
+                index.put(className, entries = new ArrayList<LocaleEntry>());
+            }
+            entries.add(new LocaleEntry(key, conditions, text.replace("\\n", "\n")));
+        }
+        return index;
+    }
+    
+    /**
+     * A method or field getter handle, adapted once for the invocation with an
+     * argument array, such that no generic argument conversion is necessary per call.
+     */
+    private static final class CachedHandle {
+        /** The type of the original handle (reveals the field or result type) */
+        private final MethodType type;
+        /** The original handle, adapted to type {@code (Object[])Object} */
+        private final MethodHandle invoker;
+        
+        CachedHandle(MethodHandle handle)
+        {
+            type = handle.type();
+            invoker = handle.asSpreader(Object[].class, type.parameterCount())
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        }
+        
+        /** @return the type of the original handle */
+        MethodType type()
+        {
+            return type;
+        }
+    }
+    
+    /** Cached getter handles for the fields of component classes, by class and field name */
+    private static final HashMap<Class<?>, HashMap<String, CachedHandle>> fieldGetters =
+            new HashMap<Class<?>, HashMap<String, CachedHandle>>();
+    /** Cached handles for the property methods of component classes, by class and signature */
+    private static final HashMap<Class<?>, HashMap<String, CachedHandle>> methodHandles =
+            new HashMap<Class<?>, HashMap<String, CachedHandle>>();
+    
+    /**
+     * Provides a (cached) getter handle for the field {@code fieldName} of class
+     * {@code compClass}. Own fields of any access level are preferred, otherwise
+     * an inherited public field is looked for.
+     * @param compClass - the class of the component
+     * @param fieldName - the name of the field
+     * @return the getter handle, originally of type {@code (compClass)fieldType}
+     * @throws Exception if there is no accessible field of the given name
+     */
+    private static CachedHandle getFieldGetter(Class<?> compClass, String fieldName) throws Exception
+    {
+        synchronized (fieldGetters) {
+            HashMap<String, CachedHandle> getters = fieldGetters.get(compClass);
+            if (getters == null) {
+                fieldGetters.put(compClass, getters = new HashMap<String, CachedHandle>());
+            }
+            CachedHandle getter = getters.get(fieldName);
+            if (getter == null) {
+                Field field = null;
+                try {
+                    // First try on own fields - whatever access level they might have
+                    field = compClass.getDeclaredField(fieldName);
+                    field.setAccessible(true);
+                }
+                catch (Exception ex) {
+                    // Now try on inherited PUBLIC fields, too
+                    field = compClass.getField(fieldName);
+                    field.setAccessible(true);
+                }
+                getter = new CachedHandle(MethodHandles.lookup().unreflectGetter(field));
+                getters.put(fieldName, getter);
+            }
+            return getter;
+        }
+    }
+    
+    /**
+     * Provides a (cached) method handle for the public method {@code methodName} with
+     * parameter types {@code paramTypes} of class {@code targetClass}.
+     * @param targetClass - the class of the target objects
+     * @param methodName - name of the method
+     * @param paramTypes - the parameter types of the method
+     * @return the method handle (with the target object as first argument)
+     * @throws Exception if there is no accessible method with the given signature
+     */
+    private static CachedHandle getMethodHandle(Class<?> targetClass, String methodName, Class<?>... paramTypes) throws Exception
+    {
+        StringBuilder signature = new StringBuilder(methodName);
+        for (Class<?> paramType: paramTypes) {
+            signature.append(',').append(paramType.getName());
+        }
+        synchronized (methodHandles) {
+            HashMap<String, CachedHandle> handles = methodHandles.get(targetClass);
+            if (handles == null) {
+                methodHandles.put(targetClass, handles = new HashMap<String, CachedHandle>());
+            }
+            CachedHandle handle = handles.get(signature.toString());
+            if (handle == null) {
+                Method method = targetClass.getMethod(methodName, paramTypes);
+                try {
+                    handle = new CachedHandle(MethodHandles.lookup().unreflect(method));
+                }
+                catch (IllegalAccessException ex) {
+                    // Public method declared in a non-public class
+                    method.setAccessible(true);
+                    handle = new CachedHandle(MethodHandles.lookup().unreflect(method));
+                }
+                handles.put(signature.toString(), handle);
+            }
+            return handle;
+        }
+    }
+    
+    /**
+     * Invokes the given method handle with the given arguments, passing exceptions
+     * and errors through and wrapping other throwables into an Exception.
+     * @param handle - a method or field getter handle
+     * @param args - the arguments (the target object first)
+     * @return the result of the invocation
+     * @throws Exception if the invoked method raised an exception
+     */
+    private static Object invokeHandle(CachedHandle handle, Object... args) throws Exception
+    {
+        try {
+            return (Object)handle.invoker.invokeExact(args);
+        }
+        catch (Exception | Error ex) {
+            throw ex;
+        }
+        catch (Throwable ex) {
+            throw new Exception(ex);
+        }
+    }
+    // END KGU#1212 2026-10-19
+    
     /**
      * Performs the translation of the given component with the translation lines
      * passed in.
@@ -648,6 +837,24 @@ public class Locales {
     // i.e. before all contained components have been put there, we might get
     // null pointers. So deal with it! ;-)
     public void setLocale(Component component, StringList lines) {
+        // START KGU#1212 2026-10-19: Translation now works on pre-indexed entries
+        applyEntries(component, indexLines(lines).get(component.getClass().getSimpleName().toLowerCase()));
+    }
+    
+    /**
+     * Performs the translation of the given component with the prepared translation
+     * entries for its class (as provided by {@link #indexLines(StringList)} or
+     * {@link Locale#getComponentEntries(String)}).
+     * @param component - a GUI component
+     * @param entries - the translation entries for the class of {@code component}
+     *    (in the order of the locale file), may be {@code null}
+     */
+    private void applyEntries(Component component, ArrayList<LocaleEntry> entries)
+    {
+        if (entries == null) {
+            return;
+        }
+        // END KGU#1212 2026-10-19
 //    	if (component instanceof LangMenuBar) {
 //    		System.out.println("setLocale("+component+") called!");
 //    		try {
@@ -662,13 +869,20 @@ public class Locales {
         // The pieces of the split key (i.e. parts[0])
         StringList pieces;
         
-        for (int i = 0; i < lines.count(); i++) {
-            parts = StringList.explodeFirstOnly(lines.get(i), "=");
-            //System.out.println(parts.get(0));
-            pieces = StringList.explode(parts.get(0), "\\.");
-            
-            if (pieces.get(0).equalsIgnoreCase(component.getClass().getSimpleName()) && 
-                !parts.get(1).trim().isEmpty()) 
+        // START KGU#1212 2026-10-19: The entries are already selected and prepared
+        //for (int i = 0; i < lines.count(); i++) {
+        //    parts = StringList.explodeFirstOnly(lines.get(i), "=");
+        //    //System.out.println(parts.get(0));
+        //    pieces = StringList.explode(parts.get(0), "\\.");
+        //    
+        //    if (pieces.get(0).equalsIgnoreCase(component.getClass().getSimpleName()) && 
+        //        !parts.get(1).trim().isEmpty()) 
+        for (LocaleEntry entry: entries) {
+            // The key comes without condition, the text with resolved newlines
+            parts = new StringList(new String[]{entry.key, entry.text});
+            // The pieces will be modified for arrays and maps, so we need a fresh copy
+            pieces = new StringList(entry.pieces);
+            // END KGU#1212 2026-10-19
             {
                 //
                 // We know, that we are now in the right component.
@@ -678,32 +892,41 @@ public class Locales {
                 boolean condition = true;
 
                 // check for conditions
-                String key = parts.get(0);
-                if (key.contains("[") && key.endsWith("]"))
+                // START KGU#1212 2026-10-19: The conditions are already split off on indexing
+                //String key = parts.get(0);
+                //if (key.contains("[") && key.endsWith("]"))
+                //{
+                //    // cut off last "]"
+                //    key = key.substring(0, key.length()-1);
+                //    // split
+                //    String[] elements = key.split("\\[");
+                //    // put back the key
+                //    parts.set(0, elements[0]);
+                //    // split up the condition
+                //    StringList conditions = StringList.explode(elements[1], ",");
+                //
+                //    //System.out.println("Found condition "+elements[1]+" for element "+elements[0]);
+                //    condition = checkConditions(component, conditions);
+                //    
+                //    // re-explode pieces for further processing
+                //    // because parts.get(0) has changed before
+                //    pieces = StringList.explode(parts.get(0), "\\.");
+                //}
+                if (entry.conditions != null)
                 {
-                    // cut off last "]"
-                    key = key.substring(0, key.length()-1);
-                    // split
-                    String[] elements = key.split("\\[");
-                    // put back the key
-                    parts.set(0, elements[0]);
-                    // split up the condition
-                    StringList conditions = StringList.explode(elements[1], ",");
-
-                    //System.out.println("Found condition "+elements[1]+" for element "+elements[0]);
-                    condition = checkConditions(component, conditions);
-                    
-                    // re-explode pieces for further processing
-                    // because parts.get(0) has changed before
-                    pieces = StringList.explode(parts.get(0), "\\.");
+                    condition = checkConditions(component, entry.conditions);
                 }
+                // END KGU#1212 2026-10-19
                 
                 if (condition)
                     {
                     // START KGU#263 2016-09-28: Generally replace any found "\n" by a real newline
                     // START #479 2017-12-15: Enh. #492 - replace element names
                     //parts.set(1, parts.get(1).replace("\\n", "\n"));
-                    parts.set(1, ElementNames.resolveElementNames(parts.get(1).replace("\\n", "\n"), null));
+                    // START KGU#1212 2026-10-19: Newlines are already replaced on indexing
+                    //parts.set(1, ElementNames.resolveElementNames(parts.get(1).replace("\\n", "\n"), null));
+                    parts.set(1, ElementNames.resolveElementNames(parts.get(1), null));
+                    // END KGU#1212 2026-10-19
                     // END KGU#479 2017-12-15
                     // END KGU#263 2016-09-28
 
@@ -718,27 +941,37 @@ public class Locales {
                         // END KGU#324 2017-10-02
                     } 
                     else {
-                        Field field = null;
+                        // START KGU#1212 2026-10-19: Field access via cached getter handles
+                        //Field field = null;
+                        //String errorMessage = null;
+                        //try {
+                        //    // First try on own fields - whatever access level they might have
+                        //    field = component.getClass().getDeclaredField(pieces.get(1));
+                        //    field.setAccessible(true);
+                        //    // START KGU#3 2015-11-03: Addition to enable the access to inherited fields
+                        //} catch (Exception e) {
+                        //    errorMessage = e.getMessage();
+                        //}
+                        //if (field == null) {
+                        //    // Now try on inherited PUBLIC fields, too (unfortunately, a retrieval of protected inherited fields seems to be missing)
+                        //    try {
+                        //        field = component.getClass().getField(pieces.get(1));
+                        //        field.setAccessible(true);
+                        //        // If this works then cancel the previously obtained error message
+                        //        errorMessage = null;
+                        //    } catch (Exception e) {
+                        //        errorMessage = e.getMessage();
+                        //    }
+                        //}
+                        CachedHandle field = null;
                         String errorMessage = null;
+                        // START KGU#3 2015-11-03: Addition to enable the access to inherited fields
                         try {
-                            // First try on own fields - whatever access level they might have
-                            field = component.getClass().getDeclaredField(pieces.get(1));
-                            field.setAccessible(true);
-                            // START KGU#3 2015-11-03: Addition to enable the access to inherited fields
+                            field = getFieldGetter(component.getClass(), pieces.get(1));
                         } catch (Exception e) {
                             errorMessage = e.getMessage();
                         }
-                        if (field == null) {
-                            // Now try on inherited PUBLIC fields, too (unfortunately, a retrieval of protected inherited fields seems to be missing)
-                            try {
-                                field = component.getClass().getField(pieces.get(1));
-                                field.setAccessible(true);
-                                // If this works then cancel the previously obtained error message
-                                errorMessage = null;
-                            } catch (Exception e) {
-                                errorMessage = e.getMessage();
-                            }
-                        }
+                        // END KGU#1212 2026-10-19
                         if (errorMessage != null) {
                             // START KGU#1096 2023-10-29: Bugfix #1102 defective text template
                             //logger.log(Level.WARNING, "LANG: Error accessing element <{0}.{1}>!\n{}",
@@ -749,10 +982,16 @@ public class Locales {
                             // END KGU#3 2015-11-03
                             try {
 
-                                Class<?> fieldClass = field.getType();
+                                // START KGU#1212 2026-10-19
+                                //Class<?> fieldClass = field.getType();
+                                Class<?> fieldClass = field.type().returnType();
+                                // END KGU#1212 2026-10-19
                                 String piece2 = pieces.get(2).toLowerCase();
 
-                                Object target = field.get(component);
+                                // START KGU#1212 2026-10-19
+                                //Object target = field.get(component);
+                                Object target = invokeHandle(field, component);
+                                // END KGU#1212 2026-10-19
 
                                 // START KGU#239 2016-08-12: Opportunity to localize an array of controls
                                 if (fieldClass.isArray() && pieces.count() > 3)
@@ -820,14 +1059,20 @@ public class Locales {
                                     String mapKey = pieces.get(2);
                                     String piece1_2 = pieces.get(1) + "[" + mapKey + "]";
                                     // END KGU#961 2021-03-07
-                                    Method method = fieldClass.getMethod("get", new Class[]{Object.class});
+                                    // START KGU#1212 2026-10-19
+                                    //Method method = fieldClass.getMethod("get", new Class[]{Object.class});
+                                    CachedHandle method = getMethodHandle(fieldClass, "get", Object.class);
+                                    // END KGU#1212 2026-10-19
                                     // On startup we might be faster here than the initialization of the components, such
                                     // that we must face nasty NullPointerExceptions if we don't prevent
                                     if (target != null) {
                                         try {
                                             // START KGU#961 2021-03-07: piece2 is in lower case, we must retrieve it again
                                             //target = method.invoke(target, piece2);
-                                            target = method.invoke(target, mapKey);
+                                            // START KGU#1212 2026-10-19
+                                            //target = method.invoke(target, mapKey);
+                                            target = invokeHandle(method, target, mapKey);
+                                            // END KGU#1212 2026-10-19
                                             // END KGU#961 2021-03-07
                                             if (target == null)
                                             {
@@ -938,39 +1183,40 @@ public class Locales {
         if (_target == null) {
             return;
         }
+        // KGU#1212 2026-10-19: The property methods are now obtained as cached method handles
         if (_property.equals("text")) {
-            Method method = _fieldClass.getMethod("setText", new Class[]{String.class});
-            method.invoke(_target, new Object[]{_text});
+            CachedHandle method = getMethodHandle(_fieldClass, "setText", String.class);
+            invokeHandle(method, _target, _text);
         } else if (_property.equals("tooltip")) {
-            Method method = _fieldClass.getMethod("setToolTipText", new Class[]{String.class});
+            CachedHandle method = getMethodHandle(_fieldClass, "setToolTipText", String.class);
             // START KGU#736 2019-09-29: In case of contained newlines, try to convert the text to html.
             if (_text.contains("\n") && !_text.startsWith("<html>")) {
                 _text = "<html>" + BString.encodeToHtml(_text).replace("\n", "<br/>") + "</html>";
             }
             // END KGU#736 2019-09-29
-            method.invoke(_target, new Object[]{_text});
+            invokeHandle(method, _target, _text);
         } else if (_property.equals("border")) {
-            Method method = _fieldClass.getMethod("setBorder", new Class[]{Border.class});
-            method.invoke(_target, new Object[]{new TitledBorder(_text)});
+            CachedHandle method = getMethodHandle(_fieldClass, "setBorder", Border.class);
+            invokeHandle(method, _target, new TitledBorder(_text));
         } else if (_property.equals("tab")) {
-            Method method = _fieldClass.getMethod("setTitleAt", new Class[]{int.class, String.class});
-            method.invoke(_target, new Object[]{Integer.valueOf(_piece3), _text});
+            CachedHandle method = getMethodHandle(_fieldClass, "setTitleAt", int.class, String.class);
+            invokeHandle(method, _target, Integer.valueOf(_piece3), _text);
         } else if (_property.equals("header")) {
-            Method method = _fieldClass.getMethod("setHeaderTitle", new Class[]{int.class, String.class});
-            method.invoke(_target, new Object[]{Integer.valueOf(_piece3), _text});
+            CachedHandle method = getMethodHandle(_fieldClass, "setHeaderTitle", int.class, String.class);
+            invokeHandle(method, _target, Integer.valueOf(_piece3), _text);
         } // START KGU#184 2016-04-24: Enh. #173 - new mnemonic support (only works from Java 1.7 on)
         else if (_property.equals("mnemonic")) {
-            Method method = _fieldClass.getMethod("setMnemonic", new Class[]{int.class});
+            CachedHandle method = getMethodHandle(_fieldClass, "setMnemonic", int.class);
             // START KGU 2016-12-07: Issue #304 We must check the availability of a Java 1.7 method.
             try {
                 int keyCode = KeyEvent.getExtendedKeyCodeForChar(_text.toLowerCase().charAt(0));
                 if (keyCode != KeyEvent.VK_UNDEFINED) {
-                    method.invoke(_target, new Object[]{Integer.valueOf(keyCode)});
+                    invokeHandle(method, _target, Integer.valueOf(keyCode));
                     // START KGU#713 2019-06-14: Issue #728 Allow to position the mnemonic in the caption
                     String pos = _text.substring(1);	// an index may follow, e.g in "g12"
                     if (!pos.isEmpty()) {
-                        method = _fieldClass.getMethod("setDisplayedMnemonicIndex", new Class[]{int.class});
-                        method.invoke(_target, new Object[]{Integer.valueOf(pos)});
+                        method = getMethodHandle(_fieldClass, "setDisplayedMnemonicIndex", int.class);
+                        invokeHandle(method, _target, Integer.valueOf(pos));
                     }
                     // END KGU#713 2019-06-14
                 }
@@ -984,12 +1230,12 @@ public class Locales {
             // The JCombobox is supposed to be equipped with enum objects providing a setText() method
             // (see lu.fisch.structorizer.elements.RuntimeDataPresentMode and
             // lu.fisch.structorizer.executor.Control for an example).
-            Method method = _fieldClass.getMethod("getItemAt", new Class[]{int.class});
-            Object item = method.invoke(_target, new Object[]{Integer.valueOf(_piece3)});
+            CachedHandle method = getMethodHandle(_fieldClass, "getItemAt", int.class);
+            Object item = invokeHandle(method, _target, Integer.valueOf(_piece3));
             if (item != null) {
                 Class<?> itemClass = item.getClass();
-                method = itemClass.getMethod("setText", new Class[]{String.class});
-                method.invoke(item, new Object[]{_text});
+                method = getMethodHandle(itemClass, "setText", String.class);
+                invokeHandle(method, item, _text);
             }
         }
         // END KGU#156 2016-03-13
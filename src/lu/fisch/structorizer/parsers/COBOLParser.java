@@ -119,6 +119,11 @@ package lu.fisch.structorizer.parsers;
  *      Kay Gürtzig     2022-08-15      Bugfix #1059: Complete redesign of transformCondition();
  *                                      Issue #1064: Pseudo-Calls marking paragraphs and sections now permanently disabled
  *      Kay Gürtzig     2022-08-17      Bugfix #1059: Some finishing of negation handling in conditions.
+ *      Kay Gürtzig     2026-10-19      KGU#1211: COPY statements now resolved (via the shared CopybookCache),
+ *                                      REPLACE statements and COPY ... REPLACING applied in preprocessing
+ *      Kay Gürtzig     2026-10-19      KGU#1211: Source line mapping for syntax errors after expanded copybooks,
+ *                                      copybook time only measured at the outermost level
+ *      Kay Gürtzig     2026-10-19      KGU#1211: Stacking of REPLACE ALSO / REPLACE LAST OFF implemented
  *
  ******************************************************************************************************
  *
@@ -152,6 +157,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.net.URL;
@@ -194,6 +200,7 @@ import lu.fisch.structorizer.executor.Function;
 import lu.fisch.structorizer.parsers.CobTools.CobProg;
 import lu.fisch.structorizer.parsers.CobTools.CobVar;
 import lu.fisch.structorizer.parsers.CobTools.Usage;
+import lu.fisch.structorizer.parsers.CopybookCache.Copybook;
 //import lu.fisch.structorizer.parsers.CodeParser.FilePreparationException;
 import lu.fisch.utils.BString;
 import lu.fisch.utils.StringList;
@@ -5045,6 +5052,97 @@ public class COBOLParser extends CodeParser
 	private int lineNo = 0;
 	private StringList codeLinesREPLACEorCOPY = null;
 	// END KGU#605 2018-10-30
+	
+	// START KGU#1211 2026-10-19: Support for COPY and REPLACE statements
+	/** Maximum nesting depth of COPY statements within copybooks */
+	private static final int MAX_COPY_DEPTH = 16;
+	/** Matches a COBOL text word boundary character */
+	private static final Pattern PTRN_COBOL_WORD_CHAR = Pattern.compile("[\\w-]");
+	
+	/**
+	 * A compiled set of text replacements (from a REPLACE statement or the REPLACING
+	 * phrase of a COPY statement). All operand pairs are combined in a single regular
+	 * expression with one capturing group per pair, such that the text is scanned only
+	 * once from left to right and replaced text isn't examined again.
+	 */
+	private static final class TextReplacements {
+		final Pattern pattern;
+		final String[] substitutes;
+		
+		TextReplacements(Pattern pattern, String[] substitutes)
+		{
+			this.pattern = pattern;
+			this.substitutes = substitutes;
+		}
+		
+		/**
+		 * Applies the replacements to the given code line (outside of string literals)
+		 * @param line - a code line (without sequence and indicator area)
+		 * @return the resulting line
+		 */
+		String apply(String line)
+		{
+			Matcher matcher = pattern.matcher(line);
+			if (!matcher.find()) {
+				return line;
+			}
+			StringBuilder sb = new StringBuilder(line.length() + 16);
+			int lastEnd = 0;
+			do {
+				if (isWithinLiteral(line, matcher.start())) {
+					continue;
+				}
+				for (int i = 0; i < substitutes.length; i++) {
+					if (matcher.start(i+1) >= 0) {
+						sb.append(line, lastEnd, matcher.start());
+						sb.append(substitutes[i]);
+						lastEnd = matcher.end();
+						break;
+					}
+				}
+			} while (matcher.find());
+			sb.append(line, lastEnd, line.length());
+			return sb.toString();
+		}
+	}
+	
+	/** A complete COPY statement waiting for its expansion */
+	private static final class CopyStatement {
+		final String textName;
+		final String library;
+		final TextReplacements replacing;
+		
+		CopyStatement(String textName, String library, TextReplacements replacing)
+		{
+			this.textName = textName;
+			this.library = library;
+			this.replacing = replacing;
+		}
+	}
+	
+	/** Text of a COPY or REPLACE statement spanning several lines, {@code null} if there is none */
+	private StringBuilder pendingStatement = null;
+	/** A COPY statement completely read, to be expanded after the current line */
+	private CopyStatement pendingCopy = null;
+	/** The replacements defined by the active REPLACE statements (or {@code null}) */
+	private TextReplacements replaceStatement = null;
+	/** The operand tokens of the stacked REPLACE statements (the last one on top) */
+	private LinkedList<StringList> replaceLevels = new LinkedList<StringList>();
+	/** The replacements of the COPY statement currently being expanded (or {@code null}) */
+	private TextReplacements copyReplacing = null;
+	/** Names of the copybooks currently being expanded (for recursion detection) */
+	private LinkedList<String> copyStack = new LinkedList<String>();
+	/** The directories to be searched for copybooks */
+	private ArrayList<File> copybookDirs = new ArrayList<File>();
+	/** The character set of the source file (also assumed for the copybooks) */
+	private String sourceEncoding = "UTF-8";
+	/** Number of successfully expanded COPY statements */
+	private int nCopiesExpanded = 0;
+	/** Source line numbers (1-based) of the lines of the intermediate file (0-based index) */
+	private int[] preparedLineSources = new int[1024];
+	/** Number of lines registered in {@link #preparedLineSources} */
+	private int nPreparedLines = 0;
+	// END KGU#1211 2026-10-19
 
 	/** Holds the base name for includable diagrams derived from the file name where all non-id characters are replaced with underscores */
 	private String sourceName;
@@ -5099,6 +5197,16 @@ public class COBOLParser extends CodeParser
 		{
 			File file = new File(_textToParse);
 			storeFileName(file);
+			// START KGU#1211 2026-10-19: COPY statements are to be resolved now
+			sourceEncoding = _encoding;
+			setupCopybookDirectories(file);
+			// The first line may already contain a COPY or REPLACE statement
+			this.codeLinesREPLACEorCOPY = new StringList();
+			this.lineNo = 0;
+			this.nPreparedLines = 0;
+			this.replaceLevels.clear();
+			this.replaceStatement = null;
+			// END KGU#1211 2026-10-19
 			DataInputStream in = new DataInputStream(new FileInputStream(file));
 			// START KGU#193 2016-05-04
 			BufferedReader br = new BufferedReader(new InputStreamReader(in, _encoding));
@@ -5130,6 +5238,9 @@ public class COBOLParser extends CodeParser
 				lastPosAndLength.length = settingCodeLength;	// setting may have changed by the previous actions
 				// Now process the already read line before we enter the loop
 				if (strLine != null) {
+					// START KGU#1211 2026-10-19: Line counting is 1-based
+					this.lineNo++;
+					// END KGU#1211 2026-10-19
 					prepareTextLine(repAuto, strLine, srcCode, lastPosAndLength);
 				}
 			}
@@ -5139,7 +5250,9 @@ public class COBOLParser extends CodeParser
 			 * or try to do the [COPY] REPLACE replacements (at least roughly..., issue #636)
 			 */
 			// START KGU#605 2018-10-30: Issue #630
-			this.codeLinesREPLACEorCOPY = new StringList();
+			// START KGU#1211 2026-10-19: Must already be available for the first line
+			//this.codeLinesREPLACEorCOPY = new StringList();
+			// END KGU#1211 2026-10-19
 			// END KGU#605 2018-10-30
 			while ((strLine = br.readLine()) != null)
 			{
@@ -5152,6 +5265,16 @@ public class COBOLParser extends CodeParser
 			//in.close();
 			// Close the buffered reader
 			br.close();
+			// START KGU#1211 2026-10-19: Check for an unterminated COPY or REPLACE statement
+			if (this.pendingStatement != null) {
+				this.codeLinesREPLACEorCOPY.add(String.format("%5d: %s (unterminated)", this.lineNo, this.pendingStatement));
+				this.pendingStatement = null;
+			}
+			if (this.nCopiesExpanded > 0) {
+				log(this.nCopiesExpanded + " COPY statement(s) expanded.\n"
+						+ CopybookCache.getInstance().getStatistics() + "\n", false);
+			}
+			// END KGU#1211 2026-10-19
 
 			//System.out.println(srcCode);
 
@@ -5168,7 +5291,7 @@ public class COBOLParser extends CodeParser
 		// START KGU#605 2018-10-30: Issue #630 - this is a temporary ugly mechanism also lacking translation support...
 		if (this.codeLinesREPLACEorCOPY != null && this.codeLinesREPLACEorCOPY.count() > 0)  {
 			throw new FilePreparationException("Found " + this.codeLinesREPLACEorCOPY.count()
-					+ " REPLACE or COPY directive(s) the parser can't handle:\n"
+					+ " defective REPLACE or COPY directive(s) the parser can't handle:\n"
 					+ this.codeLinesREPLACEorCOPY.concatenate("\n----------\n")
 					+ "\n\nPlease preprocess the file with a COBOL preparser or manually adjust before restarting the import.");
 		}
@@ -5198,6 +5321,9 @@ public class COBOLParser extends CodeParser
 			if (strLine.length() < settingColumnIndicator) {
 				srcCode.append (strLine + "\n");
 				posAndLength.pos += strLine.length() + 1;
+				// START KGU#1211 2026-10-19
+				registerPreparedLines(1);
+				// END KGU#1211 2026-10-19
 				return;
 			}
 
@@ -5258,6 +5384,9 @@ public class COBOLParser extends CodeParser
 				if (resultLine != null) {
 					strLine = resultLine;
 				} else {
+					// START KGU#1211 2026-10-19: Apply COPY REPLACING and REPLACE
+					srcLineCode = applyTextReplacements(srcLineCode);
+					// END KGU#1211 2026-10-19
 //					int i = 0;
 //					int im = srcLineCode.length();
 //					char lastLit = ' ';
@@ -5300,6 +5429,9 @@ public class COBOLParser extends CodeParser
 			// skip empty lines
 			if (strLine.trim().length() == 0) {
 				srcCode.append ("\n");
+				// START KGU#1211 2026-10-19
+				registerPreparedLines(1);
+				// END KGU#1211 2026-10-19
 				return;
 			}
 
@@ -5307,6 +5439,11 @@ public class COBOLParser extends CodeParser
 			if (resultLine != null) {
 				strLine = resultLine;
 			}
+			// START KGU#1211 2026-10-19: Apply COPY REPLACING and REPLACE
+			else {
+				strLine = applyTextReplacements(strLine);
+			}
+			// END KGU#1211 2026-10-19
 
 		}
 		//srcCodeLastPos += 1;   // really needed for free-form reference-format?
@@ -5323,6 +5460,19 @@ public class COBOLParser extends CodeParser
 		// END KGU#946 2021-03-02
 		// END KGU#473 2017-12-04
 		srcCode.append (strLine + "\n");
+		// START KGU#1211 2026-10-19: Now insert the copybook if a COPY statement was completed
+		// (A page eject line results in two lines)
+		int nLines = 1;
+		for (int i = strLine.indexOf('\n'); i >= 0; i = strLine.indexOf('\n', i + 1)) {
+			nLines++;
+		}
+		registerPreparedLines(nLines);
+		if (this.pendingCopy != null) {
+			CopyStatement copy = this.pendingCopy;
+			this.pendingCopy = null;
+			expandCopybook(repAuto, copy, srcCode, posAndLength);
+		}
+		// END KGU#1211 2026-10-19
 	}
 
 	private void storeFileName(File file) {
@@ -5343,6 +5493,14 @@ public class COBOLParser extends CodeParser
 
 		String resultLine = null;
 
+		// START KGU#1211 2026-10-19: Continuation of a COPY or REPLACE statement?
+		if (this.pendingStatement != null) {
+			this.pendingStatement.append(" ").append(codeLine.trim());
+			finishCopyOrReplace();
+			return "*> " + codeLine;
+		}
+		// END KGU#1211 2026-10-19
+
 		String[] tokenSeparator = codeLine.trim().split("\\s", 2); // we only want the first token here
 		String firstToken = tokenSeparator[0].toUpperCase();
 
@@ -5368,37 +5526,465 @@ public class COBOLParser extends CodeParser
 			resultLine = "*> PREPROCESSOR DIRECTIVE: " + codeLine;
 
 		// check for COPY or REPLACE statements (rough check, only first token)
-		} else if (firstToken.equals("COPY")) {
-			// handleCopyStatement(strLine);
-			// removed because must be set as comment until next period (multiple lines):
-			// resultLine = "*> COPY book included: " + codeLine;
-			// TODO log error - no support for COPY statement and present it to the user
-			// as a warning after the parsing is finished
-			// HACK for now: replace as comment if it looks like a one-line statement
-			if (codeLine.endsWith(".")) {
-				resultLine = "*> COPY statement: " + codeLine;
-			}
-			// we may revert this part later if we have not processed a COBOL statement
-			// and convert it to a NSD CALL instruction of an IMPORT diagram
-			// which could be created by a seperate run on the original copybook.
-			// START KGU#605 2018-10-30: Issue #630
+		// START KGU#1211 2026-10-19: Now actually handled (possibly spanning several lines)
+		//} else if (firstToken.equals("COPY")) {
+		//	...
+		//} else if (firstToken.equals("REPLACE")) {
+		//	...
+		} else if (firstToken.equals("COPY") || firstToken.equals("REPLACE")) {
+			resultLine = "*> " + firstToken + " statement: " + codeLine;
+			this.pendingStatement = new StringBuilder(codeLine.trim());
+			finishCopyOrReplace();
+		// END KGU#1211 2026-10-19
+		}
+
+		return resultLine;
+	}
+
+	// START KGU#1211 2026-10-19: Support for COPY and REPLACE statements
+	/**
+	 * Composes the list of copybook directories from the directory of the source file,
+	 * the import option "copybookPaths" and the environment variable COBCPY (as used by
+	 * GnuCOBOL).
+	 * 
+	 * @param sourceFile - the COBOL source file to be imported
+	 */
+	private void setupCopybookDirectories(File sourceFile)
+	{
+		copybookDirs.clear();
+		File sourceDir = sourceFile.getAbsoluteFile().getParentFile();
+		if (sourceDir != null) {
+			copybookDirs.add(sourceDir);
+		}
+		String[] pathSpecs = {
+				(String)this.getPluginOption("copybookPaths", null),
+				System.getenv("COBCPY")
+		};
+		for (String pathSpec: pathSpecs) {
+			if (pathSpec == null) {
+				continue;
+			}
+			for (String path: pathSpec.split("[;" + Pattern.quote(File.pathSeparator) + "]")) {
+				path = path.trim();
+				if (!path.isEmpty()) {
+					File dir = new File(path);
+					if (!dir.isAbsolute() && sourceDir != null) {
+						dir = new File(sourceDir, path);
+					}
+					if (dir.isDirectory() && !copybookDirs.contains(dir)) {
+						copybookDirs.add(dir);
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Checks whether the {@link #pendingStatement} (COPY or REPLACE) is complete and if so
+	 * analyses it. A REPLACE statement is put into force immediately whereas a COPY statement
+	 * is stored in {@link #pendingCopy} for expansion after the current line.
+	 * Defective statements are registered in {@link #codeLinesREPLACEorCOPY}.
+	 */
+	private void finishCopyOrReplace()
+	{
+		String stmt = this.pendingStatement.toString();
+		StringList tokens = splitDirectiveTokens(stmt);
+		if (tokens == null) {
+			// Statement not terminated yet
+			return;
+		}
+		this.pendingStatement = null;
+		boolean isCopy = tokens.get(0).equalsIgnoreCase("COPY");
+		try {
+			if (isCopy) {
+				this.pendingCopy = analyseCopy(tokens);
+			}
 			else {
-				this.codeLinesREPLACEorCOPY.add(String.format("%5d: %s", this.lineNo, codeLine));
+				analyseReplace(tokens);
+			}
+		}
+		catch (IllegalArgumentException ex) {
+			this.codeLinesREPLACEorCOPY.add(String.format("%5d: %s (%s)", this.lineNo, stmt, ex.getMessage()));
+		}
+	}
+	
+	/**
+	 * Splits the text of a COPY or REPLACE statement into text words, literals and
+	 * pseudo-texts (delimited by "=="), drops separator commas and semicolons.
+	 * 
+	 * @param stmt - the gathered statement text
+	 * @return the token list without the terminating period, or {@code null} if the
+	 *    statement isn't terminated by a period yet.
+	 */
+	private static StringList splitDirectiveTokens(String stmt)
+	{
+		StringList tokens = new StringList();
+		int len = stmt.length();
+		int i = 0;
+		while (i < len) {
+			char ch = stmt.charAt(i);
+			if (Character.isWhitespace(ch) || ch == ',' || ch == ';') {
+				i++;
+			}
+			else if (stmt.startsWith("==", i)) {
+				int end = stmt.indexOf("==", i + 2);
+				if (end < 0) {
+					return null;
+				}
+				tokens.add(stmt.substring(i, end + 2));
+				i = end + 2;
+			}
+			else if (ch == '"' || ch == '\'') {
+				int end = i + 1;
+				while (end < len) {
+					if (stmt.charAt(end) == ch) {
+						if (end + 1 < len && stmt.charAt(end + 1) == ch) {
+							// Doubled quote within the literal
+							end += 2;
+							continue;
+						}
+						break;
+					}
+					end++;
+				}
+				if (end >= len) {
+					return null;
+				}
+				tokens.add(stmt.substring(i, end + 1));
+				i = end + 1;
+			}
+			else if (ch == '.' && (i + 1 == len || Character.isWhitespace(stmt.charAt(i + 1)))) {
+				// Terminating period found
+				return tokens;
+			}
+			else {
+				int start = i;
+				while (i < len && !Character.isWhitespace(stmt.charAt(i))
+						&& !(stmt.charAt(i) == '.' && (i + 1 == len || Character.isWhitespace(stmt.charAt(i + 1))))) {
+					i++;
+				}
+				tokens.add(stmt.substring(start, i));
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Analyses the tokens of a complete COPY statement:<br/>
+	 * {@code COPY text-name [{OF|IN} library-name] [SUPPRESS [PRINTING]] [REPLACING ...]}
+	 * 
+	 * @param tokens - the statement tokens (without period)
+	 * @return the resulting {@link CopyStatement}
+	 * @throws IllegalArgumentException in case of syntax errors
+	 */
+	private CopyStatement analyseCopy(StringList tokens)
+	{
+		if (tokens.count() < 2) {
+			throw new IllegalArgumentException("missing text name");
+		}
+		String textName = unquote(tokens.get(1));
+		String library = null;
+		int ix = 2;
+		if (ix + 1 < tokens.count() && (tokens.get(ix).equalsIgnoreCase("OF") || tokens.get(ix).equalsIgnoreCase("IN"))) {
+			library = unquote(tokens.get(ix + 1));
+			ix += 2;
+		}
+		if (ix < tokens.count() && tokens.get(ix).equalsIgnoreCase("SUPPRESS")) {
+			ix++;
+			if (ix < tokens.count() && tokens.get(ix).equalsIgnoreCase("PRINTING")) {
+				ix++;
 			}
-			// END KGU#605 2018-10-30
-		} else if (firstToken.equals("REPLACE")) {
-			// TODO store the replacements and do them
-			// removed because must be set as comment until next period (multiple lines):
-			// resultLine = "*> REPLACE: " + codeLine;
-			// TODO log error - no support for REPLACE statement and present it to the user
-			// as a warning after the parsing is finished
-			// START KGU#605 2018-10-30: Issue #630
-			this.codeLinesREPLACEorCOPY.add(String.format("%5d: %s", this.lineNo, codeLine));
-			// END KGU#605 2018-10-30
 		}
+		TextReplacements replacing = null;
+		if (ix < tokens.count()) {
+			if (!tokens.get(ix).equalsIgnoreCase("REPLACING")) {
+				throw new IllegalArgumentException("unexpected \"" + tokens.get(ix) + "\"");
+			}
+			replacing = compileReplacements(tokens, ix + 1);
+		}
+		return new CopyStatement(textName, library, replacing);
+	}
+	
+	/**
+	 * Analyses the tokens of a complete REPLACE statement and puts it into force:<br/>
+	 * {@code REPLACE [ALSO] {operand BY operand}... } or {@code REPLACE [LAST] OFF}.<br/>
+	 * A REPLACE ALSO statement is stacked on the active ones, its operands taking
+	 * precedence; REPLACE LAST OFF re-establishes the state before the most recent
+	 * REPLACE statement, REPLACE OFF and REPLACE without ALSO discard the entire stack.
+	 * 
+	 * @param tokens - the statement tokens (without period)
+	 * @throws IllegalArgumentException in case of syntax errors
+	 */
+	private void analyseReplace(StringList tokens)
+	{
+		int ix = 1;
+		boolean last = false;
+		if (ix < tokens.count() && tokens.get(ix).equalsIgnoreCase("LAST")) {
+			last = true;
+			ix++;
+		}
+		if (ix < tokens.count() && tokens.get(ix).equalsIgnoreCase("OFF")) {
+			if (ix + 1 < tokens.count()) {
+				throw new IllegalArgumentException("unexpected \"" + tokens.get(ix + 1) + "\"");
+			}
+			if (!last) {
+				this.replaceLevels.clear();
+			}
+			else if (!this.replaceLevels.isEmpty()) {
+				this.replaceLevels.removeLast();
+			}
+		}
+		else if (last) {
+			throw new IllegalArgumentException("OFF expected after LAST");
+		}
+		else {
+			boolean also = tokens.count() > 1 && tokens.get(1).equalsIgnoreCase("ALSO");
+			if (also) {
+				ix = 2;
+			}
+			StringList operands = tokens.subSequence(ix, tokens.count());
+			// Check the syntax before the active replacements are affected
+			compileReplacements(operands, 0);
+			if (!also) {
+				this.replaceLevels.clear();
+			}
+			this.replaceLevels.addLast(operands);
+		}
+		if (this.replaceLevels.isEmpty()) {
+			this.replaceStatement = null;
+		}
+		else {
+			// The operands of the most recent statement come first, i.e. prevail
+			StringList allOperands = new StringList();
+			Iterator<StringList> iter = this.replaceLevels.descendingIterator();
+			while (iter.hasNext()) {
+				allOperands.add(iter.next());
+			}
+			this.replaceStatement = compileReplacements(allOperands, 0);
+		}
+	}
+	
+	/**
+	 * Compiles the operand pairs {@code [LEADING|TRAILING] operand-1 BY operand-2} from
+	 * {@code tokens}, starting at index {@code ix}, into a {@link TextReplacements} object.
+	 * 
+	 * @param tokens - the statement tokens
+	 * @param ix - index of the first operand token
+	 * @return the compiled replacements
+	 * @throws IllegalArgumentException in case of syntax errors
+	 */
+	private static TextReplacements compileReplacements(StringList tokens, int ix)
+	{
+		StringBuilder regex = new StringBuilder();
+		ArrayList<String> substitutes = new ArrayList<String>();
+		while (ix < tokens.count()) {
+			boolean leading = false, trailing = false;
+			String token = tokens.get(ix);
+			if (token.equalsIgnoreCase("LEADING")) {
+				leading = true;
+				ix++;
+			}
+			else if (token.equalsIgnoreCase("TRAILING")) {
+				trailing = true;
+				ix++;
+			}
+			if (ix + 2 >= tokens.count() || !tokens.get(ix + 1).equalsIgnoreCase("BY")) {
+				throw new IllegalArgumentException("incomplete replacing operand pair");
+			}
+			String operand = tokens.get(ix);
+			String substitute = tokens.get(ix + 2);
+			ix += 3;
+			boolean isLiteral = operand.startsWith("\"") || operand.startsWith("'");
+			if (operand.startsWith("==")) {
+				operand = operand.substring(2, operand.length() - 2).trim();
+			}
+			if (substitute.startsWith("==")) {
+				substitute = substitute.substring(2, substitute.length() - 2).trim();
+			}
+			if (operand.isEmpty()) {
+				throw new IllegalArgumentException("empty pseudo-text operand");
+			}
+			// Text words of the operand may be separated by arbitrary whitespace
+			String[] words = operand.split("\\s+");
+			StringBuilder operandRegex = new StringBuilder();
+			for (int i = 0; i < words.length; i++) {
+				if (i > 0) {
+					operandRegex.append("\\s+");
+				}
+				operandRegex.append(Pattern.quote(words[i]));
+			}
+			if (regex.length() > 0) {
+				regex.append("|");
+			}
+			regex.append(isLiteral ? "(" : "((?i:");
+			if (!trailing && PTRN_COBOL_WORD_CHAR.matcher(operand.substring(0, 1)).matches()) {
+				regex.append("(?<![\\w-])");
+			}
+			regex.append(operandRegex);
+			if (!leading && PTRN_COBOL_WORD_CHAR.matcher(operand.substring(operand.length()-1)).matches()) {
+				regex.append("(?![\\w-])");
+			}
+			regex.append(isLiteral ? ")" : "))");
+			substitutes.add(substitute);
+		}
+		if (substitutes.isEmpty()) {
+			throw new IllegalArgumentException("missing replacing operands");
+		}
+		return new TextReplacements(Pattern.compile(regex.toString()), substitutes.toArray(new String[substitutes.size()]));
+	}
+	
+	/**
+	 * Removes the enclosing quotes from a literal token
+	 * @param token - a text word or literal
+	 * @return the unquoted content
+	 */
+	private static String unquote(String token)
+	{
+		if (token.length() >= 2 && (token.startsWith("\"") || token.startsWith("'"))) {
+			return token.substring(1, token.length() - 1);
+		}
+		return token;
+	}
+	
+	/**
+	 * Checks whether the character position {@code pos} of {@code line} is located
+	 * within a (single or double-quoted) string literal.
+	 * 
+	 * @param line - a code line
+	 * @param pos - character index
+	 * @return {@code true} if {@code pos} is placed after the opening quote of a literal
+	 */
+	private static boolean isWithinLiteral(String line, int pos)
+	{
+		char quote = '\0';
+		for (int i = 0; i < pos; i++) {
+			char ch = line.charAt(i);
+			if (quote == '\0') {
+				if (ch == '"' || ch == '\'') {
+					quote = ch;
+				}
+			}
+			else if (ch == quote) {
+				quote = '\0';	// doubled quotes just re-open the literal
+			}
+		}
+		return quote != '\0';
+	}
+	
+	/**
+	 * Applies the replacements of the COPY statement being expanded (if any) and
+	 * those of an active REPLACE statement to the given code line.
+	 * 
+	 * @param codeLine - code line without sequence and indicator area
+	 * @return the modified line
+	 */
+	private String applyTextReplacements(String codeLine)
+	{
+		if (this.copyReplacing != null) {
+			codeLine = this.copyReplacing.apply(codeLine);
+		}
+		if (this.replaceStatement != null) {
+			codeLine = this.replaceStatement.apply(codeLine);
+		}
+		return codeLine;
+	}
+	
+	/**
+	 * Inserts the (preprocessed) lines of the copybook specified by {@code copy}
+	 * into {@code srcCode}. Unresolvable copybooks are reported in the log and
+	 * simply skipped.
+	 * 
+	 * @param repAuto - the current {@link RepositoryAutomaton}
+	 * @param copy - the COPY statement
+	 * @param srcCode - the prepared code being constructed
+	 * @param posAndLength - pair of last position in source line and last code length
+	 */
+	private void expandCopybook(RepositoryAutomaton repAuto, CopyStatement copy, StringBuilder srcCode,
+			CodePosAndLength posAndLength)
+	{
+		String key = (copy.library == null ? "" : copy.library + "/") + copy.textName.toUpperCase();
+		if (copyStack.contains(key) || copyStack.size() >= MAX_COPY_DEPTH) {
+			this.codeLinesREPLACEorCOPY.add(String.format("%5d: COPY %s (recursive copybook inclusion)",
+					this.lineNo, copy.textName));
+			return;
+		}
+		CopybookCache cache = CopybookCache.getInstance();
+		// Nested expansions are part of the outermost one, so we measure only there
+		boolean isOutermost = copyStack.isEmpty();
+		long startTime = System.nanoTime();
+		Copybook copybook = null;
+		try {
+			copybook = cache.getCopybook(copy.textName, copy.library, copybookDirs, sourceEncoding);
+		}
+		catch (IOException ex) {
+			log("*** Copybook \"" + copy.textName + "\" couldn't be read: " + ex + "\n", true);
+		}
+		if (copybook == null) {
+			log("*** Copybook \"" + copy.textName + "\" not found (line " + this.lineNo + "), COPY ignored.\n", true);
+			if (isOutermost) {
+				cache.addTime(System.nanoTime() - startTime);
+			}
+			return;
+		}
+		int startLength = srcCode.length();
+		TextReplacements outerReplacing = this.copyReplacing;
+		this.copyReplacing = copy.replacing;
+		copyStack.push(key);
+		srcCode.append("*> ---- start of copybook ").append(copybook.path).append("\n");
+		registerPreparedLines(1);
+		try {
+			for (int i = 0; i < copybook.count(); i++) {
+				prepareTextLine(repAuto, copybook.get(i), srcCode, posAndLength);
+			}
+			if (this.pendingStatement != null) {
+				this.codeLinesREPLACEorCOPY.add(String.format("%5d: %s (unterminated in copybook %s)",
+						this.lineNo, this.pendingStatement, copy.textName));
+				this.pendingStatement = null;
+			}
+		}
+		finally {
+			copyStack.pop();
+			this.copyReplacing = outerReplacing;
+		}
+		srcCode.append("*> ---- end of copybook ").append(copy.textName).append("\n");
+		registerPreparedLines(1);
+		posAndLength.pos = srcCode.length();
+		posAndLength.length = 0;
+		this.nCopiesExpanded++;
+		if (isOutermost) {
+			// Nested expansions are contained in the outer text
+			cache.addExpanded(srcCode.length() - startLength);
+			cache.addTime(System.nanoTime() - startTime);
+		}
+	}
 
-		return resultLine;
+	/**
+	 * Associates the next {@code nLines} lines of the intermediate file with the
+	 * current source line {@link #lineNo} (lines inserted from copybooks are thus
+	 * associated with the line of the COPY statement).
+	 * @param nLines - number of lines just appended to the prepared code
+	 */
+	private void registerPreparedLines(int nLines)
+	{
+		if (nPreparedLines + nLines > preparedLineSources.length) {
+			preparedLineSources = Arrays.copyOf(preparedLineSources,
+					Math.max(2 * preparedLineSources.length, nPreparedLines + nLines));
+		}
+		for (int i = 0; i < nLines; i++) {
+			preparedLineSources[nPreparedLines++] = this.lineNo;
+		}
+	}
+
+	@Override
+	protected int getSourceLineNumber(int _preparedLineNo)
+	{
+		if (_preparedLineNo >= 1 && nPreparedLines > 0) {
+			// Beyond the end there is only the appended final newline
+			return preparedLineSources[Math.min(_preparedLineNo, nPreparedLines) - 1];
+		}
+		return _preparedLineNo;
 	}
+	// END KGU#1211 2026-10-19
 
 	private void setColumns(int settingColumnIndicator, int settingColumnText) {
 		this.settingColumnIndicator = settingColumnIndicator;
@@ -54,6 +54,11 @@ package lu.fisch.structorizer.parsers;
  *      Kay Gürtzig     2023-11-13      Enh. #1115 + bugfix #1116: New option to convert #defines into constants,
  *                                      array typedef preparation repaired
  *      Kay Gürtzig     2024-03-08      Bugfix #1130: Macro expansion had to suppressed in string/char literals
+ *      Kay Gürtzig     2026-10-19      KGU#1210: Header preprocessing results and library definitions cached
+ *                                      (shared among the files of a batch import), precompiled macro patterns
+ *                                      and word pre-check in replaceDefinedEntries()
+ *      Kay Gürtzig     2026-10-19      KGU#1210: Header cache hits verified against a full context snapshot,
+ *                                      all shared caches bounded
  *
  ******************************************************************************************************
  *
@@ -62,8 +67,10 @@ package lu.fisch.structorizer.parsers;
  ******************************************************************************************************/
 
 import java.io.*;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.Map.Entry;
@@ -229,6 +236,182 @@ public abstract class CPreParser extends CodeParser
 	private Set<String> includedHeaders = new HashSet<String>();
 	// END KGU#547 2018-07-09
 
+	// START KGU#1210 2026-10-19: Shared preprocessor definition cache for batch imports
+	/**
+	 * Describes the effect of the preprocessing of a header file (including all header
+	 * files it includes in turn) on the preprocessor state: the resulting macro table,
+	 * the collected typedef names, the resulting constant definitions and the paths
+	 * (and modification times) of all header files processed thereby.
+	 * Entries are only valid for the preprocessor context (defines, already included
+	 * headers, constants) they were recorded in.
+	 */
+	private static final class HeaderCacheEntry {
+		/** Snapshot of the preprocessor context the header had been processed in */
+		final PreprocessorContext context;
+		/** Paths of all processed header files mapped to their modification times */
+		final HashMap<String, Long> headerStamps;
+		/** The macro table after processing the header */
+		final LinkedHashMap<String, String[]> definesAfter;
+		/** The define-derived constants after processing the header (may be empty) */
+		final LinkedHashMap<String, String[]> constantsAfter;
+		/** Type names collected from the header file (and its includes) */
+		final String[] typedefNames;
+
+		HeaderCacheEntry(PreprocessorContext context, HashMap<String, Long> headerStamps,
+				HashMap<String, String[]> definesAfter, HashMap<String, String[]> constantsAfter,
+				String[] typedefNames)
+		{
+			this.context = context;
+			this.headerStamps = headerStamps;
+			this.definesAfter = new LinkedHashMap<String, String[]>(definesAfter);
+			this.constantsAfter = new LinkedHashMap<String, String[]>(constantsAfter);
+			this.typedefNames = typedefNames;
+		}
+
+		/**
+		 * @return {@code true} if none of the involved header files has been modified
+		 *    (or removed) since the entry was recorded.
+		 */
+		boolean isUpToDate()
+		{
+			for (Entry<String, Long> stamp: headerStamps.entrySet()) {
+				File file = new File(stamp.getKey());
+				if (!file.isFile() || file.lastModified() != stamp.getValue()) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Immutable snapshot of the preprocessor state (macro table, define-derived constants,
+	 * already included headers, conversion option) a header file is processed in. The
+	 * hash code only serves for a quick pre-selection, equality is always checked in full.
+	 */
+	private static final class PreprocessorContext {
+		private final LinkedHashMap<String, String[]> defines;
+		private final LinkedHashMap<String, String[]> constants;
+		private final HashSet<String> headers;
+		private final boolean definesToConstants;
+		private final int hash;
+
+		PreprocessorContext(HashMap<String, String[]> defines, HashMap<String, String[]> constants,
+				Set<String> headers, boolean definesToConstants)
+		{
+			this.defines = new LinkedHashMap<String, String[]>(defines);
+			this.constants = new LinkedHashMap<String, String[]>(constants);
+			this.headers = new HashSet<String>(headers);
+			this.definesToConstants = definesToConstants;
+			int h = 17;
+			for (Entry<String, String[]> entry: defines.entrySet()) {
+				h = 31 * h + entry.getKey().hashCode();
+				h = 31 * h + Arrays.hashCode(entry.getValue());
+			}
+			for (Entry<String, String[]> entry: constants.entrySet()) {
+				h = 37 * h + entry.getKey().hashCode();
+				h = 37 * h + Arrays.hashCode(entry.getValue());
+			}
+			// The set hash is independent of the element order
+			h = 41 * h + headers.hashCode();
+			this.hash = definesToConstants ? ~h : h;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object other)
+		{
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof PreprocessorContext)) {
+				return false;
+			}
+			PreprocessorContext ctx = (PreprocessorContext)other;
+			return hash == ctx.hash
+					&& definesToConstants == ctx.definesToConstants
+					&& headers.equals(ctx.headers)
+					&& sameEntries(defines, ctx.defines)
+					&& sameEntries(constants, ctx.constants);
+		}
+
+		/**
+		 * Compares two maps with array values in their entry order (the order matters
+		 * for the macro expansion).
+		 */
+		private static boolean sameEntries(LinkedHashMap<String, String[]> map1, LinkedHashMap<String, String[]> map2)
+		{
+			if (map1.size() != map2.size()) {
+				return false;
+			}
+			Iterator<Entry<String, String[]>> iter2 = map2.entrySet().iterator();
+			for (Entry<String, String[]> entry1: map1.entrySet()) {
+				Entry<String, String[]> entry2 = iter2.next();
+				if (!entry1.getKey().equals(entry2.getKey())
+						|| !Arrays.equals(entry1.getValue(), entry2.getValue())) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/** Maximum number of header files the preprocessing results are cached for */
+	private static final int MAX_CACHED_HEADERS = 256;
+
+	/**
+	 * Cache of the preprocessing results of header files, shared among all instances (i.e.
+	 * among all files of a batch import). Maps the absolute header path to the entries
+	 * recorded for differing preprocessor contexts. Bounded to {@link #MAX_CACHED_HEADERS}
+	 * paths (least recently used ones are dropped first).
+	 *
+	 * @see #clearDefinitionCache()
+	 */
+	@SuppressWarnings("serial")
+	private static final LinkedHashMap<String, LinkedList<HeaderCacheEntry>> headerCache =
+			new LinkedHashMap<String, LinkedList<HeaderCacheEntry>>(64, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Entry<String, LinkedList<HeaderCacheEntry>> eldest) {
+			return size() > MAX_CACHED_HEADERS;
+		}
+	};
+
+	/**
+	 * Cache for the contents of the library definition resources ({@code defsImportC_<lib>.txt}),
+	 * maps the library name to the list of name-value pairs in their original order.
+	 *
+	 * @see #applyUseDefinesOptions()
+	 */
+	private static final HashMap<String, LinkedList<String[]>> libDefinitionCache =
+			new HashMap<String, LinkedList<String[]>>();
+
+	/** Maximum number of differing context variants cached per header file */
+	private static final int MAX_HEADER_VARIANTS = 4;
+
+	/**
+	 * Drops all cached header preprocessing results, library definitions, and macro
+	 * patterns. Should be called at the end of a (batch) import in order to release
+	 * the memory.
+	 */
+	public static void clearDefinitionCache()
+	{
+		synchronized (headerCache) {
+			headerCache.clear();
+		}
+		synchronized (libDefinitionCache) {
+			libDefinitionCache.clear();
+		}
+		synchronized (macroPatterns) {
+			macroPatterns.clear();
+		}
+	}
+	// END KGU#1210 2026-10-19
+
 	final static Pattern PTRN_VOID_CAST = Pattern.compile("(^\\s*|.*?[^\\w\\s]+\\s*)\\(\\s*void\\s*\\)(.*?)");
 	static Matcher mtchVoidCast = PTRN_VOID_CAST.matcher("");
 	// START KGU#519 2018-06-17: Enh. #541
@@ -236,6 +419,25 @@ public abstract class CPreParser extends CodeParser
 	private static final Pattern PTRN_MACRO_SIG = Pattern.compile("(\\w+)\\(\\s*([0-9]*)\\s*\\)");
 	private static Matcher mtchMacroSig = PTRN_MACRO_SIG.matcher("");
 	// END KGU#519 2018-06-17
+	// START KGU#1210 2026-10-19: Precompiled macro expansion
+	private static final Pattern PTRN_WORD = Pattern.compile("\\w+");
+	private static Matcher mtchWord = PTRN_WORD.matcher("");
+	/** Maximum number of macro names the compiled expansion patterns are kept for */
+	private static final int MAX_MACRO_PATTERNS = 4096;
+	/**
+	 * Maps macro names to the precompiled patterns for their expansion (bounded to
+	 * {@link #MAX_MACRO_PATTERNS} entries, least recently used ones are dropped first)
+	 * @see #getMacroPatterns(String)
+	 */
+	@SuppressWarnings("serial")
+	private static final LinkedHashMap<String, Pattern[]> macroPatterns =
+			new LinkedHashMap<String, Pattern[]>(256, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Entry<String, Pattern[]> eldest) {
+			return size() > MAX_MACRO_PATTERNS;
+		}
+	};
+	// END KGU#1210 2026-10-19
 
 	//----------------------------- Preprocessor -----------------------------
 
@@ -446,6 +648,43 @@ public abstract class CPreParser extends CodeParser
 			if (!useLib) {
 				continue;
 			}
+			// START KGU#1210 2026-10-19: The resource is now read only once per session
+			//InputStream istr = getClass().getResourceAsStream("defsImportC_" + libName + ".txt");
+			//if (istr != null) {
+			LinkedList<String[]> libDefs = getLibraryDefinitions(libName);
+			for (String[] def: libDefs) {
+				String name = def[0];
+				String value = def[1];
+				if (value.equals("type")) {
+					typedefs.add(name);
+					blockRanges.addElement(new Integer[]{0, -1});
+				}
+				else {
+					defines.put(name, new String[]{value});
+				}
+			}
+			// END KGU#1210 2026-10-19
+		}
+	}
+
+	// START KGU#1210 2026-10-19: Shared preprocessor definition cache
+	/**
+	 * Provides the contents of the definition resource file for the library with name
+	 * {@code libName} as a list of name-value pairs. The resource file is only read on
+	 * the first request, subsequent requests are served from {@link #libDefinitionCache}.
+	 *
+	 * @param libName - one of the {@link #standardLibs}
+	 * @return list of pairs {name, value} in the order of their first retrieval (may be
+	 *    empty if the resource is missing or defective).
+	 */
+	private LinkedList<String[]> getLibraryDefinitions(String libName)
+	{
+		synchronized (libDefinitionCache) {
+			LinkedList<String[]> libDefs = libDefinitionCache.get(libName);
+			if (libDefs != null) {
+				return libDefs;
+			}
+			libDefs = new LinkedList<String[]>();
 			InputStream istr = getClass().getResourceAsStream("defsImportC_" + libName + ".txt");
 			if (istr != null) {
 				/* The lines of the file are expected to look like this:
@@ -462,15 +701,9 @@ public abstract class CPreParser extends CodeParser
 					defs.load(istr);
 					for (Object key: defs.keySet()) {
 						String name = (String)key;
-						String value = defs.getProperty(name).trim();
-						if (value.equals("type")) {
-							typedefs.add(name);
-							blockRanges.addElement(new Integer[]{0, -1});
-						}
-						else {
-							defines.put(name, new String[]{value});
-						}
+						libDefs.add(new String[] {name, defs.getProperty(name).trim()});
 					}
+					libDefinitionCache.put(libName, libDefs);
 				} catch (IOException e) {
 					log ("*** Read error in definition file for library " + libName + ":\n" + e.toString(), false);
 				}
@@ -480,8 +713,10 @@ public abstract class CPreParser extends CodeParser
 					} catch (IOException ex) {}
 				}
 			}
+			return libDefs;
 		}
 	}
+	// END KGU#1210 2026-10-19
 	// END KGU#550 2018-07-09
 
 	/**
@@ -973,9 +1208,20 @@ public abstract class CPreParser extends CodeParser
 				// START KGU#1075 2023-09-12: Bugfix #1085
 				int nTypes = this.blockRanges.size();	// number of previous definitions
 				//END KGU#1075 2023-09-12
+				// START KGU#1210 2026-10-19: Reuse the results of former files in the batch
+				PreprocessorContext context = getPreprocessorContext();
+				if (applyCachedHeader(path, context)) {
+					log("Header \"" + path + "\" taken from definition cache.\n", false);
+				}
+				else {
+					Set<String> headersBefore = new HashSet<String>(includedHeaders);
+				// END KGU#1210 2026-10-19
 				if (processSourceFile(path, subSB)) {
 					try {
 						collectTypedefs(subSB.toString(), path, null);
+						// START KGU#1210 2026-10-19
+						cacheHeader(path, context, headersBefore, nTypes);
+						// END KGU#1210 2026-10-19
 					} catch (IOException e) {
 						// TODO Auto-generated catch block
 						log("*** " + this.getClass().getSimpleName() + ".collectTypedefs() failed for file \"" + path + "\" with\n" + e.toString(), false);
@@ -984,6 +1230,9 @@ public abstract class CPreParser extends CodeParser
 				} else {
 					return "// preparser include (failed): ";
 				}
+				// START KGU#1210 2026-10-19
+				}
+				// END KGU#1210 2026-10-19
 				// START KGU#1075 2023-09-12: Bugfix #1085
 				// We must forget the ranges within the include file and set the include line 
 				// as start (this is not of course clean but better than before)
@@ -1009,6 +1258,106 @@ public abstract class CPreParser extends CodeParser
 		return "// preparser instruction (not parsed!): ";
 	}
 
+	// START KGU#1210 2026-10-19: Shared preprocessor definition cache
+	/**
+	 * Takes a snapshot of the current preprocessor state, i.e. of the macro table
+	 * {@link #defines}, the define-derived {@link #constants}, and the set of
+	 * {@link #includedHeaders}. The preprocessing result of a header file only depends
+	 * on its content and this state.
+	 *
+	 * @return the context snapshot
+	 */
+	private PreprocessorContext getPreprocessorContext()
+	{
+		return new PreprocessorContext(defines, constants, includedHeaders, optionConvertDefinesToConstants);
+	}
+
+	/**
+	 * Looks for a cached preprocessing result of the header file with given {@code path}
+	 * recorded within a preprocessor context equal to {@code context} and, if there is
+	 * a valid one, applies it to the preprocessor state.
+	 *
+	 * @param path - the path of the header file
+	 * @param context - the snapshot of the current preprocessor state
+	 * @return {@code true} if a valid cache entry was found and applied
+	 *
+	 * @see #getPreprocessorContext()
+	 * @see #cacheHeader(String, PreprocessorContext, Set, int)
+	 */
+	private boolean applyCachedHeader(String path, PreprocessorContext context)
+	{
+		HeaderCacheEntry cached = null;
+		synchronized (headerCache) {
+			LinkedList<HeaderCacheEntry> variants = headerCache.get(path);
+			if (variants != null) {
+				for (HeaderCacheEntry entry: variants) {
+					if (entry.context.equals(context)) {
+						cached = entry;
+						break;
+					}
+				}
+				if (cached != null && !cached.isUpToDate()) {
+					// Some involved file was modified, so all variants are stale
+					headerCache.remove(path);
+					cached = null;
+				}
+			}
+		}
+		if (cached == null) {
+			return false;
+		}
+		defines.clear();
+		defines.putAll(cached.definesAfter);
+		constants.clear();
+		constants.putAll(cached.constantsAfter);
+		includedHeaders.addAll(cached.headerStamps.keySet());
+		for (String typeName: cached.typedefNames) {
+			typedefs.add(typeName);
+			blockRanges.add(new Integer[]{0, -1});
+		}
+		return true;
+	}
+
+	/**
+	 * Records the effect of the just completed preprocessing of the header file with
+	 * given {@code path} in the {@link #headerCache}.
+	 *
+	 * @param path - the path of the header file
+	 * @param context - the snapshot of the preprocessor state before the processing
+	 * @param headersBefore - the set of included header paths before the processing
+	 * @param nTypes - the number of registered typedefs before the processing
+	 */
+	private void cacheHeader(String path, PreprocessorContext context, Set<String> headersBefore, int nTypes)
+	{
+		HashMap<String, Long> stamps = new HashMap<String, Long>();
+		for (String header: includedHeaders) {
+			if (!headersBefore.contains(header)) {
+				File file = new File(header);
+				if (!file.isFile()) {
+					// Something strange - don't cache
+					return;
+				}
+				stamps.put(header, file.lastModified());
+			}
+		}
+		String[] typeNames = new String[typedefs.count() - nTypes];
+		for (int i = 0; i < typeNames.length; i++) {
+			typeNames[i] = typedefs.get(nTypes + i);
+		}
+		HeaderCacheEntry entry = new HeaderCacheEntry(context, stamps, defines, constants, typeNames);
+		synchronized (headerCache) {
+			LinkedList<HeaderCacheEntry> variants = headerCache.get(path);
+			if (variants == null) {
+				headerCache.put(path, variants = new LinkedList<HeaderCacheEntry>());
+			}
+			else if (variants.size() >= MAX_HEADER_VARIANTS) {
+				variants.removeFirst();
+			}
+			variants.addLast(entry);
+		}
+	}
+	// END KGU#1210 2026-10-19
+
 	// START KGU#1105 2023-11-13: Enh. #1115 Convert suited defines to constants
 	/**
 	 * Checks whether the specified {@code string} is a C literal or an obvious
@@ -1581,7 +1930,18 @@ public abstract class CPreParser extends CodeParser
 		}
 		// END KGU#519 2018-06-17
 		//log("CParser.replaceDefinedEntries(): " + Matcher.quoteReplacement((String)entry.getValue().toString()) + "\n", false);
+		// START KGU#1210 2026-10-19: Only macros actually occurring in the line are to be tried
+		Set<String> words = collectWords(toReplace);
+		// END KGU#1210 2026-10-19
 		for (Entry<String, String[]> entry: defines.entrySet()) {
+			// START KGU#1210 2026-10-19: Skip the (expensive) matching if the line can't match
+			String key = entry.getKey();
+			if (!words.contains(key) && mtchWord.reset(key).matches()) {
+				continue;
+			}
+			Pattern[] patterns = getMacroPatterns(key);
+			String before = toReplace;
+			// END KGU#1210 2026-10-19
 			
 			if (entry.getValue().length > 1) {
 				//          key<val[0]>     <   val[1]   >
@@ -1597,7 +1957,10 @@ public abstract class CPreParser extends CodeParser
 				 * The trouble here is that text1, text2 etc. might also contain parentheses, so may the following text.
 				 * The result of the replacement would then be a total desaster
 				 */
-				Matcher matcher = Pattern.compile("(^|.*?\\W)" + entry.getKey() + "(\\s*)\\((.*)\\)(.*?)").matcher("");
+				// START KGU#1210 2026-10-19: Use the precompiled pattern
+				//Matcher matcher = Pattern.compile("(^|.*?\\W)" + entry.getKey() + "(\\s*)\\((.*)\\)(.*?)").matcher("");
+				Matcher matcher = patterns[0].matcher("");
+				// END KGU#1210 2026-10-19
 				//while (toReplace.matches("(^|.*?\\W)" + entry.getKey() + "\\s*\\(.*\\).*?")) {
 				while (matcher.reset(toReplace).matches()) {
 					// START KGU#1118 2024-03-08: Bugfix #1130 We must not apply macro expansion within literals
@@ -1685,15 +2048,22 @@ public abstract class CPreParser extends CodeParser
 								parts.add(tail);
 							}
 							// This pattern differs in the last group from matcher (greedy <-> non-greedy)
-							toReplace = toReplace.replaceFirst("(^|.*?\\W)" + entry.getKey() + "(\\s*)\\((.*)\\)(.*)",
+							// START KGU#1210 2026-10-19: Use the precompiled pattern
+							//toReplace = toReplace.replaceFirst("(^|.*?\\W)" + entry.getKey() + "(\\s*)\\((.*)\\)(.*)",
+							//		"$1" + Matcher.quoteReplacement(parts.concatenate()) + "$4");
+							toReplace = patterns[1].matcher(toReplace).replaceFirst(
 									"$1" + Matcher.quoteReplacement(parts.concatenate()) + "$4");
+							// END KGU#1210 2026-10-19
 						}
 					}
 				}
 			}
 			// START KGU#1118 2024-03-08: Bugfix #1130 Avoid expansions within literals
 			else if (toReplace.indexOf('\'') >= 0 || toReplace.indexOf('"') >= 0) {
-				Matcher matcher = Pattern.compile("(^|.*?\\W)" + entry.getKey() + "(\\W.*?|$)").matcher("");
+				// START KGU#1210 2026-10-19: Use the precompiled pattern
+				//Matcher matcher = Pattern.compile("(^|.*?\\W)" + entry.getKey() + "(\\W.*?|$)").matcher("");
+				Matcher matcher = patterns[2].matcher("");
+				// END KGU#1210 2026-10-19
 				String expanded = "";
 				while (matcher.reset(toReplace).matches()) {
 					if (startsStrLiteral(expanded + matcher.group(1))) {
@@ -1710,9 +2080,18 @@ public abstract class CPreParser extends CodeParser
 			// END KGU#1118 2024-03-08
 			else {
 				// from: #define	a	b, b can also be empty
-				toReplace = toReplace.replaceAll("(^|.*?\\W)" + entry.getKey() + "(\\W.*?|$)",
+				// START KGU#1210 2026-10-19: Use the precompiled pattern
+				//toReplace = toReplace.replaceAll("(^|.*?\\W)" + entry.getKey() + "(\\W.*?|$)",
+				//		"$1" + Matcher.quoteReplacement((String) entry.getValue()[0]) + "$2");
+				toReplace = patterns[2].matcher(toReplace).replaceAll(
 						"$1" + Matcher.quoteReplacement((String) entry.getValue()[0]) + "$2");
+				// END KGU#1210 2026-10-19
 			}
+			// START KGU#1210 2026-10-19: The substitution may have introduced further macro names
+			if (!toReplace.equals(before)) {
+				words = collectWords(toReplace);
+			}
+			// END KGU#1210 2026-10-19
 		}
 		// START KGU#519 2018-06-17: Enh. #541 - To preserve line counting, we restore the temporarily cropped newlines
 		//return toReplace;
@@ -1720,6 +2099,50 @@ public abstract class CPreParser extends CodeParser
 		// END KGU#519 2018-06-17
 	}
 
+	// START KGU#1210 2026-10-19: Precompiled macro expansion structures
+	/**
+	 * Returns the regular expression patterns needed to expand the macro {@code key},
+	 * compiling them on the first request only.
+	 *
+	 * @param key - the macro name
+	 * @return array of: [0] function macro detection pattern, [1] function macro replacement
+	 *    pattern, [2] symbol macro pattern.
+	 */
+	private static Pattern[] getMacroPatterns(String key)
+	{
+		synchronized (macroPatterns) {
+			Pattern[] patterns = macroPatterns.get(key);
+			if (patterns == null) {
+				patterns = new Pattern[] {
+						Pattern.compile("(^|.*?\\W)" + key + "(\\s*)\\((.*)\\)(.*?)"),
+						// This pattern differs in the last group from the first (greedy <-> non-greedy)
+						Pattern.compile("(^|.*?\\W)" + key + "(\\s*)\\((.*)\\)(.*)"),
+						Pattern.compile("(^|.*?\\W)" + key + "(\\W.*?|$)")
+				};
+				macroPatterns.put(key, patterns);
+			}
+			return patterns;
+		}
+	}
+
+	/**
+	 * Collects all identifier-like words of the given source line. A macro can only be
+	 * expanded in the line if its name is among them.
+	 *
+	 * @param line - a source code line
+	 * @return the set of the contained words
+	 */
+	private static Set<String> collectWords(String line)
+	{
+		Set<String> words = new HashSet<String>();
+		Matcher matcher = PTRN_WORD.matcher(line);
+		while (matcher.find()) {
+			words.add(matcher.group());
+		}
+		return words;
+	}
+	// END KGU#1210 2026-10-19
+
 	// START KGU#1118 2024-03-08: Bugfix #1130
 	/**
 	 * Checks whether the passed-in source code snippet {@code prefix} ends within
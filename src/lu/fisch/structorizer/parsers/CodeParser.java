@@ -58,6 +58,10 @@ package lu.fisch.structorizer.parsers;
  *      Kay Gürtzig     2024-03-18      Standard colour names refactored (e.g. colorConst -> COLOR_CONST)
  *      Kay Gürtzig     2024-04-07      Issue #1157 Explanation text for "error.group_runaway" inserted.
  *      Kay Gürtzig     2024-04-16      KGU#1147: New auxiliary method isRegisteredStatementRule()
+ *      Kay Gürtzig     2026-10-19      KGU#1220: loadFromINI() no longer exposes intermediate keyword states
+ *      Kay Gürtzig     2026-10-19      KGU#1220: keywordMap published as a whole via a volatile reference
+ *      Kay Gürtzig     2026-10-19      KGU#1226: Parse throughput written to the parser log
+ *      Kay Gürtzig     2026-10-19      KGU#1211: Hook getSourceLineNumber() for the syntax error context
  *
  ******************************************************************************************************
  *
@@ -72,6 +76,7 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.util.Collections;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -741,7 +746,12 @@ public abstract class CodeParser extends javax.swing.filechooser.FileFilter impl
 				this.checkCancelled();
 				// END KGU#537 2018-06-30
 				// Parse the source statements to see if it is syntactically correct
+				// START KGU#1226 2026-10-19: Log the parse throughput
+				//boolean parsedWithoutError = parser.parseSourceStatements(sourceCode);
+				long parseStart = System.nanoTime();
 				boolean parsedWithoutError = parser.parseSourceStatements(sourceCode);
+				logThroughput(parser, System.nanoTime() - parseStart);
+				// END KGU#1226 2026-10-19
 
 				// Holds the parse tree if setGenerateTree(true) was called
 				//tree = parser.getParseTree();
@@ -841,6 +851,12 @@ public abstract class CodeParser extends javax.swing.filechooser.FileFilter impl
 			if (isSyntaxError && intermediate != null)
 			{
 				Position pos = parser.getCurrentPosition();
+				// START KGU#1211 2026-10-19: The parser reports the line of the intermediate file
+				int srcLineNo = getSourceLineNumber(pos.getLine());
+				if (srcLineNo != pos.getLine()) {
+					error += " (line " + srcLineNo + " of the source file)";
+				}
+				// END KGU#1211 2026-10-19
 				error += "\n\nPreceding source context:";
 				int lineNo = pos.getLine() - 1;
 				int colNo = pos.getColumn() - 1;
@@ -848,7 +864,10 @@ public abstract class CodeParser extends javax.swing.filechooser.FileFilter impl
 				StringList sourceLines = StringList.explode(sourceCode, "\n");
 				// Note: position may not be correct if preprocessor dropped / added lines
 				for (int i = start; i < lineNo; i++) {
-					addLineToErrorString(i+1, undoIdReplacements(sourceLines.get(i).replace("\t", "    ")));
+					// START KGU#1211 2026-10-19: Show the line numbers of the source file
+					//addLineToErrorString(i+1, undoIdReplacements(sourceLines.get(i).replace("\t", "    ")));
+					addLineToErrorString(getSourceLineNumber(i+1), undoIdReplacements(sourceLines.get(i).replace("\t", "    ")));
+					// END KGU#1211 2026-10-19
 				}
 				String line = sourceLines.get(lineNo);
 				if (line.length() >= colNo) {
@@ -857,7 +876,10 @@ public abstract class CodeParser extends javax.swing.filechooser.FileFilter impl
 				//			if (line.length() < colNo && lineNo+1 < sourceLines.count()) {
 				//				error += String.format("\n%4d:   %s", lineNo+2, sourceLines.get(lineNo+1).replaceFirst("(^\\s*)(\\S.*)", "$1»$2").replace("\t", "    "));
 				//			}
-				addLineToErrorString(lineNo+1, line.replace("\t", "    "));
+				// START KGU#1211 2026-10-19
+				//addLineToErrorString(lineNo+1, line.replace("\t", "    "));
+				addLineToErrorString(getSourceLineNumber(lineNo+1), line.replace("\t", "    "));
+				// END KGU#1211 2026-10-19
 				SymbolList sl = parser.getExpectedSymbols();
 				Token token = parser.getCurrentToken();
 				// START KGU#511 2018-04-12: Issue #489
@@ -1146,6 +1168,39 @@ public abstract class CodeParser extends javax.swing.filechooser.FileFilter impl
 		}
 	}
 
+	// START KGU#1226 2026-10-19
+	/**
+	 * Writes the number of consumed characters and lines and the resulting
+	 * throughput of the parsing phase to the parser log (if any).
+	 * @param _parser - the parser after parsing
+	 * @param _nanos - the parsing time in nanoseconds
+	 */
+	private void logThroughput(AuParser _parser, long _nanos)
+	{
+		if (logFile != null) {
+			long nChars = _parser.getConsumedCharCount();
+			double millis = _nanos / 1e6;
+			log(String.format("\nParsed %d characters (%d lines) in %.1f ms (%.0f characters/s).\n",
+					nChars, _parser.getPosition().getLine(), millis,
+					millis > 0 ? nChars * 1000 / millis : 0.0), false);
+		}
+	}
+	// END KGU#1226 2026-10-19
+
+	// START KGU#1211 2026-10-19: Line mapping for preprocessors inserting lines
+	/**
+	 * Maps a line number of the intermediate file produced by {@link #prepareTextfile(String, String)}
+	 * to the corresponding line number of the original source file. Subclasses whose
+	 * preprocessing inserts or drops lines should override this.
+	 * @param _preparedLineNo - 1-based line number in the intermediate file
+	 * @return the 1-based line number in the source file
+	 */
+	protected int getSourceLineNumber(int _preparedLineNo)
+	{
+		return _preparedLineNo;
+	}
+	// END KGU#1211 2026-10-19
+
 	// START KGU#407 2017-06-22: Enh. #420 allow subclasses a comment retrieval
 	/**
 	 * Adds all rule ids given by the array to the registered rule ids for statement
@@ -1635,13 +1690,22 @@ public abstract class CodeParser extends javax.swing.filechooser.FileFilter impl
 	 * there may be even more for the correct splitting of the element text (as e.g.
 	 * in FOR loops). Some redundant keywords (decorum) may be empty. The map will
 	 * initially be filled with default keywords, then they are usually be overwritten
-	 * by those from the INI file.
+	 * by those from the INI file.<br/>
+	 * The map is never modified after its publication, a change replaces it as a whole
+	 * (under the class lock), such that concurrent readers (e.g. parallel code export
+	 * workers) always get a consistent snapshot.
 	 */
 	// START KGU#288 2016-11-06: Issue #279: Access limited to private, compensated by new methods
 	//public static final HashMap<String, String> keywordMap = new LinkedHashMap<String, String>();
-	private static final HashMap<String, String> keywordMap = new LinkedHashMap<String, String>();
+	// START KGU#1220 2026-10-19: Published as a whole via a volatile reference
+	//private static final HashMap<String, String> keywordMap = new LinkedHashMap<String, String>();
+	private static volatile HashMap<String, String> keywordMap;
+	// END KGU#1220 2026-10-19
 	// END KGU#288 2016-11-06
 	static {
+		// START KGU#1220 2026-10-19
+		HashMap<String, String> keywordMap = new LinkedHashMap<String, String>();
+		// END KGU#1220 2026-10-19
 		keywordMap.put("preAlt",     "");
 		keywordMap.put("postAlt",    "");
 		keywordMap.put("preCase",    "");
@@ -1663,6 +1727,9 @@ public abstract class CodeParser extends javax.swing.filechooser.FileFilter impl
 		// END KGU#686 2019-03-18
 		keywordMap.put("input",      "INPUT");
 		keywordMap.put("output",     "OUTPUT");
+		// START KGU#1220 2026-10-19
+		CodeParser.keywordMap = keywordMap;
+		// END KGU#1220 2026-10-19
 	}
 
 	// START KGU#466 2019-08-02: Issue #733 - Support selective preference export
@@ -1714,23 +1781,36 @@ public abstract class CodeParser extends javax.swing.filechooser.FileFilter impl
 			Ini ini = Ini.getInstance();
 			ini.load();
 
+			// START KGU#1220 2026-10-19: Concurrent readers (e.g. parallel code export) must never see
+			// an intermediate state, so the keywords are gathered in a new map, which then replaces
+			// the published one as a whole
+			LinkedHashMap<String, String> keywords = new LinkedHashMap<String, String>();
 			for (String key: keywordMap.keySet())
 			{
 				String propertyName = "Parser" + Character.toUpperCase(key.charAt(0)) + key.substring(1);
 				if(defaultKeys.containsKey(propertyName))
 				{
-					keywordMap.put(key, ini.getProperty(propertyName, defaultKeys.get(propertyName)));
+					//keywordMap.put(key, ini.getProperty(propertyName, defaultKeys.get(propertyName)));
+					keywords.put(key, ini.getProperty(propertyName, defaultKeys.get(propertyName)));
 				}
 				else
 				{
-					keywordMap.put(key, ini.getProperty(propertyName, ""));
+					//keywordMap.put(key, ini.getProperty(propertyName, ""));
+					keywords.put(key, ini.getProperty(propertyName, ""));
 				}
 			}
 			// START KGU#659 2019-02-19: Bugfix #684 - An empty FOR-IN keyword (legacy) meant equality with FOR loop keyword 
-			if (keywordMap.get("preForIn").trim().isEmpty()) {
-				keywordMap.put("preForIn", keywordMap.get("preFor"));
+			//if (keywordMap.get("preForIn").trim().isEmpty()) {
+			//	keywordMap.put("preForIn", keywordMap.get("preFor"));
+			//}
+			if (keywords.get("preForIn").trim().isEmpty()) {
+				keywords.put("preForIn", keywords.get("preFor"));
 			}
 			// END KGU#659 2019-02-19
+			synchronized (CodeParser.class) {
+				keywordMap = keywords;
+			}
+			// END KGU#1220 2026-10-19
 
 			// START KGU#165 2016-03-25: Enhancement configurable case awareness
 			ignoreCase = ini.getProperty("ParserIgnoreCase", "true").equalsIgnoreCase("true");
@@ -1795,10 +1875,15 @@ public abstract class CodeParser extends javax.swing.filechooser.FileFilter impl
 	 */
 	public static final HashMap<String, String> getPropertyMap(boolean includeAuxiliary)
 	{
-		HashMap<String, String> keywords = keywordMap;
+		// START KGU#1220 2026-10-19: The published map must not be exposed to modifications
+		//HashMap<String, String> keywords = keywordMap;
+		HashMap<String, String> keywords = new LinkedHashMap<String, String>(keywordMap);
+		// END KGU#1220 2026-10-19
 		if (includeAuxiliary)
 		{
-			keywords = new HashMap<String,String>(keywordMap);
+			// START KGU#1220 2026-10-19
+			//keywords = new HashMap<String,String>(keywordMap);
+			// END KGU#1220 2026-10-19
 			// The following information may be important for a correct search
 			keywords.put("ignoreCase",  Boolean.toString(ignoreCase));
 		}
@@ -1812,7 +1897,10 @@ public abstract class CodeParser extends javax.swing.filechooser.FileFilter impl
 	 */
 	public static Set<String> keywordSet()
 	{
-		return keywordMap.keySet();
+		// START KGU#1220 2026-10-19: The published map must not be exposed to modifications
+		//return keywordMap.keySet();
+		return Collections.unmodifiableSet(keywordMap.keySet());
+		// END KGU#1220 2026-10-19
 	}
 
 	/**
@@ -1866,9 +1954,18 @@ public abstract class CodeParser extends javax.swing.filechooser.FileFilter impl
 			_keyword = "";
 		}
 		// Bugfix #281/#282
-		if (keywordMap.containsKey(_key)) {
-			keywordMap.put(_key, _keyword);
+		// START KGU#1220 2026-10-19: Replace the published map rather than modify it
+		//if (keywordMap.containsKey(_key)) {
+		//	keywordMap.put(_key, _keyword);
+		//}
+		synchronized (CodeParser.class) {
+			if (keywordMap.containsKey(_key)) {
+				HashMap<String, String> keywords = new LinkedHashMap<String, String>(keywordMap);
+				keywords.put(_key, _keyword);
+				keywordMap = keywords;
+			}
 		}
+		// END KGU#1220 2026-10-19
 	}
 	// END KGU#288 2016-11-06
 	
@@ -0,0 +1,274 @@
+/*
+    Structorizer
+    A little tool which you can use to create Nassi-Schneiderman Diagrams (NSD)
+
+    Copyright (C) 2009  Bob Fisch
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lu.fisch.structorizer.parsers;
+
+/******************************************************************************************************
+ *
+ *      Author:         Kay Gürtzig
+ *
+ *      Description:    Session-wide cache for COBOL copybooks (COPY statement resolution)
+ *
+ ******************************************************************************************************
+ *
+ *      Revision List
+ *
+ *      Author          Date            Description
+ *      ------          ----            -----------
+ *      Kay Gürtzig     2026-10-19      First Issue (on behalf of COPY/REPLACE support in COBOLParser)
+ *      Kay Gürtzig     2026-10-19      Time only accounted by the caller (no double counting), statistics
+ *                                      label fixed (characters rather than bytes)
+ *
+ ******************************************************************************************************
+ *
+ *      Comment:
+ *      The cache is shared among all COBOLParser instances, such that in a batch import
+ *      every copybook file is only read once. Each copybook is held as a single string
+ *      with an array of line start offsets (rather than as a list of line strings) in
+ *      order to keep the memory footprint small.
+ *
+ ******************************************************************************************************///
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.HashMap;
+
+/**
+ * Session-wide cache for the contents of COBOL copybook files, keyed by the canonical
+ * file path and validated via the modification time. Also gathers some statistics
+ * (cache hits, expanded characters, time spent) for reporting purposes.
+ *
+ * @author Kay Gürtzig
+ */
+public class CopybookCache {
+
+	/** Default file name extensions to be tried on copybook resolution */
+	public static final String[] COPYBOOK_EXTENSIONS = {
+			"", ".cpy", ".CPY", ".cbl", ".CBL", ".cob", ".COB", ".copy", ".COPY"
+	};
+
+	/**
+	 * The lines of a copybook file, stored as one string with line start offsets.
+	 */
+	public static final class Copybook {
+		/** Canonical path of the copybook file */
+		public final String path;
+		/** Modification time of the file at load time */
+		private final long lastModified;
+		/** The entire text without line separators */
+		private final String text;
+		/** Start offsets of the lines within {@link #text}, with an extra end offset */
+		private final int[] lineStarts;
+
+		private Copybook(String path, long lastModified, String content)
+		{
+			this.path = path;
+			this.lastModified = lastModified;
+			// Count the lines first
+			int nLines = 0;
+			int len = content.length();
+			for (int i = 0; i < len; i++) {
+				if (content.charAt(i) == '\n') {
+					nLines++;
+				}
+			}
+			if (len > 0 && content.charAt(len - 1) != '\n') {
+				nLines++;
+			}
+			StringBuilder sb = new StringBuilder(len);
+			this.lineStarts = new int[nLines + 1];
+			int lineIx = 0;
+			int start = 0;
+			while (start < len) {
+				int end = content.indexOf('\n', start);
+				if (end < 0) {
+					end = len;
+				}
+				int lineEnd = end;
+				if (lineEnd > start && content.charAt(lineEnd - 1) == '\r') {
+					lineEnd--;
+				}
+				lineStarts[lineIx++] = sb.length();
+				sb.append(content, start, lineEnd);
+				start = end + 1;
+			}
+			lineStarts[lineIx] = sb.length();
+			this.text = sb.toString();
+		}
+
+		/** @return the number of lines */
+		public int count()
+		{
+			return lineStarts.length - 1;
+		}
+
+		/**
+		 * @param index - the line index (0-based)
+		 * @return the line with given {@code index} (without line separator)
+		 */
+		public String get(int index)
+		{
+			return text.substring(lineStarts[index], lineStarts[index + 1]);
+		}
+
+		/** @return the number of characters (without line separators) */
+		public int length()
+		{
+			return text.length();
+		}
+	}
+
+	private static final CopybookCache instance = new CopybookCache();
+
+	private final HashMap<String, Copybook> copybooks = new HashMap<String, Copybook>();
+
+	private long nRequests = 0;
+	private long nHits = 0;
+	private long nCharsExpanded = 0;
+	private long nanosSpent = 0;
+
+	private CopybookCache() {}
+
+	/**
+	 * @return the session-wide instance
+	 */
+	public static CopybookCache getInstance()
+	{
+		return instance;
+	}
+
+	/**
+	 * Looks up the copybook with given {@code name} (optionally within the library
+	 * directory {@code library}) in the given search {@code directories}, trying the
+	 * {@link #COPYBOOK_EXTENSIONS}, and returns its cached content.<br/>
+	 * The time spent is not accounted here, since it is part of the expansion time the
+	 * caller is to register via {@link #addTime(long)}.
+	 *
+	 * @param name - the text name of the COPY statement (quotes already removed)
+	 * @param library - a library name (from the OF/IN clause) or {@code null}
+	 * @param directories - the directories to be searched in the given order
+	 * @param encoding - the character set name for the file
+	 * @return the {@link Copybook} or {@code null} if it couldn't be found
+	 * @throws IOException if the found file couldn't be read
+	 */
+	public Copybook getCopybook(String name, String library, Iterable<File> directories, String encoding)
+			throws IOException
+	{
+		File file = findCopybook(name, library, directories);
+		if (file == null) {
+			return null;
+		}
+		String path = file.getCanonicalPath();
+		long lastModified = file.lastModified();
+		synchronized (this) {
+			nRequests++;
+			Copybook copybook = copybooks.get(path);
+			if (copybook != null && copybook.lastModified == lastModified) {
+				nHits++;
+				return copybook;
+			}
+		}
+		String content = new String(Files.readAllBytes(file.toPath()), Charset.forName(encoding));
+		Copybook copybook = new Copybook(path, lastModified, content);
+		synchronized (this) {
+			copybooks.put(path, copybook);
+		}
+		return copybook;
+	}
+
+	/**
+	 * Searches the given directories for a file with name {@code name} (in the sub-directory
+	 * {@code library} if given), trying all {@link #COPYBOOK_EXTENSIONS}.
+	 *
+	 * @param name - copybook name (text name of the COPY statement)
+	 * @param library - optional library (directory) name, may be {@code null}
+	 * @param directories - the directories to be searched
+	 * @return the first matching file or {@code null}
+	 */
+	private File findCopybook(String name, String library, Iterable<File> directories)
+	{
+		File asIs = new File(name);
+		if (asIs.isAbsolute()) {
+			return asIs.isFile() ? asIs : null;
+		}
+		for (File dir: directories) {
+			if (library != null) {
+				dir = new File(dir, library);
+			}
+			for (String ext: COPYBOOK_EXTENSIONS) {
+				File file = new File(dir, name + ext);
+				if (file.isFile()) {
+					return file;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Registers the given number of characters as expanded (i.e. inserted into a source)
+	 * @param nChars - number of inserted characters
+	 */
+	public synchronized void addExpanded(long nChars)
+	{
+		nCharsExpanded += nChars;
+	}
+
+	/**
+	 * Adds the given time to the statistics
+	 * @param nanos - time spent in nanoseconds
+	 */
+	public synchronized void addTime(long nanos)
+	{
+		nanosSpent += nanos;
+	}
+
+	/**
+	 * @return {@code true} if no copybook has been requested since the last {@link #clear()}
+	 */
+	public synchronized boolean isUnused()
+	{
+		return nRequests == 0;
+	}
+
+	/**
+	 * @return a human-readable summary of the cache statistics
+	 */
+	public synchronized String getStatistics()
+	{
+		return String.format("Copybook cache: %d request(s), %d hit(s), %d file(s) cached, "
+				+ "%d characters expanded, %d ms spent",
+				nRequests, nHits, copybooks.size(), nCharsExpanded, nanosSpent / 1000000);
+	}
+
+	/**
+	 * Drops all cached copybooks and resets the statistics.
+	 */
+	public synchronized void clear()
+	{
+		copybooks.clear();
+		nRequests = 0;
+		nHits = 0;
+		nCharsExpanded = 0;
+		nanosSpent = 0;
+	}
+
+}
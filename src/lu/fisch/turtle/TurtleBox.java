@@ -56,6 +56,13 @@ package lu.fisch.turtle;
  *      Kay Gürtzig     2020-12-26      Enh. #890: Icons indicating the snapping mode added to status bar
  *      Kay Gürtzig     2020-12-28      Issue #895: Workaround for scaling defect with NimbusLookAndFeel
  *      Kay Gürtzig     2020-12-30      Enh. #890: The tooltip for statusSnap had to be set on initialisation
+ *      Kay Gürtzig     2026-10-19      KGU#1216: Incremental drawing into a backing image, repaints coalesced
+ *                                      to the display refresh rate when the delay is 0
+ *      Kay Gürtzig     2026-10-19      KGU#1216: Backing image rendered in device resolution (HiDPI)
+ *      Kay Gürtzig     2026-10-19      KGU#1217: Element Vector replaced by a columnar LineStore with grid
+ *                                      index for the snapping of the measuring line
+ *      Kay Gürtzig     2026-10-19      KGU#1218: CSV and SVG export streamed by a LineExporter in a background
+ *                                      thread with progress monitor, collinear SVG path steps merged
  *
  ******************************************************************************************************
  *
@@ -91,17 +98,18 @@ import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowFocusListener;
+import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
 import java.lang.reflect.Method;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
-import java.util.Locale;
-import java.util.Vector;
+import java.util.concurrent.ExecutionException;
 //import java.util.logging.Logger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -120,20 +128,21 @@ import javax.swing.JPopupMenu;
 import javax.swing.JScrollPane;
 import javax.swing.KeyStroke;
 import javax.swing.LookAndFeel;
+import javax.swing.ProgressMonitor;
 import javax.swing.SpinnerModel;
 import javax.swing.SpinnerNumberModel;
 import javax.swing.SwingConstants;
+import javax.swing.SwingWorker;
 import javax.swing.UIManager;
 import javax.swing.event.ChangeEvent;
 
 import lu.fisch.diagrcontrol.*;
 import lu.fisch.turtle.io.CSVFilter;
 import lu.fisch.turtle.io.ExtFileFilter;
+import lu.fisch.turtle.io.LineExporter;
 import lu.fisch.turtle.io.PNGFilter;
 import lu.fisch.turtle.io.SVGFilter;
-import lu.fisch.turtle.elements.Element;
-import lu.fisch.turtle.elements.Line;
-import lu.fisch.turtle.elements.Move;
+import lu.fisch.turtle.elements.LineStore;
 
 /**
  * TurtleBox - a Turtle controller providing an interface usable e.g. by Structorizer
@@ -246,6 +255,20 @@ public class TurtleBox implements DelayableDiagramController
 					// set anti-aliasing rendering
 					g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,RenderingHints.VALUE_ANTIALIAS_ON);
 
+					// START KGU#1216 2026-10-19: Background, axes and lines come from the backing image
+					// On HiDPI screens the graphics context is scaled, so we need more image pixels
+					AffineTransform devTransform = g.getTransform();
+					double devScale = devTransform.getScaleX();
+					boolean backed = !compensateZoom
+							&& devTransform.getShearX() == 0 && devTransform.getShearY() == 0
+							&& devScale > 0 && devScale == devTransform.getScaleY()
+							&& updateBackingImage(devScale);
+					if (backed) {
+						g.drawImage(backingImage, backingRect.x, backingRect.y,
+								backingRect.width, backingRect.height, null);
+					}
+					// END KGU#1216 2026-10-19
+
 					// clear background
 					// START KGU#303 2016-12-02: Enh. #302
 					//g.setColor(Color.WHITE);
@@ -262,7 +285,12 @@ public class TurtleBox implements DelayableDiagramController
 						zoom = 1f;
 					}
 					else {
-						g.fillRect(0, 0, this.getWidth(), this.getHeight());
+						// START KGU#1216 2026-10-19
+						//g.fillRect(0, 0, this.getWidth(), this.getHeight());
+						if (!backed) {
+							g.fillRect(0, 0, this.getWidth(), this.getHeight());
+						}
+						// END KGU#1216 2026-10-19
 						g.scale(zoomFactor, zoomFactor);
 					}
 					// START KGU#893 2020-12-21: Bugfix #894
@@ -274,28 +302,12 @@ public class TurtleBox implements DelayableDiagramController
 					// END KGU#685 2020-12-11
 
 					// START KGU#685 2020-12-14: Enh. #704
-					if (offset != null && popupShowOrigin.isSelected()) {
-						// Paint the axes of coordinates
-						int x0 = Math.min(0, owner.bounds.x);
-						int y0 = Math.min(0, owner.bounds.y);
-						int x1 = owner.bounds.x + owner.bounds.width;
-						int y1 = owner.bounds.y + owner.bounds.height;
-						Rectangle visibleRect = g.getClipBounds();
-						// Make sure the lines run through the entire visible area
-						if (visibleRect != null) {
-							x1 = Math.max(x1, visibleRect.x + visibleRect.width);
-							y1 = Math.max(y1, visibleRect.y + visibleRect.height);
-						}
-						g.setColor(Color.decode("0xffcccc"));
-						java.awt.Stroke strk = g.getStroke();
-						g.setStroke(new java.awt.BasicStroke(1f/zoom,
-								java.awt.BasicStroke.CAP_ROUND,
-								java.awt.BasicStroke.JOIN_ROUND, 1f,
-								new float[] {2f/zoom, 2f/zoom}, 0f));
-						g.drawLine(0, y0, 0, y1);
-						g.drawLine(x0, 0, x1, 0);
-						g.setStroke(strk);
+					// START KGU#1216 2026-10-19: Code moved to paintAxes()
+					//if (offset != null && popupShowOrigin.isSelected()) {
+					if (!backed && offset != null && popupShowOrigin.isSelected()) {
+						paintAxes(g, zoom);
 					}
+					// END KGU#1216 2026-10-19
 					// END KGU#685 2020-12-14
 					
 					// START KGU#303 2016-12-03: Enh. #302
@@ -312,13 +324,23 @@ public class TurtleBox implements DelayableDiagramController
 					//{
 					//    ele.draw(g);
 					//}
-					int nElements = owner.elements.size();
+					int nElements = owner.lines.size();
 					// START KGU#597 2018-10-12: Issue #622 - Monitoring drawing detention underMac
 					//logger.config("Painting " + nElements + " elements...");
 					// END KGU#597 2018-10-12
-					for (int i = 0; i < nElements; i++) {
-						owner.elements.get(i).draw(g);
+					// START KGU#1216 2026-10-19: Only draw directly if there is no backing image
+					//for (int i = 0; i < nElements; i++) {
+					//	owner.elements.get(i).draw(g);
+					//}
+					// START KGU#1217 2026-10-19: Lines are held in a LineStore now
+					//for (int i = 0; !backed && i < nElements; i++) {
+					//	owner.elements.get(i).draw(g);
+					//}
+					if (!backed) {
+						owner.lines.draw(g, 0, nElements);
 					}
+					// END KGU#1217 2026-10-19
+					// END KGU#1216 2026-10-19
 					// END KGU#449 2017-10-28
 
 					// START KGU#889 2020-12-21: Enh. #890/8 measuring line
@@ -390,6 +412,132 @@ public class TurtleBox implements DelayableDiagramController
 				// END KGU#685 2020-12-16
 			}
 			
+			// START KGU#1216 2026-10-19: Incremental drawing
+			/** Retained image of background, axes, and lines for the visible area */
+			private BufferedImage backingImage = null;
+			/** The panel area (visible rectangle) the {@link #backingImage} was rendered for */
+			private Rectangle backingRect = null;
+			/** Number of elements already rendered into the {@link #backingImage} */
+			private int backingCount = 0;
+			private float backingZoom = 0f;
+			private Point backingOffset = null;
+			private Color backingBackground = null;
+			private boolean backingAxes = false;
+			private int backingGeneration = -1;
+			/** Device pixels per panel coordinate unit the {@link #backingImage} was rendered for */
+			private double backingScale = 0;
+
+			/**
+			 * Brings the backing image up to date: the image is re-rendered from scratch if zoom,
+			 * viewport, displacement, background, axes display, or device scale have changed or the
+			 * drawing was cleared, otherwise only the elements added since the last call are rasterized.
+			 * @param devScale - the scale factor of the target graphics context (device pixels per
+			 * panel coordinate unit, e.g. 2.0 on HiDPI screens)
+			 * @return {@code true} if the backing image may be used, {@code false} if the panel
+			 * isn't visible
+			 */
+			private boolean updateBackingImage(double devScale)
+			{
+				Rectangle vRect = getVisibleRect();
+				if (vRect.width <= 0 || vRect.height <= 0) {
+					return false;
+				}
+				Point offset = displacement;
+				boolean showAxes = offset != null && popupShowOrigin.isSelected();
+				int nElements = owner.lines.size();
+				if (backingImage == null || !vRect.equals(backingRect)
+						|| backingZoom != zoomFactor
+						|| (offset == null ? backingOffset != null : !offset.equals(backingOffset))
+						|| !owner.backgroundColor.equals(backingBackground)
+						|| showAxes != backingAxes
+						|| backingGeneration != owner.drawingGeneration
+						|| backingScale != devScale
+						|| nElements < backingCount) {
+					int imgWidth = (int)Math.ceil(vRect.width * devScale);
+					int imgHeight = (int)Math.ceil(vRect.height * devScale);
+					if (backingImage == null || backingImage.getWidth() != imgWidth
+							|| backingImage.getHeight() != imgHeight) {
+						backingImage = new BufferedImage(imgWidth, imgHeight, BufferedImage.TYPE_INT_RGB);
+					}
+					backingRect = vRect;
+					backingScale = devScale;
+					backingZoom = zoomFactor;
+					backingOffset = offset == null ? null : new Point(offset);
+					backingBackground = owner.backgroundColor;
+					backingAxes = showAxes;
+					backingGeneration = owner.drawingGeneration;
+					backingCount = 0;
+					Graphics2D bg = createBackingGraphics();
+					bg.setColor(owner.backgroundColor);
+					bg.fillRect(0, 0, imgWidth, imgHeight);
+					bg.scale(devScale, devScale);
+					bg.translate(-vRect.x, -vRect.y);
+					bg.scale(zoomFactor, zoomFactor);
+					if (offset != null) {
+						bg.translate(offset.x, offset.y);
+					}
+					if (showAxes) {
+						paintAxes(bg, zoomFactor);
+					}
+					bg.dispose();
+				}
+				if (backingCount < nElements) {
+					Graphics2D bg = createBackingGraphics();
+					bg.scale(devScale, devScale);
+					bg.translate(-vRect.x, -vRect.y);
+					bg.scale(zoomFactor, zoomFactor);
+					if (offset != null) {
+						bg.translate(offset.x, offset.y);
+					}
+					owner.lines.draw(bg, backingCount, nElements);
+					bg.dispose();
+					backingCount = nElements;
+				}
+				return true;
+			}
+
+			/**
+			 * @return a new anti-aliasing graphics context for the {@link #backingImage},
+			 * clipped to the image area.
+			 */
+			private Graphics2D createBackingGraphics()
+			{
+				Graphics2D bg = backingImage.createGraphics();
+				bg.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+				bg.setClip(0, 0, backingImage.getWidth(), backingImage.getHeight());
+				return bg;
+			}
+
+			/**
+			 * Paints the axes of coordinates into the given graphics context, which is
+			 * expected to be already scaled and translated to turtle world coordinates.
+			 * @param g - the graphics context
+			 * @param zoom - the effective zoom factor (for the line width)
+			 */
+			private void paintAxes(Graphics2D g, float zoom)
+			{
+				int x0 = Math.min(0, owner.bounds.x);
+				int y0 = Math.min(0, owner.bounds.y);
+				int x1 = owner.bounds.x + owner.bounds.width;
+				int y1 = owner.bounds.y + owner.bounds.height;
+				Rectangle visibleRect = g.getClipBounds();
+				// Make sure the lines run through the entire visible area
+				if (visibleRect != null) {
+					x1 = Math.max(x1, visibleRect.x + visibleRect.width);
+					y1 = Math.max(y1, visibleRect.y + visibleRect.height);
+				}
+				g.setColor(Color.decode("0xffcccc"));
+				java.awt.Stroke strk = g.getStroke();
+				g.setStroke(new java.awt.BasicStroke(1f/zoom,
+						java.awt.BasicStroke.CAP_ROUND,
+						java.awt.BasicStroke.JOIN_ROUND, 1f,
+						new float[] {2f/zoom, 2f/zoom}, 0f));
+				g.drawLine(0, y0, 0, y1);
+				g.drawLine(x0, 0, x1, 0);
+				g.setStroke(strk);
+			}
+			// END KGU#1216 2026-10-19
+
 			// START KGU#685 2020-12-16: Enh. #704
 			public void updatePreferredSize(boolean useZoom)
 			{
@@ -697,19 +845,25 @@ public class TurtleBox implements DelayableDiagramController
 						nearestPt = owner.pos;
 						nearestDist = dist;
 					}
-					int nElements = owner.elements.size();
-					// Remark: consider a k-d-tree or a quad tree if linear search tends be too slow
-					for (int i = 0; i < nElements; i++) {
-						Point npt = owner.elements.get(i).getNearestPoint(truePt, snapLines);
-						dist = npt.distance(truePt);
-						if (dist <= snapRadius && dist < nearestDist) {
-							nearestPt = npt;
-							nearestDist = dist;
-							if (dist < 0.5) {
-								break;
-							}
-						}
+					// START KGU#1217 2026-10-19: Use the grid index of the line store
+					//int nElements = owner.elements.size();
+					//// Remark: consider a k-d-tree or a quad tree if linear search tends be too slow
+					//for (int i = 0; i < nElements; i++) {
+					//	Point npt = owner.elements.get(i).getNearestPoint(truePt, snapLines);
+					//	dist = npt.distance(truePt);
+					//	if (dist <= snapRadius && dist < nearestDist) {
+					//		nearestPt = npt;
+					//		nearestDist = dist;
+					//		if (dist < 0.5) {
+					//			break;
+					//		}
+					//	}
+					//}
+					Point npt = owner.lines.getNearestPoint(truePt, snapLines, snapRadius);
+					if (npt != null && npt.distance(truePt) < nearestDist) {
+						nearestPt = npt;
 					}
+					// END KGU#1217 2026-10-19
 					if (nearestPt != null) {
 						truePt = nearestPt;
 						mousePt = new Point(
@@ -841,7 +995,10 @@ public class TurtleBox implements DelayableDiagramController
 			popupExtendCanvas.setEnabled(owner.bounds.x < 0 || owner.bounds.y < 0);
 			popupZoom100.setEnabled(zoomFactor != 1.0f);
 			// START KGU#889 2020-12-17: issue #890
-			popupExportCSV.setEnabled(!owner.elements.isEmpty());
+			// START KGU#1217 2026-10-19
+			//popupExportCSV.setEnabled(!owner.elements.isEmpty());
+			popupExportCSV.setEnabled(!owner.lines.isEmpty());
+			// END KGU#1217 2026-10-19
 			popupExportSVG.setEnabled(owner.bounds.width > 0 || owner.bounds.height > 0);
 			// END KGU#889 2020-12-17
 			// START KGU#889 2020-12-20: Enh. #890/7
@@ -1334,43 +1491,55 @@ public class TurtleBox implements DelayableDiagramController
 							return;
 						}
 					}
-					try (BufferedWriter bw = Files.newBufferedWriter(path)) {
-						// Write header
-						// START KGU#889 2020-12-18: Issue #890 - choosable separator
-						//bw.append("xFrom,yFrom,xTo,yTo,color\n");
-						for (int i = 0; i < CSV_COL_HEADERS.length; i++) {
-							if (i > 0) {
-								bw.append(separator);
-							}
-							bw.append(CSV_COL_HEADERS[i]);
-						}
-						bw.newLine();
-						// END KGU#889 2020-12-18
-						// Write lines
-						int nElements = owner.elements.size();
-						for (int i = 0; i < nElements; i++) {
-							// START KGU#889 2020-12-18: Issue #890 - Moves are redundant
-//							bw.append(owner.elements.get(i).toCSV(null));
-//							bw.newLine();
-							Element el = owner.elements.get(i);
-							if (!(el instanceof Move)) {
-								bw.append(el.toCSV(separator));
-								bw.newLine();
-							}
-							// END KGU#889 2020-12-18
-						}
-					} catch (IOException exc) {
-						String message = exc.getMessage();
-						if (message == null || message.isEmpty()) {
-							message = exc.toString();
-						}
-						JOptionPane.showMessageDialog(this, message,
-								popupExportCSV.getName(),
-								JOptionPane.ERROR_MESSAGE);
-					}
-					if (Files.exists(path) && !chosen.isDirectory()) {
-						currentDirectory = chosen.getParentFile();
-					}
+					// START KGU#1218 2026-10-19: Stream the records in a background thread
+					//try (BufferedWriter bw = Files.newBufferedWriter(path)) {
+						//// Write header
+						//// START KGU#889 2020-12-18: Issue #890 - choosable separator
+						////bw.append("xFrom,yFrom,xTo,yTo,color\n");
+						//for (int i = 0; i < CSV_COL_HEADERS.length; i++) {
+							//if (i > 0) {
+								//bw.append(separator);
+							//}
+							//bw.append(CSV_COL_HEADERS[i]);
+						//}
+						//bw.newLine();
+						//// END KGU#889 2020-12-18
+						//// Write lines
+						//// START KGU#1217 2026-10-19: There are only lines in the store
+						////int nElements = owner.elements.size();
+						//int nElements = owner.lines.size();
+						//// END KGU#1217 2026-10-19
+						//for (int i = 0; i < nElements; i++) {
+							//// START KGU#889 2020-12-18: Issue #890 - Moves are redundant
+////							bw.append(owner.elements.get(i).toCSV(null));
+////							bw.newLine();
+							//// START KGU#1217 2026-10-19
+							////Element el = owner.elements.get(i);
+							////if (!(el instanceof Move)) {
+							////	bw.append(el.toCSV(separator));
+							////	bw.newLine();
+							////}
+							//bw.append(owner.lines.get(i).toCSV(separator));
+							//bw.newLine();
+							//// END KGU#1217 2026-10-19
+							//// END KGU#889 2020-12-18
+						//}
+					//} catch (IOException exc) {
+						//String message = exc.getMessage();
+						//if (message == null || message.isEmpty()) {
+							//message = exc.toString();
+						//}
+						//JOptionPane.showMessageDialog(this, message,
+								//popupExportCSV.getName(),
+								//JOptionPane.ERROR_MESSAGE);
+					//}
+					//if (Files.exists(path) && !chosen.isDirectory()) {
+						//currentDirectory = chosen.getParentFile();
+					//}
+					final String sepa = separator;
+					runExport(chosen, popupExportCSV.getText(),
+							(exporter, out) -> exporter.writeCSV(out, sepa, CSV_COL_HEADERS));
+					// END KGU#1218 2026-10-19
 				}
 			}
 		}
@@ -1429,7 +1598,9 @@ public class TurtleBox implements DelayableDiagramController
 		 */
 		private void exportSVG()
 		{
-			final int MAX_POINTS_PER_PATH = 800;
+			// START KGU#1218 2026-10-19: Moved to LineExporter
+			//final int MAX_POINTS_PER_PATH = 800;
+			// END KGU#1218 2026-10-19
 			JFileChooser fc = new JFileChooser(currentDirectory);
 			fc.setDialogTitle(
 					(popupExportImage.getText() + " " + popupExportSVG.getText())
@@ -1462,97 +1633,206 @@ public class TurtleBox implements DelayableDiagramController
 							return;
 						}
 					}
-					int offsetX = -owner.bounds.x, offsetY = -owner.bounds.y;
+					// START KGU#1218 2026-10-19: Moved to LineExporter
+					//int offsetX = -owner.bounds.x, offsetY = -owner.bounds.y;
+					// END KGU#1218 2026-10-19
 					// START KGU#685 2020-12-17: Issue #704 replaces posterior option query
 					this.lastAskedScale = scale;
 					// END KGU#685 2020-12-17
-					try (BufferedWriter bw = Files.newBufferedWriter(path)) {
-						bw.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
-						bw.append("<!-- Created with " + owner.getClass().getName()
-								+ " (https://structorizer.fisch.lu) -->\n");
-						bw.append("<svg xmlns=\"http://www.w3.org/2000/svg\" version=\"1.1\" width=\""
-								+ owner.bounds.width * scale + "\" height=\""
-								+ owner.bounds.height * scale + "\">\n");
-						String title = chosen.getName();
-						if (title.contains(".")) {
-							title = title.substring(0, title.lastIndexOf('.')-1);
-						}
-						bw.append("  <title>" + title + "</title>\n");
+					// START KGU#1218 2026-10-19: Stream the paths in a background thread
+					//try (BufferedWriter bw = Files.newBufferedWriter(path)) {
+						//bw.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+						//bw.append("<!-- Created with " + owner.getClass().getName()
+								//+ " (https://structorizer.fisch.lu) -->\n");
+						//bw.append("<svg xmlns=\"http://www.w3.org/2000/svg\" version=\"1.1\" width=\""
+								//+ owner.bounds.width * scale + "\" height=\""
+								//+ owner.bounds.height * scale + "\">\n");
+						//String title = chosen.getName();
+						//if (title.contains(".")) {
+							//title = title.substring(0, title.lastIndexOf('.')-1);
+						//}
+						//bw.append("  <title>" + title + "</title>\n");
 						
-						/* Draw the background:
-						 * The fill colour must not be given as hex code, otherwise the rectangle
-						 * will always be black! */
-						bw.append(String.format("    <rect style=\"fill:rgb(%d,%d,%d);fill-opacity:1\" ",
-								owner.backgroundColor.getRed(),
-								owner.backgroundColor.getGreen(),
-								owner.backgroundColor.getBlue()));
-						bw.append(String.format(" x=\"0\" y=\"0\" width=\"%d\" height=\"%d\" ",
-								Math.round(owner.bounds.width * scale),
-								Math.round(owner.bounds.height * scale)));
-						bw.append("id=\"background\"/>\n");
+						///* Draw the background:
+						// * The fill colour must not be given as hex code, otherwise the rectangle
+						// * will always be black! */
+						//bw.append(String.format("    <rect style=\"fill:rgb(%d,%d,%d);fill-opacity:1\" ",
+								//owner.backgroundColor.getRed(),
+								//owner.backgroundColor.getGreen(),
+								//owner.backgroundColor.getBlue()));
+						//bw.append(String.format(" x=\"0\" y=\"0\" width=\"%d\" height=\"%d\" ",
+								//Math.round(owner.bounds.width * scale),
+								//Math.round(owner.bounds.height * scale)));
+						//bw.append("id=\"background\"/>\n");
 						
-						// Now export the elements
-						bw.append("  <g id=\"elements\" style=\"fill:none;stroke-width:"
-								+ Math.round(scale) + "px;stroke-opacity:1:stroke-linejoin:miter\">\n");
-						Point lastPt = null;
-						Color lastCol = null;
-						int nPoints = 0;
-						int nElements = owner.elements.size();
-						for (int i = 0; i < nElements; i++) {
-							Element el = owner.elements.get(i);
-							if (el instanceof Line) {
-								Point from = el.getFrom();
-								Point to = el.getTo();
-								Color col = el.getColor();
-								if (lastPt == null || !lastPt.equals(from)
-										|| lastCol == null || !lastCol.equals(col)
-										|| nPoints >= MAX_POINTS_PER_PATH) {
-									if (i > 0) {
-										bw.append("\" />\n");
-									}
-									bw.append("    <path\n");
-									bw.append("      style=\"stroke:#"
-									+ Integer.toHexString(col.getRGB()).substring(2)
-									+ "\"\n");
-									bw.append(String.format("      id=\"path%1$05d\"\n", i));
-									bw.append(
-											String.format(
-													Locale.ENGLISH,
-													"      d=\"m %d,%d ",
-													(from.x + offsetX) * scale,
-													(from.y + offsetY) * scale));
+						//// Now export the elements
+						//bw.append("  <g id=\"elements\" style=\"fill:none;stroke-width:"
+								//+ Math.round(scale) + "px;stroke-opacity:1:stroke-linejoin:miter\">\n");
+						//Point lastPt = null;
+						//Color lastCol = null;
+						//int nPoints = 0;
+						//// START KGU#1217 2026-10-19: There are only lines in the store
+						////int nElements = owner.elements.size();
+						//int nElements = owner.lines.size();
+						//// END KGU#1217 2026-10-19
+						//for (int i = 0; i < nElements; i++) {
+							//// START KGU#1217 2026-10-19
+							////Element el = owner.elements.get(i);
+							////if (el instanceof Line) {
+							//{
+							//// END KGU#1217 2026-10-19
+								//Point from = owner.lines.getFrom(i);
+								//Point to = owner.lines.getTo(i);
+								//Color col = owner.lines.getColor(i);
+								//if (lastPt == null || !lastPt.equals(from)
+										//|| lastCol == null || !lastCol.equals(col)
+										//|| nPoints >= MAX_POINTS_PER_PATH) {
+									//if (i > 0) {
+										//bw.append("\" />\n");
+									//}
+									//bw.append("    <path\n");
+									//bw.append("      style=\"stroke:#"
+									//+ Integer.toHexString(col.getRGB()).substring(2)
+									//+ "\"\n");
+									//bw.append(String.format("      id=\"path%1$05d\"\n", i));
+									//bw.append(
+											//String.format(
+													//Locale.ENGLISH,
+													//"      d=\"m %d,%d ",
+													//(from.x + offsetX) * scale,
+													//(from.y + offsetY) * scale));
+								//}
+								//bw.append(String.format(
+												//Locale.ENGLISH,
+												//"%d,%d ",
+												//(to.x - from.x) * scale,
+												//(to.y - from.y) * scale));
+								//lastPt = to;
+								//lastCol = col;
+								//nPoints++;
+							//}
+						//}
+						//if (lastPt != null) {
+							//bw.append("\" />\n");
+						//}
+						//bw.append("  </g>\n");
+						//bw.append("</svg>\n");
+					//} catch (IOException exc) {
+						//String message = exc.getMessage();
+						//if (message == null || message.isEmpty()) {
+							//message = exc.toString();
+						//}
+						//JOptionPane.showMessageDialog(this, message,
+								//fc.getDialogTitle(),
+								//JOptionPane.ERROR_MESSAGE);
+					//}
+					//if (Files.exists(path) && !chosen.isDirectory()) {
+						//currentDirectory = chosen.getParentFile();
+					//}
+					String title = chosen.getName();
+					if (title.contains(".")) {
+						title = title.substring(0, title.lastIndexOf('.')-1);
+					}
+					final String svgTitle = title;
+					final String creator = owner.getClass().getName();
+					final Rectangle bounds = new Rectangle(owner.bounds);
+					final Color background = owner.backgroundColor;
+					final int svgScale = scale;
+					runExport(chosen, fc.getDialogTitle(),
+							(exporter, out) -> exporter.writeSVG(out, svgTitle, creator, bounds, background, svgScale));
+					// END KGU#1218 2026-10-19
+				}
+			}
+		}
+
+		// START KGU#1218 2026-10-19: Export in a background thread with progress monitor
+		/**
+		 * Writes a file via a {@link LineExporter} method
+		 */
+		private interface ExportAction {
+			/**
+			 * @param exporter - the {@link LineExporter} prepared for the current lines
+			 * @param out - the writer to the target file
+			 * @return {@code false} if the export was aborted
+			 * @throws IOException
+			 */
+			boolean export(LineExporter exporter, Writer out) throws IOException;
+		}
+
+		/**
+		 * Runs the given export {@code action} in a background thread, writing to
+		 * the file {@code chosen}, while a progress monitor allows to cancel the
+		 * export. Pops up a message box if something goes wrong, deletes the
+		 * incomplete file on cancellation.
+		 * @param chosen - the target file
+		 * @param title - the title for the progress monitor and message boxes
+		 * @param action - the export method to be applied
+		 */
+		private void runExport(final File chosen, final String title, final ExportAction action)
+		{
+			final Path path = chosen.toPath().toAbsolutePath();
+			final int nLines = owner.lines.size();
+			final ProgressMonitor monitor = new ProgressMonitor(this, title, chosen.getName(), 0, 100);
+			monitor.setMillisToDecideToPopup(200);
+			final SwingWorker<Boolean, Void> worker = new SwingWorker<Boolean, Void>() {
+				@Override
+				protected Boolean doInBackground() throws IOException
+				{
+					LineExporter exporter = new LineExporter(owner.lines, nLines,
+							(nDone, nTotal) -> {
+								if (nTotal > 0) {
+									setProgress((int)(100L * nDone / nTotal));
 								}
-								bw.append(String.format(
-												Locale.ENGLISH,
-												"%d,%d ",
-												(to.x - from.x) * scale,
-												(to.y - from.y) * scale));
-								lastPt = to;
-								lastCol = col;
-								nPoints++;
-							}
-						}
-						if (lastPt != null) {
-							bw.append("\" />\n");
+								return !isCancelled();
+							});
+					boolean complete = false;
+					try (BufferedWriter bw = Files.newBufferedWriter(path)) {
+						complete = action.export(exporter, bw);
+					}
+					finally {
+						if (!complete) {
+							// Don't leave an incomplete file behind
+							Files.deleteIfExists(path);
 						}
-						bw.append("  </g>\n");
-						bw.append("</svg>\n");
-					} catch (IOException exc) {
-						String message = exc.getMessage();
+					}
+					return complete;
+				}
+				@Override
+				protected void done()
+				{
+					monitor.close();
+					boolean complete = false;
+					try {
+						complete = !isCancelled() && get();
+					}
+					catch (InterruptedException exc) {}
+					catch (ExecutionException exc) {
+						Throwable cause = exc.getCause();
+						String message = cause.getMessage();
 						if (message == null || message.isEmpty()) {
-							message = exc.toString();
+							message = cause.toString();
 						}
-						JOptionPane.showMessageDialog(this, message,
-								fc.getDialogTitle(),
+						JOptionPane.showMessageDialog(TurtleFrame.this, message,
+								title,
 								JOptionPane.ERROR_MESSAGE);
 					}
-					if (Files.exists(path) && !chosen.isDirectory()) {
+					if (complete && Files.exists(path) && !chosen.isDirectory()) {
 						currentDirectory = chosen.getParentFile();
 					}
 				}
-			}
+			};
+			worker.addPropertyChangeListener(evt -> {
+				if ("progress".equals(evt.getPropertyName())) {
+					monitor.setProgress((Integer)evt.getNewValue());
+				}
+				if (monitor.isCanceled() && !worker.isDone()) {
+					worker.cancel(false);
+				}
+			});
+			worker.execute();
 		}
-		
+		// END KGU#1218 2026-10-19
+
 		/**
 		 * Adds some text and an integer spinner to the given file chooser
 		 * {@code fc}.
@@ -2110,7 +2390,19 @@ public class TurtleBox implements DelayableDiagramController
     // END KGU#303 2016-12-02
     private boolean turtleHidden = false;
     private int delay = 10;
-    private Vector<Element> elements = new Vector<Element>();
+    // START KGU#1217 2026-10-19: Compact columnar storage
+    //private Vector<Element> elements = new Vector<Element>();
+    /** The drawn lines */
+    private final LineStore lines = new LineStore();
+    // END KGU#1217 2026-10-19
+    // START KGU#1216 2026-10-19: Incremental drawing
+    /** Incremented whenever {@link #lines} gets cleared (invalidates the backing image) */
+    private volatile int drawingGeneration = 0;
+    /** Fallback if the display refresh rate can't be determined */
+    private static final int DEFAULT_REFRESH_RATE = 60;
+    /** Timer to coalesce repaints when the delay is 0 */
+    private javax.swing.Timer refreshTimer = null;
+    // END KGU#1216 2026-10-19
     // START KGU#685 2020-12-14: Enh. #704
     /** bounding box of all visible elements, to be maintained via {@link #addLine(Point,Point,Color)} */
     private Rectangle bounds = new Rectangle();
@@ -2290,7 +2582,10 @@ public class TurtleBox implements DelayableDiagramController
      */
     private void reinit()
     {
-        elements.clear();
+        lines.clear();
+        // START KGU#1216 2026-10-19
+        drawingGeneration++;
+        // END KGU#1216 2026-10-19
         angle = -90;
         backgroundColor = Color.WHITE;
         defaultPenColor = Color.BLACK;
@@ -2319,7 +2614,15 @@ public class TurtleBox implements DelayableDiagramController
         // END KGU#480 2018-01-16
         // START KGU#685 2020-12-11: Enh. #704
         //panel.repaint();
-        frame.repaintAll();
+        // START KGU#1216 2026-10-19: Without delay, coalesce the repaints to the refresh rate
+        //frame.repaintAll();
+        if (delay == 0) {
+            scheduleRefresh();
+        }
+        else {
+            frame.repaintAll();
+        }
+        // END KGU#1216 2026-10-19
         // END KGU#685 2020-12-11
         if (delay != 0)
         {
@@ -2331,13 +2634,59 @@ public class TurtleBox implements DelayableDiagramController
         }
     }
     
+    // START KGU#1216 2026-10-19: Repaint coalescing
+    /**
+     * Makes sure the frame will be repainted within the next display refresh
+     * interval, without triggering more than one repaint per interval.
+     */
+    private void scheduleRefresh()
+    {
+        if (refreshTimer == null) {
+            int rate = 0;
+            try {
+                rate = java.awt.GraphicsEnvironment.getLocalGraphicsEnvironment()
+                        .getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+            }
+            catch (Exception ex) {}
+            if (rate <= 0) {
+                rate = DEFAULT_REFRESH_RATE;
+            }
+            refreshTimer = new javax.swing.Timer(Math.max(1000 / rate, 1), new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent evt) {
+                    if (frame != null) {
+                        frame.repaintAll();
+                    }
+                }});
+            refreshTimer.setRepeats(false);
+            refreshTimer.setCoalesce(true);
+        }
+        if (!refreshTimer.isRunning()) {
+            refreshTimer.start();
+        }
+    }
+    // END KGU#1216 2026-10-19
+
     // START KGU#685 2020-12-14: Enh. #704
     /** Method to ensure incremental bounds adjustment */
     private void addLine(Point from, Point to, Color color)
     {
-        Line line = new Line(from, to, color);
-        elements.add(line);
-        bounds.add(line.getBounds());
+        // START KGU#1217 2026-10-19: No Line objects anymore
+        //Line line = new Line(from, to, color);
+        //elements.add(line);
+        //bounds.add(line.getBounds());
+        lines.add(from, to, color);
+        // Same as Line.getBounds(): avoid "empty" rectangles
+        Rectangle lineBounds = new Rectangle(from);
+        lineBounds.add(to);
+        if (lineBounds.height == 0) {
+            lineBounds.height = 1;
+        }
+        if (lineBounds.width == 0) {
+            lineBounds.width = 1;
+        }
+        bounds.add(lineBounds);
+        // END KGU#1217 2026-10-19
     }
     // END KGU#685 2020-12-14
 
@@ -2848,7 +3197,10 @@ public class TurtleBox implements DelayableDiagramController
      */
     public void clear()
     {
-        this.elements.clear();
+        this.lines.clear();
+        // START KGU#1216 2026-10-19
+        this.drawingGeneration++;
+        // END KGU#1216 2026-10-19
         // START KGU#685 2020-12-14: Enh. #704
         this.bounds = new Rectangle();
         this.bounds.width = -1;
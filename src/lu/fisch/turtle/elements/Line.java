@@ -34,6 +34,7 @@ package lu.fisch.turtle.elements;
  *      Kay Gürtzig     2020-12-11      Enh. #704 API extension: draw(Graphics2D, Rectangle), getBounds()
  *                                      appendSpecificCSVInfo(StringBuilder, String)
  *      Kay Gürtzig     2020-12-22      Enh. #890 method getNearestPoint(Point, boolean) implemented
+ *      Kay Gürtzig     2026-10-19      KGU#1217: getNearestPoint() returned points beyond the end point
  *
  ******************************************************************************************************
  *
@@ -108,7 +109,10 @@ public class Line extends Element
             if (param < 0) {
                 return from;
             }
-            else if (param * param > dlen2) {
+            // START KGU#1217 2026-10-19: param is relative to the segment length
+            //else if (param * param > dlen2) {
+            else if (param > 1) {
+            // END KGU#1217 2026-10-19
                 return to;
             }
             Point nearest = new Point(from);
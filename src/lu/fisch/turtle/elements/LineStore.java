@@ -0,0 +1,313 @@
+/*
+    Turtlebox
+
+    Copyright (C) 2009  Bob Fisch
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package lu.fisch.turtle.elements;
+
+/******************************************************************************************************
+ *
+ *      Author:         Kay Gürtzig
+ *
+ *      Description:    LineStore - compact columnar storage of the lines of a Turtle drawing
+ *
+ ******************************************************************************************************
+ *
+ *      Revision List
+ *
+ *      Author          Date            Description
+ *      ------          ----            -----------
+ *      Kay Gürtzig     2026-10-19      First Issue (KGU#1217)
+ *      Kay Gürtzig     2026-10-19      KGU#1218: Method getCoords(int, int[]) added for allocation-free export
+ *
+ ******************************************************************************************************
+ *
+ *      Comment:
+ *      Instead of a Line object with two Point objects per segment, the coordinates are held in a
+ *      packed int array (four entries per line) and the colours as indices into a palette.
+ *      Lines are only appended by the drawing thread, whereas the GUI thread reads them. The count
+ *      is volatile and written after the data, so readers may safely access all lines below the
+ *      count they obtained.
+ *      For the snapping of the measuring line, a uniform grid index is built lazily: each line is
+ *      registered in the cells of sample points along it (at most one cell size apart), such that
+ *      a query extended by one cell in every direction finds all lines within the given radius.
+ *
+ ******************************************************************************************************///
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Compact, append-only storage for the lines of a Turtle drawing with a lazily
+ * built spatial grid index for nearest-point queries.
+ * @author Kay Gürtzig
+ */
+public class LineStore
+{
+    /** Edge length of the grid index cells in turtle world units */
+    private static final int CELL_SIZE = 32;
+    private static final int INITIAL_CAPACITY = 256;
+
+    /** Coordinates: xFrom, yFrom, xTo, yTo for every line */
+    private int[] coords = new int[4 * INITIAL_CAPACITY];
+    /** Palette index for every line */
+    private int[] colorIndices = new int[INITIAL_CAPACITY];
+    /** Number of lines, written after the line data */
+    private volatile int count = 0;
+
+    private final ArrayList<Color> palette = new ArrayList<Color>();
+    private final HashMap<Color, Integer> paletteIndex = new HashMap<Color, Integer>();
+
+    /** Grid index: cell key to an array of line indices (with the fill level at position 0) */
+    private final HashMap<Long, int[]> grid = new HashMap<Long, int[]>();
+    /** Number of lines already registered in the {@link #grid} */
+    private int nIndexed = 0;
+
+    /** @return the number of lines */
+    public int size()
+    {
+        return count;
+    }
+
+    /** @return {@code true} if there aren't any lines */
+    public boolean isEmpty()
+    {
+        return count == 0;
+    }
+
+    /**
+     * Appends a line from {@code from} to {@code to} with colour {@code color}
+     * @param from - start point
+     * @param to - end point
+     * @param color - line colour
+     */
+    public void add(Point from, Point to, Color color)
+    {
+        int n = count;
+        if (n >= colorIndices.length) {
+            int newCapacity = colorIndices.length * 2;
+            colorIndices = Arrays.copyOf(colorIndices, newCapacity);
+            coords = Arrays.copyOf(coords, 4 * newCapacity);
+        }
+        int ix = 4 * n;
+        coords[ix] = from.x;
+        coords[ix+1] = from.y;
+        coords[ix+2] = to.x;
+        coords[ix+3] = to.y;
+        Integer colIx = paletteIndex.get(color);
+        if (colIx == null) {
+            synchronized (palette) {
+                colIx = palette.size();
+                palette.add(color);
+            }
+            paletteIndex.put(color, colIx);
+        }
+        colorIndices[n] = colIx;
+        count = n + 1;
+    }
+
+    /**
+     * Removes all lines (and the grid index).<br/>
+     * The arrays and the palette are retained such that a concurrent reader still
+     * working with an outdated count won't fail.
+     */
+    public synchronized void clear()
+    {
+        count = 0;
+        grid.clear();
+        nIndexed = 0;
+    }
+
+    /** @return the start point of the line with index {@code i} */
+    public Point getFrom(int i)
+    {
+        int[] c = coords;
+        return new Point(c[4*i], c[4*i+1]);
+    }
+
+    /** @return the end point of the line with index {@code i} */
+    public Point getTo(int i)
+    {
+        int[] c = coords;
+        return new Point(c[4*i+2], c[4*i+3]);
+    }
+
+    /** @return the colour of the line with index {@code i} */
+    public Color getColor(int i)
+    {
+        int colIx = colorIndices[i];
+        synchronized (palette) {
+            return palette.get(colIx);
+        }
+    }
+
+    /**
+     * Copies the coordinates of the line with index {@code i} into the array
+     * {@code target} (without creating any objects)
+     * @param i - line index
+     * @param target - an array of length 4 at least
+     * @return {@code target}, now containing xFrom, yFrom, xTo, yTo
+     */
+    public int[] getCoords(int i, int[] target)
+    {
+        System.arraycopy(coords, 4 * i, target, 0, 4);
+        return target;
+    }
+
+    /**
+     * @param i - line index
+     * @return a {@link Line} object representing the line with index {@code i}
+     */
+    public Line get(int i)
+    {
+        return new Line(getFrom(i), getTo(i), getColor(i));
+    }
+
+    /**
+     * Draws the lines with indices {@code from} (inclusive) to {@code to} (exclusive)
+     * @param graphics - the 2D drawing environment
+     * @param from - index of the first line to be drawn
+     * @param to - index beyond the last line to be drawn
+     */
+    public void draw(Graphics2D graphics, int from, int to)
+    {
+        int[] c = coords;
+        int[] colIxs = colorIndices;
+        int lastColIx = -1;
+        for (int i = from; i < to; i++) {
+            int colIx = colIxs[i];
+            if (colIx != lastColIx) {
+                graphics.setColor(getColor(i));
+                lastColIx = colIx;
+            }
+            int ix = 4 * i;
+            graphics.drawLine(c[ix], c[ix+1], c[ix+2], c[ix+3]);
+        }
+    }
+
+    /**
+     * Returns the point of the nearest line within distance {@code radius} from the
+     * given point {@code pt}, where the lines are searched in index order and
+     * the search stops as soon as a line with distance below 0.5 is found.
+     * @param pt - the interesting point
+     * @param inter - true if intermediate points of the lines are also to be
+     * considered (otherwise only the end points)
+     * @param radius - the maximum distance
+     * @return the nearest point or {@code null} if no line is closer than {@code radius}
+     * @see Line#getNearestPoint(Point, boolean)
+     */
+    public synchronized Point getNearestPoint(Point pt, boolean inter, double radius)
+    {
+        int n = count;
+        updateIndex(n);
+        int ext = (int)Math.ceil(radius) + CELL_SIZE;
+        int cx0 = Math.floorDiv(pt.x - ext, CELL_SIZE);
+        int cx1 = Math.floorDiv(pt.x + ext, CELL_SIZE);
+        int cy0 = Math.floorDiv(pt.y - ext, CELL_SIZE);
+        int cy1 = Math.floorDiv(pt.y + ext, CELL_SIZE);
+        int[] candidates = new int[16];
+        int nCandidates = 0;
+        for (int cx = cx0; cx <= cx1; cx++) {
+            for (int cy = cy0; cy <= cy1; cy++) {
+                int[] cell = grid.get(cellKey(cx, cy));
+                if (cell != null) {
+                    int nEntries = cell[0];
+                    if (nCandidates + nEntries > candidates.length) {
+                        candidates = Arrays.copyOf(candidates, Math.max(2 * candidates.length, nCandidates + nEntries));
+                    }
+                    System.arraycopy(cell, 1, candidates, nCandidates, nEntries);
+                    nCandidates += nEntries;
+                }
+            }
+        }
+        // Emulate the search in index order
+        Arrays.sort(candidates, 0, nCandidates);
+        Point nearestPt = null;
+        double nearestDist = Double.MAX_VALUE;
+        int lastIx = -1;
+        for (int k = 0; k < nCandidates; k++) {
+            int i = candidates[k];
+            if (i == lastIx || i >= n) {
+                continue;
+            }
+            lastIx = i;
+            Point npt = get(i).getNearestPoint(pt, inter);
+            double dist = npt.distance(pt);
+            if (dist <= radius && dist < nearestDist) {
+                nearestPt = npt;
+                nearestDist = dist;
+                if (dist < 0.5) {
+                    break;
+                }
+            }
+        }
+        return nearestPt;
+    }
+
+    /**
+     * Registers the lines from {@link #nIndexed} up to {@code n} in the {@link #grid}.
+     * @param n - the number of lines to be indexed
+     */
+    private void updateIndex(int n)
+    {
+        int[] c = coords;
+        for (int i = nIndexed; i < n; i++) {
+            int ix = 4 * i;
+            int x0 = c[ix], y0 = c[ix+1], x1 = c[ix+2], y1 = c[ix+3];
+            int dx = x1 - x0, dy = y1 - y0;
+            int nSteps = Math.max(Math.abs(dx), Math.abs(dy)) / CELL_SIZE + 1;
+            long lastKey = Long.MIN_VALUE;
+            for (int step = 0; step <= nSteps; step++) {
+                int x = x0 + (int)((long)dx * step / nSteps);
+                int y = y0 + (int)((long)dy * step / nSteps);
+                long key = cellKey(Math.floorDiv(x, CELL_SIZE), Math.floorDiv(y, CELL_SIZE));
+                if (key != lastKey) {
+                    addToCell(key, i);
+                    lastKey = key;
+                }
+            }
+        }
+        nIndexed = n;
+    }
+
+    private void addToCell(long key, int lineIx)
+    {
+        int[] cell = grid.get(key);
+        if (cell == null) {
+            cell = new int[5];
+            grid.put(key, cell);
+        }
+        else if (cell[0] + 1 >= cell.length) {
+            cell = Arrays.copyOf(cell, 2 * cell.length);
+            grid.put(key, cell);
+        }
+        // Don't register the same line twice in a cell (may happen on non-consecutive sampling)
+        if (cell[0] == 0 || cell[cell[0]] != lineIx) {
+            cell[++cell[0]] = lineIx;
+        }
+    }
+
+    private static long cellKey(int cx, int cy)
+    {
+        return ((long)cx << 32) ^ (cy & 0xFFFFFFFFL);
+    }
+
+}
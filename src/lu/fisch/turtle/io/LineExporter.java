@@ -0,0 +1,245 @@
+/*
+    TurtleBox
+    A module providing a simple turtle graphics for Java
+
+    Copyright (C) 2009, 2020  Bob Fisch
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or any
+    later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lu.fisch.turtle.io;
+
+/******************************************************************************************************
+ *
+ *      Author:         Kay Gürtzig
+ *
+ *      Description:    Streaming CSV and SVG export of the lines of a TurtleBox drawing
+ *
+ ******************************************************************************************************
+ *
+ *      Revision List
+ *
+ *      Author          Date            Description
+ *      ------          ----            -----------
+ *      Kay Gürtzig     2026-10-19      First Issue (KGU#1218, extracted from TurtleBox.TurtleFrame)
+ *
+ ******************************************************************************************************
+ *
+ *      Comment:
+ *      The methods write the records directly to the given Writer without composing intermediate
+ *      strings per line and report their progress to a ProgressObserver, which may also abort the
+ *      export. So they are suited to run in a background thread.
+ *      In SVG export, consecutive connected segments of the same colour are combined into a path
+ *      (as before), and collinear segments of the same direction are merged into a single path step.
+ *
+ ******************************************************************************************************///
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.Writer;
+
+import lu.fisch.turtle.elements.LineStore;
+
+/**
+ * Writes the lines of a {@link LineStore} as CSV or SVG to a {@link Writer}
+ * @author Kay Gürtzig
+ */
+public class LineExporter {
+
+	/**
+	 * Receives progress information during an export and may abort it.
+	 */
+	public interface ProgressObserver {
+		/**
+		 * @param nDone - number of lines exported so far
+		 * @param nTotal - total number of lines to be exported
+		 * @return {@code false} if the export is to be aborted
+		 */
+		public boolean progress(int nDone, int nTotal);
+	}
+
+	/** Number of lines between two progress reports */
+	private static final int PROGRESS_INTERVAL = 1024;
+	/** Maximum number of points per SVG path */
+	private static final int MAX_POINTS_PER_PATH = 800;
+
+	private final LineStore lines;
+	private final int nLines;
+	private final ProgressObserver observer;
+
+	/**
+	 * Prepares the export of the first {@code nLines} lines of {@code lines}
+	 * @param lines - the line store
+	 * @param nLines - the number of lines to be exported (snapshot of the store size)
+	 * @param observer - a progress observer, or {@code null}
+	 */
+	public LineExporter(LineStore lines, int nLines, ProgressObserver observer)
+	{
+		this.lines = lines;
+		this.nLines = nLines;
+		this.observer = observer;
+	}
+
+	/**
+	 * Writes a CSV header row with the given {@code columns} and then one row per line.
+	 * @param out - the target writer
+	 * @param separator - the column separator ({@code ","} if {@code null} or empty)
+	 * @param columns - the column headers
+	 * @return {@code true} if the export was complete, {@code false} if aborted
+	 * @throws IOException
+	 */
+	public boolean writeCSV(Writer out, String separator, String[] columns) throws IOException
+	{
+		if (separator == null || separator.isEmpty()) {
+			separator = ",";
+		}
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0) {
+				out.write(separator);
+			}
+			out.write(columns[i]);
+		}
+		out.write(System.lineSeparator());
+		int[] coords = new int[4];
+		for (int i = 0; i < nLines; i++) {
+			if (i % PROGRESS_INTERVAL == 0 && !reportProgress(i)) {
+				return false;
+			}
+			lines.getCoords(i, coords);
+			for (int j = 0; j < 4; j++) {
+				out.write(Integer.toString(coords[j]));
+				out.write(separator);
+			}
+			out.write(Integer.toHexString(lines.getColor(i).getRGB()));
+			out.write(System.lineSeparator());
+		}
+		return reportProgress(nLines);
+	}
+
+	/**
+	 * Writes an SVG document showing the lines on the given background.
+	 * @param out - the target writer
+	 * @param title - the document title
+	 * @param creator - a name to be mentioned as creator in a comment
+	 * @param bounds - the bounds of the drawing
+	 * @param background - the background colour
+	 * @param scale - the scaling factor
+	 * @return {@code true} if the export was complete, {@code false} if aborted
+	 * @throws IOException
+	 */
+	public boolean writeSVG(Writer out, String title, String creator, Rectangle bounds, Color background, int scale)
+			throws IOException
+	{
+		int offsetX = -bounds.x, offsetY = -bounds.y;
+		out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+		out.write("<!-- Created with " + creator + " (https://structorizer.fisch.lu) -->\n");
+		out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" version=\"1.1\" width=\""
+				+ bounds.width * scale + "\" height=\""
+				+ bounds.height * scale + "\">\n");
+		out.write("  <title>" + title + "</title>\n");
+
+		/* Draw the background:
+		 * The fill colour must not be given as hex code, otherwise the rectangle
+		 * will always be black! */
+		out.write(String.format("    <rect style=\"fill:rgb(%d,%d,%d);fill-opacity:1\" ",
+				background.getRed(),
+				background.getGreen(),
+				background.getBlue()));
+		out.write(String.format(" x=\"0\" y=\"0\" width=\"%d\" height=\"%d\" ",
+				Math.round(bounds.width * scale),
+				Math.round(bounds.height * scale)));
+		out.write("id=\"background\"/>\n");
+
+		// Now export the elements
+		out.write("  <g id=\"elements\" style=\"fill:none;stroke-width:"
+				+ Math.round(scale) + "px;stroke-opacity:1:stroke-linejoin:miter\">\n");
+		int[] coords = new int[4];
+		boolean inPath = false;
+		int lastX = 0, lastY = 0;
+		Color lastCol = null;
+		int nPoints = 0;
+		// Pending (not yet written) step of the current path
+		int pendDX = 0, pendDY = 0;
+		boolean pending = false;
+		for (int i = 0; i < nLines; i++) {
+			if (i % PROGRESS_INTERVAL == 0 && !reportProgress(i)) {
+				return false;
+			}
+			lines.getCoords(i, coords);
+			Color col = lines.getColor(i);
+			int dx = coords[2] - coords[0];
+			int dy = coords[3] - coords[1];
+			boolean continues = inPath && lastX == coords[0] && lastY == coords[1] && col.equals(lastCol);
+			if (continues && pending
+					&& (dx == 0 && dy == 0 || pendDX == 0 && pendDY == 0
+					|| (long)pendDX * dy == (long)pendDY * dx && (long)pendDX * dx + (long)pendDY * dy > 0)) {
+				// Collinear continuation in the same direction (or a zero-length segment) - just extend the pending step
+				pendDX += dx;
+				pendDY += dy;
+			}
+			else {
+				if (pending) {
+					writeStep(out, pendDX * scale, pendDY * scale);
+					pending = false;
+				}
+				if (!continues || nPoints >= MAX_POINTS_PER_PATH) {
+					if (inPath) {
+						out.write("\" />\n");
+					}
+					out.write("    <path\n");
+					out.write("      style=\"stroke:#"
+							+ Integer.toHexString(col.getRGB()).substring(2)
+							+ "\"\n");
+					out.write(String.format("      id=\"path%1$05d\"\n", i));
+					out.write("      d=\"m ");
+					writeStep(out, (coords[0] + offsetX) * scale, (coords[1] + offsetY) * scale);
+					inPath = true;
+					nPoints = 0;
+				}
+				pendDX = dx;
+				pendDY = dy;
+				pending = true;
+				nPoints++;
+			}
+			lastX = coords[2];
+			lastY = coords[3];
+			lastCol = col;
+		}
+		if (pending) {
+			writeStep(out, pendDX * scale, pendDY * scale);
+		}
+		if (inPath) {
+			out.write("\" />\n");
+		}
+		out.write("  </g>\n");
+		out.write("</svg>\n");
+		return reportProgress(nLines);
+	}
+
+	/** Writes a coordinate pair "x,y " to {@code out} */
+	private void writeStep(Writer out, int x, int y) throws IOException
+	{
+		out.write(Integer.toString(x));
+		out.write(',');
+		out.write(Integer.toString(y));
+		out.write(' ');
+	}
+
+	private boolean reportProgress(int nDone)
+	{
+		return observer == null || observer.progress(nDone, nLines);
+	}
+
+}